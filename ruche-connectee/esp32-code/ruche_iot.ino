@@ -164,6 +164,7 @@ void readAndSendData() {
   DynamicJsonDocument doc(256);
   doc["ruche_id"] = rucheId;
   doc["timestamp"] = now;
+  doc["horodatage"] = (long long) now * 1000LL; // Millisecondes epoch, comparables sans conversion
   doc["temperature"] = temperature;
   doc["humidity"] = humidity;
   doc["couvercle_ouvert"] = lidOpen;
@@ -0,0 +1,82 @@
+package com.rucheconnectee;
+
+import com.rucheconnectee.model.DonneesCapteur;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Historiques synthétiques pour les benchmarks : une mesure par minute en remontant depuis une date fixe,
+ * valeurs pseudo-aléatoires reproductibles (graine fixe), au format des documents Firebase
+ * de ruche/{rucheId}/historique (sans champ horodatage, comme les mesures non migrées).
+ */
+public final class HistoriqueSynthetique {
+
+    public static final String RUCHE_ID = "887D681C0610";
+    public static final LocalDateTime FIN = LocalDateTime.of(2025, 6, 30, 23, 59, 0);
+
+    private static final DateTimeFormatter HEURE = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final char[] ALPHABET_CLE = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private HistoriqueSynthetique() {
+    }
+
+    /**
+     * Documents Firebase de n mesures, de la plus ancienne à la plus récente
+     */
+    public static List<Map<String, Object>> documents(int n) {
+        Random random = new Random(42);
+        List<Map<String, Object>> documents = new ArrayList<>(n);
+        LocalDateTime debut = FIN.minusMinutes(n - 1L);
+        for (int i = 0; i < n; i++) {
+            LocalDateTime instant = debut.plusMinutes(i);
+            Map<String, Object> document = new HashMap<>();
+            document.put("id", cle(random));
+            document.put("date", instant.toLocalDate().toString());
+            document.put("heure", instant.toLocalTime().format(HEURE));
+            document.put("temperature", Math.round((30 + 5 * Math.sin(i / 720.0) + random.nextGaussian()) * 10) / 10.0);
+            document.put("humidity", Math.round((60 + 10 * Math.cos(i / 720.0) + random.nextGaussian() * 2) * 10) / 10.0);
+            document.put("couvercle", random.nextInt(500) == 0 ? "OUVERT" : "FERME");
+            document.put("batterie", (long) (100 - (i / 1000) % 100));
+            document.put("signalQualite", (long) (40 + random.nextInt(60)));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    /**
+     * Mêmes mesures, décodées
+     */
+    public static List<DonneesCapteur> mesures(List<Map<String, Object>> documents) {
+        List<DonneesCapteur> mesures = new ArrayList<>(documents.size());
+        for (Map<String, Object> document : documents) {
+            DonneesCapteur mesure = new DonneesCapteur();
+            mesure.setId((String) document.get("id"));
+            mesure.setRucheId(RUCHE_ID);
+            mesure.setTimestamp(LocalDateTime.parse(document.get("date") + "T" + document.get("heure")));
+            mesure.setTemperature((Double) document.get("temperature"));
+            mesure.setHumidity((Double) document.get("humidity"));
+            mesure.setCouvercleOuvert("OUVERT".equals(document.get("couvercle")));
+            mesure.setBatterie(((Long) document.get("batterie")).intValue());
+            mesure.setSignalQualite(((Long) document.get("signalQualite")).intValue());
+            mesures.add(mesure);
+        }
+        return mesures;
+    }
+
+    /**
+     * Clé au format des clés push Firebase (20 caractères)
+     */
+    private static String cle(Random random) {
+        char[] cle = new char[20];
+        for (int i = 0; i < cle.length; i++) {
+            cle[i] = ALPHABET_CLE[random.nextInt(ALPHABET_CLE.length)];
+        }
+        return new String(cle);
+    }
+}
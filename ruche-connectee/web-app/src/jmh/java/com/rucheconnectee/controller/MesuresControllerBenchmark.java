@@ -0,0 +1,92 @@
+package com.rucheconnectee.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rucheconnectee.HistoriqueSynthetique;
+import com.rucheconnectee.model.DonneesCapteur;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions de MesuresController et sérialisation Jackson de la réponse de
+ * GET /api/mesures/ruche/{rucheId}/recentes, sur taille mesures (une opération = toutes les mesures)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class MesuresControllerBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int taille;
+
+    private final MesuresController controller = new MesuresController();
+    // Configuration de l'ObjectMapper de Spring Boot (dates ISO, pas de timestamps)
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private List<DonneesCapteur> mesures;
+    private List<Map<String, Object>> requetes;
+    private Map<String, Object> reponse;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        mesures = HistoriqueSynthetique.mesures(HistoriqueSynthetique.documents(taille));
+        requetes = new ArrayList<>(taille);
+        for (DonneesCapteur mesure : mesures) {
+            // Corps JSON d'un POST /api/mesures/ruche/{rucheId} une fois lu par Jackson
+            Map<String, Object> requete = new HashMap<>();
+            requete.put("timestamp", mesure.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            requete.put("temperature", mesure.getTemperature());
+            requete.put("humidity", mesure.getHumidity());
+            requete.put("couvercleOuvert", mesure.getCouvercleOuvert());
+            requete.put("batterie", mesure.getBatterie());
+            requete.put("signalQualite", mesure.getSignalQualite());
+            requetes.add(requete);
+        }
+
+        List<Map<String, Object>> converties = new ArrayList<>(taille);
+        for (DonneesCapteur mesure : mesures) {
+            converties.add(controller.convertToMap(mesure));
+        }
+        reponse = new HashMap<>();
+        reponse.put("status", "OK");
+        reponse.put("rucheId", HistoriqueSynthetique.RUCHE_ID);
+        reponse.put("periode", "24 heures");
+        reponse.put("nombreMesures", converties.size());
+        reponse.put("mesures", converties);
+        reponse.put("timestamp", System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public void convertToMap(Blackhole blackhole) {
+        for (DonneesCapteur mesure : mesures) {
+            blackhole.consume(controller.convertToMap(mesure));
+        }
+    }
+
+    @Benchmark
+    public void convertFromMap(Blackhole blackhole) {
+        for (Map<String, Object> requete : requetes) {
+            blackhole.consume(controller.convertFromMap(requete, HistoriqueSynthetique.RUCHE_ID));
+        }
+    }
+
+    @Benchmark
+    public void serialisationReponse() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), reponse);
+    }
+}
@@ -0,0 +1,132 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.HistoriqueSynthetique;
+import com.rucheconnectee.RucheConnecteeApplication;
+import com.rucheconnectee.model.DonneesCapteur;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemins chauds de MesuresService sur un historique entier de taille mesures (une opération = tout l'historique) :
+ * décodage des documents Firebase, lecture date/heure, puis les vraies méthodes getStatistiquesMesures et
+ * getMesuresParPeriode sur une application démarrée avec le stockage en mémoire (lecture comprise).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class MesuresServiceBenchmark {
+
+    /**
+     * Documents Firebase de l'historique, pour les conversions
+     */
+    @State(Scope.Benchmark)
+    public static class Documents {
+        @Param({"1000", "100000", "1000000"})
+        private int taille;
+
+        private List<Map<String, Object>> documents;
+        private String[] dates;
+        private String[] heures;
+
+        @Setup(Level.Trial)
+        public void preparer() {
+            documents = HistoriqueSynthetique.documents(taille);
+            dates = new String[taille];
+            heures = new String[taille];
+            for (int i = 0; i < taille; i++) {
+                dates[i] = (String) documents.get(i).get("date");
+                heures[i] = (String) documents.get(i).get("heure");
+            }
+        }
+    }
+
+    /**
+     * Application démarrée sur le stockage en mémoire, historique de la ruche écrit dans ruche/{rucheId}/historique.
+     * Cache, segments et agrégats sont vides ou désactivés : les statistiques sont calculées sur l'historique.
+     */
+    @State(Scope.Benchmark)
+    public static class Application {
+        @Param({"1000", "100000", "1000000"})
+        private int taille;
+
+        private ConfigurableApplicationContext contexte;
+        private MesuresService mesuresService;
+        private int nombreJours;
+        private LocalDateTime debutPeriode;
+        private LocalDateTime finPeriode;
+
+        @Setup(Level.Trial)
+        public void demarrer() {
+            contexte = new SpringApplicationBuilder(RucheConnecteeApplication.class)
+                .web(WebApplicationType.NONE)
+                // Arguments de ligne de commande : prioritaires sur application.properties
+                .run("--app.stockage=memoire",
+                    "--app.stockage.memoire.fichier=",
+                    "--app.mesures.cache.enabled=false",
+                    "--app.mesures.segments.enabled=false",
+                    "--app.mesures.ingestion.enabled=false",
+                    "--app.mesures.migration-horodatage.auto=false",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN");
+            mesuresService = contexte.getBean(MesuresService.class);
+            FirebaseService firebaseService = contexte.getBean(FirebaseService.class);
+
+            // Écriture par lots, sans garder les documents : le stockage en mémoire en tient sa propre copie
+            List<Map<String, Object>> documents = HistoriqueSynthetique.documents(taille);
+            for (int debut = 0; debut < documents.size(); debut += 10000) {
+                Map<String, Object> lot = new HashMap<>();
+                for (Map<String, Object> document : documents.subList(debut, Math.min(debut + 10000, documents.size()))) {
+                    Map<String, Object> valeur = new HashMap<>(document);
+                    lot.put((String) valeur.remove("id"), valeur);
+                }
+                firebaseService.updateCheminsAsync("ruche/" + HistoriqueSynthetique.RUCHE_ID + "/historique", lot).join();
+            }
+
+            // Statistiques sur tout l'historique, période sur sa moitié la plus récente
+            nombreJours = (int) ChronoUnit.DAYS.between(HistoriqueSynthetique.FIN.minusMinutes(taille), LocalDateTime.now()) + 1;
+            finPeriode = HistoriqueSynthetique.FIN;
+            debutPeriode = finPeriode.minusMinutes(taille / 2);
+        }
+
+        @TearDown(Level.Trial)
+        public void arreter() {
+            contexte.close();
+        }
+    }
+
+    @Benchmark
+    public void convertToDonneesCapteur(Documents etat, Blackhole blackhole) {
+        for (Map<String, Object> document : etat.documents) {
+            blackhole.consume(MesuresService.convertToDonneesCapteur(document, HistoriqueSynthetique.RUCHE_ID));
+        }
+    }
+
+    @Benchmark
+    public void parseDateTime(Documents etat, Blackhole blackhole) {
+        for (int i = 0; i < etat.dates.length; i++) {
+            blackhole.consume(MesuresService.parseDateTime(etat.dates[i], etat.heures[i]));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> statistiquesMesures(Application etat) {
+        return etat.mesuresService.getStatistiquesMesures(HistoriqueSynthetique.RUCHE_ID, etat.nombreJours);
+    }
+
+    @Benchmark
+    public List<DonneesCapteur> mesuresParPeriode(Application etat) {
+        return etat.mesuresService.getMesuresParPeriode(HistoriqueSynthetique.RUCHE_ID, etat.debutPeriode, etat.finPeriode);
+    }
+}
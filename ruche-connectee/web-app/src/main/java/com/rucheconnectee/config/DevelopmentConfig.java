@@ -18,7 +18,7 @@ public class DevelopmentConfig {
     @Bean
     public String developmentMode() {
         System.out.println("🔧 Mode développement activé - Utilisation de données mockées");
-        System.out.println("🚫 Firebase désactivé pour cette session");
+        System.out.println("🚫 Firebase désactivé pour cette session - stockage en mémoire");
         return "development";
     }
 } 
\ No newline at end of file
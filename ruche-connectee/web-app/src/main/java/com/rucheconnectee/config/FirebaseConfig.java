@@ -6,7 +6,7 @@ import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.FirebaseDatabase;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
@@ -17,11 +17,11 @@ import java.io.InputStream;
 
 /**
  * Configuration Firebase pour l'authentification et Realtime Database.
- * S'active uniquement si Firebase est configuré (mode production).
- * En mode développement, utilise les services mockés.
+ * S'active uniquement avec le stockage Firebase (app.stockage=firebase, mode production).
+ * Avec app.stockage=memoire ou app.use-mock-data=true, les données sont servies par MemoireStockage.
  */
 @Configuration
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
+@ConditionalOnExpression("'${app.stockage:firebase}' == 'firebase' and !${app.use-mock-data:false}")
 public class FirebaseConfig {
 
     @Value("${firebase.project-id:}")
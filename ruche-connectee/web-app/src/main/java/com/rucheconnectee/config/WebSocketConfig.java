@@ -0,0 +1,34 @@
+package com.rucheconnectee.config;
+
+import com.rucheconnectee.controller.TableauBordWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
+
+/**
+ * Configuration WebSocket : canal temps réel du tableau de bord (ws://.../ws/ruches).
+ * Les attributs de la session HTTP (firebaseUserId) sont recopiés dans la session WebSocket : la poignée de main
+ * n'est donc acceptée que depuis la même origine ou les origines de app.tableau-bord.ws.origines (par défaut
+ * celles du CORS), sans quoi une page tierce pourrait ouvrir le canal avec le cookie de session de l'utilisateur.
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private TableauBordWebSocketHandler tableauBordWebSocketHandler;
+
+    @Value("${app.tableau-bord.ws.origines:${spring.web.cors.allowed-origins:}}")
+    private String[] origines;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(tableauBordWebSocketHandler, "/ws/ruches")
+                .addInterceptors(new HttpSessionHandshakeInterceptor())
+                .setAllowedOrigins(origines);
+    }
+}
@@ -0,0 +1,183 @@
+package com.rucheconnectee.controller;
+
+import com.rucheconnectee.service.AlertesService;
+import com.rucheconnectee.service.AuthorizationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contrôleur REST des alertes (page /alertes) : lecture de l'état tenu en mémoire par AlertesService,
+ * inhibitions et alertes de test
+ */
+@RestController
+@RequestMapping("/api/alertes")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AlertesController {
+
+    private static final int MAX_JOURNAL = 500;
+
+    @Autowired
+    private AlertesService alertesService;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    /**
+     * Statut de la surveillance
+     * GET /api/alertes/statut
+     */
+    @GetMapping("/statut")
+    public ResponseEntity<Map<String, Object>> getStatut() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("surveillanceActive", alertesService.isEnabled());
+        response.put("nombreRuchesSurveillees", alertesService.getNombreRuchesSurveillees());
+        response.put("ruchesSurveillees", alertesService.getRuchesSurveillees());
+        response.put("nombreAlertesActives", alertesService.getNombreAlertesActives());
+        response.put("moteur", alertesService.getStatistiques());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Alertes actives, de toutes les ruches ou d'une seule
+     * GET /api/alertes/actives?rucheId=R001
+     */
+    @GetMapping("/actives")
+    public ResponseEntity<Map<String, Object>> getAlertesActives(@RequestParam(required = false) String rucheId) {
+        List<AlertesService.EvenementAlerte> alertes = alertesService.getAlertesActives(rucheId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("rucheId", rucheId);
+        response.put("nombreAlertes", alertes.size());
+        response.put("alertes", alertes);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Derniers évènements d'alerte (déclenchements, résolutions, expirations, tests)
+     * GET /api/alertes/journal?limit=100
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<Map<String, Object>> getJournal(@RequestParam(defaultValue = "100") int limit) {
+        List<AlertesService.EvenementAlerte> evenements = alertesService.getJournal(Math.max(1, Math.min(limit, MAX_JOURNAL)));
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("nombreEvenements", evenements.size());
+        response.put("evenements", evenements);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Inhibitions en cours : rucheId -> {dureeHeures, debutInhibition, finInhibition}
+     * GET /api/alertes/inhibition/actives
+     */
+    @GetMapping("/inhibition/actives")
+    public ResponseEntity<Map<String, AlertesService.Inhibition>> getInhibitionsActives() {
+        return ResponseEntity.ok(alertesService.getInhibitions());
+    }
+
+    /**
+     * Inhibe les alertes d'une ruche
+     * POST /api/alertes/inhibition {"rucheId": "R001", "dureeHeures": 2}
+     */
+    @PostMapping("/inhibition")
+    public ResponseEntity<Map<String, Object>> inhiber(@RequestBody Map<String, Object> body,
+                                                       @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId) {
+        Object rucheId = body.get("rucheId");
+        Object duree = body.get("dureeHeures");
+        if (!(rucheId instanceof String) || ((String) rucheId).isBlank() || (duree != null && !(duree instanceof Number))) {
+            return invalide("rucheId requis, dureeHeures numérique", null);
+        }
+        ResponseEntity<Map<String, Object>> refus = verifierAcces(apiculteurId, (String) rucheId);
+        if (refus != null) {
+            return refus;
+        }
+        try {
+            AlertesService.Inhibition inhibition = alertesService.inhiber((String) rucheId,
+                duree != null ? ((Number) duree).intValue() : null);
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "OK");
+            response.put("message", "Alertes inhibées");
+            response.put("rucheId", rucheId);
+            response.put("inhibition", inhibition);
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return invalide(e.getMessage(), (String) rucheId);
+        }
+    }
+
+    /**
+     * Lève l'inhibition d'une ruche
+     * DELETE /api/alertes/inhibition/{rucheId}
+     */
+    @DeleteMapping("/inhibition/{rucheId}")
+    public ResponseEntity<Map<String, Object>> leverInhibition(@PathVariable String rucheId,
+                                                               @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId) {
+        ResponseEntity<Map<String, Object>> refus = verifierAcces(apiculteurId, rucheId);
+        if (refus != null) {
+            return refus;
+        }
+        boolean levee = alertesService.leverInhibition(rucheId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", levee ? "OK" : "NOT_FOUND");
+        response.put("message", levee ? "Inhibition levée" : "Aucune inhibition pour cette ruche");
+        response.put("rucheId", rucheId);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(levee ? 200 : 404).body(response);
+    }
+
+    /**
+     * Émet une alerte de test
+     * POST /api/alertes/test {"rucheId": "R001"}
+     */
+    @PostMapping("/test")
+    public ResponseEntity<Map<String, Object>> tester(@RequestBody Map<String, Object> body,
+                                                      @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId) {
+        Object rucheId = body.get("rucheId");
+        if (!(rucheId instanceof String) || ((String) rucheId).isBlank()) {
+            return invalide("rucheId requis", null);
+        }
+        ResponseEntity<Map<String, Object>> refus = verifierAcces(apiculteurId, (String) rucheId);
+        if (refus != null) {
+            return refus;
+        }
+        AlertesService.EvenementAlerte evenement = alertesService.tester((String) rucheId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("message", evenement.isInhibee() ? "Alerte de test journalisée (ruche inhibée)" : "Alerte de test envoyée");
+        response.put("rucheId", rucheId);
+        response.put("evenement", evenement);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> verifierAcces(String apiculteurId, String rucheId) {
+        if (apiculteurId == null || authorizationService.hasAccessToRuche(apiculteurId, rucheId)) {
+            return null;
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "FORBIDDEN");
+        response.put("message", "Accès refusé à cette ruche");
+        response.put("error", "Accès refusé à cette ruche");
+        response.put("rucheId", rucheId);
+        return ResponseEntity.status(403).body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> invalide(String message, String rucheId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "INVALID");
+        response.put("message", message);
+        response.put("error", message);
+        response.put("rucheId", rucheId);
+        return ResponseEntity.status(400).body(response);
+    }
+}
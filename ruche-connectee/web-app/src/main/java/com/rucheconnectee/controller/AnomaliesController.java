@@ -0,0 +1,78 @@
+package com.rucheconnectee.controller;
+
+import com.rucheconnectee.service.AnomaliesService;
+import com.rucheconnectee.service.AuthorizationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contrôleur REST des anomalies détectées à l'ingestion par AnomaliesService (modèles EWMA par ruche)
+ */
+@RestController
+@RequestMapping("/api/anomalies")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AnomaliesController {
+
+    private static final int MAX_ANOMALIES = 500;
+
+    @Autowired
+    private AnomaliesService anomaliesService;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    /**
+     * Dernières anomalies de toutes les ruches
+     * GET /api/anomalies?limit=50
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getAnomalies(@RequestParam(defaultValue = "50") int limit) {
+        List<AnomaliesService.Anomalie> anomalies = anomaliesService.getJournal(Math.max(1, Math.min(limit, MAX_ANOMALIES)));
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("nombreAnomalies", anomalies.size());
+        response.put("anomalies", anomalies);
+        response.put("detection", anomaliesService.getStatistiques());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Modèles et dernières anomalies d'une ruche
+     * GET /api/anomalies/ruche/{rucheId}
+     */
+    @GetMapping("/ruche/{rucheId}")
+    public ResponseEntity<Map<String, Object>> getAnomaliesRuche(@PathVariable String rucheId,
+                                                                 @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId) {
+        if (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, rucheId)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "FORBIDDEN");
+            response.put("message", "Accès refusé à cette ruche");
+            response.put("rucheId", rucheId);
+            return ResponseEntity.status(403).body(response);
+        }
+
+        Map<String, Object> modeles = anomaliesService.getModeles(rucheId);
+        Map<String, Object> response = new HashMap<>();
+        if (modeles == null) {
+            response.put("status", "NOT_FOUND");
+            response.put("message", "Aucune mesure reçue pour cette ruche depuis le démarrage");
+            response.put("rucheId", rucheId);
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.status(404).body(response);
+        }
+        List<AnomaliesService.Anomalie> anomalies = anomaliesService.getAnomalies(rucheId);
+        response.put("status", "OK");
+        response.put("rucheId", rucheId);
+        response.put("modeles", modeles);
+        response.put("nombreAnomalies", anomalies.size());
+        response.put("anomalies", anomalies);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+}
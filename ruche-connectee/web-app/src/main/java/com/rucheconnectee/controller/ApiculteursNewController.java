@@ -3,7 +3,6 @@ package com.rucheconnectee.controller;
 import com.rucheconnectee.model.ApiculteursNew;
 import com.rucheconnectee.service.ApiculteursNewService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -14,7 +13,6 @@ import java.util.List;
 
 @Controller
 @RequestMapping("/ApiculteursNew")
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class ApiculteursNewController {
 
     @Autowired(required = false)
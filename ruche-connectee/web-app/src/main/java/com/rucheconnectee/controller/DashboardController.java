@@ -1,6 +1,8 @@
 package com.rucheconnectee.controller;
 
 import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.service.AlertesService;
+import com.rucheconnectee.service.AnomaliesService;
 import com.rucheconnectee.service.MesuresService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -22,6 +24,12 @@ public class DashboardController {
     @Autowired
     private MesuresService mesuresService;
 
+    @Autowired
+    private AlertesService alertesService;
+
+    @Autowired
+    private AnomaliesService anomaliesService;
+
     @GetMapping("/dashboard")
     public String dashboard(Model model, HttpSession session) {
         try {
@@ -40,6 +48,8 @@ public class DashboardController {
             model.addAttribute("firebaseUserId", session.getAttribute("firebaseUserId") != null ? 
                 session.getAttribute("firebaseUserId") : "demo-user");
             model.addAttribute("authType", "Demo");
+            model.addAttribute("alertesActives", alertesService.getNombreAlertesActives());
+            model.addAttribute("anomaliesRecentes", anomaliesService.getJournal(5));
             
             // Charger les données des mesures avec gestion d'erreur robuste
             try {
@@ -93,26 +103,26 @@ public class DashboardController {
         int totalMesures = 0;
         boolean hasErrors = false;
 
+        // Toutes les ruches sont lues en parallèle, avec un résultat partiel si certaines sont en retard
+        Map<String, MesuresService.ResumeRuche> resumes = mesuresService.getResumesRuches(rucheIds, 7);
+
         for (String rucheId : rucheIds) {
             try {
-                DonneesCapteur derniereMesure = null;
+                MesuresService.ResumeRuche resume = resumes.get(rucheId);
+                DonneesCapteur derniereMesure = resume.getDerniereMesure();
                 Map<String, Object> statistiques = new HashMap<>();
 
-                // Appel sécurisé pour récupérer la dernière mesure
-                try {
-                    derniereMesure = mesuresService.getDerniereMesure(rucheId);
-                } catch (Exception e) {
-                    System.err.println("Erreur lors de la récupération de la dernière mesure pour " + rucheId + ": " + e.getMessage());
+                if (resume.getErreurDerniereMesure() != null) {
+                    System.err.println("Erreur lors de la récupération de la dernière mesure pour " + rucheId + ": " + resume.getErreurDerniereMesure());
                     hasErrors = true;
                 }
 
-                // Appel sécurisé pour récupérer les statistiques
-                try {
-                    statistiques = mesuresService.getStatistiquesMesures(rucheId, 7);
-                } catch (Exception e) {
-                    System.err.println("Erreur lors de la récupération des statistiques pour " + rucheId + ": " + e.getMessage());
+                if (resume.getErreurStatistiques() != null) {
+                    System.err.println("Erreur lors de la récupération des statistiques pour " + rucheId + ": " + resume.getErreurStatistiques());
                     hasErrors = true;
                     statistiques.put("nombreMesures", 0);
+                } else {
+                    statistiques = resume.getStatistiques();
                 }
 
                 Map<String, Object> rucheData = new HashMap<>();
@@ -120,6 +130,7 @@ public class DashboardController {
                 rucheData.put("nom", "Ruche " + rucheId.substring(0, Math.min(rucheId.length(), 8)));
                 rucheData.put("rucherNom", "Rucher Principal");
                 rucheData.put("actif", derniereMesure != null);
+                rucheData.put("anomalie", anomaliesService.getDerniereAnomalie(rucheId, 24));
 
                 if (derniereMesure != null) {
                     rucheData.put("temperature", derniereMesure.getTemperature());
@@ -159,6 +170,7 @@ public class DashboardController {
                 rucheData.put("nom", "Ruche " + rucheId.substring(0, Math.min(rucheId.length(), 8)));
                 rucheData.put("rucherNom", "Rucher Principal");
                 rucheData.put("actif", false);
+                rucheData.put("anomalie", null);
                 rucheData.put("temperature", null);
                 rucheData.put("humidity", null);
                 rucheData.put("couvercleOuvert", false);
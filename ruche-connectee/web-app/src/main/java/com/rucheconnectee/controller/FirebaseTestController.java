@@ -6,7 +6,6 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.rucheconnectee.service.FirebaseService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,7 +20,6 @@ import java.util.Map;
  */
 @RestController
 @RequestMapping("/api/firebase-test")
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class FirebaseTestController {
 
     @Autowired(required = false)
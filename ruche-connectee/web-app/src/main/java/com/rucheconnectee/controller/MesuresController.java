@@ -1,17 +1,37 @@
 package com.rucheconnectee.controller;
 
 import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import com.rucheconnectee.model.SousEchantillonnage;
+import com.rucheconnectee.service.AgregatsMesuresService;
 import com.rucheconnectee.service.AuthorizationService;
+import com.rucheconnectee.service.FluxMesuresService;
+import com.rucheconnectee.service.IngestionMesuresService;
+import com.rucheconnectee.service.MesuresCache;
 import com.rucheconnectee.service.MesuresService;
+import com.rucheconnectee.service.MigrationHorodatageService;
+import com.rucheconnectee.service.SegmentsMesures;
+import com.rucheconnectee.service.ValidateursMesuresService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
 
 /**
  * Contrôleur REST pour la gestion des mesures des capteurs IoT
@@ -27,15 +47,47 @@ public class MesuresController {
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private MesuresCache mesuresCache;
+
+    @Autowired
+    private SegmentsMesures segmentsMesures;
+
+    @Autowired
+    private AgregatsMesuresService agregatsMesuresService;
+
+    @Autowired
+    private IngestionMesuresService ingestionMesuresService;
+
+    @Autowired
+    private MigrationHorodatageService migrationHorodatageService;
+
+    @Autowired
+    private FluxMesuresService fluxMesuresService;
+
+    @Autowired
+    private TableauBordWebSocketHandler tableauBordWebSocketHandler;
+
+    @Autowired
+    private ValidateursMesuresService validateursMesuresService;
+
+    @Value("${app.mesures.batch.max-mesures:10000}")
+    private int maxMesuresBatch;
+
+    // Clés Firebase : ni '.', '$', '#', '[', ']' ni '/'
+    private static final Pattern CLE_FIREBASE = Pattern.compile("[^.$#\\[\\]/]{1,128}");
+    private static final int MAX_ERREURS_VALIDATION = 50;
+    private static final int MAX_MESURES_PAGE = 1000;
+
     /**
-     * Récupère la dernière mesure d'une ruche
+     * Récupère la dernière mesure d'une ruche (304 si If-None-Match / If-Modified-Since est à jour)
      * GET /api/mesures/ruche/{rucheId}/derniere
      */
     @GetMapping("/ruche/{rucheId}/derniere")
-    public ResponseEntity<?> getDerniereMesure(@PathVariable String rucheId) {
-        try {
-            DonneesCapteur derniereMesure = mesuresService.getDerniereMesure(rucheId);
-            
+    public CompletableFuture<ResponseEntity<?>> getDerniereMesure(@PathVariable String rucheId,
+                                                                 @RequestHeader HttpHeaders enTetes) {
+        return validateursMesuresService.repondreAsync(rucheId, "derniere", false, enTetes,
+            () -> mesuresService.getDerniereMesureAsync(rucheId).<ResponseEntity<?>>thenApply(derniereMesure -> {
             if (derniereMesure == null) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("status", "NOT_FOUND");
@@ -52,59 +104,99 @@ public class MesuresController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("status", "ERROR");
-            errorResponse.put("message", "Erreur lors de la récupération de la dernière mesure");
-            errorResponse.put("error", e.getMessage());
-            errorResponse.put("rucheId", rucheId);
-            return ResponseEntity.status(500).body(errorResponse);
+        }).exceptionally(e -> errorResponse("Erreur lors de la récupération de la dernière mesure", e, rucheId)));
+    }
+
+    /**
+     * Flux des nouvelles mesures d'une ruche (Server-Sent Events, évènements "mesure").
+     * Le navigateur se reconnecte avec Last-Event-ID et reçoit les mesures manquées encore en tampon.
+     * GET /api/mesures/ruche/{rucheId}/stream
+     */
+    @GetMapping(value = "/ruche/{rucheId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMesures(@PathVariable String rucheId,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = fluxMesuresService.abonner(rucheId, lastEventId, this::convertToMap);
+        if (emitter == null) {
+            // Trop d'abonnés sur cette ruche : le client revient plus tard
+            return ResponseEntity.status(429)
+                .header("Retry-After", String.valueOf(fluxMesuresService.getRetryAfterSecondes()))
+                .build();
         }
+        return ResponseEntity.ok()
+            .header("Cache-Control", "no-cache")
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
     }
 
     /**
-     * Récupère toutes les mesures d'une ruche
-     * GET /api/mesures/ruche/{rucheId}
+     * Récupère l'historique d'une ruche page par page, des plus récentes aux plus anciennes mesures.
+     * before : curseur nextCursor de la page précédente ("horodatage:cle"), ou horodatage (ms epoch / ISO)
+     * pour les mesures antérieures à cet instant. nextCursor est absent (null) sur la dernière page.
+     * GET /api/mesures/ruche/{rucheId}?before=&limit=100
      */
     @GetMapping("/ruche/{rucheId}")
-    public ResponseEntity<?> getMesuresRuche(@PathVariable String rucheId,
-                                           @RequestParam(defaultValue = "100") int limit) {
+    public CompletableFuture<ResponseEntity<?>> getMesuresRuche(@PathVariable String rucheId,
+                                                               @RequestParam(required = false) String before,
+                                                               @RequestParam(defaultValue = "100") int limit) {
+        MesuresService.Curseur curseur;
         try {
-            List<DonneesCapteur> mesures = mesuresService.getMesuresRuche(rucheId);
-            
-            // Limiter le nombre de résultats
-            if (mesures.size() > limit) {
-                mesures = mesures.subList(0, limit);
-            }
-            
+            curseur = before != null && !before.isBlank() ? MesuresService.Curseur.parse(before.trim()) : null;
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "INVALID");
+            response.put("message", "Paramètre before invalide (attendu: horodatage:cle, millisecondes epoch ou date ISO)");
+            response.put("rucheId", rucheId);
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body(response));
+        }
+        int limite = Math.max(1, Math.min(limit, MAX_MESURES_PAGE));
+        
+        return mesuresService.getPageMesuresAsync(rucheId, curseur, limite).<ResponseEntity<?>>thenApply(page -> {
             Map<String, Object> response = new HashMap<>();
             response.put("status", "OK");
             response.put("rucheId", rucheId);
-            response.put("nombreMesures", mesures.size());
-            response.put("mesures", mesures.stream().map(this::convertToMap).toList());
+            response.put("nombreMesures", page.getMesures().size());
+            response.put("mesures", page.getMesures().stream().map(this::convertToMap).toList());
+            response.put("nextCursor", page.getCurseurSuivant() != null ? page.getCurseurSuivant().toString() : null);
             response.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("status", "ERROR");
-            errorResponse.put("message", "Erreur lors de la récupération des mesures");
-            errorResponse.put("error", e.getMessage());
-            errorResponse.put("rucheId", rucheId);
-            return ResponseEntity.status(500).body(errorResponse);
-        }
+        }).exceptionally(e -> errorResponse("Erreur lors de la récupération des mesures", e, rucheId));
     }
 
     /**
-     * Récupère les mesures récentes d'une ruche
-     * GET /api/mesures/ruche/{rucheId}/recentes?heures=24
+     * Récupère les mesures récentes d'une ruche (réponse conditionnelle, voir ValidateursMesuresService).
+     * Avec maxPoints, la série est réduite côté serveur pour les graphiques : mode lttb (forme de la courbe,
+     * par défaut) ou enveloppe (min/max par tranche), sur la grandeur serie (temperature, humidite, poids).
+     * GET /api/mesures/ruche/{rucheId}/recentes?heures=24&maxPoints=500&mode=lttb&serie=temperature
      */
     @GetMapping("/ruche/{rucheId}/recentes")
-    public ResponseEntity<?> getMesuresRecentes(@PathVariable String rucheId,
-                                              @RequestParam(defaultValue = "24") int heures) {
-        try {
-            List<DonneesCapteur> mesures = mesuresService.getMesuresRecentes(rucheId, heures);
+    public CompletableFuture<ResponseEntity<?>> getMesuresRecentes(@PathVariable String rucheId,
+                                                                  @RequestParam(defaultValue = "24") int heures,
+                                                                  @RequestParam(required = false) Integer maxPoints,
+                                                                  @RequestParam(defaultValue = "lttb") String mode,
+                                                                  @RequestParam(defaultValue = "temperature") String serie,
+                                                                  @RequestHeader HttpHeaders enTetes) {
+        SousEchantillonnage reduction = null;
+        if (maxPoints != null) {
+            try {
+                reduction = new SousEchantillonnage(SousEchantillonnage.Mode.valueOf(mode.toUpperCase(Locale.ROOT)),
+                    SousEchantillonnage.Grandeur.valueOf(serie.toUpperCase(Locale.ROOT)), maxPoints);
+            } catch (IllegalArgumentException e) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("status", "INVALID");
+                response.put("message", "Paramètres invalides (maxPoints >= 3 ; mode: lttb ou enveloppe ; serie: temperature, humidite ou poids)");
+                response.put("rucheId", rucheId);
+                return CompletableFuture.completedFuture(ResponseEntity.status(400).body(response));
+            }
+        }
+        SousEchantillonnage reductionRetenue = reduction;
+        String variante = "recentes" + heures + (reduction != null ? "-" + reduction : "");
+        
+        return validateursMesuresService.repondreAsync(rucheId, variante, true, enTetes,
+            () -> mesuresService.getSerieRecenteAsync(rucheId, heures).<ResponseEntity<?>>thenApply(serieMesures -> {
+            SerieCapteurs affichee = reductionRetenue != null ? reductionRetenue.appliquer(serieMesures) : serieMesures;
+            List<DonneesCapteur> mesures = affichee.versListeDecroissante(rucheId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("status", "OK");
@@ -112,18 +204,19 @@ public class MesuresController {
             response.put("periode", heures + " heures");
             response.put("nombreMesures", mesures.size());
             response.put("mesures", mesures.stream().map(this::convertToMap).toList());
+            if (reductionRetenue != null) {
+                Map<String, Object> sousEchantillonnage = new HashMap<>();
+                sousEchantillonnage.put("mode", reductionRetenue.getMode().name().toLowerCase(Locale.ROOT));
+                sousEchantillonnage.put("serie", reductionRetenue.getGrandeur().name().toLowerCase(Locale.ROOT));
+                sousEchantillonnage.put("maxPoints", reductionRetenue.getMaxPoints());
+                sousEchantillonnage.put("nombreMesuresSource", serieMesures.taille());
+                response.put("sousEchantillonnage", sousEchantillonnage);
+            }
             response.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("status", "ERROR");
-            errorResponse.put("message", "Erreur lors de la récupération des mesures récentes");
-            errorResponse.put("error", e.getMessage());
-            errorResponse.put("rucheId", rucheId);
-            return ResponseEntity.status(500).body(errorResponse);
-        }
+        }).exceptionally(e -> errorResponse("Erreur lors de la récupération des mesures récentes", e, rucheId)));
     }
 
     /**
@@ -131,11 +224,11 @@ public class MesuresController {
      * GET /api/mesures/ruche/{rucheId}/statistiques?jours=7
      */
     @GetMapping("/ruche/{rucheId}/statistiques")
-    public ResponseEntity<?> getStatistiquesMesures(@PathVariable String rucheId,
-                                                   @RequestParam(defaultValue = "7") int jours) {
-        try {
-            Map<String, Object> statistiques = mesuresService.getStatistiquesMesures(rucheId, jours);
-            
+    public CompletableFuture<ResponseEntity<?>> getStatistiquesMesures(@PathVariable String rucheId,
+                                                                      @RequestParam(defaultValue = "7") int jours,
+                                                                      @RequestHeader HttpHeaders enTetes) {
+        return validateursMesuresService.repondreAsync(rucheId, "statistiques" + jours, true, enTetes,
+            () -> mesuresService.getStatistiquesMesuresAsync(rucheId, jours).<ResponseEntity<?>>thenApply(statistiques -> {
             Map<String, Object> response = new HashMap<>();
             response.put("status", "OK");
             response.put("rucheId", rucheId);
@@ -145,25 +238,50 @@ public class MesuresController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("status", "ERROR");
-            errorResponse.put("message", "Erreur lors du calcul des statistiques");
-            errorResponse.put("error", e.getMessage());
-            errorResponse.put("rucheId", rucheId);
-            return ResponseEntity.status(500).body(errorResponse);
-        }
+        }).exceptionally(e -> errorResponse("Erreur lors du calcul des statistiques", e, rucheId)));
     }
 
     /**
      * Ajoute une nouvelle mesure pour une ruche
      * POST /api/mesures/ruche/{rucheId}
+     * La mesure est validée comme celles d'un lot (400 si invalide). Avec la file d'ingestion active,
+     * elle est ensuite acceptée (202) puis écrite en différé ; file pleine : 429 avec Retry-After.
      */
     @PostMapping("/ruche/{rucheId}")
     public ResponseEntity<?> ajouterMesure(@PathVariable String rucheId,
                                          @RequestBody Map<String, Object> mesureData) {
+        List<String> erreurs = new ArrayList<>();
+        if (!CLE_FIREBASE.matcher(rucheId).matches()) {
+            erreurs.add("rucheId invalide");
+        }
+        validerMesure(mesureData, "", false, erreurs);
+        if (!erreurs.isEmpty()) {
+            return ResponseEntity.badRequest().body(reponseInvalide("Mesure invalide", erreurs, rucheId));
+        }
+
         try {
             DonneesCapteur nouvelleMesure = convertFromMap(mesureData, rucheId);
+            
+            if (ingestionMesuresService.isEnabled()) {
+                if (!ingestionMesuresService.soumettre(rucheId, nouvelleMesure)) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("status", "TOO_MANY_REQUESTS");
+                    response.put("message", "File d'ingestion pleine, réessayer plus tard");
+                    response.put("rucheId", rucheId);
+                    return ResponseEntity.status(429)
+                        .header("Retry-After", String.valueOf(ingestionMesuresService.getRetryAfterSecondes()))
+                        .body(response);
+                }
+                
+                Map<String, Object> response = new HashMap<>();
+                response.put("status", "ACCEPTED");
+                response.put("message", "Mesure acceptée, écriture en cours");
+                response.put("rucheId", rucheId);
+                response.put("mesure", convertToMap(nouvelleMesure));
+                response.put("timestamp", System.currentTimeMillis());
+                return ResponseEntity.status(202).body(response);
+            }
+            
             DonneesCapteur mesureCreee = mesuresService.ajouterMesure(rucheId, nouvelleMesure);
             
             Map<String, Object> response = new HashMap<>();
@@ -186,24 +304,63 @@ public class MesuresController {
     }
 
     /**
-     * API mobile - Récupère la dernière mesure avec authentification
-     * GET /api/mobile/ruches/{rucheId}/derniere-mesure
+     * Ajoute un lot de mesures pour plusieurs ruches, chaque mesure portant son rucheId
+     * POST /api/mesures/batch
      */
-    @GetMapping("/mobile/ruches/{rucheId}/derniere-mesure")
-    public ResponseEntity<?> getDerniereMesureMobile(@PathVariable String rucheId,
-                                                   @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId) {
-        try {
-            // Vérifier que l'apiculteur a accès à cette ruche
-            if (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, rucheId)) {
-                return ResponseEntity.status(403).body(Map.of(
-                    "status", "FORBIDDEN",
-                    "message", "Accès refusé à cette ruche",
-                    "rucheId", rucheId
-                ));
-            }
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> ajouterMesuresBatch(@RequestBody List<Map<String, Object>> mesuresData) {
+        return ajouterLot(mesuresData, null);
+    }
+
+    /**
+     * Ajoute un lot de mesures pour une ruche
+     * POST /api/mesures/ruche/{rucheId}/batch
+     */
+    @PostMapping("/ruche/{rucheId}/batch")
+    public CompletableFuture<ResponseEntity<?>> ajouterMesuresBatchRuche(@PathVariable String rucheId,
+                                                                        @RequestBody List<Map<String, Object>> mesuresData) {
+        return ajouterLot(mesuresData, rucheId);
+    }
+
+    /**
+     * Recalcule les agrégats horaires et journaliers d'une ruche à partir de tout son historique
+     * POST /api/mesures/ruche/{rucheId}/agregats/reconstruire
+     */
+    @PostMapping("/ruche/{rucheId}/agregats/reconstruire")
+    public CompletableFuture<ResponseEntity<?>> reconstruireAgregats(@PathVariable String rucheId) {
+        return agregatsMesuresService.reconstruire(rucheId).<ResponseEntity<?>>thenApply(resultat -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "OK");
+            response.put("message", "Agrégats reconstruits");
+            response.put("rucheId", rucheId);
+            response.put("agregats", resultat);
+            response.put("timestamp", System.currentTimeMillis());
             
-            DonneesCapteur derniereMesure = mesuresService.getDerniereMesure(rucheId);
+            return ResponseEntity.ok(response);
             
+        }).exceptionally(e -> errorResponse("Erreur lors de la reconstruction des agrégats", e, rucheId));
+    }
+
+    /**
+     * API mobile - Récupère la dernière mesure avec authentification.
+     * Un client qui renvoie l'ETag ou la date reçus obtient 304 tant qu'aucune mesure n'est arrivée.
+     * GET /api/mesures/mobile/ruches/{rucheId}/derniere-mesure
+     */
+    @GetMapping("/mobile/ruches/{rucheId}/derniere-mesure")
+    public CompletableFuture<ResponseEntity<?>> getDerniereMesureMobile(@PathVariable String rucheId,
+                                                                       @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId,
+                                                                       @RequestHeader HttpHeaders enTetes) {
+        // Vérifier que l'apiculteur a accès à cette ruche
+        if (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, rucheId)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(403).body(Map.of(
+                "status", "FORBIDDEN",
+                "message", "Accès refusé à cette ruche",
+                "rucheId", rucheId
+            )));
+        }
+        
+        return validateursMesuresService.repondreAsync(rucheId, "mobile", false, enTetes,
+            () -> mesuresService.getDerniereMesureAsync(rucheId).<ResponseEntity<?>>thenApply(derniereMesure -> {
             if (derniereMesure == null) {
                 return ResponseEntity.status(404).body(Map.of(
                     "status", "NOT_FOUND",
@@ -226,13 +383,81 @@ public class MesuresController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                "status", "ERROR",
-                "message", "Erreur interne du serveur",
-                "error", e.getMessage()
-            ));
-        }
+        }).exceptionally(e -> ResponseEntity.status(500).body(Map.of(
+            "status", "ERROR",
+            "message", "Erreur interne du serveur",
+            "error", String.valueOf(unwrap(e).getMessage())
+        ))));
+    }
+
+    /**
+     * Compteurs du cache des mesures et des segments locaux
+     * GET /api/mesures/cache/statistiques
+     */
+    @GetMapping("/cache/statistiques")
+    public ResponseEntity<?> getStatistiquesCache() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("cache", mesuresCache.getStatistiques());
+        response.put("segments", segmentsMesures.getStatistiques());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Compteurs de la file d'ingestion (profondeur, refus, latence d'écriture des lots)
+     * GET /api/mesures/ingestion/statistiques
+     */
+    @GetMapping("/ingestion/statistiques")
+    public ResponseEntity<?> getStatistiquesIngestion() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("ingestion", ingestionMesuresService.getStatistiques());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Flux ouverts : ruches suivies et abonnés (SSE et WebSocket), connexions WebSocket du tableau de bord
+     * GET /api/mesures/flux/statistiques
+     */
+    @GetMapping("/flux/statistiques")
+    public ResponseEntity<?> getStatistiquesFlux() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("flux", fluxMesuresService.getStatistiques());
+        response.put("tableauBord", tableauBordWebSocketHandler.getStatistiques());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Lance (ou reprend) la migration du champ "horodatage" des historiques existants
+     * POST /api/mesures/migrations/horodatage
+     */
+    @PostMapping("/migrations/horodatage")
+    public ResponseEntity<?> demarrerMigrationHorodatage() {
+        boolean demarree = migrationHorodatageService.demarrer();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", demarree ? "STARTED" : "RUNNING");
+        response.put("message", demarree ? "Migration des horodatages lancée" : "Migration des horodatages déjà en cours");
+        response.put("migration", migrationHorodatageService.getEtat());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(202).body(response);
+    }
+
+    /**
+     * Avancement de la migration des horodatages
+     * GET /api/mesures/migrations/horodatage
+     */
+    @GetMapping("/migrations/horodatage")
+    public ResponseEntity<?> getMigrationHorodatage() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "OK");
+        response.put("migration", migrationHorodatageService.getEtat());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
     }
 
     /**
@@ -265,13 +490,139 @@ public class MesuresController {
 
     // --- Méthodes utilitaires ---
 
-    private Map<String, Object> convertToMap(DonneesCapteur mesure) {
+    /**
+     * Valide tout le lot avant d'écrire quoi que ce soit : une mesure invalide fait rejeter le lot (400)
+     */
+    private CompletableFuture<ResponseEntity<?>> ajouterLot(List<Map<String, Object>> mesuresData, String rucheId) {
+        List<String> erreurs = new ArrayList<>();
+        if (mesuresData == null || mesuresData.isEmpty()) {
+            erreurs.add("Le lot ne contient aucune mesure");
+        } else if (mesuresData.size() > maxMesuresBatch) {
+            erreurs.add("Le lot dépasse " + maxMesuresBatch + " mesures");
+        } else {
+            for (int i = 0; i < mesuresData.size() && erreurs.size() < MAX_ERREURS_VALIDATION; i++) {
+                validerMesure(mesuresData.get(i), i, rucheId == null, erreurs);
+            }
+        }
+        if (rucheId != null && !CLE_FIREBASE.matcher(rucheId).matches()) {
+            erreurs.add("rucheId invalide");
+        }
+
+        if (!erreurs.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(reponseInvalide("Lot de mesures invalide", erreurs, rucheId)));
+        }
+
+        Map<String, List<DonneesCapteur>> mesuresParRuche = new LinkedHashMap<>();
+        for (Map<String, Object> data : mesuresData) {
+            String id = rucheId != null ? rucheId : (String) data.get("rucheId");
+            DonneesCapteur mesure = convertFromMap(data, id);
+            mesure.setId((String) data.get("id"));
+            mesuresParRuche.computeIfAbsent(id, cle -> new ArrayList<>()).add(mesure);
+        }
+
+        return mesuresService.ajouterMesuresAsync(mesuresParRuche).<ResponseEntity<?>>thenApply(ignore -> {
+            Map<String, Integer> parRuche = new LinkedHashMap<>();
+            mesuresParRuche.forEach((id, mesures) -> parRuche.put(id, mesures.size()));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "CREATED");
+            response.put("message", "Mesures ajoutées avec succès");
+            response.put("nombreMesures", mesuresData.size());
+            response.put("mesuresParRuche", parRuche);
+            response.put("timestamp", System.currentTimeMillis());
+            if (rucheId != null) {
+                response.put("rucheId", rucheId);
+            }
+
+            return ResponseEntity.status(201).body(response);
+
+        }).exceptionally(e -> errorResponse("Erreur lors de l'ajout des mesures", e, rucheId));
+    }
+
+    private Map<String, Object> reponseInvalide(String message, List<String> erreurs, String rucheId) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", "INVALID");
+        errorResponse.put("message", message);
+        errorResponse.put("erreurs", erreurs);
+        errorResponse.put("rucheId", rucheId);
+        return errorResponse;
+    }
+
+    private void validerMesure(Map<String, Object> data, int index, boolean rucheIdRequis, List<String> erreurs) {
+        validerMesure(data, "mesures[" + index + "]: ", rucheIdRequis, erreurs);
+    }
+
+    private void validerMesure(Map<String, Object> data, String prefixe, boolean rucheIdRequis, List<String> erreurs) {
+        if (data == null) {
+            erreurs.add(prefixe + "mesure vide");
+            return;
+        }
+
+        if (rucheIdRequis && !(data.get("rucheId") instanceof String && CLE_FIREBASE.matcher((String) data.get("rucheId")).matches())) {
+            erreurs.add(prefixe + "rucheId manquant ou invalide");
+        }
+        if (data.get("id") != null && !(data.get("id") instanceof String && CLE_FIREBASE.matcher((String) data.get("id")).matches())) {
+            erreurs.add(prefixe + "id invalide");
+        }
+
+        if (!(data.get("timestamp") instanceof String)) {
+            erreurs.add(prefixe + "timestamp manquant");
+        } else {
+            try {
+                LocalDateTime.parse((String) data.get("timestamp"));
+            } catch (DateTimeParseException e) {
+                erreurs.add(prefixe + "timestamp invalide (attendu yyyy-MM-ddTHH:mm:ss)");
+            }
+        }
+
+        validerNombre(data, "temperature", -40, 85, prefixe, erreurs);
+        validerNombre(data, "humidity", 0, 100, prefixe, erreurs);
+        validerNombre(data, "batterie", 0, 100, prefixe, erreurs);
+        validerNombre(data, "signalQualite", 0, 100, prefixe, erreurs);
+        validerNombre(data, "poids", 0, 200, prefixe, erreurs);
+
+        if (data.get("couvercleOuvert") != null && !(data.get("couvercleOuvert") instanceof Boolean)) {
+            erreurs.add(prefixe + "couvercleOuvert doit être un booléen");
+        }
+        if (data.get("erreur") != null && !(data.get("erreur") instanceof String)) {
+            erreurs.add(prefixe + "erreur doit être une chaîne");
+        }
+    }
+
+    private void validerNombre(Map<String, Object> data, String champ, double min, double max,
+                               String prefixe, List<String> erreurs) {
+        Object valeur = data.get(champ);
+        if (valeur == null) {
+            return;
+        }
+        if (!(valeur instanceof Number)) {
+            erreurs.add(prefixe + champ + " doit être un nombre");
+        } else if (((Number) valeur).doubleValue() < min || ((Number) valeur).doubleValue() > max) {
+            erreurs.add(prefixe + champ + " hors limites [" + min + ", " + max + "]");
+        }
+    }
+
+    private ResponseEntity<?> errorResponse(String message, Throwable e, String rucheId) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", "ERROR");
+        errorResponse.put("message", message);
+        errorResponse.put("error", unwrap(e).getMessage());
+        errorResponse.put("rucheId", rucheId);
+        return ResponseEntity.status(500).body(errorResponse);
+    }
+
+    private Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    Map<String, Object> convertToMap(DonneesCapteur mesure) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", mesure.getId());
         map.put("rucheId", mesure.getRucheId());
         map.put("timestamp", mesure.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         map.put("temperature", mesure.getTemperature());
         map.put("humidity", mesure.getHumidity());
+        map.put("poids", mesure.getPoids());
         map.put("couvercleOuvert", mesure.getCouvercleOuvert());
         map.put("batterie", mesure.getBatterie());
         map.put("signalQualite", mesure.getSignalQualite());
@@ -279,7 +630,7 @@ public class MesuresController {
         return map;
     }
 
-    private DonneesCapteur convertFromMap(Map<String, Object> data, String rucheId) {
+    DonneesCapteur convertFromMap(Map<String, Object> data, String rucheId) {
         DonneesCapteur mesure = new DonneesCapteur();
         mesure.setRucheId(rucheId);
         
@@ -297,6 +648,10 @@ public class MesuresController {
             mesure.setHumidity(((Number) data.get("humidity")).doubleValue());
         }
         
+        if (data.get("poids") != null) {
+            mesure.setPoids(((Number) data.get("poids")).doubleValue());
+        }
+        
         if (data.get("couvercleOuvert") != null) {
             mesure.setCouvercleOuvert((Boolean) data.get("couvercleOuvert"));
         }
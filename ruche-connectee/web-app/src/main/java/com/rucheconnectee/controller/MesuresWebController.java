@@ -159,24 +159,24 @@ public class MesuresWebController {
             
             java.util.List<java.util.Map<String, Object>> ruchesData = new java.util.ArrayList<>();
             
+            // Toutes les ruches sont lues en parallèle, avec un résultat partiel si certaines sont en retard
+            Map<String, MesuresService.ResumeRuche> resumes = mesuresService.getResumesRuches(rucheIds, 7);
+            
             for (String rucheId : rucheIds) {
                 try {
-                    DonneesCapteur derniereMesure = null;
+                    MesuresService.ResumeRuche resume = resumes.get(rucheId);
+                    DonneesCapteur derniereMesure = resume.getDerniereMesure();
                     Map<String, Object> statistiques = new java.util.HashMap<>();
 
-                    // Appel sécurisé pour récupérer la dernière mesure
-                    try {
-                        derniereMesure = mesuresService.getDerniereMesure(rucheId);
-                    } catch (Exception e) {
-                        System.err.println("Erreur lors de la récupération de la dernière mesure pour " + rucheId + ": " + e.getMessage());
+                    if (resume.getErreurDerniereMesure() != null) {
+                        System.err.println("Erreur lors de la récupération de la dernière mesure pour " + rucheId + ": " + resume.getErreurDerniereMesure());
                     }
 
-                    // Appel sécurisé pour récupérer les statistiques
-                    try {
-                        statistiques = mesuresService.getStatistiquesMesures(rucheId, 7);
-                    } catch (Exception e) {
-                        System.err.println("Erreur lors de la récupération des statistiques pour " + rucheId + ": " + e.getMessage());
+                    if (resume.getErreurStatistiques() != null) {
+                        System.err.println("Erreur lors de la récupération des statistiques pour " + rucheId + ": " + resume.getErreurStatistiques());
                         statistiques.put("nombreMesures", 0);
+                    } else {
+                        statistiques = resume.getStatistiques();
                     }
 
                     java.util.Map<String, Object> rucheData = new java.util.HashMap<>();
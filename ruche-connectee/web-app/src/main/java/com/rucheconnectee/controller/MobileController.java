@@ -3,7 +3,9 @@ package com.rucheconnectee.controller;
 import com.rucheconnectee.model.DonneesCapteur;
 import com.rucheconnectee.service.AuthorizationService;
 import com.rucheconnectee.service.MesuresService;
+import com.rucheconnectee.service.ValidateursMesuresService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,6 +14,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Contrôleur API mobile pour l'application Flutter
@@ -26,6 +30,9 @@ public class MobileController {
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private ValidateursMesuresService validateursMesuresService;
+
     /**
      * Récupération des ruches pour l'application mobile
      */
@@ -87,24 +94,25 @@ public class MobileController {
     }
 
     /**
-     * API mobile - Récupère la dernière mesure avec authentification
+     * API mobile - Récupère la dernière mesure avec authentification.
+     * Un client qui renvoie l'ETag ou la date reçus obtient 304 tant qu'aucune mesure n'est arrivée.
      * GET /api/mobile/ruches/{rucheId}/derniere-mesure
      */
     @GetMapping("/ruches/{rucheId}/derniere-mesure")
-    public ResponseEntity<?> getDerniereMesureMobile(@PathVariable String rucheId,
-                                                   @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId) {
-        try {
-            // Vérifier que l'apiculteur a accès à cette ruche
-            if (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, rucheId)) {
-                return ResponseEntity.status(403).body(Map.of(
-                    "status", "FORBIDDEN",
-                    "message", "Accès refusé à cette ruche",
-                    "rucheId", rucheId
-                ));
-            }
-            
-            DonneesCapteur derniereMesure = mesuresService.getDerniereMesure(rucheId);
-            
+    public CompletableFuture<ResponseEntity<?>> getDerniereMesureMobile(@PathVariable String rucheId,
+                                                                       @RequestHeader(value = "X-Apiculteur-ID", required = false) String apiculteurId,
+                                                                       @RequestHeader HttpHeaders enTetes) {
+        // Vérifier que l'apiculteur a accès à cette ruche
+        if (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, rucheId)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(403).body(Map.of(
+                "status", "FORBIDDEN",
+                "message", "Accès refusé à cette ruche",
+                "rucheId", rucheId
+            )));
+        }
+        
+        return validateursMesuresService.repondreAsync(rucheId, "mobile", false, enTetes,
+            () -> mesuresService.getDerniereMesureAsync(rucheId).<ResponseEntity<?>>thenApply(derniereMesure -> {
             if (derniereMesure == null) {
                 return ResponseEntity.status(404).body(Map.of(
                     "status", "NOT_FOUND",
@@ -127,13 +135,11 @@ public class MobileController {
             
             return ResponseEntity.ok(response);
             
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of(
-                "status", "ERROR",
-                "message", "Erreur interne du serveur",
-                "error", e.getMessage()
-            ));
-        }
+        }).exceptionally(e -> ResponseEntity.status(500).body(Map.of(
+            "status", "ERROR",
+            "message", "Erreur interne du serveur",
+            "error", String.valueOf((e instanceof CompletionException && e.getCause() != null ? e.getCause() : e).getMessage())
+        ))));
     }
 
     // --- Méthodes utilitaires ---
@@ -4,7 +4,6 @@ import com.rucheconnectee.model.RuchesNew;
 import com.rucheconnectee.service.RuchesNewService;
 import com.rucheconnectee.service.RuchersNewService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -14,7 +13,6 @@ import java.util.List;
 
 @Controller
 @RequestMapping("/RuchesNew")
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class RuchesNewController {
 
     @Autowired
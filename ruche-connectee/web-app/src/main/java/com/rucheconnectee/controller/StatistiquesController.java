@@ -0,0 +1,183 @@
+package com.rucheconnectee.controller;
+
+import com.rucheconnectee.model.RuchesNew;
+import com.rucheconnectee.model.SerieCapteurs;
+import com.rucheconnectee.service.AuthorizationService;
+import com.rucheconnectee.service.ExportMesuresService;
+import com.rucheconnectee.service.RuchesNewService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Contrôleur REST des exports de la page statistiques
+ */
+@RestController
+@RequestMapping("/api/statistiques")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class StatistiquesController {
+
+    @Autowired
+    private ExportMesuresService exportMesuresService;
+
+    @Autowired
+    private RuchesNewService ruchesNewService;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Value("${app.statistiques.export.timeout-ms:1800000}")
+    private long timeoutExportMs;
+
+    // Période : nombre suivi de d (jours), m (mois) ou y (années), ex. 7d, 3m, 1y
+    private static final Pattern PERIODE = Pattern.compile("(\\d{1,4})([dmy])");
+
+    /**
+     * Exporte les mesures brutes de la période en CSV (par défaut) ou NDJSON, écrites au fil de la lecture
+     * de Firebase ; compressées en gzip si le client l'accepte.
+     * Ruches exportées : rucheId (répétable), sinon celles du rucher rucherId, sinon toutes les ruches
+     * accessibles à l'apiculteur connecté (refusé sans apiculteur connecté).
+     * La place parmi les exports simultanés est prise et rendue dans la tâche qui écrit la réponse.
+     * GET /api/statistiques/export?periode=30d&format=csv&rucheId=...&rucherId=...
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<ResponseEntity<?>> exporter(@RequestParam(defaultValue = "30d") String periode,
+                                                    @RequestParam(defaultValue = "csv") String format,
+                                                    @RequestParam(required = false) List<String> rucheId,
+                                                    @RequestParam(required = false) String rucherId,
+                                                    @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+                                                    HttpServletResponse response, HttpSession session) {
+        Matcher matcher = PERIODE.matcher(periode);
+        ExportMesuresService.Format formatExport;
+        try {
+            formatExport = ExportMesuresService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            formatExport = null;
+        }
+        if (!matcher.matches() || formatExport == null) {
+            Map<String, Object> erreur = new HashMap<>();
+            erreur.put("status", "INVALID");
+            erreur.put("message", "Paramètres invalides (periode: 7d, 3m, 1y... ; format: csv ou ndjson)");
+            return reponse(ResponseEntity.status(400).body(erreur));
+        }
+
+        Object apiculteurId = session.getAttribute("firebaseUserId");
+        if (apiculteurId == null && (rucheId == null || rucheId.isEmpty()) && rucherId == null) {
+            Map<String, Object> erreur = new HashMap<>();
+            erreur.put("status", "UNAUTHORIZED");
+            erreur.put("message", "Connexion requise pour exporter toutes les ruches (ou préciser rucheId / rucherId)");
+            return reponse(ResponseEntity.status(401).body(erreur));
+        }
+
+        List<String> ruches;
+        try {
+            ruches = ruchesExportees(rucheId, rucherId, apiculteurId != null ? apiculteurId.toString() : null);
+        } catch (SecurityException e) {
+            Map<String, Object> erreur = new HashMap<>();
+            erreur.put("status", "FORBIDDEN");
+            erreur.put("message", e.getMessage());
+            return reponse(ResponseEntity.status(403).body(erreur));
+        } catch (RuntimeException e) {
+            Map<String, Object> erreur = new HashMap<>();
+            erreur.put("status", "ERROR");
+            erreur.put("message", "Erreur lors de la récupération des ruches");
+            erreur.put("error", e.getMessage());
+            return reponse(ResponseEntity.status(500).body(erreur));
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        int quantite = Integer.parseInt(matcher.group(1));
+        LocalDateTime depuis = switch (matcher.group(2)) {
+            case "d" -> maintenant.minusDays(quantite);
+            case "m" -> maintenant.minusMonths(quantite);
+            default -> maintenant.minusYears(quantite);
+        };
+        long debut = SerieCapteurs.versEpochMillis(depuis);
+        long fin = SerieCapteurs.versEpochMillis(maintenant);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ExportMesuresService.Format formatRetenu = formatExport;
+
+        // Un export long dépasse le délai asynchrone global (spring.mvc.async.request-timeout)
+        return new WebAsyncTask<>(timeoutExportMs, () -> {
+            if (!exportMesuresService.reserver()) {
+                Map<String, Object> erreur = new HashMap<>();
+                erreur.put("status", "TOO_MANY_REQUESTS");
+                erreur.put("message", "Trop d'exports en cours, réessayer plus tard");
+                return ResponseEntity.status(429)
+                    .header("Retry-After", String.valueOf(exportMesuresService.getRetryAfterSecondes()))
+                    .body(erreur);
+            }
+            try {
+                response.setContentType(formatRetenu.getTypeContenu() + ";charset=UTF-8");
+                response.setHeader("Content-Disposition", "attachment; filename=\"mesures-" + periode + "." + formatRetenu.getExtension() + "\"");
+                response.setHeader("Vary", "Accept-Encoding");
+                response.setHeader("X-Accel-Buffering", "no");
+                OutputStream sortie = response.getOutputStream();
+                if (gzip) {
+                    response.setHeader("Content-Encoding", "gzip");
+                    // syncFlush : chaque bloc vidé part compressé vers le client sans attendre la fin
+                    GZIPOutputStream compression = new GZIPOutputStream(sortie, 8192, true);
+                    exportMesuresService.exporter(ruches, debut, fin, formatRetenu, compression);
+                    compression.finish();
+                } else {
+                    exportMesuresService.exporter(ruches, debut, fin, formatRetenu, sortie);
+                }
+                sortie.flush();
+            } finally {
+                exportMesuresService.liberer();
+            }
+            // Réponse déjà écrite
+            return null;
+        });
+    }
+
+    private static WebAsyncTask<ResponseEntity<?>> reponse(ResponseEntity<?> reponse) {
+        return new WebAsyncTask<>(() -> reponse);
+    }
+
+    /**
+     * Ruches de l'export, vérifiées contre l'apiculteur connecté s'il y en a un
+     */
+    private List<String> ruchesExportees(List<String> rucheIds, String rucherId, String apiculteurId) {
+        Set<String> ruches = new LinkedHashSet<>();
+        if (rucheIds != null && !rucheIds.isEmpty()) {
+            for (String id : rucheIds) {
+                if (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, id)) {
+                    throw new SecurityException("Accès refusé à la ruche " + id);
+                }
+                ruches.add(id);
+            }
+        } else if (rucherId != null) {
+            if (apiculteurId != null && !authorizationService.hasAccessToRucher(apiculteurId, rucherId)) {
+                throw new SecurityException("Accès refusé au rucher " + rucherId);
+            }
+            for (RuchesNew ruche : ruchesNewService.findByRucherId(rucherId)) {
+                ruches.add(ruche.getId());
+            }
+        } else {
+            for (RuchesNew ruche : ruchesNewService.findAll()) {
+                if (apiculteurId == null || authorizationService.hasAccessToRuche(apiculteurId, ruche.getId())) {
+                    ruches.add(ruche.getId());
+                }
+            }
+        }
+        return new ArrayList<>(ruches);
+    }
+}
@@ -0,0 +1,353 @@
+package com.rucheconnectee.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.RuchesNew;
+import com.rucheconnectee.model.SerieCapteurs;
+import com.rucheconnectee.service.AuthorizationService;
+import com.rucheconnectee.service.FluxMesuresService;
+import com.rucheconnectee.service.RuchesNewService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Canal WebSocket du tableau de bord : une connexion suit un ensemble de ruches ou un rucher entier.
+ *
+ * Messages du client :
+ *   {"action":"abonner","ruches":["R001","R002"]}  ou  {"action":"abonner","rucher":"rucherId"}
+ *   {"action":"desabonner","ruches":["R001"]}
+ * Le serveur répond {"type":"abonnement",...} puis envoie des trames
+ *   {"type":"delta","ruches":{"R001":{"horodatage":...,"temperature":...,"couvercleOuvert":...}}}
+ * ne contenant que les valeurs changées depuis la trame précédente de la connexion.
+ *
+ * Les mesures sont regroupées par connexion pendant app.tableau-bord.ws.fenetre-ms (seule la plus récente
+ * de chaque ruche est gardée). Tant qu'une trame est en cours d'écriture, la connexion n'en reçoit pas
+ * d'autre : les mesures continuent d'être regroupées, la mémoire restant bornée par le nombre de ruches
+ * suivies. Une connexion qui dépasse le délai ou le tampon d'envoi est fermée.
+ */
+@Component
+public class TableauBordWebSocketHandler extends TextWebSocketHandler {
+
+    @Autowired
+    private FluxMesuresService fluxMesuresService;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Autowired
+    private RuchesNewService ruchesNewService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.tableau-bord.ws.max-ruches:500}")
+    private int maxRuches;
+
+    @Value("${app.tableau-bord.ws.delai-envoi-ms:10000}")
+    private int delaiEnvoiMs;
+
+    @Value("${app.tableau-bord.ws.tampon-octets:524288}")
+    private int tamponOctets;
+
+    @Value("${app.tableau-bord.ws.threads:4}")
+    private int threads;
+
+    private final Map<String, Connexion> connexions = new ConcurrentHashMap<>();
+    private ExecutorService envois;
+
+    @PostConstruct
+    public void demarrer() {
+        envois = Executors.newFixedThreadPool(threads, tache -> {
+            Thread thread = new Thread(tache, "tableau-bord-ws");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // La connexion est enregistrée avant tout message : un abonnement ne peut pas la précéder
+        WebSocketSession decoree = new ConcurrentWebSocketSessionDecorator(session, delaiEnvoiMs, tamponOctets);
+        Object apiculteurId = session.getAttributes().get("firebaseUserId");
+        connexions.put(session.getId(), new Connexion(decoree, apiculteurId != null ? apiculteurId.toString() : null));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        Connexion connexion = connexions.get(session.getId());
+        if (connexion == null) {
+            return;
+        }
+
+        JsonNode requete;
+        try {
+            requete = objectMapper.readTree(message.getPayload());
+        } catch (IOException e) {
+            connexion.envoyer(Map.of("type", "erreur", "message", "Message JSON invalide"));
+            return;
+        }
+
+        String action = requete.path("action").asText();
+        List<String> ruches = new ArrayList<>();
+        requete.path("ruches").forEach(id -> ruches.add(id.asText()));
+
+        try {
+            if ("abonner".equals(action)) {
+                String rucherId = requete.path("rucher").asText(null);
+                if (rucherId != null) {
+                    if (connexion.apiculteurId != null && !authorizationService.hasAccessToRucher(connexion.apiculteurId, rucherId)) {
+                        connexion.envoyer(Map.of("type", "erreur", "message", "Accès refusé au rucher " + rucherId));
+                        return;
+                    }
+                    for (RuchesNew ruche : ruchesNewService.findByRucherId(rucherId)) {
+                        ruches.add(ruche.getId());
+                    }
+                }
+                connexion.abonner(ruches);
+            } else if ("desabonner".equals(action)) {
+                connexion.desabonner(ruches);
+            } else {
+                connexion.envoyer(Map.of("type", "erreur", "message", "Action inconnue: " + action));
+            }
+        } catch (RuntimeException e) {
+            Map<String, Object> erreur = new HashMap<>();
+            erreur.put("type", "erreur");
+            erreur.put("message", "Erreur lors de l'abonnement");
+            erreur.put("error", e.getMessage());
+            connexion.envoyer(erreur);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connexion connexion = connexions.remove(session.getId());
+        if (connexion != null) {
+            connexion.fermer();
+        }
+    }
+
+    /**
+     * Fin de la fenêtre de regroupement : chaque connexion libre reçoit les changements en attente
+     */
+    @Scheduled(fixedDelayString = "${app.tableau-bord.ws.fenetre-ms:500}")
+    public void vider() {
+        for (Connexion connexion : connexions.values()) {
+            if (!connexion.enAttente.isEmpty() && connexion.envoiEnCours.compareAndSet(false, true)) {
+                envois.execute(connexion::envoyerDeltas);
+            }
+        }
+    }
+
+    /**
+     * Connexions et ruches suivies
+     */
+    public Map<String, Object> getStatistiques() {
+        int ruches = 0;
+        for (Connexion connexion : connexions.values()) {
+            ruches += connexion.abonnements.size();
+        }
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("connexions", connexions.size());
+        statistiques.put("abonnements", ruches);
+        return statistiques;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        connexions.values().forEach(Connexion::fermer);
+        connexions.clear();
+        envois.shutdownNow();
+    }
+
+    /**
+     * Valeurs transmises au tableau de bord pour une mesure
+     */
+    private static Map<String, Object> valeurs(DonneesCapteur mesure) {
+        Map<String, Object> valeurs = new LinkedHashMap<>();
+        valeurs.put("horodatage", SerieCapteurs.versEpochMillis(mesure.getTimestamp()));
+        valeurs.put("temperature", mesure.getTemperature());
+        valeurs.put("humidity", mesure.getHumidity());
+        valeurs.put("couvercleOuvert", mesure.getCouvercleOuvert());
+        valeurs.put("batterie", mesure.getBatterie());
+        valeurs.put("signalQualite", mesure.getSignalQualite());
+        return valeurs;
+    }
+
+    /**
+     * Une connexion WebSocket et ses abonnements
+     */
+    private final class Connexion implements FluxMesuresService.RecepteurMesures {
+        private final WebSocketSession session;
+        private final String apiculteurId;
+        private final Map<String, FluxMesuresService.Abonnement> abonnements = new ConcurrentHashMap<>();
+        // Dernière mesure reçue par ruche depuis la dernière trame
+        private final Map<String, DonneesCapteur> enAttente = new ConcurrentHashMap<>();
+        // Valeurs déjà transmises par ruche, base des deltas
+        private final Map<String, Map<String, Object>> transmises = new ConcurrentHashMap<>();
+        private final AtomicBoolean envoiEnCours = new AtomicBoolean();
+        private volatile boolean fermee;
+
+        private Connexion(WebSocketSession session, String apiculteurId) {
+            this.session = session;
+            this.apiculteurId = apiculteurId;
+        }
+
+        void abonner(List<String> ruches) {
+            List<String> acceptees = new ArrayList<>();
+            List<String> refusees = new ArrayList<>();
+
+            for (String rucheId : new LinkedHashSet<>(ruches)) {
+                if (abonnements.containsKey(rucheId)) {
+                    acceptees.add(rucheId);
+                    continue;
+                }
+                if (abonnements.size() >= maxRuches
+                        || (apiculteurId != null && !authorizationService.hasAccessToRuche(apiculteurId, rucheId))) {
+                    refusees.add(rucheId);
+                    continue;
+                }
+                FluxMesuresService.Abonnement abonnement = fluxMesuresService.suivre(rucheId, this);
+                if (abonnement == null) {
+                    refusees.add(rucheId);
+                    continue;
+                }
+                if (abonnements.putIfAbsent(rucheId, abonnement) != null) {
+                    abonnement.arreter();
+                } else if (fermee) {
+                    // Connexion fermée pendant l'abonnement : fermer() a pu parcourir les abonnements avant cet ajout
+                    abonnements.remove(rucheId, abonnement);
+                    abonnement.arreter();
+                    return;
+                } else if (!abonnement.isActif()) {
+                    // Flux interrompu avant l'enregistrement de l'abonnement
+                    abonnements.remove(rucheId, abonnement);
+                    refusees.add(rucheId);
+                    continue;
+                }
+                acceptees.add(rucheId);
+            }
+
+            Map<String, Object> reponse = new HashMap<>();
+            reponse.put("type", "abonnement");
+            reponse.put("ruches", acceptees);
+            reponse.put("refusees", refusees);
+            reponse.put("timestamp", System.currentTimeMillis());
+            envoyer(reponse);
+        }
+
+        void desabonner(List<String> ruches) {
+            for (String rucheId : ruches) {
+                FluxMesuresService.Abonnement abonnement = abonnements.remove(rucheId);
+                if (abonnement != null) {
+                    abonnement.arreter();
+                }
+                enAttente.remove(rucheId);
+                transmises.remove(rucheId);
+            }
+            envoyer(Map.of("type", "desabonnement", "ruches", ruches));
+        }
+
+        @Override
+        public void mesureRecue(String rucheId, DonneesCapteur mesure) {
+            enAttente.merge(rucheId, mesure,
+                (actuelle, nouvelle) -> nouvelle.getTimestamp().isBefore(actuelle.getTimestamp()) ? actuelle : nouvelle);
+        }
+
+        @Override
+        public void fluxInterrompu(String rucheId) {
+            // Le client se réabonne s'il le souhaite ; les valeurs déjà transmises restent sa référence
+            if (abonnements.remove(rucheId) != null) {
+                envoyer(Map.of("type", "interrompu", "rucheId", rucheId));
+            }
+        }
+
+        /**
+         * Envoie une trame avec les valeurs changées de chaque ruche en attente
+         */
+        private void envoyerDeltas() {
+            try {
+                Map<String, Object> deltas = new LinkedHashMap<>();
+                for (String rucheId : new ArrayList<>(enAttente.keySet())) {
+                    DonneesCapteur mesure = enAttente.remove(rucheId);
+                    if (mesure == null || !abonnements.containsKey(rucheId)) {
+                        continue;
+                    }
+                    Map<String, Object> delta = delta(rucheId, valeurs(mesure));
+                    if (!delta.isEmpty()) {
+                        deltas.put(rucheId, delta);
+                    }
+                }
+                if (!deltas.isEmpty()) {
+                    envoyer(Map.of("type", "delta", "ruches", deltas));
+                }
+            } finally {
+                envoiEnCours.set(false);
+            }
+        }
+
+        /**
+         * Valeurs différentes de celles déjà transmises ; vide si la mesure n'est pas plus récente
+         */
+        private Map<String, Object> delta(String rucheId, Map<String, Object> valeurs) {
+            Map<String, Object> precedentes = transmises.get(rucheId);
+            if (precedentes == null) {
+                transmises.put(rucheId, valeurs);
+                return valeurs;
+            }
+            if ((Long) valeurs.get("horodatage") <= (Long) precedentes.get("horodatage")) {
+                return Map.of();
+            }
+
+            Map<String, Object> delta = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : valeurs.entrySet()) {
+                if (!Objects.equals(entry.getValue(), precedentes.get(entry.getKey()))) {
+                    delta.put(entry.getKey(), entry.getValue());
+                }
+            }
+            transmises.put(rucheId, valeurs);
+            return delta;
+        }
+
+        void envoyer(Map<String, ?> message) {
+            if (!session.isOpen()) {
+                return;
+            }
+            try {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+            } catch (IOException | RuntimeException e) {
+                // Délai ou tampon d'envoi dépassé : le décorateur ferme la session, qui libère ses abonnements
+                System.err.println("Erreur d'envoi WebSocket au tableau de bord: " + e.getMessage());
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException ignored) {
+                    // Session déjà fermée
+                }
+            }
+        }
+
+        void fermer() {
+            fermee = true;
+            abonnements.values().forEach(FluxMesuresService.Abonnement::arreter);
+            abonnements.clear();
+            enAttente.clear();
+        }
+    }
+}
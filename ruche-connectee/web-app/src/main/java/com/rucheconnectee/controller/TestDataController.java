@@ -7,7 +7,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -25,7 +27,7 @@ public class TestDataController {
     private final Random random = new Random();
 
     /**
-     * Crée des données de test pour une ruche
+     * Crée des données de test pour une ruche, écrites en un seul lot
      * POST /dev/create-test-data/{rucheId}?nombreJours=7&mesuresParJour=8
      */
     @PostMapping("/create-test-data/{rucheId}")
@@ -33,7 +35,7 @@ public class TestDataController {
                                           @RequestParam(defaultValue = "7") int nombreJours,
                                           @RequestParam(defaultValue = "8") int mesuresParJour) {
         try {
-            int totalMesures = 0;
+            List<DonneesCapteur> mesures = new ArrayList<>();
             LocalDateTime maintenant = LocalDateTime.now();
             
             for (int jour = nombreJours; jour >= 0; jour--) {
@@ -44,19 +46,19 @@ public class TestDataController {
                             .withMinute(random.nextInt(60))
                             .withSecond(random.nextInt(60));
                     
-                    DonneesCapteur nouvelleMesure = createRandomMesure(timestamp);
-                    mesuresService.ajouterMesure(rucheId, nouvelleMesure);
-                    totalMesures++;
+                    mesures.add(createRandomMesure(timestamp));
                 }
             }
             
+            mesuresService.ajouterMesures(Map.of(rucheId, mesures));
+            
             Map<String, Object> response = new HashMap<>();
             response.put("status", "SUCCESS");
             response.put("message", "Données de test créées avec succès");
             response.put("rucheId", rucheId);
             response.put("nombreJours", nombreJours);
             response.put("mesuresParJour", mesuresParJour);
-            response.put("totalMesures", totalMesures);
+            response.put("totalMesures", mesures.size());
             response.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(response);
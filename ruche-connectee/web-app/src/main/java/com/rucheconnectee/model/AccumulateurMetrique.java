@@ -0,0 +1,120 @@
+package com.rucheconnectee.model;
+
+/**
+ * Accumulateur de statistiques d'une métrique (température, humidité...) calculées en une seule passe :
+ * nombre de valeurs, valeurs nulles, somme, min, max, moyenne et variance (algorithme de Welford).
+ * Deux accumulateurs se fusionnent sans repasser sur les valeurs, ce qui permet de combiner des
+ * statistiques partielles (par jour, par heure) calculées séparément.
+ */
+public class AccumulateurMetrique {
+
+    private long nombre;
+    private long nombreNuls;
+    private double somme;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double moyenne;
+    private double m2; // Somme des carrés des écarts à la moyenne
+
+    public AccumulateurMetrique() {}
+
+    /**
+     * Reconstruit un accumulateur à partir de ses valeurs persistées
+     */
+    public static AccumulateurMetrique depuis(long nombre, long nombreNuls, double somme, double min, double max, double m2) {
+        AccumulateurMetrique accumulateur = new AccumulateurMetrique();
+        accumulateur.nombre = nombre;
+        accumulateur.nombreNuls = nombreNuls;
+        accumulateur.somme = somme;
+        accumulateur.min = nombre > 0 ? min : Double.POSITIVE_INFINITY;
+        accumulateur.max = nombre > 0 ? max : Double.NEGATIVE_INFINITY;
+        accumulateur.moyenne = nombre > 0 ? somme / nombre : 0;
+        accumulateur.m2 = m2;
+        return accumulateur;
+    }
+
+    public void ajouter(double valeur) {
+        nombre++;
+        somme += valeur;
+        if (valeur < min) {
+            min = valeur;
+        }
+        if (valeur > max) {
+            max = valeur;
+        }
+        double ecart = valeur - moyenne;
+        moyenne += ecart / nombre;
+        m2 += ecart * (valeur - moyenne);
+    }
+
+    public void ajouterNul() {
+        nombreNuls++;
+    }
+
+    /**
+     * Ajoute les valeurs d'un autre accumulateur (formule de Chan pour la variance)
+     */
+    public void fusionner(AccumulateurMetrique autre) {
+        nombreNuls += autre.nombreNuls;
+        if (autre.nombre == 0) {
+            return;
+        }
+        if (nombre == 0) {
+            nombre = autre.nombre;
+            somme = autre.somme;
+            min = autre.min;
+            max = autre.max;
+            moyenne = autre.moyenne;
+            m2 = autre.m2;
+            return;
+        }
+
+        long total = nombre + autre.nombre;
+        double ecart = autre.moyenne - moyenne;
+        m2 += autre.m2 + ecart * ecart * nombre * autre.nombre / total;
+        moyenne += ecart * autre.nombre / total;
+        nombre = total;
+        somme += autre.somme;
+        min = Math.min(min, autre.min);
+        max = Math.max(max, autre.max);
+    }
+
+    public long getNombre() {
+        return nombre;
+    }
+
+    public long getNombreNuls() {
+        return nombreNuls;
+    }
+
+    public double getSomme() {
+        return somme;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMoyenne() {
+        return moyenne;
+    }
+
+    public double getM2() {
+        return m2;
+    }
+
+    /**
+     * Variance de population, 0 s'il y a moins de deux valeurs
+     */
+    public double getVariance() {
+        return nombre > 1 ? m2 / nombre : 0;
+    }
+
+    public double getEcartType() {
+        return Math.sqrt(getVariance());
+    }
+}
@@ -0,0 +1,54 @@
+package com.rucheconnectee.model;
+
+/**
+ * Moyenne et variance mobiles exponentielles (EWMA) d'une métrique, mises à jour en O(1) par valeur
+ * et en taille constante : le poids alpha d'une nouvelle valeur décide de la vitesse d'oubli du passé.
+ * La variance suit la forme incrémentale de West : v = (1 - alpha) (v + alpha d²), d étant l'écart à l'ancienne moyenne.
+ */
+public class MoyenneExponentielle {
+
+    private long nombre;
+    private double moyenne;
+    private double variance;
+
+    public MoyenneExponentielle() {}
+
+    /**
+     * Ajoute une valeur avec le poids alpha (0 < alpha <= 1) ; la première valeur initialise la moyenne
+     */
+    public void ajouter(double valeur, double alpha) {
+        if (nombre++ == 0) {
+            moyenne = valeur;
+            variance = 0;
+            return;
+        }
+        double ecart = valeur - moyenne;
+        double increment = alpha * ecart;
+        moyenne += increment;
+        variance = (1 - alpha) * (variance + ecart * increment);
+    }
+
+    /**
+     * Écart d'une valeur à la moyenne en nombre d'écarts-types ; plancher est le bruit minimal de la métrique,
+     * qui évite des scores démesurés quand la série a été parfaitement stable
+     */
+    public double score(double valeur, double plancher) {
+        return (valeur - moyenne) / Math.sqrt(variance + plancher * plancher);
+    }
+
+    public long getNombre() {
+        return nombre;
+    }
+
+    public double getMoyenne() {
+        return moyenne;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getEcartType() {
+        return Math.sqrt(variance);
+    }
+}
@@ -0,0 +1,735 @@
+package com.rucheconnectee.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Série compacte des mesures d'une ruche, stockée en colonnes de types primitifs et triée par horodatage.
+ * Une mesure occupe de 50 à 60 octets (horodatage et identifiant en long, références de l'identifiant texte
+ * et de l'erreur, valeurs float/short, bits de présence, marge de capacité des tableaux), contre plusieurs centaines pour un DonneesCapteur avec ses objets encapsulés. Les identifiants au
+ * format UUID sont stockés sous forme de deux long, les autres sous forme de chaîne. Le message d'erreur
+ * du capteur, rare, est une référence nulle pour les mesures sans erreur.
+ *
+ * Les horodatages sont des millisecondes epoch, comme le champ "horodatage" des mesures Firebase ;
+ * les LocalDateTime (date/heure des mesures) sont interprétés dans le fuseau du serveur.
+ * La classe n'est pas thread-safe.
+ */
+public class SerieCapteurs {
+
+    private static final int CAPACITE_INITIALE = 64;
+
+    /**
+     * Fuseau des champs date/heure des mesures
+     */
+    public static final ZoneId FUSEAU = ZoneId.systemDefault();
+
+    /**
+     * Résultat de versEpochMillis(date, heure) pour un format invalide
+     */
+    public static final long HORODATAGE_INVALIDE = Long.MIN_VALUE;
+
+    private static final ZoneRules REGLES_FUSEAU = FUSEAU.getRules();
+
+    private int taille;
+    private long[] horodatages;
+    private long[] idsHaut;
+    private long[] idsBas;
+    private String[] idsTexte;
+    private String[] erreurs;
+    private float[] temperatures;
+    private float[] humidites;
+    private float[] poids;
+    private short[] batteries;
+    private short[] signaux;
+
+    // Bits de présence (valeur non nulle) par colonne, et état du couvercle
+    private BitSet temperaturePresente = new BitSet();
+    private BitSet humiditePresente = new BitSet();
+    private BitSet poidsPresent = new BitSet();
+    private BitSet batteriePresente = new BitSet();
+    private BitSet signalPresent = new BitSet();
+    private BitSet couverclePresent = new BitSet();
+    private BitSet couvercleOuvert = new BitSet();
+
+    public SerieCapteurs() {
+        this(CAPACITE_INITIALE);
+    }
+
+    public SerieCapteurs(int capacite) {
+        allouer(Math.max(capacite, 1));
+    }
+
+    // --- Conversions d'horodatage ---
+
+    public static long versEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(FUSEAU).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime depuisEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), FUSEAU);
+    }
+
+    /**
+     * Convertit les champs "yyyy-MM-dd" et "HH:mm:ss" d'une mesure en millisecondes epoch, par calcul direct
+     * sur les caractères (ni concaténation ni DateTimeFormatter). Renvoie HORODATAGE_INVALIDE si le format
+     * ou les valeurs sont invalides.
+     */
+    public static long versEpochMillis(CharSequence date, CharSequence heure) {
+        if (date == null || heure == null || date.length() != 10 || heure.length() != 8
+                || date.charAt(4) != '-' || date.charAt(7) != '-' || heure.charAt(2) != ':' || heure.charAt(5) != ':') {
+            return HORODATAGE_INVALIDE;
+        }
+
+        int annee = chiffres(date, 0, 4);
+        int mois = chiffres(date, 5, 2);
+        int jour = chiffres(date, 8, 2);
+        int heures = chiffres(heure, 0, 2);
+        int minutes = chiffres(heure, 3, 2);
+        int secondes = chiffres(heure, 6, 2);
+        if (annee < 0 || mois < 1 || mois > 12 || jour < 1 || jour > joursDuMois(annee, mois)
+                || heures < 0 || heures > 23 || minutes < 0 || minutes > 59 || secondes < 0 || secondes > 59) {
+            return HORODATAGE_INVALIDE;
+        }
+
+        long local = ((joursDepuisEpoch(annee, mois, jour) * 24 + heures) * 60 + minutes) * 60 + secondes;
+        return (local - decalage(local)) * 1000L;
+    }
+
+    /**
+     * Décalage du fuseau pour une heure locale (en secondes epoch lues comme UTC), avec les mêmes choix
+     * que LocalDateTime.atZone aux changements d'heure : le décalage d'avant le changement
+     */
+    private static int decalage(long local) {
+        int avant = decalageA(local - 86_400);
+        int candidat = decalageA(local - avant);
+        if (candidat == avant) {
+            return avant;
+        }
+        // Changement d'heure dans les dernières 24 h : heure normale si le nouveau décalage est cohérent, sinon trou
+        return decalageA(local - candidat) == candidat ? candidat : avant;
+    }
+
+    private static int decalageA(long epochSecondes) {
+        return REGLES_FUSEAU.getOffset(Instant.ofEpochSecond(epochSecondes)).getTotalSeconds();
+    }
+
+    private static int chiffres(CharSequence texte, int debut, int longueur) {
+        int valeur = 0;
+        for (int i = debut; i < debut + longueur; i++) {
+            int chiffre = texte.charAt(i) - '0';
+            if (chiffre < 0 || chiffre > 9) {
+                return -1;
+            }
+            valeur = valeur * 10 + chiffre;
+        }
+        return valeur;
+    }
+
+    private static int joursDuMois(int annee, int mois) {
+        switch (mois) {
+            case 2:
+                return (annee % 4 == 0 && (annee % 100 != 0 || annee % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Nombre de jours entre le 1970-01-01 et une date du calendrier grégorien
+     */
+    private static long joursDepuisEpoch(int annee, int mois, int jour) {
+        long a = mois <= 2 ? annee - 1 : annee;
+        long ere = Math.floorDiv(a, 400);
+        long anneeDeLEre = a - ere * 400;
+        long jourDeLAnnee = (153L * (mois > 2 ? mois - 3 : mois + 9) + 2) / 5 + jour - 1;
+        long jourDeLEre = anneeDeLEre * 365 + anneeDeLEre / 4 - anneeDeLEre / 100 + jourDeLAnnee;
+        return ere * 146097 + jourDeLEre - 719468;
+    }
+
+    // --- Écriture ---
+
+    /**
+     * Insère une mesure à sa place chronologique. Une mesure de même identifiant et de même
+     * horodatage déjà présente est remplacée. Retourne l'index de la mesure.
+     */
+    public int ajouter(String id, long horodatage, Double temperature, Double humidite, Double poidsValeur,
+                       Boolean couvercle, Integer batterie, Integer signal, String erreur) {
+        int index = premierApres(horodatage);
+
+        UUID uuid = uuidCanonique(id);
+        for (int i = index - 1; i >= 0 && horodatages[i] == horodatage; i--) {
+            if (aPourId(i, id, uuid)) {
+                ecrire(i, id, horodatage, temperature, humidite, poidsValeur, couvercle, batterie, signal, erreur);
+                return i;
+            }
+        }
+
+        if (taille == horodatages.length) {
+            allouer(taille * 2);
+        }
+        if (index < taille) {
+            decaler(index);
+        }
+        taille++;
+        ecrire(index, id, horodatage, temperature, humidite, poidsValeur, couvercle, batterie, signal, erreur);
+        return index;
+    }
+
+    /**
+     * Insère une mesure à sa place chronologique
+     */
+    public int ajouter(DonneesCapteur mesure) {
+        return ajouter(mesure.getId(), versEpochMillis(mesure.getTimestamp()), mesure.getTemperature(),
+                mesure.getHumidity(), mesure.getPoids(), mesure.getCouvercleOuvert(), mesure.getBatterie(),
+                mesure.getSignalQualite(), mesure.getErreur());
+    }
+
+    /**
+     * Ajoute une mesure en fin de série sans vérifier l'ordre chronologique.
+     * Pour un chargement en masse dans un ordre quelconque : appeler trier() avant toute recherche.
+     */
+    public void ajouterEnFin(String id, long horodatage, Double temperature, Double humidite, Double poidsValeur,
+                             Boolean couvercle, Integer batterie, Integer signal, String erreur) {
+        if (taille == horodatages.length) {
+            allouer(taille * 2);
+        }
+        ecrire(taille++, id, horodatage, temperature, humidite, poidsValeur, couvercle, batterie, signal, erreur);
+    }
+
+    /**
+     * Rétablit l'ordre chronologique après des ajouterEnFin (tri stable)
+     */
+    public void trier() {
+        boolean trie = true;
+        for (int i = 1; i < taille && trie; i++) {
+            trie = horodatages[i - 1] <= horodatages[i];
+        }
+        if (trie) {
+            return;
+        }
+
+        int[] ordre = new int[taille];
+        for (int i = 0; i < taille; i++) {
+            ordre[i] = i;
+        }
+        trierIndices(ordre, horodatages);
+
+        SerieCapteurs triee = new SerieCapteurs(horodatages.length);
+        triee.copierLignes(this, ordre, taille);
+
+        horodatages = triee.horodatages;
+        idsHaut = triee.idsHaut;
+        idsBas = triee.idsBas;
+        idsTexte = triee.idsTexte;
+        erreurs = triee.erreurs;
+        temperatures = triee.temperatures;
+        humidites = triee.humidites;
+        poids = triee.poids;
+        batteries = triee.batteries;
+        signaux = triee.signaux;
+        temperaturePresente = triee.temperaturePresente;
+        humiditePresente = triee.humiditePresente;
+        poidsPresent = triee.poidsPresent;
+        batteriePresente = triee.batteriePresente;
+        signalPresent = triee.signalPresent;
+        couverclePresent = triee.couverclePresent;
+        couvercleOuvert = triee.couvercleOuvert;
+    }
+
+    /**
+     * Supprime la mesure d'identifiant donné. Retourne false si elle est absente.
+     */
+    public boolean supprimer(String id) {
+        // Les suppressions visent surtout des mesures récentes : parcours depuis la fin
+        UUID uuid = uuidCanonique(id);
+        for (int i = taille - 1; i >= 0; i--) {
+            if (aPourId(i, id, uuid)) {
+                retirer(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Supprime les n mesures les plus anciennes
+     */
+    public void supprimerDebut(int n) {
+        if (n <= 0) {
+            return;
+        }
+        n = Math.min(n, taille);
+        int reste = taille - n;
+        System.arraycopy(horodatages, n, horodatages, 0, reste);
+        System.arraycopy(idsHaut, n, idsHaut, 0, reste);
+        System.arraycopy(idsBas, n, idsBas, 0, reste);
+        System.arraycopy(idsTexte, n, idsTexte, 0, reste);
+        System.arraycopy(erreurs, n, erreurs, 0, reste);
+        System.arraycopy(temperatures, n, temperatures, 0, reste);
+        System.arraycopy(humidites, n, humidites, 0, reste);
+        System.arraycopy(poids, n, poids, 0, reste);
+        System.arraycopy(batteries, n, batteries, 0, reste);
+        System.arraycopy(signaux, n, signaux, 0, reste);
+        Arrays.fill(idsTexte, reste, taille, null);
+        Arrays.fill(erreurs, reste, taille, null);
+
+        temperaturePresente = temperaturePresente.get(n, taille);
+        humiditePresente = humiditePresente.get(n, taille);
+        poidsPresent = poidsPresent.get(n, taille);
+        batteriePresente = batteriePresente.get(n, taille);
+        signalPresent = signalPresent.get(n, taille);
+        couverclePresent = couverclePresent.get(n, taille);
+        couvercleOuvert = couvercleOuvert.get(n, taille);
+        taille = reste;
+    }
+
+    // --- Recherche ---
+
+    public int taille() {
+        return taille;
+    }
+
+    /**
+     * Index de la première mesure strictement postérieure à horodatage (taille si aucune)
+     */
+    public int premierApres(long horodatage) {
+        int bas = 0;
+        int haut = taille;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (horodatages[milieu] <= horodatage) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Index de la première mesure postérieure ou égale à horodatage (taille si aucune)
+     */
+    public int premierAPartirDe(long horodatage) {
+        int bas = 0;
+        int haut = taille;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (horodatages[milieu] < horodatage) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Copie des mesures strictement comprises entre debut et fin
+     */
+    public SerieCapteurs extraire(LocalDateTime debut, LocalDateTime fin) {
+        return extraire(premierApres(versEpochMillis(debut)), premierAPartirDe(versEpochMillis(fin)));
+    }
+
+    /**
+     * Copie des mesures d'index [de, a)
+     */
+    public SerieCapteurs extraire(int de, int a) {
+        SerieCapteurs copie = new SerieCapteurs(Math.max(a - de, 1));
+        if (a <= de) {
+            return copie;
+        }
+        int n = a - de;
+        System.arraycopy(horodatages, de, copie.horodatages, 0, n);
+        System.arraycopy(idsHaut, de, copie.idsHaut, 0, n);
+        System.arraycopy(idsBas, de, copie.idsBas, 0, n);
+        System.arraycopy(idsTexte, de, copie.idsTexte, 0, n);
+        System.arraycopy(erreurs, de, copie.erreurs, 0, n);
+        System.arraycopy(temperatures, de, copie.temperatures, 0, n);
+        System.arraycopy(humidites, de, copie.humidites, 0, n);
+        System.arraycopy(poids, de, copie.poids, 0, n);
+        System.arraycopy(batteries, de, copie.batteries, 0, n);
+        System.arraycopy(signaux, de, copie.signaux, 0, n);
+        copie.temperaturePresente = temperaturePresente.get(de, a);
+        copie.humiditePresente = humiditePresente.get(de, a);
+        copie.poidsPresent = poidsPresent.get(de, a);
+        copie.batteriePresente = batteriePresente.get(de, a);
+        copie.signalPresent = signalPresent.get(de, a);
+        copie.couverclePresent = couverclePresent.get(de, a);
+        copie.couvercleOuvert = couvercleOuvert.get(de, a);
+        copie.taille = n;
+        return copie;
+    }
+
+    /**
+     * Copie des mesures aux n premiers index de indices (croissants)
+     */
+    public SerieCapteurs selectionner(int[] indices, int n) {
+        SerieCapteurs copie = new SerieCapteurs(Math.max(n, 1));
+        copie.copierLignes(this, indices, n);
+        return copie;
+    }
+
+    // Colonnes brutes pour SousEchantillonnage (lecture seule)
+
+    long[] horodatages() {
+        return horodatages;
+    }
+
+    float[] valeurs(SousEchantillonnage.Grandeur grandeur) {
+        return switch (grandeur) {
+            case TEMPERATURE -> temperatures;
+            case HUMIDITE -> humidites;
+            case POIDS -> poids;
+        };
+    }
+
+    BitSet presence(SousEchantillonnage.Grandeur grandeur) {
+        return switch (grandeur) {
+            case TEMPERATURE -> temperaturePresente;
+            case HUMIDITE -> humiditePresente;
+            case POIDS -> poidsPresent;
+        };
+    }
+
+    // --- Lecture ---
+
+    public long getHorodatage(int i) {
+        return horodatages[i];
+    }
+
+    public String getId(int i) {
+        return idsTexte[i] != null ? idsTexte[i] : new UUID(idsHaut[i], idsBas[i]).toString();
+    }
+
+    public boolean hasTemperature(int i) {
+        return temperaturePresente.get(i);
+    }
+
+    public float getTemperature(int i) {
+        return temperatures[i];
+    }
+
+    public boolean hasHumidite(int i) {
+        return humiditePresente.get(i);
+    }
+
+    public float getHumidite(int i) {
+        return humidites[i];
+    }
+
+    public boolean hasPoids(int i) {
+        return poidsPresent.get(i);
+    }
+
+    public float getPoids(int i) {
+        return poids[i];
+    }
+
+    public boolean hasBatterie(int i) {
+        return batteriePresente.get(i);
+    }
+
+    public short getBatterie(int i) {
+        return batteries[i];
+    }
+
+    public boolean hasSignal(int i) {
+        return signalPresent.get(i);
+    }
+
+    public short getSignal(int i) {
+        return signaux[i];
+    }
+
+    public boolean hasCouvercle(int i) {
+        return couverclePresent.get(i);
+    }
+
+    public boolean isCouvercleOuvert(int i) {
+        return couvercleOuvert.get(i);
+    }
+
+    public String getErreur(int i) {
+        return erreurs[i];
+    }
+
+    /**
+     * Reconstruit la mesure d'index i
+     */
+    public DonneesCapteur get(int i, String rucheId) {
+        DonneesCapteur mesure = new DonneesCapteur();
+        mesure.setId(getId(i));
+        mesure.setRucheId(rucheId);
+        mesure.setTimestamp(depuisEpochMillis(horodatages[i]));
+        if (hasTemperature(i)) {
+            mesure.setTemperature(versDouble(temperatures[i]));
+        }
+        if (hasHumidite(i)) {
+            mesure.setHumidity(versDouble(humidites[i]));
+        }
+        if (hasPoids(i)) {
+            mesure.setPoids(versDouble(poids[i]));
+        }
+        if (hasCouvercle(i)) {
+            mesure.setCouvercleOuvert(couvercleOuvert.get(i));
+        }
+        if (hasBatterie(i)) {
+            mesure.setBatterie((int) batteries[i]);
+        }
+        if (hasSignal(i)) {
+            mesure.setSignalQualite((int) signaux[i]);
+        }
+        mesure.setErreur(erreurs[i]);
+        return mesure;
+    }
+
+    /**
+     * Reconstruit la dernière mesure, ou null si la série est vide
+     */
+    public DonneesCapteur getDerniere(String rucheId) {
+        return taille == 0 ? null : get(taille - 1, rucheId);
+    }
+
+    /**
+     * Reconstruit les mesures de la plus récente à la plus ancienne
+     */
+    public List<DonneesCapteur> versListeDecroissante(String rucheId) {
+        List<DonneesCapteur> mesures = new ArrayList<>(taille);
+        for (int i = taille - 1; i >= 0; i--) {
+            mesures.add(get(i, rucheId));
+        }
+        return mesures;
+    }
+
+    // --- Méthodes utilitaires ---
+
+    /**
+     * Vrai si la mesure i a pour identifiant id (uuid : sa forme canonique, ou null), sans construire de chaîne
+     */
+    private boolean aPourId(int i, String id, UUID uuid) {
+        if (idsTexte[i] != null) {
+            return idsTexte[i].equals(id);
+        }
+        return uuid != null && idsHaut[i] == uuid.getMostSignificantBits() && idsBas[i] == uuid.getLeastSignificantBits();
+    }
+
+    /**
+     * Remplit les n premières lignes avec les lignes de source aux index lignes[0..n)
+     */
+    private void copierLignes(SerieCapteurs source, int[] lignes, int n) {
+        for (int k = 0; k < n; k++) {
+            int i = lignes[k];
+            horodatages[k] = source.horodatages[i];
+            idsHaut[k] = source.idsHaut[i];
+            idsBas[k] = source.idsBas[i];
+            idsTexte[k] = source.idsTexte[i];
+            erreurs[k] = source.erreurs[i];
+            temperatures[k] = source.temperatures[i];
+            humidites[k] = source.humidites[i];
+            poids[k] = source.poids[i];
+            batteries[k] = source.batteries[i];
+            signaux[k] = source.signaux[i];
+        }
+        temperaturePresente = rassembler(source.temperaturePresente, lignes, n);
+        humiditePresente = rassembler(source.humiditePresente, lignes, n);
+        poidsPresent = rassembler(source.poidsPresent, lignes, n);
+        batteriePresente = rassembler(source.batteriePresente, lignes, n);
+        signalPresent = rassembler(source.signalPresent, lignes, n);
+        couverclePresent = rassembler(source.couverclePresent, lignes, n);
+        couvercleOuvert = rassembler(source.couvercleOuvert, lignes, n);
+        taille = n;
+    }
+
+    /**
+     * Bits de source aux index lignes[0..n), rangés aux index 0..n, lus et écrits directement dans les mots de 64 bits
+     */
+    private static BitSet rassembler(BitSet source, int[] lignes, int n) {
+        long[] mots = source.toLongArray();
+        long[] resultat = new long[(n + 63) >>> 6];
+        for (int k = 0; k < n; k++) {
+            int i = lignes[k];
+            if ((i >>> 6) < mots.length && (mots[i >>> 6] & (1L << i)) != 0) {
+                resultat[k >>> 6] |= 1L << k;
+            }
+        }
+        return BitSet.valueOf(resultat);
+    }
+
+    /**
+     * Tri stable des index par horodatage croissant (fusion ascendante, précédée d'un tri par insertion
+     * des blocs courts), sans boxing des index
+     */
+    private static void trierIndices(int[] ordre, long[] cles) {
+        int n = ordre.length;
+        final int bloc = 32;
+        for (int debut = 0; debut < n; debut += bloc) {
+            int fin = Math.min(debut + bloc, n);
+            for (int i = debut + 1; i < fin; i++) {
+                int index = ordre[i];
+                int j = i - 1;
+                while (j >= debut && cles[ordre[j]] > cles[index]) {
+                    ordre[j + 1] = ordre[j];
+                    j--;
+                }
+                ordre[j + 1] = index;
+            }
+        }
+
+        int[] source = ordre;
+        int[] cible = new int[n];
+        for (int largeur = bloc; largeur < n; largeur *= 2) {
+            for (int gauche = 0; gauche < n; gauche += 2 * largeur) {
+                int milieu = Math.min(gauche + largeur, n);
+                int droite = Math.min(gauche + 2 * largeur, n);
+                int i = gauche;
+                int j = milieu;
+                for (int k = gauche; k < droite; k++) {
+                    // <= : à horodatage égal, l'index de la moitié gauche passe d'abord (stabilité)
+                    if (i < milieu && (j >= droite || cles[source[i]] <= cles[source[j]])) {
+                        cible[k] = source[i++];
+                    } else {
+                        cible[k] = source[j++];
+                    }
+                }
+            }
+            int[] echange = source;
+            source = cible;
+            cible = echange;
+        }
+        if (source != ordre) {
+            System.arraycopy(source, 0, ordre, 0, n);
+        }
+    }
+
+    private void ecrire(int i, String id, long horodatage, Double temperature, Double humidite, Double poidsValeur,
+                        Boolean couvercle, Integer batterie, Integer signal, String erreur) {
+        horodatages[i] = horodatage;
+        erreurs[i] = erreur;
+
+        UUID uuid = uuidCanonique(id);
+        if (uuid != null) {
+            idsHaut[i] = uuid.getMostSignificantBits();
+            idsBas[i] = uuid.getLeastSignificantBits();
+            idsTexte[i] = null;
+        } else {
+            idsTexte[i] = id;
+        }
+
+        temperaturePresente.set(i, temperature != null);
+        temperatures[i] = temperature != null ? temperature.floatValue() : 0f;
+        humiditePresente.set(i, humidite != null);
+        humidites[i] = humidite != null ? humidite.floatValue() : 0f;
+        poidsPresent.set(i, poidsValeur != null);
+        poids[i] = poidsValeur != null ? poidsValeur.floatValue() : 0f;
+        batteriePresente.set(i, batterie != null);
+        batteries[i] = batterie != null ? batterie.shortValue() : 0;
+        signalPresent.set(i, signal != null);
+        signaux[i] = signal != null ? signal.shortValue() : 0;
+        couverclePresent.set(i, couvercle != null);
+        couvercleOuvert.set(i, couvercle != null && couvercle);
+    }
+
+    /**
+     * Double le plus court représentant le float (25.3f redonne 25.3 et non 25.299999237060547)
+     */
+    private static double versDouble(float valeur) {
+        return Double.parseDouble(Float.toString(valeur));
+    }
+
+    /**
+     * UUID correspondant à l'identifiant s'il en a la forme canonique (minuscules), sinon null
+     */
+    private static UUID uuidCanonique(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void allouer(int capacite) {
+        horodatages = horodatages == null ? new long[capacite] : Arrays.copyOf(horodatages, capacite);
+        idsHaut = idsHaut == null ? new long[capacite] : Arrays.copyOf(idsHaut, capacite);
+        idsBas = idsBas == null ? new long[capacite] : Arrays.copyOf(idsBas, capacite);
+        idsTexte = idsTexte == null ? new String[capacite] : Arrays.copyOf(idsTexte, capacite);
+        erreurs = erreurs == null ? new String[capacite] : Arrays.copyOf(erreurs, capacite);
+        temperatures = temperatures == null ? new float[capacite] : Arrays.copyOf(temperatures, capacite);
+        humidites = humidites == null ? new float[capacite] : Arrays.copyOf(humidites, capacite);
+        poids = poids == null ? new float[capacite] : Arrays.copyOf(poids, capacite);
+        batteries = batteries == null ? new short[capacite] : Arrays.copyOf(batteries, capacite);
+        signaux = signaux == null ? new short[capacite] : Arrays.copyOf(signaux, capacite);
+    }
+
+    /**
+     * Libère l'index i en décalant d'un cran les mesures suivantes
+     */
+    private void decaler(int i) {
+        int n = taille - i;
+        System.arraycopy(horodatages, i, horodatages, i + 1, n);
+        System.arraycopy(idsHaut, i, idsHaut, i + 1, n);
+        System.arraycopy(idsBas, i, idsBas, i + 1, n);
+        System.arraycopy(idsTexte, i, idsTexte, i + 1, n);
+        System.arraycopy(erreurs, i, erreurs, i + 1, n);
+        System.arraycopy(temperatures, i, temperatures, i + 1, n);
+        System.arraycopy(humidites, i, humidites, i + 1, n);
+        System.arraycopy(poids, i, poids, i + 1, n);
+        System.arraycopy(batteries, i, batteries, i + 1, n);
+        System.arraycopy(signaux, i, signaux, i + 1, n);
+        // Bits déplacés sur place, du dernier au premier pour ne pas écraser un bit pas encore déplacé
+        for (BitSet bits : bitsets()) {
+            for (int b = bits.previousSetBit(taille - 1); b >= i; b = bits.previousSetBit(b - 1)) {
+                bits.clear(b);
+                bits.set(b + 1);
+            }
+        }
+    }
+
+    /**
+     * Retire l'index i en ramenant d'un cran les mesures suivantes
+     */
+    private void retirer(int i) {
+        int n = taille - i - 1;
+        System.arraycopy(horodatages, i + 1, horodatages, i, n);
+        System.arraycopy(idsHaut, i + 1, idsHaut, i, n);
+        System.arraycopy(idsBas, i + 1, idsBas, i, n);
+        System.arraycopy(idsTexte, i + 1, idsTexte, i, n);
+        System.arraycopy(erreurs, i + 1, erreurs, i, n);
+        System.arraycopy(temperatures, i + 1, temperatures, i, n);
+        System.arraycopy(humidites, i + 1, humidites, i, n);
+        System.arraycopy(poids, i + 1, poids, i, n);
+        System.arraycopy(batteries, i + 1, batteries, i, n);
+        System.arraycopy(signaux, i + 1, signaux, i, n);
+        // Bits déplacés sur place, du premier au dernier
+        for (BitSet bits : bitsets()) {
+            bits.clear(i);
+            for (int b = bits.nextSetBit(i + 1); b >= 0 && b < taille; b = bits.nextSetBit(b + 1)) {
+                bits.clear(b);
+                bits.set(b - 1);
+            }
+        }
+        idsTexte[taille - 1] = null;
+        erreurs[taille - 1] = null;
+        taille--;
+    }
+
+    private BitSet[] bitsets() {
+        return new BitSet[] {temperaturePresente, humiditePresente, poidsPresent, batteriePresente,
+                signalPresent, couverclePresent, couvercleOuvert};
+    }
+}
@@ -0,0 +1,168 @@
+package com.rucheconnectee.model;
+
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Réduction d'une série de mesures à au plus maxPoints points pour l'affichage en graphique.
+ *
+ * Le choix des points porte sur une grandeur (température, humidité ou poids) ; les mesures retenues
+ * sont renvoyées entières. Deux modes :
+ * - LTTB (Largest-Triangle-Three-Buckets) : un point par tranche, celui qui forme le plus grand triangle
+ *   avec le point retenu dans la tranche précédente et la moyenne de la tranche suivante. Garde la forme
+ *   de la courbe (pics compris) ; premier et dernier points toujours conservés.
+ * - ENVELOPPE : le minimum et le maximum de chaque tranche, pour tracer la plage des valeurs.
+ *
+ * Les deux parcourent les colonnes de SerieCapteurs en un temps linéaire, sans objet par mesure.
+ * Les mesures sans valeur pour la grandeur sont écartées.
+ */
+public final class SousEchantillonnage {
+
+    public enum Mode {
+        LTTB, ENVELOPPE
+    }
+
+    public enum Grandeur {
+        TEMPERATURE, HUMIDITE, POIDS
+    }
+
+    private final Mode mode;
+    private final Grandeur grandeur;
+    private final int maxPoints;
+
+    public SousEchantillonnage(Mode mode, Grandeur grandeur, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints doit valoir au moins 3");
+        }
+        this.mode = mode;
+        this.grandeur = grandeur;
+        this.maxPoints = maxPoints;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Grandeur getGrandeur() {
+        return grandeur;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    /**
+     * Série réduite à au plus maxPoints mesures ; la série elle-même si elle est déjà assez courte
+     */
+    public SerieCapteurs appliquer(SerieCapteurs serie) {
+        if (serie.taille() <= maxPoints) {
+            return serie;
+        }
+
+        // Index des mesures portant la grandeur
+        BitSet presence = serie.presence(grandeur);
+        int[] candidats = new int[presence.cardinality()];
+        int m = 0;
+        for (int i = presence.nextSetBit(0); i >= 0 && i < serie.taille(); i = presence.nextSetBit(i + 1)) {
+            candidats[m++] = i;
+        }
+        if (m <= maxPoints) {
+            return serie.selectionner(candidats, m);
+        }
+
+        int[] retenus = new int[maxPoints];
+        int n = mode == Mode.LTTB
+            ? lttb(serie.horodatages(), serie.valeurs(grandeur), candidats, m, maxPoints, retenus)
+            : enveloppe(serie.valeurs(grandeur), candidats, m, maxPoints, retenus);
+        return serie.selectionner(retenus, n);
+    }
+
+    /**
+     * LTTB sur les m candidats : seuil - 2 tranches entre le premier et le dernier point
+     */
+    static int lttb(long[] x, float[] y, int[] candidats, int m, int seuil, int[] retenus) {
+        long origine = x[candidats[0]];
+        double pas = (double) (m - 2) / (seuil - 2);
+
+        int n = 0;
+        int a = 0;
+        retenus[n++] = candidats[0];
+        for (int t = 0; t < seuil - 2; t++) {
+            // Moyenne de la tranche suivante (le dernier point pour la dernière tranche)
+            int debutSuivante = (int) ((t + 1) * pas) + 1;
+            int finSuivante = Math.min((int) ((t + 2) * pas) + 1, m);
+            double moyenneX = 0;
+            double moyenneY = 0;
+            for (int j = debutSuivante; j < finSuivante; j++) {
+                moyenneX += x[candidats[j]] - origine;
+                moyenneY += y[candidats[j]];
+            }
+            int nombre = finSuivante - debutSuivante;
+            if (nombre > 0) {
+                moyenneX /= nombre;
+                moyenneY /= nombre;
+            } else {
+                moyenneX = x[candidats[m - 1]] - origine;
+                moyenneY = y[candidats[m - 1]];
+            }
+
+            // Point de la tranche courante formant le plus grand triangle avec a et la moyenne
+            int debut = (int) (t * pas) + 1;
+            int fin = debutSuivante;
+            double ax = x[candidats[a]] - origine;
+            double ay = y[candidats[a]];
+            double aireMax = -1;
+            int choisi = debut;
+            for (int j = debut; j < fin; j++) {
+                double aire = Math.abs((ax - moyenneX) * (y[candidats[j]] - ay)
+                    - (ax - (x[candidats[j]] - origine)) * (moyenneY - ay));
+                if (aire > aireMax) {
+                    aireMax = aire;
+                    choisi = j;
+                }
+            }
+            retenus[n++] = candidats[choisi];
+            a = choisi;
+        }
+        retenus[n++] = candidats[m - 1];
+        return n;
+    }
+
+    /**
+     * Minimum et maximum de seuil / 2 tranches, dans l'ordre chronologique
+     */
+    static int enveloppe(float[] y, int[] candidats, int m, int seuil, int[] retenus) {
+        int tranches = seuil / 2;
+        int n = 0;
+        for (int t = 0; t < tranches; t++) {
+            int debut = (int) ((long) t * m / tranches);
+            int fin = (int) ((long) (t + 1) * m / tranches);
+            if (debut >= fin) {
+                continue;
+            }
+            int min = debut;
+            int max = debut;
+            for (int j = debut + 1; j < fin; j++) {
+                float valeur = y[candidats[j]];
+                if (valeur < y[candidats[min]]) {
+                    min = j;
+                } else if (valeur > y[candidats[max]]) {
+                    max = j;
+                }
+            }
+            retenus[n++] = candidats[Math.min(min, max)];
+            if (min != max) {
+                retenus[n++] = candidats[Math.max(min, max)];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Identifiant du réglage, pour les validateurs HTTP
+     */
+    @Override
+    public String toString() {
+        return mode.name().toLowerCase(Locale.ROOT) + "-" + grandeur.name().toLowerCase(Locale.ROOT) + "-" + maxPoints;
+    }
+}
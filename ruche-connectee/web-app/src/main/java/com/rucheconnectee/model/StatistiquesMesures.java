@@ -0,0 +1,168 @@
+package com.rucheconnectee.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistiques d'un ensemble de mesures, accumulées en une passe et fusionnables.
+ * Regroupe un AccumulateurMetrique par capteur et le décompte des ouvertures du couvercle.
+ */
+public class StatistiquesMesures {
+
+    private long nombreMesures;
+    private long ouverturesCouvercle;
+    private final AccumulateurMetrique temperature = new AccumulateurMetrique();
+    private final AccumulateurMetrique humidite = new AccumulateurMetrique();
+    private final AccumulateurMetrique poids = new AccumulateurMetrique();
+    private final AccumulateurMetrique batterie = new AccumulateurMetrique();
+
+    public StatistiquesMesures() {}
+
+    /**
+     * Calcule les statistiques de toute une série en un seul parcours de ses colonnes
+     */
+    public static StatistiquesMesures de(SerieCapteurs serie) {
+        StatistiquesMesures statistiques = new StatistiquesMesures();
+        for (int i = 0; i < serie.taille(); i++) {
+            statistiques.ajouter(serie, i);
+        }
+        return statistiques;
+    }
+
+    /**
+     * Reconstruit des statistiques à partir de leurs valeurs persistées (agrégats horaires ou journaliers)
+     */
+    public static StatistiquesMesures depuis(long nombreMesures, long ouverturesCouvercle, AccumulateurMetrique temperature,
+                                             AccumulateurMetrique humidite, AccumulateurMetrique poids,
+                                             AccumulateurMetrique batterie) {
+        StatistiquesMesures statistiques = new StatistiquesMesures();
+        statistiques.nombreMesures = nombreMesures;
+        statistiques.ouverturesCouvercle = ouverturesCouvercle;
+        statistiques.temperature.fusionner(temperature);
+        statistiques.humidite.fusionner(humidite);
+        statistiques.poids.fusionner(poids);
+        statistiques.batterie.fusionner(batterie);
+        return statistiques;
+    }
+
+    /**
+     * Ajoute une mesure isolée
+     */
+    public void ajouter(DonneesCapteur mesure) {
+        nombreMesures++;
+        ajouterValeur(temperature, mesure.getTemperature());
+        ajouterValeur(humidite, mesure.getHumidity());
+        ajouterValeur(poids, mesure.getPoids());
+        ajouterValeur(batterie, mesure.getBatterie());
+        if (Boolean.TRUE.equals(mesure.getCouvercleOuvert())) {
+            ouverturesCouvercle++;
+        }
+    }
+
+    /**
+     * Ajoute la mesure d'index i d'une série
+     */
+    public void ajouter(SerieCapteurs serie, int i) {
+        nombreMesures++;
+        if (serie.hasTemperature(i)) {
+            temperature.ajouter(serie.getTemperature(i));
+        } else {
+            temperature.ajouterNul();
+        }
+        if (serie.hasHumidite(i)) {
+            humidite.ajouter(serie.getHumidite(i));
+        } else {
+            humidite.ajouterNul();
+        }
+        if (serie.hasPoids(i)) {
+            poids.ajouter(serie.getPoids(i));
+        } else {
+            poids.ajouterNul();
+        }
+        if (serie.hasBatterie(i)) {
+            batterie.ajouter(serie.getBatterie(i));
+        } else {
+            batterie.ajouterNul();
+        }
+        if (serie.isCouvercleOuvert(i)) {
+            ouverturesCouvercle++;
+        }
+    }
+
+    /**
+     * Ajoute les statistiques partielles d'un autre ensemble de mesures
+     */
+    public void fusionner(StatistiquesMesures autre) {
+        nombreMesures += autre.nombreMesures;
+        ouverturesCouvercle += autre.ouverturesCouvercle;
+        temperature.fusionner(autre.temperature);
+        humidite.fusionner(autre.humidite);
+        poids.fusionner(autre.poids);
+        batterie.fusionner(autre.batterie);
+    }
+
+    public long getNombreMesures() {
+        return nombreMesures;
+    }
+
+    public long getOuverturesCouvercle() {
+        return ouverturesCouvercle;
+    }
+
+    public AccumulateurMetrique getTemperature() {
+        return temperature;
+    }
+
+    public AccumulateurMetrique getHumidite() {
+        return humidite;
+    }
+
+    public AccumulateurMetrique getPoids() {
+        return poids;
+    }
+
+    public AccumulateurMetrique getBatterie() {
+        return batterie;
+    }
+
+    /**
+     * Format de réponse des endpoints de statistiques (valeurs arrondies au dixième)
+     */
+    public Map<String, Object> versMap() {
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("nombreMesures", (int) nombreMesures);
+
+        if (nombreMesures > 0) {
+            if (temperature.getNombre() > 0) {
+                statistiques.put("temperatureMoyenne", arrondir(temperature.getMoyenne()));
+                statistiques.put("temperatureMin", arrondir(temperature.getMin()));
+                statistiques.put("temperatureMax", arrondir(temperature.getMax()));
+                statistiques.put("temperatureEcartType", arrondir(temperature.getEcartType()));
+            }
+
+            if (humidite.getNombre() > 0) {
+                statistiques.put("humiditeMoyenne", arrondir(humidite.getMoyenne()));
+                statistiques.put("humiditeMin", arrondir(humidite.getMin()));
+                statistiques.put("humiditeMax", arrondir(humidite.getMax()));
+                statistiques.put("humiditeEcartType", arrondir(humidite.getEcartType()));
+            }
+
+            statistiques.put("ouverturesCouvercle", ouverturesCouvercle);
+            statistiques.put("pourcentageOuvertures", Math.round((double) ouverturesCouvercle / nombreMesures * 100.0));
+        }
+
+        return statistiques;
+    }
+
+    private static void ajouterValeur(AccumulateurMetrique accumulateur, Number valeur) {
+        if (valeur != null) {
+            accumulateur.ajouter(valeur.doubleValue());
+        } else {
+            accumulateur.ajouterNul();
+        }
+    }
+
+    private static double arrondir(double valeur) {
+        return Math.round(valeur * 10.0) / 10.0;
+    }
+}
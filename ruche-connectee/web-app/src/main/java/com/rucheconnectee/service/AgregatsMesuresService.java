@@ -0,0 +1,416 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.AccumulateurMetrique;
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.StatistiquesMesures;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Agrégats horaires et journaliers des mesures, maintenus au fil de l'eau à côté de l'historique :
+ * ruche/{rucheId}/agregats/heures/{yyyy-MM-ddTHH} et ruche/{rucheId}/agregats/jours/{yyyy-MM-dd}.
+ * Chaque agrégat contient le nombre de mesures, les ouvertures du couvercle et, par capteur,
+ * nombre, valeurs nulles, somme, min, max et somme des carrés des écarts (statistiques fusionnables).
+ *
+ * Les id des mesures agrégées sont notés par heure à part, sous ruche/{rucheId}/agregats/ids/{yyyy-MM-ddTHH}/{mesureId},
+ * que les lectures de statistiques ne chargent jamais : une mesure rejouée (lot rejoué, reprise du journal
+ * d'ingestion) n'est comptée qu'une fois. Un agrégat journalier contient une copie de chacune de ses heures
+ * (heures/{HH}), remplacée seulement par une copie plus complète : il est donc lui aussi insensible aux rejeux.
+ *
+ * Les agrégats ne font foi qu'à partir de ruche/{rucheId}/agregats/etat/depuis, l'heure qui suit la première
+ * agrégation : les mesures écrites dans l'historique sans passer par MesuresService n'y figurent pas,
+ * reconstruire() les recalcule à partir de tout l'historique. Une heure dont la transaction a échoué est
+ * notée dans etat/incomplets et les périodes qui la contiennent sont recalculées depuis l'historique,
+ * jusqu'à la prochaine reconstruction. Les agrégats d'un format antérieur (etat sans format) ne font foi
+ * qu'après reconstruction.
+ */
+@Service
+public class AgregatsMesuresService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    /**
+     * Format des agrégats (ids par heure à part, heures dans les jours, valeurs nulles), noté dans etat/format
+     */
+    static final int FORMAT = 2;
+
+    // État connu par ruche ; le début de validité ne peut que reculer (reconstruction), la valeur connue reste donc sûre
+    private final Map<String, EtatAgregats> etats = new ConcurrentHashMap<>();
+
+    /**
+     * Ajoute une mesure aux agrégats de son heure et de son jour (transactions Firebase)
+     */
+    public CompletableFuture<Void> enregistrer(String rucheId, DonneesCapteur mesure) {
+        return enregistrer(rucheId, List.of(mesure));
+    }
+
+    /**
+     * Ajoute un lot de mesures aux agrégats : une transaction par heure concernée, puis la copie de l'heure
+     * dans son agrégat journalier. Une heure en échec est notée incomplète.
+     */
+    public CompletableFuture<Void> enregistrer(String rucheId, List<DonneesCapteur> mesures) {
+        if (mesures.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<String, List<DonneesCapteur>> heures = new TreeMap<>();
+        for (DonneesCapteur mesure : mesures) {
+            heures.computeIfAbsent(cleHeure(mesure.getTimestamp()), cle -> new ArrayList<>()).add(mesure);
+        }
+
+        List<CompletableFuture<Void>> transactions = new ArrayList<>();
+        if (!etats.containsKey(rucheId)) {
+            transactions.add(initialiserEtat(rucheId));
+        }
+        heures.forEach((cle, lot) -> transactions.add(enregistrerHeure(rucheId, cle, lot)));
+        return CompletableFuture.allOf(transactions.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Premières mesures agrégées depuis le démarrage : crée l'état s'il n'existe pas. L'heure en cours peut déjà
+     * contenir des mesures non agrégées, les agrégats font foi à partir de l'heure suivante (heure d'horloge,
+     * pas celle des mesures : un lot rattrapé ne rend pas valides des heures passées jamais agrégées).
+     */
+    private CompletableFuture<Void> initialiserEtat(String rucheId) {
+        String depuis = cleHeure(LocalDateTime.now().plusHours(1));
+        AtomicReference<Map<String, Object>> ecrit = new AtomicReference<>();
+        return firebaseService.transactionDocumentAsync("ruche/" + rucheId + "/agregats", "etat", actuel -> {
+            if (actuel != null && actuel.get("depuis") != null) {
+                ecrit.set(actuel);
+                return actuel;
+            }
+            Map<String, Object> nouvelEtat = new HashMap<>();
+            nouvelEtat.put("depuis", depuis);
+            nouvelEtat.put("format", FORMAT);
+            ecrit.set(nouvelEtat);
+            return nouvelEtat;
+        }).thenRun(() -> etats.putIfAbsent(rucheId, EtatAgregats.lire(ecrit.get())));
+    }
+
+    /**
+     * Note les id des mesures d'une heure, ajoute celles qui n'y figuraient pas à son agrégat, puis copie
+     * l'agrégat obtenu dans celui du jour. Si l'agrégat échoue après les id, l'heure est notée incomplète :
+     * elle est recalculée depuis l'historique jusqu'à la prochaine reconstruction.
+     */
+    private CompletableFuture<Void> enregistrerHeure(String rucheId, String cle, List<DonneesCapteur> mesures) {
+        String path = "ruche/" + rucheId + "/agregats";
+        // Une fonction de transaction peut être rappelée : seul son dernier résultat est celui écrit
+        AtomicReference<List<DonneesCapteur>> nouvelles = new AtomicReference<>();
+        AtomicReference<Map<String, Object>> ecrit = new AtomicReference<>();
+
+        return firebaseService.transactionDocumentAsync(path + "/ids", cle, actuel -> {
+            Map<String, Object> ids = actuel != null ? new HashMap<>(actuel) : new HashMap<>();
+            List<DonneesCapteur> absentes = new ArrayList<>();
+            for (DonneesCapteur mesure : mesures) {
+                if (mesure.getId() == null || ids.putIfAbsent(mesure.getId(), true) == null) {
+                    absentes.add(mesure);
+                }
+            }
+            nouvelles.set(absentes);
+            return actuel != null && absentes.isEmpty() ? actuel : ids;
+        }).thenCompose(ignore -> firebaseService.transactionDocumentAsync(path + "/heures", cle, actuel -> {
+            Map<String, Object> agregat = ajouter(actuel, nouvelles.get());
+            ecrit.set(agregat);
+            return agregat;
+        })).thenCompose(ignore -> {
+            Map<String, Object> heure = ecrit.get();
+            long nombre = nombre(heure, "nombre");
+            return firebaseService.transactionDocumentAsync(path + "/jours/" + cle.substring(0, 10) + "/heures", cle.substring(11),
+                actuel -> actuel != null && nombre(actuel, "nombre") >= nombre ? actuel : heure);
+        }).exceptionally(e -> {
+            marquerIncomplete(rucheId, cle, e);
+            return null;
+        });
+    }
+
+    /**
+     * Note une heure dont l'agrégat (ou sa copie journalière) n'a pas pu être mis à jour
+     */
+    private void marquerIncomplete(String rucheId, String cle, Throwable erreur) {
+        System.err.println("Agrégat " + cle + " de la ruche " + rucheId + " incomplet: " + erreur.getMessage());
+        EtatAgregats etat = etats.get(rucheId);
+        if (etat != null) {
+            etat.incomplets.add(cle);
+        }
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("incomplets/" + cle, true);
+        firebaseService.updateDocumentAsync("ruche/" + rucheId + "/agregats", "etat", updates).thenRun(() -> {
+            // L'état a pu être chargé entre-temps sans cette heure
+            EtatAgregats charge = etats.get(rucheId);
+            if (charge != null) {
+                charge.incomplets.add(cle);
+            }
+        }).exceptionally(e -> {
+            System.err.println("Erreur lors du marquage de l'agrégat " + cle + " de la ruche " + rucheId + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Statistiques d'une ruche sur [debut, fin] à partir des agrégats (version asynchrone) :
+     * agrégats journaliers pour les jours complets, horaires pour les jours partiels.
+     * La période commence au début de l'heure de debut. Renvoie null si les agrégats
+     * ne couvrent pas la période, l'appelant repasse alors par l'historique.
+     */
+    public CompletableFuture<StatistiquesMesures> getStatistiquesAsync(String rucheId, LocalDateTime debut, LocalDateTime fin) {
+        LocalDateTime premiereHeure = debut.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime derniereHeure = fin.truncatedTo(ChronoUnit.HOURS);
+        String cleDebut = cleHeure(premiereHeure);
+
+        return getEtatAsync(rucheId).thenCompose(etat -> {
+            if (!etat.couvre(cleDebut, cleHeure(derniereHeure))) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            String path = "ruche/" + rucheId + "/agregats";
+            LocalDate premierJourComplet = premiereHeure.getHour() == 0
+                ? premiereHeure.toLocalDate() : premiereHeure.toLocalDate().plusDays(1);
+            LocalDate dernierJour = derniereHeure.toLocalDate();
+
+            List<CompletableFuture<List<Map<String, Object>>>> lectures = new ArrayList<>();
+            if (premierJourComplet.isBefore(dernierJour)) {
+                if (premiereHeure.isBefore(premierJourComplet.atStartOfDay())) {
+                    lectures.add(lireAgregats(path + "/heures", cleDebut, cleHeure(premierJourComplet.atStartOfDay().minusHours(1))));
+                }
+                lectures.add(lireAgregats(path + "/jours", cleJour(premierJourComplet), cleJour(dernierJour.minusDays(1))));
+                lectures.add(lireAgregats(path + "/heures", cleHeure(dernierJour.atStartOfDay()), cleHeure(derniereHeure)));
+            } else {
+                lectures.add(lireAgregats(path + "/heures", cleDebut, cleHeure(derniereHeure)));
+            }
+
+            return CompletableFuture.allOf(lectures.toArray(new CompletableFuture[0])).thenApply(ignore -> {
+                StatistiquesMesures statistiques = new StatistiquesMesures();
+                for (CompletableFuture<List<Map<String, Object>>> lecture : lectures) {
+                    for (Map<String, Object> agregat : lecture.join()) {
+                        statistiques.fusionner(lireAgregat(agregat));
+                    }
+                }
+                return statistiques;
+            });
+        });
+    }
+
+    /**
+     * Recalcule tous les agrégats d'une ruche à partir de son historique complet et les remplace en une écriture.
+     * Les mesures ajoutées pendant la reconstruction peuvent en être absentes : à lancer hors période d'ingestion.
+     */
+    public CompletableFuture<Map<String, Object>> reconstruire(String rucheId) {
+        return firebaseService.getAllDocumentsAsync("ruche/" + rucheId + "/historique", DonneesCapteur.class).thenCompose(mesures -> {
+            Map<String, List<DonneesCapteur>> heures = new TreeMap<>();
+            for (DonneesCapteur mesure : mesures) {
+                heures.computeIfAbsent(cleHeure(mesure.getTimestamp()), cle -> new ArrayList<>()).add(mesure);
+            }
+
+            // Toutes les mesures existantes sont agrégées : les agrégats font foi depuis la première heure
+            String depuis = heures.isEmpty()
+                ? cleHeure(LocalDateTime.now()) : heures.keySet().iterator().next();
+
+            Map<String, Object> documentsHeures = new HashMap<>();
+            Map<String, Object> documentsIds = new HashMap<>();
+            Map<String, Map<String, Object>> documentsJours = new HashMap<>();
+            heures.forEach((cle, lot) -> {
+                Map<String, Object> agregat = ajouter(null, lot);
+                documentsHeures.put(cle, agregat);
+                Map<String, Object> ids = new HashMap<>();
+                for (DonneesCapteur mesure : lot) {
+                    if (mesure.getId() != null) {
+                        ids.put(mesure.getId(), true);
+                    }
+                }
+                if (!ids.isEmpty()) {
+                    documentsIds.put(cle, ids);
+                }
+                documentsJours.computeIfAbsent(cle.substring(0, 10), jour -> new HashMap<>()).put(cle.substring(11), agregat);
+            });
+            Map<String, Object> jours = new HashMap<>();
+            documentsJours.forEach((jour, heuresJour) -> jours.put(jour, Map.of("heures", heuresJour)));
+
+            Map<String, Object> agregats = new HashMap<>();
+            agregats.put("heures", documentsHeures);
+            agregats.put("ids", documentsIds);
+            agregats.put("jours", jours);
+            agregats.put("etat", Map.of("depuis", depuis, "format", FORMAT));
+
+            return firebaseService.setDocumentAsync("ruche/" + rucheId, "agregats", agregats).thenApply(ignore -> {
+                etats.put(rucheId, new EtatAgregats(depuis, true));
+
+                Map<String, Object> resultat = new HashMap<>();
+                resultat.put("mesures", mesures.size());
+                resultat.put("heures", heures.size());
+                resultat.put("jours", documentsJours.size());
+                resultat.put("depuis", depuis);
+                return resultat;
+            });
+        });
+    }
+
+    private CompletableFuture<EtatAgregats> getEtatAsync(String rucheId) {
+        EtatAgregats connu = etats.get(rucheId);
+        if (connu != null) {
+            return CompletableFuture.completedFuture(connu);
+        }
+        return firebaseService.getDocumentAsync("ruche/" + rucheId + "/agregats", "etat").thenApply(document -> {
+            EtatAgregats etat = EtatAgregats.lire(document);
+            EtatAgregats precedent = etats.putIfAbsent(rucheId, etat);
+            return precedent != null ? precedent : etat;
+        });
+    }
+
+    private CompletableFuture<List<Map<String, Object>>> lireAgregats(String path, String premiereCle, String derniereCle) {
+        return firebaseService.queryDocumentsAsync(path, FirebaseService.ORDRE_CLE, premiereCle, derniereCle, null);
+    }
+
+    /**
+     * Fonction de transaction : ajoute des mesures (déjà dédoublonnées) à un agrégat horaire,
+     * null s'il n'existe pas encore
+     */
+    private static Map<String, Object> ajouter(Map<String, Object> actuel, List<DonneesCapteur> mesures) {
+        if (actuel != null && mesures.isEmpty()) {
+            return actuel;
+        }
+        StatistiquesMesures statistiques = actuel != null ? lire(actuel) : new StatistiquesMesures();
+        for (DonneesCapteur mesure : mesures) {
+            statistiques.ajouter(mesure);
+        }
+        return ecrire(statistiques);
+    }
+
+    /**
+     * Statistiques d'un agrégat lu : somme de ses heures pour un agrégat journalier, ses champs sinon
+     */
+    private static StatistiquesMesures lireAgregat(Map<String, Object> agregat) {
+        if (!(agregat.get("heures") instanceof Map)) {
+            return lire(agregat);
+        }
+        StatistiquesMesures statistiques = new StatistiquesMesures();
+        for (Object heure : ((Map<?, ?>) agregat.get("heures")).values()) {
+            if (heure instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> agregatHeure = (Map<String, Object>) heure;
+                statistiques.fusionner(lire(agregatHeure));
+            }
+        }
+        return statistiques;
+    }
+
+    static String cleHeure(LocalDateTime timestamp) {
+        return String.format("%sT%02d", timestamp.toLocalDate(), timestamp.getHour());
+    }
+
+    static String cleJour(LocalDate date) {
+        return date.toString();
+    }
+
+    /**
+     * Convertit des statistiques au format Firebase d'un agrégat
+     */
+    private static Map<String, Object> ecrire(StatistiquesMesures statistiques) {
+        Map<String, Object> agregat = new HashMap<>();
+        agregat.put("nombre", statistiques.getNombreMesures());
+        agregat.put("ouvertures", statistiques.getOuverturesCouvercle());
+        ecrireMetrique(agregat, "temperature", statistiques.getTemperature());
+        ecrireMetrique(agregat, "humidite", statistiques.getHumidite());
+        ecrireMetrique(agregat, "poids", statistiques.getPoids());
+        ecrireMetrique(agregat, "batterie", statistiques.getBatterie());
+        return agregat;
+    }
+
+    private static void ecrireMetrique(Map<String, Object> agregat, String nom, AccumulateurMetrique metrique) {
+        if (metrique.getNombreNuls() > 0) {
+            agregat.put(nom + "Nuls", metrique.getNombreNuls());
+        }
+        if (metrique.getNombre() == 0) {
+            return;
+        }
+        agregat.put(nom + "Nombre", metrique.getNombre());
+        agregat.put(nom + "Somme", metrique.getSomme());
+        agregat.put(nom + "Min", metrique.getMin());
+        agregat.put(nom + "Max", metrique.getMax());
+        agregat.put(nom + "M2", metrique.getM2());
+    }
+
+    /**
+     * Convertit un agrégat Firebase en statistiques fusionnables
+     */
+    private static StatistiquesMesures lire(Map<String, Object> agregat) {
+        return StatistiquesMesures.depuis(
+            nombre(agregat, "nombre"),
+            nombre(agregat, "ouvertures"),
+            lireMetrique(agregat, "temperature"),
+            lireMetrique(agregat, "humidite"),
+            lireMetrique(agregat, "poids"),
+            lireMetrique(agregat, "batterie"));
+    }
+
+    private static AccumulateurMetrique lireMetrique(Map<String, Object> agregat, String nom) {
+        long nombre = nombre(agregat, nom + "Nombre");
+        long nuls = nombre(agregat, nom + "Nuls");
+        if (nombre == 0 && nuls == 0) {
+            return new AccumulateurMetrique();
+        }
+        return AccumulateurMetrique.depuis(nombre, nuls,
+            valeur(agregat, nom + "Somme"),
+            valeur(agregat, nom + "Min"),
+            valeur(agregat, nom + "Max"),
+            valeur(agregat, nom + "M2"));
+    }
+
+    private static long nombre(Map<String, Object> agregat, String champ) {
+        Object valeur = agregat.get(champ);
+        return valeur instanceof Number ? ((Number) valeur).longValue() : 0;
+    }
+
+    private static double valeur(Map<String, Object> agregat, String champ) {
+        Object valeur = agregat.get(champ);
+        return valeur instanceof Number ? ((Number) valeur).doubleValue() : 0;
+    }
+
+    /**
+     * État des agrégats d'une ruche : début de validité, format et heures incomplètes
+     */
+    private static final class EtatAgregats {
+        private final String depuis;
+        private final boolean formatCourant;
+        private final NavigableSet<String> incomplets = new ConcurrentSkipListSet<>();
+
+        private EtatAgregats(String depuis, boolean formatCourant) {
+            this.depuis = depuis;
+            this.formatCourant = formatCourant;
+        }
+
+        /**
+         * État lu depuis ruche/{rucheId}/agregats/etat (null si absent)
+         */
+        private static EtatAgregats lire(Map<String, Object> document) {
+            if (document == null) {
+                return new EtatAgregats(null, false);
+            }
+            Object depuis = document.get("depuis");
+            EtatAgregats etat = new EtatAgregats(depuis != null ? depuis.toString() : null, nombre(document, "format") >= FORMAT);
+            if (document.get("incomplets") instanceof Map) {
+                for (Object cle : ((Map<?, ?>) document.get("incomplets")).keySet()) {
+                    etat.incomplets.add(cle.toString());
+                }
+            }
+            return etat;
+        }
+
+        /**
+         * Les agrégats font foi sur les heures [premiere, derniere]
+         */
+        private boolean couvre(String premiere, String derniere) {
+            return depuis != null && formatCourant && depuis.compareTo(premiere) <= 0
+                && incomplets.subSet(premiere, true, derniere, true).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moteur d'alertes évalué au fil de l'ingestion : chaque mesure écrite par MesuresService passe par evaluer,
+ * qui compare les capteurs aux seuils app.alertes.* en O(1), sans relire l'historique.
+ *
+ * Règles par ruche : température et humidité hors bornes, batterie et qualité du signal sous leur seuil
+ * (avec une hystérésis pour ne pas osciller autour du seuil), ouverture du couvercle (changement d'état).
+ * Une alerte est déclenchée au passage hors seuil et résolue au retour dans la plage ; un capteur absent
+ * de la mesure laisse l'alerte dans son état.
+ *
+ * Tout l'état est en mémoire : alertes actives par ruche, inhibitions (les alertes continuent d'être suivies
+ * mais ne sont plus notifiées) et journal borné des derniers évènements. Les échéances, fin d'inhibition et
+ * ruche muette depuis app.alertes.silence-minutes (ses alertes expirent et elle sort de la surveillance),
+ * sont tenues par une roue temporelle avancée chaque app.alertes.roue.pas-ms.
+ */
+@Service
+public class AlertesService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.alertes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.alertes.temperature.min:10}")
+    private double temperatureMin;
+
+    @Value("${app.alertes.temperature.max:38}")
+    private double temperatureMax;
+
+    @Value("${app.alertes.temperature.hysteresis:0.5}")
+    private double temperatureHysteresis;
+
+    @Value("${app.alertes.humidite.min:40}")
+    private double humiditeMin;
+
+    @Value("${app.alertes.humidite.max:85}")
+    private double humiditeMax;
+
+    @Value("${app.alertes.humidite.hysteresis:2}")
+    private double humiditeHysteresis;
+
+    @Value("${app.alertes.batterie.min:20}")
+    private int batterieMin;
+
+    @Value("${app.alertes.signal.min:20}")
+    private int signalMin;
+
+    @Value("${app.alertes.niveau.hysteresis:5}")
+    private int niveauHysteresis;
+
+    @Value("${app.alertes.silence-minutes:60}")
+    private long silenceMinutes;
+
+    @Value("${app.alertes.inhibition.duree-heures-defaut:2}")
+    private int dureeInhibitionDefaut;
+
+    @Value("${app.alertes.inhibition.duree-heures-max:168}")
+    private int dureeInhibitionMax;
+
+    @Value("${app.alertes.journal-taille:500}")
+    private int tailleJournal;
+
+    @Value("${app.alertes.roue.pas-ms:1000}")
+    private long pasRoueMs;
+
+    @Value("${app.alertes.roue.cases:4096}")
+    private int casesRoue;
+
+    private final Map<String, EtatRuche> etats = new ConcurrentHashMap<>();
+    // Alertes actives de toutes les ruches, clé rucheId/TYPE : nombre et liste sans parcourir les ruches
+    private final Map<String, EvenementAlerte> actives = new ConcurrentHashMap<>();
+    // Mêmes alertes par identifiant décroissant (ordre de déclenchement) : liste sans tri
+    private final NavigableMap<Long, EvenementAlerte> activesParId = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    private final Map<String, Inhibition> inhibitions = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong evaluees = new AtomicLong();
+    private RoueTemporelle<Runnable> roue;
+    private JournalCirculaire<EvenementAlerte> journal;
+    private final Map<TypeAlerte, Counter> declenchees = new EnumMap<>(TypeAlerte.class);
+
+    @PostConstruct
+    public void demarrer() {
+        roue = new RoueTemporelle<>(pasRoueMs, casesRoue, System.currentTimeMillis());
+        journal = new JournalCirculaire<>(tailleJournal);
+        for (TypeAlerte type : TypeAlerte.values()) {
+            declenchees.put(type, Counter.builder("ruche.alertes.declenchees").tag("type", type.name())
+                .description("Alertes déclenchées").register(meterRegistry));
+        }
+        Gauge.builder("ruche.alertes.actives", actives, Map::size).description("Alertes actives").register(meterRegistry);
+        Gauge.builder("ruche.alertes.ruches", etats, Map::size).description("Ruches surveillées").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Évalue un lot de mesures d'une ruche, dans l'ordre chronologique.
+     * Une mesure antérieure à la dernière évaluée (rejeu, arrivée tardive) ne change pas l'état.
+     */
+    public void evaluer(String rucheId, List<DonneesCapteur> mesures) {
+        if (!enabled || mesures.isEmpty()) {
+            return;
+        }
+        List<DonneesCapteur> ordonnees = MesuresService.ordreChronologique(mesures);
+
+        List<EvenementAlerte> evenements = new ArrayList<>();
+        long maintenant = System.currentTimeMillis();
+        while (true) {
+            EtatRuche etat = etats.computeIfAbsent(rucheId, EtatRuche::new);
+            synchronized (etat) {
+                if (etat.supprime) {
+                    continue; // Expirée entre-temps : un nouvel état a été (ou va être) créé
+                }
+                for (DonneesCapteur mesure : ordonnees) {
+                    evaluer(etat, mesure, evenements);
+                }
+                etat.derniereReception = maintenant;
+                if (!etat.silencePlanifie) {
+                    etat.silencePlanifie = true;
+                    roue.planifier(() -> verifierSilence(etat), maintenant + silenceMinutes * 60_000);
+                }
+            }
+            break;
+        }
+        evaluees.addAndGet(ordonnees.size());
+        publier(evenements);
+    }
+
+    /**
+     * Compare une mesure aux règles, sous le verrou de l'état de la ruche
+     */
+    private void evaluer(EtatRuche etat, DonneesCapteur mesure, List<EvenementAlerte> evenements) {
+        LocalDateTime horodatage = mesure.getTimestamp();
+        if (etat.derniereMesure != null && horodatage.isBefore(etat.derniereMesure)) {
+            return;
+        }
+        etat.derniereMesure = horodatage;
+
+        Double temperature = mesure.getTemperature();
+        if (temperature != null) {
+            basculer(etat, TypeAlerte.TEMPERATURE_HAUTE, horsSeuilHaut(etat, TypeAlerte.TEMPERATURE_HAUTE, temperature, temperatureMax, temperatureHysteresis),
+                temperature, temperatureMax, horodatage, evenements);
+            basculer(etat, TypeAlerte.TEMPERATURE_BASSE, horsSeuilBas(etat, TypeAlerte.TEMPERATURE_BASSE, temperature, temperatureMin, temperatureHysteresis),
+                temperature, temperatureMin, horodatage, evenements);
+        }
+        Double humidite = mesure.getHumidity() != null ? mesure.getHumidity() : mesure.getHumidite();
+        if (humidite != null) {
+            basculer(etat, TypeAlerte.HUMIDITE_HAUTE, horsSeuilHaut(etat, TypeAlerte.HUMIDITE_HAUTE, humidite, humiditeMax, humiditeHysteresis),
+                humidite, humiditeMax, horodatage, evenements);
+            basculer(etat, TypeAlerte.HUMIDITE_BASSE, horsSeuilBas(etat, TypeAlerte.HUMIDITE_BASSE, humidite, humiditeMin, humiditeHysteresis),
+                humidite, humiditeMin, horodatage, evenements);
+        }
+        if (mesure.getBatterie() != null) {
+            basculer(etat, TypeAlerte.BATTERIE_FAIBLE, horsSeuilBas(etat, TypeAlerte.BATTERIE_FAIBLE, mesure.getBatterie(), batterieMin, niveauHysteresis),
+                mesure.getBatterie().doubleValue(), (double) batterieMin, horodatage, evenements);
+        }
+        if (mesure.getSignalQualite() != null) {
+            basculer(etat, TypeAlerte.SIGNAL_FAIBLE, horsSeuilBas(etat, TypeAlerte.SIGNAL_FAIBLE, mesure.getSignalQualite(), signalMin, niveauHysteresis),
+                mesure.getSignalQualite().doubleValue(), (double) signalMin, horodatage, evenements);
+        }
+        if (mesure.getCouvercleOuvert() != null) {
+            basculer(etat, TypeAlerte.COUVERCLE_OUVERT, mesure.getCouvercleOuvert(), null, null, horodatage, evenements);
+        }
+    }
+
+    /**
+     * Au-dessus du seuil ; une alerte active n'est résolue qu'en repassant sous seuil - hystérésis
+     */
+    private static boolean horsSeuilHaut(EtatRuche etat, TypeAlerte type, double valeur, double seuil, double hysteresis) {
+        return etat.estActive(type) ? valeur > seuil - hysteresis : valeur > seuil;
+    }
+
+    private static boolean horsSeuilBas(EtatRuche etat, TypeAlerte type, double valeur, double seuil, double hysteresis) {
+        return etat.estActive(type) ? valeur < seuil + hysteresis : valeur < seuil;
+    }
+
+    /**
+     * Déclenche ou résout une alerte si la condition a changé depuis la mesure précédente
+     */
+    private void basculer(EtatRuche etat, TypeAlerte type, boolean condition, Double valeur, Double seuil,
+                          LocalDateTime horodatage, List<EvenementAlerte> evenements) {
+        if (condition == etat.estActive(type)) {
+            return;
+        }
+        String cle = etat.rucheId + "/" + type.name();
+        if (condition) {
+            etat.actives |= type.bit();
+            EvenementAlerte evenement = evenement(etat.rucheId, type, EtatAlerte.DECLENCHEE, valeur, seuil, horodatage);
+            ajouterActive(cle, evenement);
+            evenements.add(evenement);
+        } else {
+            etat.actives &= ~type.bit();
+            retirerActive(cle);
+            evenements.add(evenement(etat.rucheId, type, EtatAlerte.RESOLUE, valeur, seuil, horodatage));
+        }
+    }
+
+    private void ajouterActive(String cle, EvenementAlerte evenement) {
+        EvenementAlerte precedente = actives.put(cle, evenement);
+        if (precedente != null) {
+            activesParId.remove(precedente.getId());
+        }
+        activesParId.put(evenement.getId(), evenement);
+    }
+
+    private void retirerActive(String cle) {
+        EvenementAlerte evenement = actives.remove(cle);
+        if (evenement != null) {
+            activesParId.remove(evenement.getId());
+        }
+    }
+
+    /**
+     * Échéance de silence d'une ruche : replanifiée si une mesure est arrivée depuis, sinon la ruche
+     * sort de la surveillance et ses alertes expirent (leur état n'est plus connu)
+     */
+    private void verifierSilence(EtatRuche etat) {
+        List<EvenementAlerte> evenements = new ArrayList<>();
+        synchronized (etat) {
+            long echeance = etat.derniereReception + silenceMinutes * 60_000;
+            if (echeance > System.currentTimeMillis()) {
+                roue.planifier(() -> verifierSilence(etat), echeance);
+                return;
+            }
+            etat.supprime = true;
+            etats.remove(etat.rucheId, etat);
+            for (TypeAlerte type : TypeAlerte.values()) {
+                if (etat.estActive(type)) {
+                    retirerActive(etat.rucheId + "/" + type.name());
+                    evenements.add(evenement(etat.rucheId, type, EtatAlerte.EXPIREE, null, null, null));
+                }
+            }
+        }
+        publier(evenements);
+    }
+
+    /**
+     * Inhibe les notifications d'une ruche pendant dureeHeures (durée par défaut si null).
+     * Remplace une inhibition en cours.
+     */
+    public Inhibition inhiber(String rucheId, Integer dureeHeures) {
+        int duree = dureeHeures != null ? dureeHeures : dureeInhibitionDefaut;
+        if (duree <= 0 || duree > dureeInhibitionMax) {
+            throw new IllegalArgumentException("La durée d'inhibition doit être comprise entre 1 et " + dureeInhibitionMax + " heures");
+        }
+        long debut = System.currentTimeMillis();
+        Inhibition inhibition = new Inhibition(rucheId, duree, debut, debut + duree * 3_600_000L);
+        inhibitions.put(rucheId, inhibition);
+        // L'échéance d'une inhibition remplacée ou levée entre-temps ne retire que la sienne
+        roue.planifier(() -> inhibitions.remove(rucheId, inhibition), inhibition.getFinInhibition());
+        System.out.println("Alertes inhibées pour la ruche " + rucheId + " pendant " + duree + "h");
+        return inhibition;
+    }
+
+    /**
+     * Lève l'inhibition d'une ruche ; false si elle n'en avait pas
+     */
+    public boolean leverInhibition(String rucheId) {
+        return inhibitions.remove(rucheId) != null;
+    }
+
+    /**
+     * Inhibition en cours d'une ruche, null si aucune
+     */
+    public Inhibition getInhibition(String rucheId) {
+        Inhibition inhibition = inhibitions.get(rucheId);
+        // La roue n'avance qu'à chaque pas : une inhibition échue avant son retrait n'est plus active
+        return inhibition != null && inhibition.getFinInhibition() > System.currentTimeMillis() ? inhibition : null;
+    }
+
+    /**
+     * Inhibitions en cours, par ruche
+     */
+    public Map<String, Inhibition> getInhibitions() {
+        long maintenant = System.currentTimeMillis();
+        Map<String, Inhibition> resultat = new TreeMap<>();
+        inhibitions.forEach((rucheId, inhibition) -> {
+            if (inhibition.getFinInhibition() > maintenant) {
+                resultat.put(rucheId, inhibition);
+            }
+        });
+        return resultat;
+    }
+
+    /**
+     * Émet une alerte de test pour une ruche, par le même chemin de notification que les vraies alertes
+     */
+    public EvenementAlerte tester(String rucheId) {
+        EvenementAlerte evenement = evenement(rucheId, TypeAlerte.TEST, EtatAlerte.DECLENCHEE, null, null, LocalDateTime.now());
+        publier(List.of(evenement));
+        return evenement;
+    }
+
+    /**
+     * Alertes actives, toutes ruches ou d'une seule (rucheId non null), les plus récentes d'abord
+     */
+    public List<EvenementAlerte> getAlertesActives(String rucheId) {
+        if (rucheId == null) {
+            return new ArrayList<>(activesParId.values());
+        }
+        List<EvenementAlerte> resultat = new ArrayList<>();
+        for (TypeAlerte type : TypeAlerte.values()) {
+            EvenementAlerte evenement = actives.get(rucheId + "/" + type.name());
+            if (evenement != null) {
+                resultat.add(evenement);
+            }
+        }
+        resultat.sort(Comparator.comparingLong(EvenementAlerte::getId).reversed());
+        return resultat;
+    }
+
+    public int getNombreAlertesActives() {
+        return actives.size();
+    }
+
+    /**
+     * Ruches surveillées : au moins une mesure reçue depuis app.alertes.silence-minutes
+     */
+    public Set<String> getRuchesSurveillees() {
+        return new TreeSet<>(etats.keySet());
+    }
+
+    public int getNombreRuchesSurveillees() {
+        return etats.size();
+    }
+
+    /**
+     * Derniers évènements du journal (déclenchements, résolutions, expirations, tests), les plus récents d'abord
+     */
+    public List<EvenementAlerte> getJournal(int limite) {
+        return journal.derniers(limite);
+    }
+
+    /**
+     * Compteurs du moteur : mesures évaluées, ruches, alertes actives, inhibitions, échéances en attente
+     */
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> statistiques = new LinkedHashMap<>();
+        statistiques.put("enabled", enabled);
+        statistiques.put("mesuresEvaluees", evaluees.get());
+        statistiques.put("ruchesSurveillees", etats.size());
+        statistiques.put("alertesActives", actives.size());
+        statistiques.put("inhibitions", inhibitions.size());
+        statistiques.put("echeances", roue.taille());
+        statistiques.put("evenements", sequence.get());
+        return statistiques;
+    }
+
+    /**
+     * Fait avancer la roue des échéances
+     */
+    @Scheduled(fixedDelayString = "${app.alertes.roue.pas-ms:1000}")
+    public void avancer() {
+        roue.avancer(System.currentTimeMillis(), Runnable::run);
+    }
+
+    private EvenementAlerte evenement(String rucheId, TypeAlerte type, EtatAlerte etat, Double valeur, Double seuil,
+                                      LocalDateTime horodatage) {
+        return new EvenementAlerte(sequence.incrementAndGet(), rucheId, type, etat, valeur, seuil, horodatage,
+            System.currentTimeMillis(), getInhibition(rucheId) != null);
+    }
+
+    /**
+     * Journalise les évènements et notifie ceux qui ne sont pas inhibés
+     */
+    private void publier(List<EvenementAlerte> evenements) {
+        if (evenements.isEmpty()) {
+            return;
+        }
+        journal.ajouter(evenements);
+        for (EvenementAlerte evenement : evenements) {
+            if (evenement.getEtat() == EtatAlerte.DECLENCHEE) {
+                declenchees.get(evenement.getType()).increment();
+            }
+            if (!evenement.isInhibee()) {
+                System.out.println("Alerte " + evenement.getEtat() + " " + evenement.getType() + " pour la ruche " + evenement.getRucheId()
+                    + (evenement.getValeur() != null ? " (valeur " + evenement.getValeur() + ", seuil " + evenement.getSeuil() + ")" : ""));
+            }
+        }
+    }
+
+    /**
+     * Règles d'alerte ; TEST n'est émise que par tester et n'est jamais active
+     */
+    public enum TypeAlerte {
+        TEMPERATURE_HAUTE, TEMPERATURE_BASSE, HUMIDITE_HAUTE, HUMIDITE_BASSE,
+        COUVERCLE_OUVERT, BATTERIE_FAIBLE, SIGNAL_FAIBLE, TEST;
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    public enum EtatAlerte {
+        DECLENCHEE, RESOLUE, EXPIREE
+    }
+
+    /**
+     * État d'alerte d'une ruche : alertes actives (un bit par type) et dernière mesure évaluée
+     */
+    private static final class EtatRuche {
+        private final String rucheId;
+        private int actives;
+        private LocalDateTime derniereMesure;
+        private long derniereReception;
+        private boolean silencePlanifie;
+        private boolean supprime;
+
+        private EtatRuche(String rucheId) {
+            this.rucheId = rucheId;
+        }
+
+        private boolean estActive(TypeAlerte type) {
+            return (actives & type.bit()) != 0;
+        }
+    }
+
+    /**
+     * Évènement d'alerte : valeur et seuil en cause (absents pour le couvercle, les tests et les expirations),
+     * horodatage de la mesure et instant de l'évènement
+     */
+    public static final class EvenementAlerte {
+        private final long id;
+        private final String rucheId;
+        private final TypeAlerte type;
+        private final EtatAlerte etat;
+        private final Double valeur;
+        private final Double seuil;
+        private final LocalDateTime horodatageMesure;
+        private final long timestamp;
+        private final boolean inhibee;
+
+        private EvenementAlerte(long id, String rucheId, TypeAlerte type, EtatAlerte etat, Double valeur, Double seuil,
+                                LocalDateTime horodatageMesure, long timestamp, boolean inhibee) {
+            this.id = id;
+            this.rucheId = rucheId;
+            this.type = type;
+            this.etat = etat;
+            this.valeur = valeur;
+            this.seuil = seuil;
+            this.horodatageMesure = horodatageMesure;
+            this.timestamp = timestamp;
+            this.inhibee = inhibee;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getRucheId() {
+            return rucheId;
+        }
+
+        public TypeAlerte getType() {
+            return type;
+        }
+
+        public EtatAlerte getEtat() {
+            return etat;
+        }
+
+        public Double getValeur() {
+            return valeur;
+        }
+
+        public Double getSeuil() {
+            return seuil;
+        }
+
+        public LocalDateTime getHorodatageMesure() {
+            return horodatageMesure;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isInhibee() {
+            return inhibee;
+        }
+    }
+
+    /**
+     * Inhibition des notifications d'une ruche (instants en millisecondes epoch)
+     */
+    public static final class Inhibition {
+        private final String rucheId;
+        private final int dureeHeures;
+        private final long debutInhibition;
+        private final long finInhibition;
+
+        private Inhibition(String rucheId, int dureeHeures, long debutInhibition, long finInhibition) {
+            this.rucheId = rucheId;
+            this.dureeHeures = dureeHeures;
+            this.debutInhibition = debutInhibition;
+            this.finInhibition = finInhibition;
+        }
+
+        public String getRucheId() {
+            return rucheId;
+        }
+
+        public int getDureeHeures() {
+            return dureeHeures;
+        }
+
+        public long getDebutInhibition() {
+            return debutInhibition;
+        }
+
+        public long getFinInhibition() {
+            return finInhibition;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.MoyenneExponentielle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Détection d'anomalies au fil de l'ingestion : chaque mesure écrite par MesuresService est comparée, pour la
+ * température, l'humidité et le poids, à une moyenne et une variance mobiles exponentielles propres à la ruche,
+ * puis intégrée au modèle. Le score est l'écart à la moyenne en écarts-types ; rien n'est relu dans l'historique.
+ *
+ * Le poids d'une mesure dans le modèle dépend du temps écoulé depuis la précédente (demi-vie
+ * app.anomalies.demi-vie-minutes), ce qui tolère des capteurs à cadence irrégulière. Aucune anomalie n'est
+ * signalée avant app.anomalies.mesures-min mesures de la série.
+ *
+ * Anomalies signalées :
+ * - effondrement de la température du couvain : moyenne dans la plage du couvain et chute brutale sous elle ;
+ * - chute de poids soudaine entre deux mesures rapprochées (essaimage, pillage, vol) ;
+ * - écart inhabituel d'une série, au-delà de app.anomalies.seuil-score.
+ *
+ * L'état est en mémoire, de taille constante par ruche (trois modèles et les dernières anomalies) ;
+ * il repart de zéro au redémarrage.
+ */
+@Service
+public class AnomaliesService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.anomalies.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.anomalies.demi-vie-minutes:240}")
+    private double demiVieMinutes;
+
+    @Value("${app.anomalies.mesures-min:30}")
+    private long mesuresMin;
+
+    @Value("${app.anomalies.seuil-score:4}")
+    private double seuilScore;
+
+    @Value("${app.anomalies.temperature.plancher:0.3}")
+    private double plancherTemperature;
+
+    @Value("${app.anomalies.humidite.plancher:1.5}")
+    private double plancherHumidite;
+
+    @Value("${app.anomalies.poids.plancher:0.1}")
+    private double plancherPoids;
+
+    @Value("${app.anomalies.couvain.temperature-min:32}")
+    private double couvainTemperatureMin;
+
+    @Value("${app.anomalies.couvain.chute:3}")
+    private double couvainChute;
+
+    @Value("${app.anomalies.poids.chute-kg:1.0}")
+    private double chutePoidsKg;
+
+    @Value("${app.anomalies.poids.fenetre-minutes:60}")
+    private long fenetrePoidsMinutes;
+
+    @Value("${app.anomalies.par-ruche:20}")
+    private int anomaliesParRuche;
+
+    @Value("${app.anomalies.journal-taille:500}")
+    private int tailleJournal;
+
+    private final Map<String, EtatRuche> etats = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong analysees = new AtomicLong();
+    private JournalCirculaire<Anomalie> journal;
+    private final Map<TypeAnomalie, Counter> compteurs = new EnumMap<>(TypeAnomalie.class);
+
+    @PostConstruct
+    public void demarrer() {
+        journal = new JournalCirculaire<>(tailleJournal);
+        for (TypeAnomalie type : TypeAnomalie.values()) {
+            compteurs.put(type, Counter.builder("ruche.anomalies").tag("type", type.name())
+                .description("Anomalies détectées").register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Score un lot de mesures d'une ruche dans l'ordre chronologique et met ses modèles à jour.
+     * Une mesure antérieure à la dernière analysée d'une série (rejeu, arrivée tardive) est ignorée pour cette série.
+     */
+    public List<Anomalie> analyser(String rucheId, List<DonneesCapteur> mesures) {
+        if (!enabled || mesures.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<DonneesCapteur> ordonnees = MesuresService.ordreChronologique(mesures);
+
+        List<Anomalie> anomalies = new ArrayList<>();
+        EtatRuche etat = etats.computeIfAbsent(rucheId, cle -> new EtatRuche(cle, anomaliesParRuche));
+        synchronized (etat) {
+            for (DonneesCapteur mesure : ordonnees) {
+                analyser(etat, mesure, anomalies);
+            }
+            anomalies.forEach(etat::conserver);
+        }
+        analysees.addAndGet(ordonnees.size());
+        publier(anomalies);
+        return anomalies;
+    }
+
+    /**
+     * Score une mesure puis l'intègre aux modèles, sous le verrou de l'état de la ruche
+     */
+    private void analyser(EtatRuche etat, DonneesCapteur mesure, List<Anomalie> anomalies) {
+        LocalDateTime horodatage = mesure.getTimestamp();
+
+        Double temperature = mesure.getTemperature();
+        if (temperature != null && etat.temperature.accepte(horodatage)) {
+            Anomalie anomalie = null;
+            if (etat.temperature.modele.getNombre() >= mesuresMin) {
+                double score = etat.temperature.modele.score(temperature, plancherTemperature);
+                double moyenne = etat.temperature.modele.getMoyenne();
+                if (moyenne >= couvainTemperatureMin && temperature <= moyenne - couvainChute && score <= -seuilScore) {
+                    anomalie = anomalie(etat, TypeAnomalie.EFFONDREMENT_COUVAIN, etat.temperature, temperature, score, horodatage);
+                } else if (Math.abs(score) >= seuilScore) {
+                    anomalie = anomalie(etat, TypeAnomalie.TEMPERATURE, etat.temperature, temperature, score, horodatage);
+                }
+            }
+            ajouter(etat.temperature, temperature, horodatage, plancherTemperature, anomalie, anomalies);
+        }
+
+        Double humidite = mesure.getHumidity() != null ? mesure.getHumidity() : mesure.getHumidite();
+        if (humidite != null && etat.humidite.accepte(horodatage)) {
+            Anomalie anomalie = null;
+            if (etat.humidite.modele.getNombre() >= mesuresMin) {
+                double score = etat.humidite.modele.score(humidite, plancherHumidite);
+                if (Math.abs(score) >= seuilScore) {
+                    anomalie = anomalie(etat, TypeAnomalie.HUMIDITE, etat.humidite, humidite, score, horodatage);
+                }
+            }
+            ajouter(etat.humidite, humidite, horodatage, plancherHumidite, anomalie, anomalies);
+        }
+
+        Double poids = mesure.getPoids();
+        if (poids != null && etat.poids.accepte(horodatage)) {
+            Anomalie anomalie = null;
+            double score = etat.poids.modele.score(poids, plancherPoids);
+            // La chute entre deux mesures rapprochées ne dépend pas de l'apprentissage du modèle
+            if (etat.poids.derniere != null && etat.poids.derniereValeur - poids >= chutePoidsKg
+                    && Duration.between(etat.poids.derniere, horodatage).toMinutes() <= fenetrePoidsMinutes) {
+                anomalie = anomalie(etat, TypeAnomalie.CHUTE_POIDS, etat.poids, poids, score, horodatage);
+            } else if (etat.poids.modele.getNombre() >= mesuresMin && Math.abs(score) >= seuilScore) {
+                anomalie = anomalie(etat, TypeAnomalie.POIDS, etat.poids, poids, score, horodatage);
+            }
+            ajouter(etat.poids, poids, horodatage, plancherPoids, anomalie, anomalies);
+        }
+    }
+
+    /**
+     * Intègre une valeur au modèle de sa série, avec un poids fonction du temps écoulé depuis la précédente
+     */
+    private void ajouter(Serie serie, double valeur, LocalDateTime horodatage, double plancher,
+                         Anomalie anomalie, List<Anomalie> anomalies) {
+        double alpha = 1;
+        if (serie.derniere != null) {
+            double minutes = Duration.between(serie.derniere, horodatage).toMillis() / 60_000.0;
+            alpha = 1 - Math.pow(0.5, minutes / demiVieMinutes);
+        }
+        serie.dernierScore = serie.modele.getNombre() >= mesuresMin ? serie.modele.score(valeur, plancher) : null;
+        serie.modele.ajouter(valeur, alpha);
+        serie.derniere = horodatage;
+        serie.derniereValeur = valeur;
+        if (anomalie != null) {
+            anomalies.add(anomalie);
+        }
+    }
+
+    private Anomalie anomalie(EtatRuche etat, TypeAnomalie type, Serie serie, double valeur, double score,
+                              LocalDateTime horodatage) {
+        return new Anomalie(sequence.incrementAndGet(), etat.rucheId, type, valeur, serie.modele.getMoyenne(),
+            serie.modele.getEcartType(), score, horodatage, System.currentTimeMillis());
+    }
+
+    /**
+     * Modèles d'une ruche (moyenne, écart-type, nombre de mesures, dernier score par série), null si la ruche
+     * n'a encore envoyé aucune mesure depuis le démarrage
+     */
+    public Map<String, Object> getModeles(String rucheId) {
+        EtatRuche etat = etats.get(rucheId);
+        if (etat == null) {
+            return null;
+        }
+        synchronized (etat) {
+            Map<String, Object> modeles = new LinkedHashMap<>();
+            modeles.put("temperature", etat.temperature.resume(mesuresMin));
+            modeles.put("humidite", etat.humidite.resume(mesuresMin));
+            modeles.put("poids", etat.poids.resume(mesuresMin));
+            return modeles;
+        }
+    }
+
+    /**
+     * Dernières anomalies d'une ruche, les plus récentes d'abord
+     */
+    public List<Anomalie> getAnomalies(String rucheId) {
+        EtatRuche etat = etats.get(rucheId);
+        if (etat == null) {
+            return Collections.emptyList();
+        }
+        synchronized (etat) {
+            return etat.recentes();
+        }
+    }
+
+    /**
+     * Dernière anomalie d'une ruche si elle date de moins de depuisHeures, null sinon
+     */
+    public Anomalie getDerniereAnomalie(String rucheId, long depuisHeures) {
+        List<Anomalie> anomalies = getAnomalies(rucheId);
+        if (anomalies.isEmpty()) {
+            return null;
+        }
+        Anomalie derniere = anomalies.get(0);
+        return derniere.getTimestamp() >= System.currentTimeMillis() - depuisHeures * 3_600_000 ? derniere : null;
+    }
+
+    /**
+     * Dernières anomalies de toutes les ruches, les plus récentes d'abord
+     */
+    public List<Anomalie> getJournal(int limite) {
+        return journal.derniers(limite);
+    }
+
+    /**
+     * Compteurs de la détection : mesures analysées, ruches suivies, anomalies détectées
+     */
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> statistiques = new LinkedHashMap<>();
+        statistiques.put("enabled", enabled);
+        statistiques.put("mesuresAnalysees", analysees.get());
+        statistiques.put("ruchesSuivies", etats.size());
+        statistiques.put("anomalies", sequence.get());
+        return statistiques;
+    }
+
+    private void publier(List<Anomalie> anomalies) {
+        if (anomalies.isEmpty()) {
+            return;
+        }
+        journal.ajouter(anomalies);
+        for (Anomalie anomalie : anomalies) {
+            compteurs.get(anomalie.getType()).increment();
+            System.out.println("Anomalie " + anomalie.getType() + " pour la ruche " + anomalie.getRucheId()
+                + " : " + anomalie.getValeur() + " (moyenne " + String.format(Locale.ROOT, "%.2f", anomalie.getMoyenne())
+                + ", score " + String.format(Locale.ROOT, "%.1f", anomalie.getScore()) + ")");
+        }
+    }
+
+    public enum TypeAnomalie {
+        EFFONDREMENT_COUVAIN("Effondrement de la température du couvain"),
+        CHUTE_POIDS("Chute de poids soudaine"),
+        TEMPERATURE("Température inhabituelle"),
+        HUMIDITE("Humidité inhabituelle"),
+        POIDS("Poids inhabituel");
+
+        private final String libelle;
+
+        TypeAnomalie(String libelle) {
+            this.libelle = libelle;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+    }
+
+    /**
+     * Modèle d'une série et sa dernière valeur
+     */
+    private static final class Serie {
+        private final MoyenneExponentielle modele = new MoyenneExponentielle();
+        private LocalDateTime derniere;
+        private double derniereValeur;
+        private Double dernierScore;
+
+        private boolean accepte(LocalDateTime horodatage) {
+            return derniere == null || horodatage.isAfter(derniere);
+        }
+
+        private Map<String, Object> resume(long mesuresMin) {
+            Map<String, Object> resume = new LinkedHashMap<>();
+            resume.put("nombreMesures", modele.getNombre());
+            resume.put("pret", modele.getNombre() >= mesuresMin);
+            resume.put("moyenne", modele.getNombre() > 0 ? modele.getMoyenne() : null);
+            resume.put("ecartType", modele.getNombre() > 0 ? modele.getEcartType() : null);
+            resume.put("derniereValeur", derniere != null ? derniereValeur : null);
+            resume.put("dernierScore", dernierScore);
+            resume.put("derniereMesure", derniere);
+            return resume;
+        }
+    }
+
+    /**
+     * État d'une ruche : un modèle par série et les dernières anomalies (tampon circulaire)
+     */
+    private static final class EtatRuche {
+        private final String rucheId;
+        private final Serie temperature = new Serie();
+        private final Serie humidite = new Serie();
+        private final Serie poids = new Serie();
+        private final Anomalie[] anomalies;
+        private int debut;
+        private int taille;
+
+        private EtatRuche(String rucheId, int capacite) {
+            this.rucheId = rucheId;
+            this.anomalies = new Anomalie[Math.max(capacite, 1)];
+        }
+
+        private void conserver(Anomalie anomalie) {
+            if (taille < anomalies.length) {
+                anomalies[(debut + taille++) % anomalies.length] = anomalie;
+            } else {
+                anomalies[debut] = anomalie;
+                debut = (debut + 1) % anomalies.length;
+            }
+        }
+
+        private List<Anomalie> recentes() {
+            List<Anomalie> resultat = new ArrayList<>(taille);
+            for (int i = taille - 1; i >= 0; i--) {
+                resultat.add(anomalies[(debut + i) % anomalies.length]);
+            }
+            return resultat;
+        }
+    }
+
+    /**
+     * Anomalie détectée : valeur mesurée, moyenne et écart-type du modèle avant la mesure, score (en écarts-types),
+     * horodatage de la mesure et instant de la détection
+     */
+    public static final class Anomalie {
+        private final long id;
+        private final String rucheId;
+        private final TypeAnomalie type;
+        private final double valeur;
+        private final double moyenne;
+        private final double ecartType;
+        private final double score;
+        private final LocalDateTime horodatageMesure;
+        private final long timestamp;
+
+        private Anomalie(long id, String rucheId, TypeAnomalie type, double valeur, double moyenne, double ecartType,
+                         double score, LocalDateTime horodatageMesure, long timestamp) {
+            this.id = id;
+            this.rucheId = rucheId;
+            this.type = type;
+            this.valeur = valeur;
+            this.moyenne = moyenne;
+            this.ecartType = ecartType;
+            this.score = score;
+            this.horodatageMesure = horodatageMesure;
+            this.timestamp = timestamp;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getRucheId() {
+            return rucheId;
+        }
+
+        public TypeAnomalie getType() {
+            return type;
+        }
+
+        public String getLibelle() {
+            return type.getLibelle();
+        }
+
+        public double getValeur() {
+            return valeur;
+        }
+
+        public double getMoyenne() {
+            return moyenne;
+        }
+
+        public double getEcartType() {
+            return ecartType;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public LocalDateTime getHorodatageMesure() {
+            return horodatageMesure;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
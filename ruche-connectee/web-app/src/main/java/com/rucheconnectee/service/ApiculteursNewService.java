@@ -4,14 +4,14 @@ import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.UserRecord;
 import com.rucheconnectee.model.ApiculteursNew;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+
 import java.util.*;
 import java.util.concurrent.TimeoutException;
 
 @Service
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class ApiculteursNewService {
 
     private static final String COLLECTION = "ApiculteursNew";
@@ -19,14 +19,14 @@ public class ApiculteursNewService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @PostConstruct
+    public void enregistrerDecodeur() {
+        firebaseService.enregistrerDecodeur(ApiculteursNew.class, ApiculteursNewService::snapshotToModel);
+    }
+
     public List<ApiculteursNew> findAll() {
         try {
-            List<Map<String, Object>> docs = firebaseService.getAllDocuments(COLLECTION);
-            List<ApiculteursNew> result = new ArrayList<>();
-            for (Map<String, Object> doc : docs) {
-                result.add(documentToModel((String) doc.get("id"), doc));
-            }
-            return result;
+            return firebaseService.getAllDocuments(COLLECTION, ApiculteursNew.class);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la récupération des apiculteurs", e);
         }
@@ -34,9 +34,7 @@ public class ApiculteursNewService {
 
     public ApiculteursNew findById(String id) {
         try {
-            Map<String, Object> doc = firebaseService.getDocument(COLLECTION, id);
-            if (doc == null) return null;
-            return documentToModel(id, doc);
+            return firebaseService.getDocument(COLLECTION, id, ApiculteursNew.class);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la récupération de l'apiculteur", e);
         }
@@ -44,10 +42,9 @@ public class ApiculteursNewService {
 
     public ApiculteursNew findByEmail(String email) {
         try {
-            List<Map<String, Object>> docs = firebaseService.getDocuments(COLLECTION, "email", email);
+            List<ApiculteursNew> docs = firebaseService.getDocuments(COLLECTION, "email", email, ApiculteursNew.class);
             if (docs == null || docs.isEmpty()) return null;
-            Map<String, Object> first = docs.get(0);
-            return documentToModel((String) first.get("id"), first);
+            return docs.get(0);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la recherche par email", e);
         }
@@ -108,21 +105,15 @@ public class ApiculteursNewService {
         }
     }
 
-    private ApiculteursNew documentToModel(String id, Map<String, Object> doc) {
+    private static ApiculteursNew snapshotToModel(Stockage.Noeud snapshot) {
         ApiculteursNew u = new ApiculteursNew();
-        u.setId(id);
-        Object email = doc.get("email");
-        Object prenom = doc.get("prenom");
-        Object nom = doc.get("nom");
-        Object role = doc.get("role");
-        Object createdAt = doc.get("createdAt");
-        u.setEmail(email != null ? String.valueOf(email) : null);
-        u.setPrenom(prenom != null ? String.valueOf(prenom) : null);
-        u.setNom(nom != null ? String.valueOf(nom) : null);
-        u.setRole(role != null ? String.valueOf(role) : "apiculteur");
-        if (createdAt instanceof Number) {
-            u.setCreatedAt(((Number) createdAt).longValue());
-        }
+        u.setId(snapshot.getKey());
+        u.setEmail(FirebaseService.texte(snapshot, "email"));
+        u.setPrenom(FirebaseService.texte(snapshot, "prenom"));
+        u.setNom(FirebaseService.texte(snapshot, "nom"));
+        String role = FirebaseService.texte(snapshot, "role");
+        u.setRole(role != null ? role : "apiculteur");
+        u.setCreatedAt(FirebaseService.entier(snapshot, "createdAt"));
         return u;
     }
 
@@ -7,7 +7,9 @@ import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
 /**
- * Service pour vérifier les autorisations d'accès aux ressources
+ * Service pour vérifier les autorisations d'accès aux ressources.
+ * Les propriétaires sont lus dans l'index mémoire (IndexProprietaires) ; une ressource absente de l'index,
+ * ou un index pas encore chargé, repasse par la lecture directe du document.
  */
 @Service
 public class AuthorizationService {
@@ -15,6 +17,9 @@ public class AuthorizationService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private IndexProprietaires indexProprietaires;
+
     /**
      * Vérifie si un apiculteur a accès à une ruche
      * @param apiculteurId ID de l'apiculteur
@@ -26,6 +31,13 @@ public class AuthorizationService {
             return false;
         }
 
+        if (indexProprietaires.isRuchesPret()) {
+            String proprietaire = indexProprietaires.getProprietaireRuche(rucheId);
+            if (proprietaire != null) {
+                return apiculteurId.equals(proprietaire);
+            }
+        }
+
         try {
             // Récupérer les données de la ruche depuis Firebase
             Map<String, Object> rucheData = firebaseService.getDocument("RuchesNew", rucheId);
@@ -55,6 +67,13 @@ public class AuthorizationService {
             return false;
         }
 
+        if (indexProprietaires.isRuchersPret()) {
+            String proprietaire = indexProprietaires.getProprietaireRucher(rucherId);
+            if (proprietaire != null) {
+                return apiculteurId.equals(proprietaire);
+            }
+        }
+
         try {
             // Récupérer les données du rucher depuis Firebase
             Map<String, Object> rucherData = firebaseService.getDocument("RuchersNew", rucherId);
@@ -0,0 +1,294 @@
+package com.rucheconnectee.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Écoute partagée de ruche/{rucheId}/historique : une seule écoute Firebase par ruche alimente MesuresCache,
+ * SegmentsMesures et FluxMesuresService. Elle part du plus ancien jour dont ils peuvent avoir besoin
+ * (rétention du cache, remplissage des segments), est ouverte au premier abonné et fermée au départ du dernier.
+ *
+ * Chaque abonné ne reçoit que les documents à partir de son propre jour de début. Le premier abonné reçoit
+ * le chargement de l'écoute ; un abonné arrivé ensuite reçoit les documents existants par une lecture de la
+ * même requête (servie par le cache local du SDK), pendant laquelle ses évènements sont mis en attente, puis
+ * ces évènements (un ajout d'un document déjà lu lui est transmis comme une modification).
+ */
+@Component
+public class EcoutesHistorique {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Value("${app.mesures.cache.retention-jours:31}")
+    private int retentionCacheJours;
+
+    @Value("${app.mesures.segments.backfill-jours:31}")
+    private int backfillSegmentsJours;
+
+    private final Map<String, EcouteRuche> ecoutes = new ConcurrentHashMap<>();
+
+    /**
+     * Abonnement à l'historique d'une ruche, à arrêter quand il n'est plus utilisé
+     */
+    public interface Abonnement {
+        /** Complété une fois les documents existants transmis à l'abonné */
+        CompletableFuture<Void> getChargement();
+
+        /** Jour à partir duquel les documents sont transmis : depuis, ramené au début de l'écoute partagée */
+        LocalDate getDebut();
+
+        void arreter();
+    }
+
+    /**
+     * Abonne un écouteur aux documents de l'historique d'une ruche datés de depuis ou après.
+     * Lève une RuntimeException si l'écoute ne peut pas être ouverte.
+     */
+    public Abonnement ecouter(String rucheId, LocalDate depuis, FirebaseService.EcouteurDocuments ecouteur) {
+        while (true) {
+            EcouteRuche ecoute = ecoutes.computeIfAbsent(rucheId, EcouteRuche::new);
+            Abonne abonne = ecoute.abonner(depuis, ecouteur);
+            if (abonne != null) {
+                return abonne;
+            }
+            // Écoute fermée entre-temps par le départ de son dernier abonné : on en ouvre une nouvelle
+            ecoutes.remove(rucheId, ecoute);
+        }
+    }
+
+    /**
+     * Nombre de ruches écoutées et d'abonnés
+     */
+    public Map<String, Object> getStatistiques() {
+        int abonnes = 0;
+        for (EcouteRuche ecoute : ecoutes.values()) {
+            abonnes += ecoute.abonnes.size();
+        }
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("ruches", ecoutes.size());
+        statistiques.put("abonnes", abonnes);
+        return statistiques;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        for (EcouteRuche ecoute : ecoutes.values()) {
+            ecoute.fermer();
+        }
+        ecoutes.clear();
+    }
+
+    private LocalDate debutPartage() {
+        return LocalDate.now().minusDays(Math.max(retentionCacheJours, backfillSegmentsJours));
+    }
+
+    /**
+     * Écoute Firebase d'une ruche et ses abonnés. Le verrou de l'écoute ne protège que la liste des abonnés
+     * et l'ouverture/fermeture : les évènements sont transmis hors de ce verrou.
+     */
+    private final class EcouteRuche implements FirebaseService.EcouteurDocuments {
+        private final String rucheId;
+        private final List<Abonne> abonnes = new CopyOnWriteArrayList<>();
+        private LocalDate debut;
+        private FirebaseService.Ecoute ecoute;
+        private boolean fermee;
+
+        private EcouteRuche(String rucheId) {
+            this.rucheId = rucheId;
+        }
+
+        /**
+         * Ajoute un abonné, en ouvrant l'écoute si c'est le premier ; null si l'écoute est fermée
+         */
+        private Abonne abonner(LocalDate depuis, FirebaseService.EcouteurDocuments ecouteur) {
+            Abonne abonne;
+            synchronized (this) {
+                if (fermee) {
+                    return null;
+                }
+                if (ecoute == null) {
+                    debut = debutPartage();
+                    abonne = new Abonne(this, depuis.isBefore(debut) ? debut : depuis, ecouteur, false);
+                    abonnes.add(abonne);
+                    try {
+                        ecoute = firebaseService.ecouterDocuments("ruche/" + rucheId + "/historique", "date",
+                            debut.toString(), this);
+                    } catch (RuntimeException e) {
+                        fermee = true;
+                        ecoutes.remove(rucheId, this);
+                        throw e;
+                    }
+                    ecoute.getChargement().whenComplete((ok, erreur) -> {
+                        if (erreur == null) {
+                            abonne.chargement.complete(null);
+                        } else {
+                            abonne.chargement.completeExceptionally(erreur);
+                        }
+                    });
+                    return abonne;
+                }
+                abonne = new Abonne(this, depuis.isBefore(debut) ? debut : depuis, ecouteur, true);
+                abonnes.add(abonne);
+            }
+
+            firebaseService.queryDocumentsAsync("ruche/" + rucheId + "/historique", "date", abonne.debut.toString(), null, null)
+                .whenComplete((documents, erreur) -> {
+                    if (erreur == null) {
+                        abonne.terminerLecture(documents);
+                        abonne.chargement.complete(null);
+                    } else {
+                        abonne.chargement.completeExceptionally(erreur);
+                    }
+                });
+            return abonne;
+        }
+
+        private void retirer(Abonne abonne) {
+            synchronized (this) {
+                if (!abonnes.remove(abonne) || !abonnes.isEmpty()) {
+                    return;
+                }
+                ecoutes.remove(rucheId, this);
+            }
+            fermer();
+        }
+
+        private synchronized void fermer() {
+            fermee = true;
+            if (ecoute != null) {
+                ecoute.arreter();
+                ecoute = null;
+            }
+        }
+
+        @Override
+        public void documentAjoute(Map<String, Object> document) {
+            for (Abonne abonne : abonnes) {
+                abonne.ajoute(document);
+            }
+        }
+
+        @Override
+        public void documentModifie(Map<String, Object> document) {
+            for (Abonne abonne : abonnes) {
+                abonne.transmettre(document, ecouteur -> ecouteur.documentModifie(document));
+            }
+        }
+
+        @Override
+        public void documentSupprime(String documentId) {
+            for (Abonne abonne : abonnes) {
+                abonne.transmettre(null, ecouteur -> ecouteur.documentSupprime(documentId));
+            }
+        }
+
+        @Override
+        public void ecouteAnnulee(String message) {
+            List<Abonne> annules;
+            synchronized (this) {
+                ecoutes.remove(rucheId, this);
+                annules = new ArrayList<>(abonnes);
+                abonnes.clear();
+            }
+            fermer();
+            for (Abonne abonne : annules) {
+                abonne.ecouteur.ecouteAnnulee(message);
+            }
+        }
+    }
+
+    /**
+     * Abonné d'une écoute partagée. Son verrou ordonne la transmission de ses évènements ; il peut être tenu
+     * pendant un appel à l'écouteur, qui peut lui-même arrêter l'abonnement (verrou de l'écoute pris ensuite).
+     */
+    private static final class Abonne implements Abonnement {
+        private final EcouteRuche ecoute;
+        private final LocalDate debut;
+        private final String debutTexte;
+        private final FirebaseService.EcouteurDocuments ecouteur;
+        private final CompletableFuture<Void> chargement = new CompletableFuture<>();
+        private List<Runnable> enAttente; // Non null pendant la lecture des documents existants
+        private Set<String> lus;
+        private volatile boolean arrete;
+
+        private Abonne(EcouteRuche ecoute, LocalDate debut, FirebaseService.EcouteurDocuments ecouteur, boolean lecture) {
+            this.ecoute = ecoute;
+            this.debut = debut;
+            this.debutTexte = debut.toString();
+            this.ecouteur = ecouteur;
+            this.enAttente = lecture ? new ArrayList<>() : null;
+        }
+
+        @Override
+        public CompletableFuture<Void> getChargement() {
+            return chargement;
+        }
+
+        @Override
+        public LocalDate getDebut() {
+            return debut;
+        }
+
+        @Override
+        public void arreter() {
+            arrete = true;
+            ecoute.retirer(this);
+        }
+
+        private boolean concerne(Map<String, Object> document) {
+            Object date = document.get("date");
+            return date == null || date.toString().compareTo(debutTexte) >= 0;
+        }
+
+        private void ajoute(Map<String, Object> document) {
+            transmettre(document, ecouteur -> {
+                // Document déjà transmis par la lecture initiale : c'en est une version plus récente
+                if (lus != null && lus.contains((String) document.get("id"))) {
+                    ecouteur.documentModifie(document);
+                } else {
+                    ecouteur.documentAjoute(document);
+                }
+            });
+        }
+
+        private synchronized void transmettre(Map<String, Object> document, Consumer<FirebaseService.EcouteurDocuments> evenement) {
+            if (arrete || (document != null && !concerne(document))) {
+                return;
+            }
+            if (enAttente != null) {
+                enAttente.add(() -> evenement.accept(ecouteur));
+                return;
+            }
+            evenement.accept(ecouteur);
+        }
+
+        /**
+         * Transmet les documents lus puis les évènements reçus pendant la lecture
+         */
+        private synchronized void terminerLecture(List<Map<String, Object>> documents) {
+            if (arrete) {
+                return;
+            }
+            lus = new HashSet<>();
+            for (Map<String, Object> document : documents) {
+                lus.add((String) document.get("id"));
+                ecouteur.documentAjoute(document);
+            }
+            for (Runnable evenement : enAttente) {
+                evenement.run();
+            }
+            enAttente = null;
+            lus = null;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.rucheconnectee.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Export des mesures brutes d'une ou plusieurs ruches en CSV ou NDJSON, écrit au fil de la lecture.
+ *
+ * L'historique de chaque ruche est parcouru par blocs de app.statistiques.export.taille-bloc mesures,
+ * chaque bloc reprenant après la position (champ de tri, clé) de la dernière mesure lue : la mémoire
+ * utilisée ne dépend que de la taille d'un bloc, pas de la période exportée. Les ruches migrées sont
+ * parcourues sur "horodatage" ; les autres sur "date", les mesures d'un même jour suivant l'ordre des clés.
+ * Une ruche dont les segments locaux (SegmentsMesures) couvrent la période est lue depuis ses segments,
+ * jour par jour, sans requête Firebase.
+ */
+@Service
+public class ExportMesuresService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private MigrationHorodatageService migrationHorodatageService;
+
+    @Autowired
+    private SegmentsMesures segmentsMesures;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.statistiques.export.taille-bloc:1000}")
+    private int tailleBloc;
+
+    @Value("${app.statistiques.export.max-simultanes:2}")
+    private int maxSimultanes;
+
+    @Value("${app.statistiques.export.retry-after-s:30}")
+    private int retryAfterSecondes;
+
+    // Places d'export : chaque export occupe un thread du pool asynchrone de Spring MVC
+    private Semaphore exportsEnCours;
+
+    private static final String ENTETE_CSV =
+        "rucheId,id,horodatage,dateHeure,temperature,humidite,couvercleOuvert,batterie,signalQualite,poids,erreur";
+
+    /**
+     * Format d'export
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String typeContenu;
+        private final String extension;
+
+        Format(String typeContenu, String extension) {
+            this.typeContenu = typeContenu;
+            this.extension = extension;
+        }
+
+        public String getTypeContenu() {
+            return typeContenu;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        exportsEnCours = new Semaphore(maxSimultanes);
+    }
+
+    /**
+     * Réserve une place parmi les exports simultanés ; false si elles sont toutes prises.
+     * L'appelant rend la place avec liberer, dans un finally autour de exporter.
+     */
+    public boolean reserver() {
+        return exportsEnCours.tryAcquire();
+    }
+
+    public void liberer() {
+        exportsEnCours.release();
+    }
+
+    public int getRetryAfterSecondes() {
+        return retryAfterSecondes;
+    }
+
+    /**
+     * Écrit les mesures des ruches entre debut et fin (millisecondes epoch, incluses), ruche par ruche.
+     * Le flux est vidé après chaque bloc.
+     */
+    public void exporter(List<String> rucheIds, long debut, long fin, Format format, OutputStream sortie) throws IOException {
+        Ecriture ecriture = format == Format.CSV ? new EcritureCsv(sortie) : new EcritureNdjson(sortie);
+        for (String rucheId : rucheIds) {
+            exporterRuche(rucheId, debut, fin, ecriture);
+        }
+        ecriture.fermer();
+    }
+
+    private void exporterRuche(String rucheId, long debut, long fin, Ecriture ecriture) throws IOException {
+        if (segmentsMesures.couvre(rucheId, debut)) {
+            segmentsMesures.parcourir(rucheId, debut, fin, mesures -> {
+                for (int i = 0; i < mesures.taille(); i++) {
+                    ecriture.ecrire(rucheId, mesures.get(i, rucheId), mesures.getHorodatage(i));
+                }
+                ecriture.vider();
+            });
+            return;
+        }
+
+        String path = "ruche/" + rucheId + "/historique";
+        boolean migree = attendre(migrationHorodatageService.estMigreeAsync(rucheId));
+        String champ = migree ? "horodatage" : "date";
+        Object finChamp = migree ? (Object) fin : SerieCapteurs.depuisEpochMillis(fin).toLocalDate().toString();
+
+        Object position = migree ? (Object) debut : SerieCapteurs.depuisEpochMillis(debut).toLocalDate().toString();
+        String cle = null;
+        while (true) {
+            // Reprise incluse sur la dernière mesure lue : un document de plus, écarté ci-dessous
+            List<DonneesCapteur> bloc = attendre(firebaseService.parcourirDocumentsAsync(
+                path, champ, position, cle, cle == null ? tailleBloc : tailleBloc + 1, DonneesCapteur.class));
+
+            DonneesCapteur derniere = null;
+            for (DonneesCapteur mesure : bloc) {
+                if (mesure.getId() != null && mesure.getId().equals(cle)) {
+                    continue;
+                }
+                derniere = mesure;
+                long horodatage = SerieCapteurs.versEpochMillis(mesure.getTimestamp());
+                if (horodatage >= debut && horodatage <= fin) {
+                    ecriture.ecrire(rucheId, mesure, horodatage);
+                }
+            }
+            ecriture.vider();
+
+            if (derniere == null || bloc.size() < (cle == null ? tailleBloc : tailleBloc + 1)) {
+                return;
+            }
+            position = migree ? (Object) SerieCapteurs.versEpochMillis(derniere.getTimestamp())
+                : derniere.getTimestamp().toLocalDate().toString();
+            if (compare(position, finChamp) > 0) {
+                return;
+            }
+            cle = derniere.getId();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object position, Object fin) {
+        return ((Comparable<Object>) position).compareTo(fin);
+    }
+
+    private static <T> T attendre(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erreur lors de la lecture des mesures: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Écriture des lignes d'un format
+     */
+    private interface Ecriture {
+        void ecrire(String rucheId, DonneesCapteur mesure, long horodatage) throws IOException;
+
+        void vider() throws IOException;
+
+        void fermer() throws IOException;
+    }
+
+    private static final class EcritureCsv implements Ecriture {
+        private final Writer writer;
+
+        private EcritureCsv(OutputStream sortie) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+            writer.write(ENTETE_CSV);
+            writer.write('\n');
+        }
+
+        @Override
+        public void ecrire(String rucheId, DonneesCapteur mesure, long horodatage) throws IOException {
+            writer.write(champ(rucheId));
+            writer.write(',');
+            writer.write(champ(mesure.getId()));
+            writer.write(',');
+            writer.write(Long.toString(horodatage));
+            writer.write(',');
+            writer.write(mesure.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            writer.write(',');
+            writer.write(valeur(mesure.getTemperature()));
+            writer.write(',');
+            writer.write(valeur(mesure.getHumidity()));
+            writer.write(',');
+            writer.write(valeur(mesure.getCouvercleOuvert()));
+            writer.write(',');
+            writer.write(valeur(mesure.getBatterie()));
+            writer.write(',');
+            writer.write(valeur(mesure.getSignalQualite()));
+            writer.write(',');
+            writer.write(valeur(mesure.getPoids()));
+            writer.write(',');
+            writer.write(champ(mesure.getErreur()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void vider() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void fermer() throws IOException {
+            writer.flush();
+        }
+
+        private static String valeur(Object valeur) {
+            return valeur != null ? valeur.toString() : "";
+        }
+
+        /**
+         * Champ texte, entre guillemets s'il contient un séparateur, un guillemet ou un saut de ligne
+         */
+        private static String champ(String texte) {
+            if (texte == null) {
+                return "";
+            }
+            if (texte.indexOf(',') < 0 && texte.indexOf('"') < 0 && texte.indexOf('\n') < 0 && texte.indexOf('\r') < 0) {
+                return texte;
+            }
+            return "\"" + texte.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    private final class EcritureNdjson implements Ecriture {
+        private final JsonGenerator generateur;
+
+        private EcritureNdjson(OutputStream sortie) throws IOException {
+            this.generateur = objectMapper.getFactory().createGenerator(sortie, JsonEncoding.UTF8);
+            // Le flux de sortie reste au contrôleur (fermé par Spring)
+            generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generateur.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void ecrire(String rucheId, DonneesCapteur mesure, long horodatage) throws IOException {
+            generateur.writeStartObject();
+            generateur.writeStringField("rucheId", rucheId);
+            generateur.writeStringField("id", mesure.getId());
+            generateur.writeNumberField("horodatage", horodatage);
+            generateur.writeStringField("dateHeure", mesure.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            generateur.writeObjectField("temperature", mesure.getTemperature());
+            generateur.writeObjectField("humidite", mesure.getHumidity());
+            generateur.writeObjectField("couvercleOuvert", mesure.getCouvercleOuvert());
+            generateur.writeObjectField("batterie", mesure.getBatterie());
+            generateur.writeObjectField("signalQualite", mesure.getSignalQualite());
+            generateur.writeObjectField("poids", mesure.getPoids());
+            generateur.writeStringField("erreur", mesure.getErreur());
+            generateur.writeEndObject();
+            generateur.writeRaw('\n');
+        }
+
+        @Override
+        public void vider() throws IOException {
+            generateur.flush();
+        }
+
+        @Override
+        public void fermer() throws IOException {
+            generateur.close();
+        }
+    }
+}
@@ -3,279 +3,503 @@ package com.rucheconnectee.service;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.UserRecord;
-import com.google.firebase.database.*;
+import com.rucheconnectee.service.Stockage.Noeud;
+import com.rucheconnectee.service.Stockage.Requete;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.concurrent.CountDownLatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 /**
  * Service pour les opérations Firebase (Realtime Database et Authentication).
  * Remplace l'ancien service Firestore par Realtime Database.
+ *
+ * Chaque opération Realtime Database existe en version asynchrone (suffixe Async) et en version bloquante
+ * construite par-dessus. Les futurs asynchrones sont complétés sur l'exécuteur du service
+ * (app.stockage.executeur.*), pas sur le fil d'évènements du stockage : décodage, tri et calculs enchaînés
+ * par les appelants ne bloquent donc pas les écoutes (cache, flux, index des propriétaires).
+ * File pleine : la complétion est faite sur le fil appelant, ce qui freine le stockage au lieu de perdre le résultat.
+ *
+ * Les lectures existent aussi en version typée (paramètre Class) : chaque snapshot est décodé
+ * directement en modèle par le décodeur enregistré pour ce type (enregistrerDecodeur), sans passer
+ * par la Map intermédiaire des lectures non typées.
+ *
+ * Chaque opération est mesurée (Micrometer, ruche.firebase.*) par type d'opération et motif de chemin.
+ *
+ * Les opérations de base de données passent par le Stockage choisi par app.stockage : Realtime Database
+ * (FirebaseStockage) ou arbre en mémoire (MemoireStockage). Firebase Auth n'est disponible qu'avec
+ * Firebase ; sans lui, les méthodes d'utilisateur lèvent IllegalStateException.
  */
 @Service
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class FirebaseService {
 
-    @Autowired
-    private FirebaseDatabase firebaseDatabase;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    /**
+     * Pseudo-champ de tri sur la clé des documents, pour queryDocuments
+     */
+    public static final String ORDRE_CLE = Requete.ORDRE_CLE;
 
     @Autowired
+    private Stockage stockage;
+
+    @Autowired(required = false)
     private FirebaseAuth firebaseAuth;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.stockage.executeur.threads:4}")
+    private int threadsExecuteur;
+
+    @Value("${app.stockage.executeur.file:10000}")
+    private int fileExecuteur;
+
+    private ExecutorService executeur;
+
+    private final Map<Class<?>, DecodeurDocument<?>> decodeurs = new ConcurrentHashMap<>();
+
+    // Métriques par opération et motif de collection (ruche.firebase.*)
+    private final Map<String, MetresOperation> metresOperations = new ConcurrentHashMap<>();
+    private final AtomicInteger operationsEnCours = new AtomicInteger();
+
+    @PostConstruct
+    public void enregistrerMetriques() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threadsExecuteur, threadsExecuteur, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(fileExecuteur), tache -> {
+                Thread thread = new Thread(tache, "firebase-completions");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executeur = pool;
+        Gauge.builder("ruche.firebase.en.cours", operationsEnCours, AtomicInteger::get)
+            .description("Opérations Realtime Database en attente de réponse")
+            .register(meterRegistry);
+        Gauge.builder("ruche.firebase.completions.file", pool, p -> p.getQueue().size())
+            .description("Complétions en attente sur l'exécuteur du service")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void arreterExecuteur() {
+        executeur.shutdown();
+    }
+
+    /**
+     * Exécuteur borné du service, pour les traitements enchaînés aux opérations qui doivent rester
+     * hors du fil d'évènements du stockage et des threads des requêtes
+     */
+    public ExecutorService getExecuteur() {
+        return executeur;
+    }
+
+    /**
+     * Récupère un document par ID dans une collection (version asynchrone)
+     */
+    public CompletableFuture<Map<String, Object>> getDocumentAsync(String collection, String documentId) {
+        Requete requete = Requete.sur(collection + "/" + documentId);
+        return readAsync("get", collection, requete, "Erreur lors de la récupération du document: ")
+                .thenApply(noeud -> noeud.exists() ? toDocument(noeud) : null);
+    }
+
     /**
      * Récupère un document par ID dans une collection
      */
     public Map<String, Object> getDocument(String collection, String documentId) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection).child(documentId);
-        CountDownLatch latch = new CountDownLatch(1);
-        @SuppressWarnings("unchecked")
-        final Map<String, Object>[] result = new Map[1];
-        final RuntimeException[] error = new RuntimeException[1];
-        
-        ref.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("id", dataSnapshot.getKey());
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> value = (Map<String, Object>) dataSnapshot.getValue();
-                    data.putAll(value);
-                    result[0] = data;
-                }
-                latch.countDown();
-            }
+        return await(getDocumentAsync(collection, documentId), "Timeout lors de la récupération du document");
+    }
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                error[0] = new RuntimeException("Erreur lors de la récupération du document: " + databaseError.getMessage());
-                latch.countDown();
-            }
-        });
-        
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de la récupération du document");
-        }
-        
-        if (error[0] != null) {
-            throw error[0];
-        }
-        
-        return result[0];
+    /**
+     * Récupère tous les documents d'une collection avec un filtre (version asynchrone)
+     */
+    public CompletableFuture<List<Map<String, Object>>> getDocumentsAsync(String collection, String field, Object value) {
+        Requete requete = Requete.sur(collection).trierPar(field).egalA(value.toString());
+        return readAsync("query", collection, requete, "Erreur lors de la récupération des documents: ")
+                .thenApply(this::toDocuments);
     }
 
     /**
      * Récupère tous les documents d'une collection avec un filtre
      */
     public List<Map<String, Object>> getDocuments(String collection, String field, Object value) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection);
-        CountDownLatch latch = new CountDownLatch(1);
-        @SuppressWarnings("unchecked")
-        final List<Map<String, Object>>[] result = new List[1];
-        final RuntimeException[] error = new RuntimeException[1];
-        
-        ref.orderByChild(field).equalTo(value.toString()).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                List<Map<String, Object>> documents = new ArrayList<>();
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("id", snapshot.getKey());
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> value = (Map<String, Object>) snapshot.getValue();
-                    data.putAll(value);
-                    documents.add(data);
-                }
-                result[0] = documents;
-                latch.countDown();
-            }
+        return await(getDocumentsAsync(collection, field, value), "Timeout lors de la récupération des documents");
+    }
 
-            @Override
-            public void onCancelled(DatabaseError databaseError) {
-                error[0] = new RuntimeException("Erreur lors de la récupération des documents: " + databaseError.getMessage());
-                latch.countDown();
-            }
-        });
-        
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de la récupération des documents");
-        }
-        
-        if (error[0] != null) {
-            throw error[0];
-        }
-        
-        return result[0];
+    /**
+     * Récupère tous les documents d'une collection (version asynchrone)
+     */
+    public CompletableFuture<List<Map<String, Object>>> getAllDocumentsAsync(String collection) {
+        return readAsync("list", collection, Requete.sur(collection), "Erreur lors de la récupération des documents: ")
+                .thenApply(this::toDocuments);
     }
 
     /**
      * Récupère tous les documents d'une collection
      */
     public List<Map<String, Object>> getAllDocuments(String collection) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection);
-        CountDownLatch latch = new CountDownLatch(1);
-        @SuppressWarnings("unchecked")
-        final List<Map<String, Object>>[] result = new List[1];
-        final RuntimeException[] error = new RuntimeException[1];
+        return await(getAllDocumentsAsync(collection), "Timeout lors de la récupération des documents");
+    }
+
+    /**
+     * Récupère les documents d'une collection triés sur un champ, bornés côté serveur (version asynchrone).
+     * Les bornes startAt/endAt sont inclusives et optionnelles (null = pas de borne) ;
+     * limitToLast (optionnel) ne conserve que les N derniers documents dans l'ordre du tri.
+     * Nécessite un ".indexOn" sur le champ pour que le filtrage soit fait par Firebase.
+     * Le champ ORDRE_CLE trie sur les clés des documents (aucun index requis).
+     */
+    public CompletableFuture<List<Map<String, Object>>> queryDocumentsAsync(String collection, String orderByChild, Object startAt,
+                                                                            Object endAt, Integer limitToLast) {
+        return readAsync("query", collection, query(collection, orderByChild, startAt, endAt, limitToLast),
+                "Erreur lors de la requête sur les documents: ")
+                .thenApply(this::toDocuments);
+    }
+
+    /**
+     * Récupère les documents d'une collection triés sur un champ, bornés côté serveur.
+     * Voir {@link #queryDocumentsAsync(String, String, Object, Object, Integer)}.
+     */
+    public List<Map<String, Object>> queryDocuments(String collection, String orderByChild, Object startAt,
+                                                    Object endAt, Integer limitToLast) throws InterruptedException, TimeoutException {
+        return await(queryDocumentsAsync(collection, orderByChild, startAt, endAt, limitToLast),
+                "Timeout lors de la requête sur les documents");
+    }
+
+    // --- Lectures typées ---
+
+    /**
+     * Décode un snapshot de document (clé + enfants) en objet du modèle
+     */
+    @FunctionalInterface
+    public interface DecodeurDocument<T> {
+        T decoder(Noeud snapshot);
+    }
+
+    /**
+     * Enregistre le décodeur utilisé par les lectures typées pour un type du modèle
+     */
+    public <T> void enregistrerDecodeur(Class<T> type, DecodeurDocument<T> decodeur) {
+        decodeurs.put(type, decodeur);
+    }
+
+    /**
+     * Récupère un document décodé en type (version asynchrone), null s'il n'existe pas
+     */
+    public <T> CompletableFuture<T> getDocumentAsync(String collection, String documentId, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        Requete requete = Requete.sur(collection + "/" + documentId);
+        return readAsync("get", collection, requete, "Erreur lors de la récupération du document: ")
+                .thenApply(noeud -> noeud.exists() ? decodeur.decoder(noeud) : null);
+    }
+
+    /**
+     * Récupère un document décodé en type, null s'il n'existe pas
+     */
+    public <T> T getDocument(String collection, String documentId, Class<T> type) throws InterruptedException, TimeoutException {
+        return await(getDocumentAsync(collection, documentId, type), "Timeout lors de la récupération du document");
+    }
+
+    /**
+     * Récupère les documents d'une collection avec un filtre, décodés en type (version asynchrone)
+     */
+    public <T> CompletableFuture<List<T>> getDocumentsAsync(String collection, String field, Object value, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        Requete requete = Requete.sur(collection).trierPar(field).egalA(value.toString());
+        return readAsync("query", collection, requete, "Erreur lors de la récupération des documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Récupère les documents d'une collection avec un filtre, décodés en type
+     */
+    public <T> List<T> getDocuments(String collection, String field, Object value, Class<T> type) throws InterruptedException, TimeoutException {
+        return await(getDocumentsAsync(collection, field, value, type), "Timeout lors de la récupération des documents");
+    }
+
+    /**
+     * Récupère tous les documents d'une collection, décodés en type (version asynchrone)
+     */
+    public <T> CompletableFuture<List<T>> getAllDocumentsAsync(String collection, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        return readAsync("list", collection, Requete.sur(collection), "Erreur lors de la récupération des documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Récupère tous les documents d'une collection, décodés en type
+     */
+    public <T> List<T> getAllDocuments(String collection, Class<T> type) throws InterruptedException, TimeoutException {
+        return await(getAllDocumentsAsync(collection, type), "Timeout lors de la récupération des documents");
+    }
+
+    /**
+     * Requête bornée sur un champ, documents décodés en type (version asynchrone).
+     * Voir {@link #queryDocumentsAsync(String, String, Object, Object, Integer)}.
+     */
+    public <T> CompletableFuture<List<T>> queryDocumentsAsync(String collection, String orderByChild, Object startAt,
+                                                            Object endAt, Integer limitToLast, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        return readAsync("query", collection, query(collection, orderByChild, startAt, endAt, limitToLast),
+                "Erreur lors de la requête sur les documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Page de documents triés sur un champ, en remontant depuis une borne de fin incluse : les limitToLast
+     * derniers documents dont la position ne dépasse pas (endAt, endAtCle), décodés en type (version asynchrone).
+     * endAtCle (optionnel) départage les documents de même valeur, triés par clé.
+     */
+    public <T> CompletableFuture<List<T>> pageDocumentsAsync(String collection, String orderByChild, Object endAt,
+                                                           String endAtCle, int limitToLast, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        Requete requete = query(collection, orderByChild, null, null, limitToLast).jusqua(endAt, endAtCle);
+        return readAsync("query", collection, requete, "Erreur lors de la requête sur les documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Parcourt une collection par clés croissantes : au plus limite documents à partir de la clé depuisCle
+     * incluse (null = depuis le début), décodés en type (version asynchrone)
+     */
+    public <T> CompletableFuture<List<T>> parcourirDocumentsAsync(String collection, String depuisCle, int limite, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        Requete requete = query(collection, ORDRE_CLE, depuisCle, null, null).premiers(limite);
+        return readAsync("list", collection, requete, "Erreur lors du parcours des documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Parcourt une collection par clés croissantes : au plus limite documents après la clé apresCle
+     * exclue (null = depuis le début), décodés en type (version asynchrone)
+     */
+    public <T> CompletableFuture<List<T>> parcourirDocumentsApresAsync(String collection, String apresCle, int limite, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        Requete requete = Requete.sur(collection).trierPar(ORDRE_CLE).premiers(limite);
+        if (apresCle != null) {
+            requete.apres(apresCle);
+        }
+        return readAsync("list", collection, requete, "Erreur lors du parcours des documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Parcourt une collection triée sur un champ : au plus limite documents à partir de la position
+     * (depuis, depuisCle) incluse, décodés en type (version asynchrone). depuisCle (optionnel) départage
+     * les documents de même valeur ; l'appelant écarte le document de reprise déjà lu.
+     */
+    public <T> CompletableFuture<List<T>> parcourirDocumentsAsync(String collection, String orderByChild, Object depuis,
+                                                                String depuisCle, int limite, Class<T> type) {
+        DecodeurDocument<T> decodeur = getDecodeur(type);
+        Requete requete = query(collection, orderByChild, null, null, null).depuis(depuis, depuisCle).premiers(limite);
+        return readAsync("list", collection, requete, "Erreur lors du parcours des documents: ")
+                .thenApply(noeud -> decoder(noeud, decodeur));
+    }
+
+    /**
+     * Valeur texte d'un champ d'un snapshot (String.valueOf pour les autres types), null si absent
+     */
+    public static String texte(Noeud snapshot, String champ) {
+        Object valeur = snapshot.child(champ).getValue();
+        return valeur != null ? String.valueOf(valeur) : null;
+    }
+
+    /**
+     * Valeur numérique d'un champ d'un snapshot, null si absent ou non numérique
+     */
+    public static Double decimal(Noeud snapshot, String champ) {
+        Object valeur = snapshot.child(champ).getValue();
+        return valeur instanceof Number ? ((Number) valeur).doubleValue() : null;
+    }
+
+    /**
+     * Valeur entière d'un champ d'un snapshot, null si absent ou non numérique
+     */
+    public static Long entier(Noeud snapshot, String champ) {
+        Object valeur = snapshot.child(champ).getValue();
+        return valeur instanceof Number ? ((Number) valeur).longValue() : null;
+    }
+
+    /**
+     * Écoute en continu les documents d'une collection triés sur un champ, à partir de startAt (optionnel).
+     * L'écouteur reçoit d'abord les documents existants, puis chaque ajout, modification ou suppression ;
+     * le chargement de l'écoute est complété une fois les documents existants transmis.
+     */
+    public Ecoute ecouterDocuments(String collection, String orderByChild, Object startAt, EcouteurDocuments ecouteur) {
+        Requete requete = query(collection, orderByChild, startAt, null, null);
         
-        ref.addListenerForSingleValueEvent(new ValueEventListener() {
+        Stockage.Abonnement abonnement = stockage.ecouter(requete, new Stockage.EcouteurEnfants() {
+            @Override
+            public void enfantAjoute(Noeud enfant) {
+                ecouteur.documentAjoute(toDocument(enfant));
+            }
+
+            @Override
+            public void enfantModifie(Noeud enfant) {
+                ecouteur.documentModifie(toDocument(enfant));
+            }
+
             @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                List<Map<String, Object>> documents = new ArrayList<>();
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("id", snapshot.getKey());
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> value = (Map<String, Object>) snapshot.getValue();
-                    data.putAll(value);
-                    documents.add(data);
-                }
-                result[0] = documents;
-                latch.countDown();
+            public void enfantSupprime(Noeud enfant) {
+                ecouteur.documentSupprime(enfant.getKey());
             }
 
             @Override
-            public void onCancelled(DatabaseError databaseError) {
-                error[0] = new RuntimeException("Erreur lors de la récupération des documents: " + databaseError.getMessage());
-                latch.countDown();
+            public void ecouteAnnulee(String message) {
+                ecouteur.ecouteAnnulee("Écoute annulée: " + message);
             }
         });
         
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de la récupération des documents");
+        // La lecture d'une même requête est complétée après les ajouts initiaux de l'écoute
+        CompletableFuture<Void> chargement = readAsync("ecoute", collection, requete, "Erreur lors du chargement de l'écoute: ")
+                .thenApply(noeud -> null);
+        return new Ecoute(abonnement, chargement);
+    }
+
+    /**
+     * Reçoit les évènements d'une écoute ouverte par ecouterDocuments
+     */
+    public interface EcouteurDocuments {
+        void documentAjoute(Map<String, Object> document);
+
+        void documentModifie(Map<String, Object> document);
+
+        void documentSupprime(String documentId);
+
+        void ecouteAnnulee(String message);
+    }
+
+    /**
+     * Écoute active sur une collection, à arrêter quand elle n'est plus utilisée
+     */
+    public static final class Ecoute {
+        private final Stockage.Abonnement abonnement;
+        private final CompletableFuture<Void> chargement;
+
+        private Ecoute(Stockage.Abonnement abonnement, CompletableFuture<Void> chargement) {
+            this.abonnement = abonnement;
+            this.chargement = chargement;
         }
-        
-        if (error[0] != null) {
-            throw error[0];
+
+        public CompletableFuture<Void> getChargement() {
+            return chargement;
+        }
+
+        public void arreter() {
+            abonnement.arreter();
         }
-        
-        return result[0];
+    }
+
+    /**
+     * Crée ou met à jour un document (version asynchrone)
+     */
+    public CompletableFuture<Void> setDocumentAsync(String collection, String documentId, Map<String, Object> data) {
+        CompletableFuture<Void> future = stockage.ecrire(collection + "/" + documentId, data);
+        return mesurer("set", collection, withTimeout(avecMessage(future, "Erreur lors de la sauvegarde: ")), data);
     }
 
     /**
      * Crée ou met à jour un document
      */
     public void setDocument(String collection, String documentId, Map<String, Object> data) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection).child(documentId);
-        CountDownLatch latch = new CountDownLatch(1);
-        final RuntimeException[] error = new RuntimeException[1];
-        
-        ref.setValue(data, new DatabaseReference.CompletionListener() {
-            @Override
-            public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
-                if (databaseError != null) {
-                    error[0] = new RuntimeException("Erreur lors de la sauvegarde: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            }
-        });
-        
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de la sauvegarde");
-        }
-        
-        if (error[0] != null) {
-            throw error[0];
-        }
+        await(setDocumentAsync(collection, documentId, data), "Timeout lors de la sauvegarde");
+    }
+
+    /**
+     * Met à jour partiellement un document (version asynchrone)
+     */
+    public CompletableFuture<Void> updateDocumentAsync(String collection, String documentId, Map<String, Object> updates) {
+        CompletableFuture<Void> future = stockage.mettreAJour(collection + "/" + documentId, updates);
+        return mesurer("update", collection, withTimeout(avecMessage(future, "Erreur lors de la mise à jour: ")), updates);
     }
 
     /**
      * Met à jour partiellement un document
      */
     public void updateDocument(String collection, String documentId, Map<String, Object> updates) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection).child(documentId);
-        CountDownLatch latch = new CountDownLatch(1);
-        final RuntimeException[] error = new RuntimeException[1];
-        
-        ref.updateChildren(updates, new DatabaseReference.CompletionListener() {
-            @Override
-            public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
-                if (databaseError != null) {
-                    error[0] = new RuntimeException("Erreur lors de la mise à jour: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            }
+        await(updateDocumentAsync(collection, documentId, updates), "Timeout lors de la mise à jour");
+    }
+
+    /**
+     * Écrit plusieurs chemins relatifs à un noeud en une seule mise à jour atomique (version asynchrone),
+     * par exemple "R001/historique/{id}" et "R002/derniere" sous "ruche"
+     */
+    public CompletableFuture<Void> updateCheminsAsync(String path, Map<String, Object> updates) {
+        CompletableFuture<Void> future = stockage.mettreAJour(path, updates);
+        return mesurer("update", path, withTimeout(avecMessage(future, "Erreur lors de la mise à jour: ")), updates);
+    }
+
+    /**
+     * Met à jour un document dans une transaction Firebase (version asynchrone).
+     * La fonction reçoit le contenu actuel (null si absent) et renvoie le nouveau contenu ;
+     * elle peut être rappelée plusieurs fois en cas d'écriture concurrente et doit donc être sans effet de bord.
+     */
+    public CompletableFuture<Void> transactionDocumentAsync(String collection, String documentId,
+                                                            UnaryOperator<Map<String, Object>> miseAJour) {
+        CompletableFuture<Void> future = stockage.transaction(collection + "/" + documentId, valeur -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> actuel = (Map<String, Object>) valeur;
+            return miseAJour.apply(actuel);
         });
-        
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de la mise à jour");
-        }
-        
-        if (error[0] != null) {
-            throw error[0];
-        }
+        return mesurer("transaction", collection, withTimeout(avecMessage(future, "Erreur lors de la transaction: ")));
+    }
+
+    /**
+     * Supprime un document (version asynchrone)
+     */
+    public CompletableFuture<Void> deleteDocumentAsync(String collection, String documentId) {
+        CompletableFuture<Void> future = stockage.supprimer(collection + "/" + documentId);
+        return mesurer("delete", collection, withTimeout(avecMessage(future, "Erreur lors de la suppression: ")));
     }
 
     /**
      * Supprime un document
      */
     public void deleteDocument(String collection, String documentId) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection).child(documentId);
-        CountDownLatch latch = new CountDownLatch(1);
-        final RuntimeException[] error = new RuntimeException[1];
-        
-        ref.removeValue(new DatabaseReference.CompletionListener() {
-            @Override
-            public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
-                if (databaseError != null) {
-                    error[0] = new RuntimeException("Erreur lors de la suppression: " + databaseError.getMessage());
-                }
-                latch.countDown();
-            }
-        });
-        
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de la suppression");
-        }
-        
-        if (error[0] != null) {
-            throw error[0];
-        }
+        await(deleteDocumentAsync(collection, documentId), "Timeout lors de la suppression");
+    }
+
+    /**
+     * Ajoute un document avec un ID généré automatiquement (version asynchrone)
+     */
+    public CompletableFuture<String> addDocumentAsync(String collection, Map<String, Object> data) {
+        String documentId = stockage.nouvelleCle(collection);
+        CompletableFuture<Void> future = stockage.ecrire(collection + "/" + documentId, data);
+        return mesurer("add", collection, withTimeout(avecMessage(future, "Erreur lors de l'ajout: ")), data)
+                .thenApply(ecrit -> documentId);
     }
 
     /**
      * Ajoute un document avec un ID généré automatiquement
      */
     public String addDocument(String collection, Map<String, Object> data) throws InterruptedException, TimeoutException {
-        DatabaseReference ref = firebaseDatabase.getReference(collection).push();
-        CountDownLatch latch = new CountDownLatch(1);
-        final String[] result = new String[1];
-        final RuntimeException[] error = new RuntimeException[1];
-        
-        ref.setValue(data, new DatabaseReference.CompletionListener() {
-            @Override
-            public void onComplete(DatabaseError databaseError, DatabaseReference databaseReference) {
-                if (databaseError != null) {
-                    error[0] = new RuntimeException("Erreur lors de l'ajout: " + databaseError.getMessage());
-                } else {
-                    result[0] = databaseReference.getKey();
-                }
-                latch.countDown();
-            }
-        });
-        
-        if (!latch.await(30, TimeUnit.SECONDS)) {
-            throw new TimeoutException("Timeout lors de l'ajout");
-        }
-        
-        if (error[0] != null) {
-            throw error[0];
-        }
-        
-        return result[0];
+        return await(addDocumentAsync(collection, data), "Timeout lors de l'ajout");
     }
 
     /**
      * Vérifie si un utilisateur existe dans Firebase Auth
      */
     public UserRecord getUserByEmail(String email) throws FirebaseAuthException {
-        return firebaseAuth.getUserByEmail(email);
+        return auth().getUserByEmail(email);
     }
 
     /**
@@ -288,7 +512,7 @@ public class FirebaseService {
                 .setDisplayName(displayName)
                 .setEmailVerified(false);
         
-        return firebaseAuth.createUser(request);
+        return auth().createUser(request);
     }
 
     /**
@@ -307,20 +531,276 @@ public class FirebaseService {
             request.setPassword((String) updates.get("password"));
         }
         
-        return firebaseAuth.updateUser(request);
+        return auth().updateUser(request);
     }
 
     /**
      * Supprime un utilisateur de Firebase Auth
      */
     public void deleteUser(String uid) throws FirebaseAuthException {
-        firebaseAuth.deleteUser(uid);
+        auth().deleteUser(uid);
     }
 
     /**
      * Vérifie un token Firebase et retourne l'UID de l'utilisateur
      */
     public String verifyIdToken(String idToken) throws FirebaseAuthException {
-        return firebaseAuth.verifyIdToken(idToken).getUid();
+        return auth().verifyIdToken(idToken).getUid();
+    }
+
+    private FirebaseAuth auth() {
+        if (firebaseAuth == null) {
+            throw new IllegalStateException("Firebase Auth indisponible avec le stockage en mémoire");
+        }
+        return firebaseAuth;
+    }
+
+    // --- Méthodes utilitaires ---
+
+    private Requete query(String collection, String orderByChild, Object startAt, Object endAt, Integer limitToLast) {
+        Requete requete = Requete.sur(collection).trierPar(orderByChild);
+        if (startAt != null) {
+            requete.depuis(startAt, null);
+        }
+        if (endAt != null) {
+            requete.jusqua(endAt, null);
+        }
+        if (limitToLast != null) {
+            requete.derniers(limitToLast);
+        }
+        return requete;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> DecodeurDocument<T> getDecodeur(Class<T> type) {
+        DecodeurDocument<T> decodeur = (DecodeurDocument<T>) decodeurs.get(type);
+        if (decodeur == null) {
+            throw new IllegalStateException("Aucun décodeur enregistré pour " + type.getSimpleName());
+        }
+        return decodeur;
+    }
+
+    private <T> List<T> decoder(Noeud noeud, DecodeurDocument<T> decodeur) {
+        List<T> documents = new ArrayList<>((int) noeud.getChildrenCount());
+        for (Noeud snapshot : noeud.getChildren()) {
+            documents.add(decodeur.decoder(snapshot));
+        }
+        return documents;
+    }
+
+    /**
+     * Lit une fois la requête sur le stockage et mesure la taille du résultat
+     */
+    private CompletableFuture<Noeud> readAsync(String operation, String collection, Requete requete, String errorMessage) {
+        MetresOperation metresOperation = metres(operation, collection);
+        CompletableFuture<Noeud> future = avecMessage(stockage.lire(requete), errorMessage).thenApply(noeud -> {
+            metresOperation.enfants.record(noeud.getChildrenCount());
+            metresOperation.octets.record(tailleApprochee(noeud));
+            return noeud;
+        });
+        return mesurer(metresOperation, withTimeout(future));
+    }
+
+    /**
+     * Préfixe le message d'erreur du stockage (une lecture ou une écriture refusée garde son type)
+     * et complète le futur renvoyé sur l'exécuteur du service plutôt que sur le fil d'évènements du stockage
+     */
+    private <T> CompletableFuture<T> avecMessage(CompletableFuture<T> future, String errorMessage) {
+        CompletableFuture<T> resultat = new CompletableFuture<>();
+        future.whenComplete((valeur, erreur) -> executeur.execute(() -> {
+            if (erreur == null) {
+                resultat.complete(valeur);
+                return;
+            }
+            Throwable cause = erreur instanceof CompletionException && erreur.getCause() != null ? erreur.getCause() : erreur;
+            if (cause instanceof Stockage.LectureAnnuleeException) {
+                resultat.completeExceptionally(new Stockage.LectureAnnuleeException(errorMessage + cause.getMessage()));
+            } else if (cause instanceof Stockage.EcritureRefuseeException) {
+                resultat.completeExceptionally(new Stockage.EcritureRefuseeException(errorMessage + cause.getMessage()));
+            } else {
+                resultat.completeExceptionally(new RuntimeException(errorMessage + cause.getMessage(), cause));
+            }
+        }));
+        return resultat;
+    }
+
+    // --- Métriques ---
+
+    /**
+     * Motif d'un chemin pour le tag "collection" : les identifiants (un segment sur deux, à partir
+     * du deuxième) sont remplacés par {id}, ex. ruche/R001/historique devient ruche/{id}/historique
+     */
+    static String motifChemin(String chemin) {
+        String[] segments = chemin.split("/");
+        StringBuilder motif = new StringBuilder(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            motif.append('/').append(i % 2 == 1 ? "{id}" : segments[i]);
+        }
+        return motif.toString();
+    }
+
+    private MetresOperation metres(String operation, String chemin) {
+        String collection = motifChemin(chemin);
+        return metresOperations.computeIfAbsent(operation + " " + collection, cle -> new MetresOperation(operation, collection));
+    }
+
+    private <T> CompletableFuture<T> mesurer(String operation, String chemin, CompletableFuture<T> future) {
+        return mesurer(metres(operation, chemin), future);
+    }
+
+    private <T> CompletableFuture<T> mesurer(String operation, String chemin, CompletableFuture<T> future, Map<String, Object> donnees) {
+        MetresOperation metresOperation = metres(operation, chemin);
+        metresOperation.enfants.record(donnees.size());
+        metresOperation.octets.record(tailleApprochee(donnees));
+        return mesurer(metresOperation, future);
+    }
+
+    /**
+     * Chronomètre l'opération jusqu'à la complétion du futur et compte les opérations en cours
+     */
+    private <T> CompletableFuture<T> mesurer(MetresOperation metresOperation, CompletableFuture<T> future) {
+        long debut = System.nanoTime();
+        operationsEnCours.incrementAndGet();
+        future.whenComplete((resultat, erreur) -> {
+            operationsEnCours.decrementAndGet();
+            metresOperation.terminer(System.nanoTime() - debut, erreur);
+        });
+        return future;
+    }
+
+    /**
+     * Taille approchée en octets d'un snapshot : celle de son premier enfant multipliée par le nombre
+     * d'enfants, récursivement, pour ne pas parcourir toute la réponse
+     */
+    private static long tailleApprochee(Noeud snapshot) {
+        long enfants = snapshot.getChildrenCount();
+        if (enfants == 0) {
+            return tailleValeur(snapshot.getValue());
+        }
+        Noeud premier = snapshot.getChildren().iterator().next();
+        return enfants * (premier.getKey().length() + 4 + tailleApprochee(premier));
+    }
+
+    private static long tailleApprochee(Map<?, ?> donnees) {
+        long taille = 2;
+        for (Map.Entry<?, ?> entry : donnees.entrySet()) {
+            taille += String.valueOf(entry.getKey()).length() + 4;
+            taille += entry.getValue() instanceof Map ? tailleApprochee((Map<?, ?>) entry.getValue()) : tailleValeur(entry.getValue());
+        }
+        return taille;
+    }
+
+    private static long tailleValeur(Object valeur) {
+        if (valeur == null) {
+            return 4;
+        }
+        if (valeur instanceof String) {
+            return ((String) valeur).length() + 2;
+        }
+        return 8;
+    }
+
+    /**
+     * Mètres d'une opération sur un motif de collection : durée par résultat, échecs, taille des réponses
+     * (pour les écritures, taille des données envoyées)
+     */
+    private final class MetresOperation {
+        private final Timer succes;
+        private final Timer echec;
+        private final Counter timeouts;
+        private final Counter annulations;
+        private final Counter erreurs;
+        private final DistributionSummary enfants;
+        private final DistributionSummary octets;
+
+        private MetresOperation(String operation, String collection) {
+            this.succes = timer(operation, collection, "succes");
+            this.echec = timer(operation, collection, "echec");
+            this.timeouts = compteur("ruche.firebase.timeouts", "Opérations Firebase sans réponse avant le délai", operation, collection);
+            this.annulations = compteur("ruche.firebase.annulations", "Lectures Firebase annulées (droits, requête refusée)", operation, collection);
+            this.erreurs = compteur("ruche.firebase.erreurs", "Opérations Firebase en erreur", operation, collection);
+            this.enfants = DistributionSummary.builder("ruche.firebase.snapshot.enfants")
+                .description("Nombre d'enfants des snapshots lus ou des données écrites")
+                .tags("operation", operation, "collection", collection)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+            this.octets = DistributionSummary.builder("ruche.firebase.snapshot.octets")
+                .description("Taille approchée des snapshots lus ou des données écrites")
+                .baseUnit("bytes")
+                .tags("operation", operation, "collection", collection)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        }
+
+        private Timer timer(String operation, String collection, String resultat) {
+            return Timer.builder("ruche.firebase.operations")
+                .description("Durée des opérations Realtime Database")
+                .tags("operation", operation, "collection", collection, "resultat", resultat)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        }
+
+        private Counter compteur(String nom, String description, String operation, String collection) {
+            return Counter.builder(nom).description(description)
+                .tags("operation", operation, "collection", collection)
+                .register(meterRegistry);
+        }
+
+        private void terminer(long dureeNanos, Throwable erreur) {
+            if (erreur == null) {
+                succes.record(dureeNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+            echec.record(dureeNanos, TimeUnit.NANOSECONDS);
+            Throwable cause = erreur instanceof CompletionException && erreur.getCause() != null ? erreur.getCause() : erreur;
+            if (cause instanceof TimeoutException) {
+                timeouts.increment();
+            } else if (cause instanceof CancellationException || cause instanceof Stockage.LectureAnnuleeException) {
+                annulations.increment();
+            } else {
+                erreurs.increment();
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+        return future.orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Attend le résultat d'une opération asynchrone en conservant les exceptions des méthodes bloquantes
+     */
+    private <T> T await(CompletableFuture<T> future, String timeoutMessage) throws InterruptedException, TimeoutException {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new TimeoutException(timeoutMessage);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new TimeoutException(timeoutMessage);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private Map<String, Object> toDocument(Noeud snapshot) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", snapshot.getKey());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> value = (Map<String, Object>) snapshot.getValue();
+        data.putAll(value);
+        return data;
+    }
+
+    private List<Map<String, Object>> toDocuments(Noeud noeud) {
+        List<Map<String, Object>> documents = new ArrayList<>();
+        for (Noeud snapshot : noeud.getChildren()) {
+            documents.add(toDocument(snapshot));
+        }
+        return documents;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,256 @@
+package com.rucheconnectee.service;
+
+import com.google.firebase.database.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+/**
+ * Stockage sur Firebase Realtime Database (app.stockage=firebase, défaut).
+ * Les futurs sont complétés depuis les callbacks du SDK, sur son fil d'évènements ; FirebaseService les reprend
+ * sur son exécuteur avant tout traitement.
+ */
+@Component
+@ConditionalOnExpression("'${app.stockage:firebase}' == 'firebase' and !${app.use-mock-data:false}")
+public class FirebaseStockage implements Stockage {
+
+    @Autowired
+    private FirebaseDatabase firebaseDatabase;
+
+    @Override
+    public CompletableFuture<Noeud> lire(Requete requete) {
+        CompletableFuture<Noeud> future = new CompletableFuture<>();
+        query(requete).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot dataSnapshot) {
+                future.complete(new NoeudFirebase(dataSnapshot));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                future.completeExceptionally(new LectureAnnuleeException(databaseError.getMessage()));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public Abonnement ecouter(Requete requete, EcouteurEnfants ecouteur) {
+        Query query = query(requete);
+        ChildEventListener listener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                ecouteur.enfantAjoute(new NoeudFirebase(snapshot));
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                ecouteur.enfantModifie(new NoeudFirebase(snapshot));
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot snapshot) {
+                ecouteur.enfantSupprime(new NoeudFirebase(snapshot));
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+                // L'ordre est recalculé par l'appelant
+            }
+
+            @Override
+            public void onCancelled(DatabaseError databaseError) {
+                ecouteur.ecouteAnnulee(databaseError.getMessage());
+            }
+        };
+        query.addChildEventListener(listener);
+        return () -> query.removeEventListener(listener);
+    }
+
+    @Override
+    public CompletableFuture<Void> ecrire(String chemin, Object valeur) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            firebaseDatabase.getReference(chemin).setValue(valeur, completeWith(future));
+        } catch (DatabaseException e) {
+            // Chemin ou clé invalide, rejeté par le SDK avant tout envoi
+            future.completeExceptionally(new EcritureRefuseeException(e.getMessage()));
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> mettreAJour(String chemin, Map<String, Object> valeurs) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            firebaseDatabase.getReference(chemin).updateChildren(valeurs, completeWith(future));
+        } catch (DatabaseException e) {
+            future.completeExceptionally(new EcritureRefuseeException(e.getMessage()));
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> supprimer(String chemin) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        firebaseDatabase.getReference(chemin).removeValue(completeWith(future));
+        return future;
+    }
+
+    @Override
+    public String nouvelleCle(String chemin) {
+        // Clé générée localement par le SDK, sans aller-retour serveur
+        return firebaseDatabase.getReference(chemin).push().getKey();
+    }
+
+    @Override
+    public CompletableFuture<Void> transaction(String chemin, UnaryOperator<Object> miseAJour) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        firebaseDatabase.getReference(chemin).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData currentData) {
+                currentData.setValue(miseAJour.apply(currentData.getValue()));
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError databaseError, boolean committed, DataSnapshot currentData) {
+                if (databaseError != null) {
+                    future.completeExceptionally(new RuntimeException(databaseError.getMessage()));
+                } else if (!committed) {
+                    future.completeExceptionally(new RuntimeException("Transaction non appliquée"));
+                } else {
+                    future.complete(null);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Query Firebase équivalente à la requête
+     */
+    private Query query(Requete requete) {
+        DatabaseReference ref = firebaseDatabase.getReference(requete.getChemin());
+        if (requete.getOrdre() == null) {
+            return ref;
+        }
+        Query query = Requete.ORDRE_CLE.equals(requete.getOrdre()) ? ref.orderByKey() : ref.orderByChild(requete.getOrdre());
+        if (requete.isDepuisExclue()) {
+            // Le SDK Admin n'a pas de startAfter : la borne devient la clé suivante, incluse
+            query = query.startAt(Requete.cleSuivante((String) requete.getDepuis()));
+        } else if (requete.getDepuis() != null) {
+            query = startAt(query, requete.getDepuis(), requete.getDepuisCle());
+        }
+        if (requete.getJusqua() != null) {
+            query = endAt(query, requete.getJusqua(), requete.getJusquaCle());
+        }
+        if (requete.getPremiers() != null) {
+            query = query.limitToFirst(requete.getPremiers());
+        }
+        if (requete.getDerniers() != null) {
+            query = query.limitToLast(requete.getDerniers());
+        }
+        return query;
+    }
+
+    private static Query startAt(Query query, Object valeur, String cle) {
+        if (valeur instanceof Double) {
+            return cle != null ? query.startAt((Double) valeur, cle) : query.startAt((Double) valeur);
+        }
+        if (valeur instanceof Boolean) {
+            return cle != null ? query.startAt((Boolean) valeur, cle) : query.startAt((Boolean) valeur);
+        }
+        return cle != null ? query.startAt((String) valeur, cle) : query.startAt((String) valeur);
+    }
+
+    private static Query endAt(Query query, Object valeur, String cle) {
+        if (valeur instanceof Double) {
+            return cle != null ? query.endAt((Double) valeur, cle) : query.endAt((Double) valeur);
+        }
+        if (valeur instanceof Boolean) {
+            return cle != null ? query.endAt((Boolean) valeur, cle) : query.endAt((Boolean) valeur);
+        }
+        return cle != null ? query.endAt((String) valeur, cle) : query.endAt((String) valeur);
+    }
+
+    /**
+     * CompletionListener qui complète le futur ou le fait échouer avec le message Firebase
+     * (EcritureRefuseeException pour une écriture refusée par les règles de sécurité)
+     */
+    private static DatabaseReference.CompletionListener completeWith(CompletableFuture<Void> future) {
+        return (databaseError, databaseReference) -> {
+            if (databaseError != null) {
+                future.completeExceptionally(databaseError.getCode() == DatabaseError.PERMISSION_DENIED
+                    ? new EcritureRefuseeException(databaseError.getMessage())
+                    : new RuntimeException(databaseError.getMessage()));
+            } else {
+                future.complete(null);
+            }
+        };
+    }
+
+    /**
+     * Noeud adossé à un DataSnapshot
+     */
+    private static final class NoeudFirebase implements Noeud {
+        private final DataSnapshot snapshot;
+
+        private NoeudFirebase(DataSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String getKey() {
+            return snapshot.getKey();
+        }
+
+        @Override
+        public boolean exists() {
+            return snapshot.exists();
+        }
+
+        @Override
+        public Object getValue() {
+            return snapshot.getValue();
+        }
+
+        @Override
+        public Noeud child(String chemin) {
+            return new NoeudFirebase(snapshot.child(chemin));
+        }
+
+        @Override
+        public boolean hasChild(String chemin) {
+            return snapshot.hasChild(chemin);
+        }
+
+        @Override
+        public long getChildrenCount() {
+            return snapshot.getChildrenCount();
+        }
+
+        @Override
+        public Iterable<Noeud> getChildren() {
+            Iterable<DataSnapshot> enfants = snapshot.getChildren();
+            return () -> new Iterator<Noeud>() {
+                private final Iterator<DataSnapshot> iterator = enfants.iterator();
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Noeud next() {
+                    return new NoeudFirebase(iterator.next());
+                }
+            };
+        }
+    }
+}
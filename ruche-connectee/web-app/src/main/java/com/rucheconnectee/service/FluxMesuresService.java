@@ -0,0 +1,553 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Flux Server-Sent Events des nouvelles mesures, par ruche.
+ * Un seul abonnement à l'écoute partagée de ruche/{rucheId}/historique (EcoutesHistorique, à partir du jour
+ * courant) alimente tous les abonnés d'une ruche ; il est pris au premier abonné et arrêté au départ du dernier.
+ *
+ * L'id de chaque évènement est le curseur {horodatage}:{id} de la mesure (millisecondes epoch, identifiant) ;
+ * le tampon de la ruche (app.mesures.flux.tampon dernières mesures) est trié sur ce couple. Un client qui se
+ * reconnecte avec Last-Event-ID reçoit les mesures du tampon situées après son curseur, y compris celles de
+ * la même milliseconde ; sans Last-Event-ID, il reçoit la dernière mesure connue.
+ * Les envois d'une ruche sont faits dans l'ordre, hors du thread des évènements Firebase.
+ * Les abonnés internes (suivre) partagent les mêmes écoutes que les clients SSE.
+ */
+@Service
+public class FluxMesuresService {
+
+    @Autowired
+    private EcoutesHistorique ecoutesHistorique;
+
+    @Value("${app.mesures.flux.max-abonnes-par-ruche:200}")
+    private int maxAbonnesParRuche;
+
+    @Value("${app.mesures.flux.tampon:100}")
+    private int tailleTampon;
+
+    @Value("${app.mesures.flux.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.mesures.flux.reconnexion-ms:5000}")
+    private long reconnexionMs;
+
+    @Value("${app.mesures.flux.threads:4}")
+    private int threads;
+
+    @Value("${app.mesures.flux.retry-after-s:30}")
+    private long retryAfterSecondes;
+
+    private final Map<String, FluxRuche> flux = new ConcurrentHashMap<>();
+    private ExecutorService envois;
+
+    @PostConstruct
+    public void demarrer() {
+        envois = Executors.newFixedThreadPool(threads, tache -> {
+            Thread thread = new Thread(tache, "flux-mesures");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abonne un client aux mesures d'une ruche. format convertit une mesure en données de l'évènement.
+     * Renvoie null si la ruche a atteint son nombre maximal d'abonnés.
+     */
+    public SseEmitter abonner(String rucheId, String dernierEvenement, Function<DonneesCapteur, ?> format) {
+        FluxRuche ruche = reserver(rucheId);
+        if (ruche == null) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        AbonneSse abonne = new AbonneSse(emitter, format);
+        emitter.onCompletion(() -> retirer(ruche, abonne));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(erreur -> retirer(ruche, abonne));
+
+        ruche.rejoindre(abonne, parseDernierEvenement(dernierEvenement),
+            SseEmitter.event().reconnectTime(reconnexionMs).comment("flux " + rucheId));
+        return emitter;
+    }
+
+    /**
+     * Reçoit les mesures d'une ruche suivie par suivre ; appelé dans l'ordre, depuis un thread d'envoi
+     */
+    public interface RecepteurMesures {
+        void mesureRecue(String rucheId, DonneesCapteur mesure);
+
+        /** L'écoute de la ruche a été interrompue : l'abonnement est terminé */
+        void fluxInterrompu(String rucheId);
+    }
+
+    /**
+     * Abonnement interne aux mesures d'une ruche, à arrêter quand il n'est plus utilisé
+     */
+    public final class Abonnement {
+        private final FluxRuche ruche;
+        private final AbonneRecepteur abonne;
+
+        private Abonnement(FluxRuche ruche, AbonneRecepteur abonne) {
+            this.ruche = ruche;
+            this.abonne = abonne;
+        }
+
+        /** false une fois l'abonnement arrêté ou son flux interrompu */
+        public boolean isActif() {
+            return !abonne.retire.get();
+        }
+
+        public void arreter() {
+            retirer(ruche, abonne);
+        }
+    }
+
+    /**
+     * Abonne un récepteur interne aux mesures d'une ruche ; il reçoit d'abord la dernière mesure connue.
+     * Renvoie null si la ruche a atteint son nombre maximal d'abonnés.
+     */
+    public Abonnement suivre(String rucheId, RecepteurMesures recepteur) {
+        FluxRuche ruche = reserver(rucheId);
+        if (ruche == null) {
+            return null;
+        }
+        AbonneRecepteur abonne = new AbonneRecepteur(ruche, recepteur);
+        ruche.rejoindre(abonne, null, null);
+        return new Abonnement(ruche, abonne);
+    }
+
+    /**
+     * Réserve une place d'abonné sur la ruche et ouvre son écoute ; null si la ruche est complète
+     */
+    private FluxRuche reserver(String rucheId) {
+        FluxRuche ruche;
+        synchronized (flux) {
+            ruche = flux.computeIfAbsent(rucheId, FluxRuche::new);
+            if (ruche.nombreAbonnes >= maxAbonnesParRuche) {
+                return null;
+            }
+            ruche.nombreAbonnes++;
+        }
+        ruche.suivre();
+        return ruche;
+    }
+
+    /**
+     * Dernière mesure du jour d'une ruche suivie en flux, null si la ruche n'est pas suivie ou pas encore chargée
+     */
+    public DonneesCapteur getDerniereMesure(String rucheId) {
+        FluxRuche ruche = flux.get(rucheId);
+        if (ruche == null || !ruche.charge) {
+            return null;
+        }
+        List<DonneesCapteur> derniere = ruche.rejeu(null);
+        return derniere.isEmpty() ? null : derniere.get(0);
+    }
+
+    /**
+     * Délai conseillé au client refusé faute de place sur la ruche
+     */
+    public long getRetryAfterSecondes() {
+        return retryAfterSecondes;
+    }
+
+    /**
+     * Nombre de ruches suivies et d'abonnés
+     */
+    public Map<String, Object> getStatistiques() {
+        int abonnes = 0;
+        for (FluxRuche ruche : flux.values()) {
+            abonnes += ruche.nombreAbonnes;
+        }
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("ruches", flux.size());
+        statistiques.put("abonnes", abonnes);
+        statistiques.put("maxAbonnesParRuche", maxAbonnesParRuche);
+        statistiques.put("ecoutesHistorique", ecoutesHistorique.getStatistiques());
+        return statistiques;
+    }
+
+    /**
+     * Commentaire SSE périodique : garde les connexions ouvertes derrière les proxys et détecte les clients partis
+     */
+    @Scheduled(fixedDelayString = "${app.mesures.flux.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (FluxRuche ruche : flux.values()) {
+            ruche.executer(() -> {
+                for (Abonne abonne : ruche.abonnes) {
+                    abonne.ping();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        synchronized (flux) {
+            for (FluxRuche ruche : flux.values()) {
+                ruche.arreter();
+                ruche.abonnes.forEach(Abonne::terminer);
+            }
+            flux.clear();
+        }
+        envois.shutdownNow();
+    }
+
+    /**
+     * Retire un abonné de sa ruche ; renvoie false s'il l'était déjà
+     */
+    private boolean retirer(FluxRuche ruche, Abonne abonne) {
+        if (!abonne.retire.compareAndSet(false, true)) {
+            return false;
+        }
+        ruche.abonnes.remove(abonne);
+        synchronized (flux) {
+            ruche.nombreAbonnes--;
+            if (ruche.nombreAbonnes == 0 && flux.remove(ruche.rucheId, ruche)) {
+                ruche.arreter();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Curseur d'un Last-Event-ID : {horodatage}:{id}, ou horodatage seul (ancien format, toute la milliseconde
+     * est alors renvoyée) ; null si absent ou illisible
+     */
+    private static Curseur parseDernierEvenement(String dernierEvenement) {
+        if (dernierEvenement == null || dernierEvenement.isBlank()) {
+            return null;
+        }
+        String valeur = dernierEvenement.trim();
+        int separateur = valeur.indexOf(':');
+        try {
+            if (separateur < 0) {
+                return new Curseur(Long.parseLong(valeur), null);
+            }
+            return new Curseur(Long.parseLong(valeur.substring(0, separateur)), valeur.substring(separateur + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String idEvenement(DonneesCapteur mesure) {
+        return SerieCapteurs.versEpochMillis(mesure.getTimestamp()) + ":" + (mesure.getId() != null ? mesure.getId() : "");
+    }
+
+    /**
+     * Ordre du tampon : horodatage puis identifiant
+     */
+    private static int comparer(long horodatageA, String idA, long horodatageB, String idB) {
+        int comparaison = Long.compare(horodatageA, horodatageB);
+        if (comparaison != 0) {
+            return comparaison;
+        }
+        return (idA != null ? idA : "").compareTo(idB != null ? idB : "");
+    }
+
+    private static int comparer(DonneesCapteur a, DonneesCapteur b) {
+        return comparer(SerieCapteurs.versEpochMillis(a.getTimestamp()), a.getId(),
+            SerieCapteurs.versEpochMillis(b.getTimestamp()), b.getId());
+    }
+
+    /**
+     * Position de reprise d'un client ; sans id, toutes les mesures de la milliseconde sont renvoyées
+     */
+    private static final class Curseur {
+        private final long horodatage;
+        private final String id;
+
+        private Curseur(long horodatage, String id) {
+            this.horodatage = horodatage;
+            this.id = id;
+        }
+
+        private boolean precede(DonneesCapteur mesure) {
+            long horodatageMesure = SerieCapteurs.versEpochMillis(mesure.getTimestamp());
+            if (id == null) {
+                return horodatageMesure >= horodatage;
+            }
+            return comparer(horodatage, id, horodatageMesure, mesure.getId()) < 0;
+        }
+    }
+
+    /**
+     * Abonné d'une ruche ; envoyer renvoie false quand l'abonné n'est plus joignable
+     */
+    private abstract static class Abonne {
+        protected final AtomicBoolean retire = new AtomicBoolean();
+
+        abstract boolean envoyer(DonneesCapteur mesure);
+
+        abstract boolean envoyer(SseEmitter.SseEventBuilder evenement);
+
+        void ping() {
+        }
+
+        /** Fin du flux côté serveur (écoute interrompue ou arrêt) */
+        abstract void terminer();
+    }
+
+    /**
+     * Abonné SSE ; un envoi en échec termine sa connexion, ce qui le retire du flux
+     */
+    private static final class AbonneSse extends Abonne {
+        private final SseEmitter emitter;
+        private final Function<DonneesCapteur, ?> format;
+
+        private AbonneSse(SseEmitter emitter, Function<DonneesCapteur, ?> format) {
+            this.emitter = emitter;
+            this.format = format;
+        }
+
+        @Override
+        boolean envoyer(DonneesCapteur mesure) {
+            return envoyer(SseEmitter.event()
+                .id(idEvenement(mesure))
+                .name("mesure")
+                .data(format.apply(mesure), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        boolean envoyer(SseEmitter.SseEventBuilder evenement) {
+            if (retire.get()) {
+                return false;
+            }
+            try {
+                emitter.send(evenement);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+
+        @Override
+        void ping() {
+            envoyer(SseEmitter.event().comment("ping"));
+        }
+
+        @Override
+        void terminer() {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Abonné interne : les mesures sont transmises à son récepteur
+     */
+    private final class AbonneRecepteur extends Abonne {
+        private final FluxRuche ruche;
+        private final RecepteurMesures recepteur;
+
+        private AbonneRecepteur(FluxRuche ruche, RecepteurMesures recepteur) {
+            this.ruche = ruche;
+            this.recepteur = recepteur;
+        }
+
+        @Override
+        boolean envoyer(DonneesCapteur mesure) {
+            if (retire.get()) {
+                return false;
+            }
+            recepteur.mesureRecue(ruche.rucheId, mesure);
+            return true;
+        }
+
+        @Override
+        boolean envoyer(SseEmitter.SseEventBuilder evenement) {
+            return !retire.get();
+        }
+
+        @Override
+        void terminer() {
+            if (retirer(ruche, this)) {
+                recepteur.fluxInterrompu(ruche.rucheId);
+            }
+        }
+    }
+
+    /**
+     * Écoute partagée d'une ruche, tampon des dernières mesures et abonnés
+     */
+    private final class FluxRuche implements FirebaseService.EcouteurDocuments {
+        private final String rucheId;
+        private final List<Abonne> abonnes = new CopyOnWriteArrayList<>();
+        private final List<DonneesCapteur> tampon = new ArrayList<>(); // Trié par horodatage puis id
+        private int nombreAbonnes; // Protégé par le verrou de flux
+        private EcoutesHistorique.Abonnement ecoute;
+        private CompletableFuture<Void> envoisEnCours;
+        private volatile boolean charge;
+        private boolean ferme;
+
+        private FluxRuche(String rucheId) {
+            this.rucheId = rucheId;
+        }
+
+        private void suivre() {
+            synchronized (this) {
+                if (ecoute != null || ferme) {
+                    return;
+                }
+                try {
+                    ecoute = ecoutesHistorique.ecouter(rucheId, LocalDate.now(), this);
+                    // Les envois commencent une fois les mesures existantes chargées dans le tampon
+                    envoisEnCours = ecoute.getChargement().whenComplete((ok, erreur) -> charge = true)
+                        .exceptionally(erreur -> {
+                            ecouteAnnulee("chargement en échec: " + erreur.getMessage());
+                            return null;
+                        });
+                    return;
+                } catch (RuntimeException e) {
+                    System.err.println("Impossible de suivre la ruche " + rucheId + " en flux: " + e.getMessage());
+                }
+            }
+            ecouteAnnulee("écoute impossible");
+        }
+
+        /**
+         * Enchaîne une tâche d'envoi : les tâches d'une ruche s'exécutent une à une, dans l'ordre.
+         * Renvoie false si le flux est fermé.
+         */
+        private synchronized boolean executer(Runnable tache) {
+            if (envoisEnCours == null || ferme || envois.isShutdown()) {
+                return false;
+            }
+            envoisEnCours = envoisEnCours.thenRunAsync(tache, envois).exceptionally(erreur -> {
+                System.err.println("Erreur d'envoi du flux de la ruche " + rucheId + ": " + erreur.getMessage());
+                return null;
+            });
+            return true;
+        }
+
+        /**
+         * Envoie l'accueil puis le rejeu à un nouvel abonné, avant de l'ajouter à la diffusion
+         */
+        private void rejoindre(Abonne abonne, Curseur depuis, SseEmitter.SseEventBuilder accueil) {
+            boolean planifie = executer(() -> {
+                if (accueil != null && !abonne.envoyer(accueil)) {
+                    return;
+                }
+                for (DonneesCapteur mesure : rejeu(depuis)) {
+                    if (!abonne.envoyer(mesure)) {
+                        return;
+                    }
+                }
+                ajouterAbonne(abonne);
+            });
+            if (!planifie) {
+                abonne.terminer();
+            }
+        }
+
+        /**
+         * Ajoute un abonné à la diffusion, ou le termine si le flux a été fermé entre-temps
+         */
+        private void ajouterAbonne(Abonne abonne) {
+            synchronized (this) {
+                if (!ferme) {
+                    if (!abonne.retire.get()) {
+                        abonnes.add(abonne);
+                    }
+                    return;
+                }
+            }
+            abonne.terminer();
+        }
+
+        /**
+         * Mesures du tampon situées après le curseur depuis ; sans curseur, la dernière mesure seulement
+         */
+        private synchronized List<DonneesCapteur> rejeu(Curseur depuis) {
+            if (tampon.isEmpty()) {
+                return List.of();
+            }
+            if (depuis == null) {
+                return List.of(tampon.get(tampon.size() - 1));
+            }
+            List<DonneesCapteur> rejeu = new ArrayList<>();
+            for (DonneesCapteur mesure : tampon) {
+                if (depuis.precede(mesure)) {
+                    rejeu.add(mesure);
+                }
+            }
+            return rejeu;
+        }
+
+        private synchronized void ajouterAuTampon(DonneesCapteur mesure) {
+            int position = tampon.size();
+            while (position > 0 && comparer(tampon.get(position - 1), mesure) > 0) {
+                position--;
+            }
+            tampon.add(position, mesure);
+            if (tampon.size() > tailleTampon) {
+                tampon.remove(0);
+            }
+        }
+
+        @Override
+        public void documentAjoute(Map<String, Object> document) {
+            DonneesCapteur mesure = MesuresService.convertToDonneesCapteur(document, rucheId);
+            if (!charge) {
+                ajouterAuTampon(mesure);
+                return;
+            }
+            executer(() -> {
+                ajouterAuTampon(mesure);
+                for (Abonne abonne : abonnes) {
+                    abonne.envoyer(mesure);
+                }
+            });
+        }
+
+        @Override
+        public void documentModifie(Map<String, Object> document) {
+            // Seuls les ajouts sont diffusés (les modifications viennent des migrations et corrections)
+        }
+
+        @Override
+        public void documentSupprime(String documentId) {
+        }
+
+        @Override
+        public void ecouteAnnulee(String message) {
+            // Les clients se reconnectent avec Last-Event-ID sur une nouvelle écoute
+            System.err.println("Flux des mesures de la ruche " + rucheId + " interrompu: " + message);
+            synchronized (flux) {
+                flux.remove(rucheId, this);
+            }
+            arreter();
+            abonnes.forEach(Abonne::terminer);
+        }
+
+        private synchronized void arreter() {
+            ferme = true;
+            if (ecoute != null) {
+                ecoute.arreter();
+                ecoute = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.rucheconnectee.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index mémoire des propriétaires : ruche → idApiculteur (RuchesNew) et rucher → idApiculteur (RuchersNew).
+ * Chaque collection est chargée une fois puis tenue à jour par un ChildEventListener, ouvert à la première
+ * consultation. Tant qu'une collection n'est pas chargée (ou après annulation de son écoute), l'index
+ * n'est pas prêt et AuthorizationService revient à la lecture directe du document.
+ */
+@Component
+public class IndexProprietaires {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Value("${app.autorisations.index.enabled:true}")
+    private boolean enabled;
+
+    private final Collection ruches = new Collection("RuchesNew");
+    private final Collection ruchers = new Collection("RuchersNew");
+
+    /**
+     * Indique si l'index des ruches est chargé ; sinon ouvre son écoute et renvoie false
+     */
+    public boolean isRuchesPret() {
+        return ruches.isPret();
+    }
+
+    /**
+     * Propriétaire d'une ruche dans l'index, null si inconnu
+     */
+    public String getProprietaireRuche(String rucheId) {
+        return ruches.getProprietaire(rucheId);
+    }
+
+    /**
+     * Indique si l'index des ruchers est chargé ; sinon ouvre son écoute et renvoie false
+     */
+    public boolean isRuchersPret() {
+        return ruchers.isPret();
+    }
+
+    /**
+     * Propriétaire d'un rucher dans l'index, null si inconnu
+     */
+    public String getProprietaireRucher(String rucherId) {
+        return ruchers.getProprietaire(rucherId);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        ruches.arreter();
+        ruchers.arreter();
+    }
+
+    /**
+     * Index d'une collection, alimenté par son écoute Firebase
+     */
+    private final class Collection implements FirebaseService.EcouteurDocuments {
+        private final String nom;
+        private final Map<String, String> proprietaires = new ConcurrentHashMap<>();
+        private volatile FirebaseService.Ecoute ecoute;
+        private volatile boolean pret;
+
+        private Collection(String nom) {
+            this.nom = nom;
+        }
+
+        boolean isPret() {
+            if (!enabled) {
+                return false;
+            }
+            if (!pret) {
+                suivre();
+            }
+            return pret;
+        }
+
+        String getProprietaire(String id) {
+            return proprietaires.get(id);
+        }
+
+        private synchronized void suivre() {
+            if (ecoute != null) {
+                return;
+            }
+            try {
+                ecoute = firebaseService.ecouterDocuments(nom, FirebaseService.ORDRE_CLE, null, this);
+            } catch (RuntimeException e) {
+                System.err.println("Impossible d'indexer " + nom + ": " + e.getMessage());
+                return;
+            }
+
+            FirebaseService.Ecoute courante = ecoute;
+            courante.getChargement().whenComplete((ok, erreur) -> {
+                if (erreur == null) {
+                    pret = true;
+                } else {
+                    abandonner(courante, "chargement en échec: " + erreur.getMessage());
+                }
+            });
+        }
+
+        /**
+         * Ferme l'écoute et vide l'index : la prochaine consultation rouvre une écoute
+         */
+        private synchronized void abandonner(FirebaseService.Ecoute courante, String raison) {
+            if (ecoute != courante) {
+                return;
+            }
+            System.err.println("Index des propriétaires " + nom + " abandonné: " + raison);
+            pret = false;
+            ecoute = null;
+            courante.arreter();
+            proprietaires.clear();
+        }
+
+        @Override
+        public void documentAjoute(Map<String, Object> document) {
+            Object idApiculteur = document.get("idApiculteur");
+            if (idApiculteur != null) {
+                proprietaires.put((String) document.get("id"), idApiculteur.toString());
+            } else {
+                proprietaires.remove((String) document.get("id"));
+            }
+        }
+
+        @Override
+        public void documentModifie(Map<String, Object> document) {
+            documentAjoute(document);
+        }
+
+        @Override
+        public void documentSupprime(String documentId) {
+            proprietaires.remove(documentId);
+        }
+
+        @Override
+        public void ecouteAnnulee(String message) {
+            FirebaseService.Ecoute courante = ecoute;
+            if (courante != null) {
+                abandonner(courante, message);
+            }
+        }
+
+        synchronized void arreter() {
+            if (ecoute != null) {
+                ecoute.arreter();
+                ecoute = null;
+            }
+            pret = false;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.rucheconnectee.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rucheconnectee.model.DonneesCapteur;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File d'ingestion des mesures en écriture différée (write-behind).
+ * Les mesures acceptées sont placées dans une file bornée ; un écrivain unique les regroupe pendant
+ * app.mesures.ingestion.fenetre-ms et les écrit par lots multi-chemins (MesuresService.ajouterMesuresAsync).
+ * File pleine : la mesure est refusée et l'appelant répond 429.
+ *
+ * Un lot en échec transitoire (écriture plus longue que app.mesures.ingestion.timeout-ecriture-s, réseau)
+ * est réessayé avec une attente croissante, au plus app.mesures.ingestion.tentatives-max fois. Un lot refusé
+ * par la base (droits, clé invalide) n'est pas réessayé ; s'il mêle plusieurs ruches, chacune est réécrite
+ * seule. Ce qui ne peut pas être écrit est ajouté au journal des rejets app.mesures.ingestion.rejets
+ * (abandonné s'il n'est pas renseigné) et compté, pour que l'écrivain passe au lot suivant.
+ *
+ * Si app.mesures.ingestion.journal est renseigné, chaque mesure acceptée est d'abord ajoutée à ce fichier
+ * (une ligne JSON par mesure), rejoué au démarrage et vidé dès que tout ce qu'il contient est écrit.
+ * Le rejeu est progressif : ce qui ne tient pas dans la file reste en attente et le journal, quand il est vidé,
+ * est réécrit avec cette suite avant qu'elle soit remise en file.
+ * Les mesures gardent leur id : un rejeu réécrit les mêmes noeuds de l'historique.
+ */
+@Service
+public class IngestionMesuresService {
+
+    @Autowired
+    private MesuresService mesuresService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.mesures.ingestion.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mesures.ingestion.capacite:10000}")
+    private int capacite;
+
+    @Value("${app.mesures.ingestion.taille-lot:500}")
+    private int tailleLot;
+
+    @Value("${app.mesures.ingestion.fenetre-ms:200}")
+    private long fenetreMs;
+
+    @Value("${app.mesures.ingestion.retry-after-s:5}")
+    private long retryAfterSecondes;
+
+    @Value("${app.mesures.ingestion.timeout-ecriture-s:60}")
+    private long timeoutEcritureSecondes;
+
+    @Value("${app.mesures.ingestion.tentatives-max:5}")
+    private int tentativesMax;
+
+    @Value("${app.mesures.ingestion.attente-echec-ms:1000}")
+    private long attenteEchecMs;
+
+    @Value("${app.mesures.ingestion.journal:}")
+    private String journal;
+
+    @Value("${app.mesures.ingestion.rejets:}")
+    private String rejets;
+
+    private BlockingQueue<DonneesCapteur> file;
+    private BufferedWriter journalWriter;
+    private final Object verrouJournal = new Object();
+    private final Deque<String> resteJournal = new ArrayDeque<>(); // Lignes du journal pas encore remises en file
+    private volatile int enCours; // Mesures retirées de la file mais pas encore écrites
+    private volatile boolean actif;
+    private Thread ecrivain;
+
+    private final AtomicLong acceptees = new AtomicLong();
+    private final AtomicLong refusees = new AtomicLong();
+    private final AtomicLong ecrites = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong rejetees = new AtomicLong();
+    private volatile long derniereLatenceMs;
+    private Timer latenceEcriture;
+    private Counter compteurRefus;
+    private Counter compteurRejets;
+
+    @PostConstruct
+    public void demarrer() {
+        if (!enabled) {
+            return;
+        }
+        ouvrir();
+        ecrivain = new Thread(this::ecrire, "ingestion-mesures");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+    }
+
+    /**
+     * Crée la file et les métriques et ouvre le journal (rejoué s'il existe), sans démarrer l'écrivain
+     */
+    void ouvrir() {
+        file = new ArrayBlockingQueue<>(capacite);
+        Gauge.builder("ruche.ingestion.file", () -> file.size()).description("Mesures en attente d'écriture").register(meterRegistry);
+        latenceEcriture = Timer.builder("ruche.ingestion.ecriture").description("Durée d'écriture d'un lot").register(meterRegistry);
+        compteurRefus = Counter.builder("ruche.ingestion.refus").description("Mesures refusées, file pleine").register(meterRegistry);
+        compteurRejets = Counter.builder("ruche.ingestion.rejets").description("Mesures rejetées, écriture impossible").register(meterRegistry);
+
+        if (!journal.isBlank()) {
+            ouvrirJournal(Paths.get(journal));
+        }
+        actif = true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Délai conseillé au client quand sa mesure est refusée
+     */
+    public long getRetryAfterSecondes() {
+        return retryAfterSecondes;
+    }
+
+    /**
+     * Accepte une mesure pour écriture différée. Renvoie false si la file est pleine.
+     * L'id de la mesure est attribué ici et reste le même jusqu'à l'écriture.
+     */
+    public boolean soumettre(String rucheId, DonneesCapteur mesure) {
+        if (mesure.getId() == null) {
+            mesure.setId(UUID.randomUUID().toString());
+        }
+        mesure.setRucheId(rucheId);
+
+        synchronized (verrouJournal) {
+            if (!file.offer(mesure)) {
+                refusees.incrementAndGet();
+                compteurRefus.increment();
+                return false;
+            }
+            journaliser(mesure);
+        }
+        acceptees.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Compteurs de la file : profondeur, mesures acceptées/refusées/écrites, latence des lots
+     */
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("enabled", enabled);
+        if (!enabled) {
+            return statistiques;
+        }
+        statistiques.put("profondeur", file.size());
+        statistiques.put("capacite", capacite);
+        statistiques.put("enCours", enCours);
+        statistiques.put("acceptees", acceptees.get());
+        statistiques.put("refusees", refusees.get());
+        statistiques.put("ecrites", ecrites.get());
+        statistiques.put("echecs", echecs.get());
+        statistiques.put("rejetees", rejetees.get());
+        statistiques.put("derniereLatenceMs", derniereLatenceMs);
+        statistiques.put("latenceMoyenneMs", latenceEcriture.mean(TimeUnit.MILLISECONDS));
+        statistiques.put("latenceMaxMs", latenceEcriture.max(TimeUnit.MILLISECONDS));
+        statistiques.put("journal", journalWriter != null);
+        return statistiques;
+    }
+
+    /**
+     * Boucle de l'écrivain : attend une mesure, laisse la fenêtre de regroupement se remplir puis écrit le lot
+     */
+    private void ecrire() {
+        List<DonneesCapteur> lot = null;
+        while (actif || !file.isEmpty()) {
+            lot = prendreLot(actif);
+            if (lot != null && !traiterLot(lot)) {
+                break;
+            }
+            lot = null;
+        }
+
+        int restantes = (lot != null ? lot.size() : 0) + file.size();
+        if (restantes > 0) {
+            System.err.println(restantes + " mesures non écrites à l'arrêt"
+                + (journalWriter != null ? ", conservées dans le journal" : ""));
+        }
+    }
+
+    /**
+     * Écrit sur le fil appelant les lots en file jusqu'à la vider, sans fenêtre de regroupement
+     */
+    void traiterFile() {
+        for (List<DonneesCapteur> lot = prendreLot(false); lot != null; lot = prendreLot(false)) {
+            if (!traiterLot(lot)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prochain lot de la file, null si elle est vide. Avec attendre, patiente jusqu'à une seconde pour
+     * la première mesure puis laisse la fenêtre de regroupement se remplir.
+     */
+    private List<DonneesCapteur> prendreLot(boolean attendre) {
+        DonneesCapteur premiere = null;
+        try {
+            premiere = attendre ? file.poll(1, TimeUnit.SECONDS) : file.poll();
+            if (premiere != null && attendre) {
+                Thread.sleep(fenetreMs);
+            }
+        } catch (InterruptedException e) {
+            // Arrêt demandé : fenêtre écourtée, la boucle termine d'écrire ce qui reste
+        }
+        if (premiere == null) {
+            return null;
+        }
+        List<DonneesCapteur> lot = new ArrayList<>();
+        lot.add(premiere);
+        file.drainTo(lot, tailleLot - 1);
+        enCours = lot.size();
+        return lot;
+    }
+
+    /**
+     * Écrit ou met de côté un lot puis vide le journal si tout ce qu'il contient est traité.
+     * Renvoie false si l'arrêt interrompt les reprises : le lot n'est pas écrit mais reste dans le journal.
+     */
+    private boolean traiterLot(List<DonneesCapteur> lot) {
+        if (!ecrireLot(lot, true)) {
+            return false;
+        }
+        enCours = 0;
+        viderJournalSiEcrit();
+        return true;
+    }
+
+    /**
+     * Écrit un lot en réessayant les échecs transitoires ; refusé ou en échec après tentativesMax essais,
+     * il est mis de côté. Un lot refusé qui mêle plusieurs ruches (separable) est réécrit ruche par ruche.
+     */
+    private boolean ecrireLot(List<DonneesCapteur> lot, boolean separable) {
+        Map<String, List<DonneesCapteur>> mesuresParRuche = parRuche(lot);
+        long attente = attenteEchecMs;
+        int tentative = 1;
+        while (true) {
+            try {
+                long debut = System.nanoTime();
+                mesuresService.ajouterMesuresAsync(mesuresParRuche).get(timeoutEcritureSecondes, TimeUnit.SECONDS);
+                long duree = System.nanoTime() - debut;
+
+                latenceEcriture.record(duree, TimeUnit.NANOSECONDS);
+                derniereLatenceMs = TimeUnit.NANOSECONDS.toMillis(duree);
+                ecrites.addAndGet(lot.size());
+                return true;
+
+            } catch (InterruptedException e) {
+                // Arrêt demandé pendant l'attente du résultat : le même lot est attendu à nouveau
+            } catch (Exception e) {
+                echecs.incrementAndGet();
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+
+                if (estRefusee(cause)) {
+                    System.err.println("Écriture refusée pour un lot de " + lot.size() + " mesures: " + cause.getMessage());
+                    if (separable && mesuresParRuche.size() > 1) {
+                        for (List<DonneesCapteur> mesures : mesuresParRuche.values()) {
+                            if (!ecrireLot(mesures, false)) {
+                                return false;
+                            }
+                        }
+                    } else {
+                        rejeter(lot, "écriture refusée: " + cause.getMessage());
+                    }
+                    return true;
+                }
+
+                // Les ids étant conservés, une écriture expirée qui aboutit quand même est simplement réécrite à l'identique
+                System.err.println((cause instanceof TimeoutException ? "Timeout lors de l'écriture d'un lot de " : "Erreur lors de l'écriture d'un lot de ")
+                    + lot.size() + " mesures (tentative " + tentative + "/" + tentativesMax + "): " + cause.getMessage());
+                if (tentative >= tentativesMax) {
+                    rejeter(lot, "échec après " + tentative + " tentatives: " + cause.getMessage());
+                    return true;
+                }
+                if (!actif) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(attente);
+                } catch (InterruptedException ie) {
+                    // Arrêt demandé pendant l'attente
+                }
+                attente = Math.min(attente * 2, 30_000);
+                tentative++;
+            }
+        }
+    }
+
+    /**
+     * Échec définitif : écriture refusée par la base, ou donnée que le stockage ne sait pas écrire
+     */
+    private static boolean estRefusee(Throwable erreur) {
+        for (Throwable t = erreur; t != null; t = t.getCause() != t ? t.getCause() : null) {
+            if (t instanceof Stockage.EcritureRefuseeException || t instanceof IllegalArgumentException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Met de côté un lot qui ne peut pas être écrit : ajouté au journal des rejets s'il est configuré,
+     * au format du journal d'ingestion avec le motif en plus, sinon abandonné
+     */
+    private void rejeter(List<DonneesCapteur> lot, String motif) {
+        rejetees.addAndGet(lot.size());
+        compteurRejets.increment(lot.size());
+        System.err.println(lot.size() + " mesures rejetées (" + motif + ")"
+            + (rejets.isBlank() ? ", abandonnées" : ", ajoutées au journal des rejets"));
+        if (rejets.isBlank()) {
+            return;
+        }
+
+        Path chemin = Paths.get(rejets);
+        try {
+            if (chemin.getParent() != null) {
+                Files.createDirectories(chemin.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(chemin, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (DonneesCapteur mesure : lot) {
+                    Map<String, Object> document = versLigne(mesure);
+                    document.put("motif", motif);
+                    writer.write(objectMapper.writeValueAsString(document));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur d'écriture du journal des rejets: " + e.getMessage());
+        }
+    }
+
+    private Map<String, List<DonneesCapteur>> parRuche(List<DonneesCapteur> lot) {
+        Map<String, List<DonneesCapteur>> mesuresParRuche = new LinkedHashMap<>();
+        for (DonneesCapteur mesure : lot) {
+            mesuresParRuche.computeIfAbsent(mesure.getRucheId(), id -> new ArrayList<>()).add(mesure);
+        }
+        return mesuresParRuche;
+    }
+
+    // --- Journal sur disque ---
+
+    private void ouvrirJournal(Path chemin) {
+        try {
+            if (chemin.getParent() != null) {
+                Files.createDirectories(chemin.getParent());
+            }
+            if (Files.exists(chemin)) {
+                rejouer(chemin);
+            }
+            journalWriter = Files.newBufferedWriter(chemin, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("Impossible d'ouvrir le journal d'ingestion " + chemin, e);
+        }
+    }
+
+    /**
+     * Remet en file les mesures d'un journal laissé par un arrêt précédent ; au-delà de la capacité,
+     * elles attendent dans resteJournal que la file se vide
+     */
+    private void rejouer(Path chemin) throws IOException {
+        synchronized (verrouJournal) {
+            resteJournal.addAll(Files.readAllLines(chemin, StandardCharsets.UTF_8));
+            int rejouees = remettreEnFile();
+            if (rejouees > 0 || !resteJournal.isEmpty()) {
+                System.out.println(rejouees + " mesures rejouées depuis le journal d'ingestion"
+                    + (resteJournal.isEmpty() ? "" : ", " + resteJournal.size() + " en attente de place dans la file"));
+            }
+        }
+    }
+
+    /**
+     * Remet en file autant de lignes en attente que la capacité le permet (appelé sous verrouJournal)
+     */
+    private int remettreEnFile() {
+        int rejouees = 0;
+        while (!resteJournal.isEmpty()) {
+            String ligne = resteJournal.peekFirst();
+            if (!ligne.isBlank()) {
+                DonneesCapteur mesure = lireLigne(ligne);
+                if (mesure != null) {
+                    if (!file.offer(mesure)) {
+                        break;
+                    }
+                    rejouees++;
+                }
+            }
+            resteJournal.pollFirst();
+        }
+        return rejouees;
+    }
+
+    private DonneesCapteur lireLigne(String ligne) {
+        try {
+            Map<String, Object> document = objectMapper.readValue(ligne, new TypeReference<Map<String, Object>>() {});
+            return MesuresService.convertToDonneesCapteur(document, (String) document.get("rucheId"));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ligne du journal d'ingestion ignorée: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ligne de journal d'une mesure : son document Firebase avec son id et sa ruche
+     */
+    private static Map<String, Object> versLigne(DonneesCapteur mesure) {
+        Map<String, Object> document = MesuresService.convertToDocument(mesure);
+        document.put("id", mesure.getId());
+        document.put("rucheId", mesure.getRucheId());
+        return document;
+    }
+
+    private void journaliser(DonneesCapteur mesure) {
+        if (journalWriter == null) {
+            return;
+        }
+        try {
+            journalWriter.write(objectMapper.writeValueAsString(versLigne(mesure)));
+            journalWriter.newLine();
+            journalWriter.flush();
+        } catch (IOException e) {
+            System.err.println("Erreur d'écriture du journal d'ingestion: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vide le journal quand toutes les mesures en file sont écrites dans Firebase. S'il reste une suite
+     * de journal non rejouée, le journal est réécrit avec elle puis elle est remise en file.
+     */
+    private void viderJournalSiEcrit() {
+        if (journalWriter == null) {
+            return;
+        }
+        synchronized (verrouJournal) {
+            if (!file.isEmpty()) {
+                return;
+            }
+            try {
+                journalWriter.close();
+                if (resteJournal.isEmpty()) {
+                    journalWriter = Files.newBufferedWriter(Paths.get(journal), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                    return;
+                }
+                // La suite est écrite à côté puis substituée au journal : un arrêt pendant la réécriture ne perd rien
+                Path chemin = Paths.get(journal);
+                Path suite = chemin.resolveSibling(chemin.getFileName() + ".suite");
+                Files.write(suite, resteJournal, StandardCharsets.UTF_8);
+                Files.move(suite, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                journalWriter = Files.newBufferedWriter(chemin, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                int rejouees = remettreEnFile();
+                System.out.println(rejouees + " mesures rejouées depuis le journal d'ingestion, " + resteJournal.size() + " en attente");
+            } catch (IOException e) {
+                System.err.println("Erreur lors du vidage du journal d'ingestion: " + e.getMessage());
+                try {
+                    journalWriter = Files.newBufferedWriter(Paths.get(journal), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } catch (IOException ie) {
+                    System.err.println("Journal d'ingestion indisponible: " + ie.getMessage());
+                    journalWriter = null;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        if (!enabled || ecrivain == null) {
+            return;
+        }
+        actif = false;
+        ecrivain.interrupt();
+        try {
+            // Dernière chance d'écrire ce qui reste en file
+            ecrivain.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (verrouJournal) {
+            if (journalWriter != null) {
+                try {
+                    journalWriter.close();
+                } catch (IOException e) {
+                    System.err.println("Erreur lors de la fermeture du journal d'ingestion: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
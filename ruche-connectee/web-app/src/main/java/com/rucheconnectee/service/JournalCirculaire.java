@@ -0,0 +1,46 @@
+package com.rucheconnectee.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal borné des derniers éléments publiés : tableau circulaire de capacité fixe,
+ * l'ajout au-delà de la capacité écrase l'élément le plus ancien.
+ */
+final class JournalCirculaire<T> {
+
+    private final Object[] elements;
+    private int debut;
+    private int taille;
+
+    JournalCirculaire(int capacite) {
+        this.elements = new Object[Math.max(capacite, 1)];
+    }
+
+    /**
+     * Ajoute les éléments dans l'ordre de la liste
+     */
+    synchronized void ajouter(List<? extends T> nouveaux) {
+        for (T element : nouveaux) {
+            if (taille < elements.length) {
+                elements[(debut + taille++) % elements.length] = element;
+            } else {
+                elements[debut] = element;
+                debut = (debut + 1) % elements.length;
+            }
+        }
+    }
+
+    /**
+     * Au plus limite derniers éléments, les plus récents d'abord
+     */
+    @SuppressWarnings("unchecked")
+    synchronized List<T> derniers(int limite) {
+        int nombre = Math.max(Math.min(limite, taille), 0);
+        List<T> resultat = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            resultat.add((T) elements[(debut + taille - 1 - i) % elements.length]);
+        }
+        return resultat;
+    }
+}
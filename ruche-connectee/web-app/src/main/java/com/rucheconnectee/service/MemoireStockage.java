@@ -0,0 +1,769 @@
+package com.rucheconnectee.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Stockage en mémoire au modèle de Realtime Database (app.stockage=memoire ou app.use-mock-data=true),
+ * pour faire tourner l'application sans projet Firebase.
+ *
+ * L'arbre est un ensemble de TreeMap imbriquées, tenues dans l'ordre des clés de Firebase (clés entières
+ * d'abord), protégé par un verrou lecture/écriture : les lectures s'exécutent en parallèle, les écritures
+ * seules. Il suit les règles de Firebase : nombres entiers lus en Long, autres nombres en Double, noeuds vides
+ * supprimés et, pour un tri sur un champ : absent, false, true, nombres, textes puis noeuds, à égalité par clé.
+ * Les lectures renvoient une copie figée du résultat.
+ *
+ * Une requête triée par clé lit directement la plage de ses bornes dans la TreeMap (tailMap/subMap, borne
+ * de début exclue pour apres). Une requête triée sur un champ, sans index, parcourt tous les enfants du
+ * noeud puis trie ceux retenus : O(n log n) par lecture, assumé pour un stockage de développement et de test.
+ *
+ * Les futurs et les évènements d'écoute sont délivrés dans l'ordre sur un fil unique, comme le fil
+ * d'évènements du SDK. Après une écriture sous le chemin écouté, seuls les enfants écrits sont comparés
+ * à ce que voit l'écoute ; l'écoute n'est réévaluée entière que pour une écriture du chemin écouté ou d'un
+ * parent, ou si la requête est limitée (premiers/derniers).
+ *
+ * app.stockage.memoire.fichier (optionnel) charge au démarrage un export JSON de la base Firebase.
+ */
+@Component
+@ConditionalOnExpression("'${app.stockage:firebase}' == 'memoire' or ${app.use-mock-data:false}")
+public class MemoireStockage implements Stockage {
+
+    private static final String ALPHABET_CLE = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private static final Comparator<String> ORDRE_CLES = MemoireStockage::comparerCles;
+
+    @Value("${app.stockage.memoire.fichier:}")
+    private String fichier;
+
+    private final NavigableMap<String, Object> racine = new TreeMap<>(ORDRE_CLES);
+    private final List<EcouteMemoire> ecoutes = new ArrayList<>();
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private ExecutorService evenements;
+
+    // Génération des clés push : horodatage + 12 caractères aléatoires incrémentés dans la même milliseconde
+    private final SecureRandom aleatoire = new SecureRandom();
+    private final int[] suffixeCle = new int[12];
+    private long derniereCleMs;
+
+    @PostConstruct
+    public void demarrer() throws IOException {
+        evenements = Executors.newSingleThreadExecutor(tache -> {
+            Thread thread = new Thread(tache, "stockage-memoire");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.println("🗄️ Stockage en mémoire activé - données non persistées");
+
+        if (fichier != null && !fichier.isEmpty()) {
+            try (InputStream entree = Files.newInputStream(Path.of(fichier))) {
+                Object donnees = normaliser(new ObjectMapper().readValue(entree, Object.class));
+                verrou.writeLock().lock();
+                try {
+                    ecrireA(segments(""), donnees);
+                } finally {
+                    verrou.writeLock().unlock();
+                }
+                System.out.println("Stockage en mémoire initialisé depuis " + fichier);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        evenements.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<Noeud> lire(Requete requete) {
+        CompletableFuture<Noeud> future = new CompletableFuture<>();
+        // Verrou partagé : la complétion est soumise avant toute écriture suivante
+        verrou.readLock().lock();
+        try {
+            NoeudMemoire resultat = evaluer(requete);
+            livrer(() -> future.complete(resultat), future);
+        } finally {
+            verrou.readLock().unlock();
+        }
+        return future;
+    }
+
+    @Override
+    public Abonnement ecouter(Requete requete, EcouteurEnfants ecouteur) {
+        EcouteMemoire ecoute = new EcouteMemoire(requete, ecouteur);
+        List<Runnable> initiaux = new ArrayList<>();
+        verrou.writeLock().lock();
+        try {
+            Map<String, Object> enfants = enfants(evaluer(requete));
+            for (Map.Entry<String, Object> enfant : enfants.entrySet()) {
+                NoeudMemoire noeud = new NoeudMemoire(enfant.getKey(), enfant.getValue());
+                initiaux.add(() -> ecouteur.enfantAjoute(noeud));
+            }
+            ecoute.visibles = new LinkedHashMap<>(enfants);
+            ecoutes.add(ecoute);
+            livrer(ecoute, initiaux);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        return () -> {
+            ecoute.active = false;
+            verrou.writeLock().lock();
+            try {
+                ecoutes.remove(ecoute);
+            } finally {
+                verrou.writeLock().unlock();
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<Void> ecrire(String chemin, Object valeur) {
+        return modifier(Collections.singletonMap(chemin, valeur));
+    }
+
+    @Override
+    public CompletableFuture<Void> mettreAJour(String chemin, Map<String, Object> valeurs) {
+        Map<String, Object> chemins = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : valeurs.entrySet()) {
+            chemins.put(chemin + "/" + entry.getKey(), entry.getValue());
+        }
+        return modifier(chemins);
+    }
+
+    @Override
+    public CompletableFuture<Void> supprimer(String chemin) {
+        return modifier(Collections.singletonMap(chemin, null));
+    }
+
+    @Override
+    public synchronized String nouvelleCle(String chemin) {
+        long maintenant = System.currentTimeMillis();
+        if (maintenant == derniereCleMs) {
+            // Même milliseconde : suffixe précédent + 1, pour garder l'ordre chronologique des clés
+            int i = suffixeCle.length - 1;
+            while (i >= 0 && suffixeCle[i] == ALPHABET_CLE.length() - 1) {
+                suffixeCle[i--] = 0;
+            }
+            if (i >= 0) {
+                suffixeCle[i]++;
+            }
+        } else {
+            for (int i = 0; i < suffixeCle.length; i++) {
+                suffixeCle[i] = aleatoire.nextInt(ALPHABET_CLE.length());
+            }
+            derniereCleMs = maintenant;
+        }
+
+        char[] cle = new char[20];
+        long horodatage = maintenant;
+        for (int i = 7; i >= 0; i--) {
+            cle[i] = ALPHABET_CLE.charAt((int) (horodatage % 64));
+            horodatage /= 64;
+        }
+        for (int i = 0; i < suffixeCle.length; i++) {
+            cle[8 + i] = ALPHABET_CLE.charAt(suffixeCle[i]);
+        }
+        return new String(cle);
+    }
+
+    @Override
+    public CompletableFuture<Void> transaction(String chemin, UnaryOperator<Object> miseAJour) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<String> segments = segments(chemin);
+        verrou.writeLock().lock();
+        try {
+            Object nouvelle = normaliser(miseAJour.apply(versValeurLue(valeurA(segments))));
+            ecrireA(segments, nouvelle);
+            livrerEcoutes(notifier(Collections.singletonList(segments)));
+            livrer(() -> future.complete(null), future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        return future;
+    }
+
+    // --- Arbre ---
+
+    /**
+     * Applique des écritures (chemin absolu -> valeur, null pour supprimer) en une seule opération
+     */
+    private CompletableFuture<Void> modifier(Map<String, Object> chemins) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Map<List<String>, Object> normalisees = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Object> entry : chemins.entrySet()) {
+                List<String> segments = segments(entry.getKey());
+                for (String segment : segments) {
+                    // Mêmes caractères interdits que Realtime Database, qui refuse l'écriture entière
+                    if (segment.chars().anyMatch(c -> c == '.' || c == '#' || c == '$' || c == '[' || c == ']')) {
+                        throw new EcritureRefuseeException("Clé invalide: " + segment);
+                    }
+                }
+                normalisees.put(segments, normaliser(entry.getValue()));
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        verrou.writeLock().lock();
+        try {
+            for (Map.Entry<List<String>, Object> entry : normalisees.entrySet()) {
+                ecrireA(entry.getKey(), entry.getValue());
+            }
+            // Soumis sous le verrou : évènements et complétions dans l'ordre des écritures
+            livrerEcoutes(notifier(normalisees.keySet()));
+            livrer(() -> future.complete(null), future);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        return future;
+    }
+
+    private static List<String> segments(String chemin) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : chemin.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private Object valeurA(List<String> segments) {
+        Object courant = racine;
+        for (String segment : segments) {
+            if (!(courant instanceof Map)) {
+                return null;
+            }
+            courant = ((Map<?, ?>) courant).get(segment);
+        }
+        return courant;
+    }
+
+    /**
+     * Écrit une valeur normalisée, crée les noeuds intermédiaires et supprime les noeuds devenus vides
+     */
+    @SuppressWarnings("unchecked")
+    private void ecrireA(List<String> segments, Object valeur) {
+        if (segments.isEmpty()) {
+            racine.clear();
+            if (valeur instanceof Map) {
+                racine.putAll((Map<String, Object>) valeur);
+            }
+            return;
+        }
+
+        List<Map<String, Object>> parents = new ArrayList<>(segments.size());
+        Map<String, Object> courant = racine;
+        for (int i = 0; i < segments.size() - 1; i++) {
+            parents.add(courant);
+            Object enfant = courant.get(segments.get(i));
+            if (!(enfant instanceof Map)) {
+                if (valeur == null) {
+                    return;
+                }
+                enfant = new TreeMap<String, Object>(ORDRE_CLES);
+                courant.put(segments.get(i), enfant);
+            }
+            courant = (Map<String, Object>) enfant;
+        }
+
+        String derniere = segments.get(segments.size() - 1);
+        if (valeur != null) {
+            courant.put(derniere, valeur);
+            return;
+        }
+        courant.remove(derniere);
+        for (int i = parents.size() - 1; i >= 0 && courant.isEmpty(); i--) {
+            parents.get(i).remove(segments.get(i));
+            courant = parents.get(i);
+        }
+    }
+
+    /**
+     * Valeur au format stocké : TreeMap (ordre des clés) de String, Long, Double, Boolean ou String, sans null ni noeud vide
+     */
+    private static Object normaliser(Object valeur) {
+        if (valeur == null || valeur instanceof String || valeur instanceof Boolean) {
+            return valeur;
+        }
+        if (valeur instanceof Number) {
+            return normaliserNombre((Number) valeur);
+        }
+        if (valeur instanceof Character || valeur instanceof Enum) {
+            return valeur instanceof Enum ? ((Enum<?>) valeur).name() : valeur.toString();
+        }
+        if (valeur instanceof Map || valeur instanceof Collection) {
+            Map<String, Object> noeud = new TreeMap<>(ORDRE_CLES);
+            if (valeur instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) valeur).entrySet()) {
+                    Object enfant = normaliser(entry.getValue());
+                    if (enfant != null) {
+                        noeud.put(String.valueOf(entry.getKey()), enfant);
+                    }
+                }
+            } else {
+                int index = 0;
+                for (Object element : (Collection<?>) valeur) {
+                    Object enfant = normaliser(element);
+                    if (enfant != null) {
+                        noeud.put(String.valueOf(index), enfant);
+                    }
+                    index++;
+                }
+            }
+            return noeud.isEmpty() ? null : noeud;
+        }
+        throw new IllegalArgumentException("Type non supporté par le stockage en mémoire: " + valeur.getClass().getName());
+    }
+
+    private static Object normaliserNombre(Number nombre) {
+        if (nombre instanceof Long || nombre instanceof Integer || nombre instanceof Short || nombre instanceof Byte
+                || nombre instanceof BigInteger) {
+            return nombre.longValue();
+        }
+        if (nombre instanceof BigDecimal && ((BigDecimal) nombre).stripTrailingZeros().scale() <= 0) {
+            return nombre.longValue();
+        }
+        double decimal = nombre.doubleValue();
+        // Comme Firebase : un décimal entier est relu en Long
+        if (decimal == Math.rint(decimal) && Math.abs(decimal) < 0x1p53) {
+            return (long) decimal;
+        }
+        return decimal;
+    }
+
+    /**
+     * Copie figée (Map dans l'ordre des clés, déjà celui de l'arbre) d'une valeur stockée
+     */
+    private static Object copier(Object valeur) {
+        if (!(valeur instanceof Map)) {
+            return valeur;
+        }
+        Map<String, Object> copie = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : castMap(valeur).entrySet()) {
+            copie.put(entry.getKey(), copier(entry.getValue()));
+        }
+        return copie;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object valeur) {
+        return (Map<String, Object>) valeur;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableMap<String, Object> castNavigable(Object valeur) {
+        return (NavigableMap<String, Object>) valeur;
+    }
+
+    /**
+     * Valeur rendue au lecteur, comme DataSnapshot.getValue : HashMap modifiable, ou liste
+     * pour un noeud dont les clés sont 0..n-1
+     */
+    private static Object versValeurLue(Object valeur) {
+        if (!(valeur instanceof Map)) {
+            return valeur;
+        }
+        Map<String, Object> noeud = castMap(valeur);
+        boolean liste = true;
+        for (int i = 0; i < noeud.size() && liste; i++) {
+            liste = noeud.containsKey(String.valueOf(i));
+        }
+        if (liste) {
+            List<Object> elements = new ArrayList<>(noeud.size());
+            for (int i = 0; i < noeud.size(); i++) {
+                elements.add(versValeurLue(noeud.get(String.valueOf(i))));
+            }
+            return elements;
+        }
+        Map<String, Object> copie = new HashMap<>();
+        for (Map.Entry<String, Object> entry : noeud.entrySet()) {
+            copie.put(entry.getKey(), versValeurLue(entry.getValue()));
+        }
+        return copie;
+    }
+
+    // --- Requêtes ---
+
+    /**
+     * Résultat figé d'une requête : le noeud entier sans tri, sinon ses enfants filtrés et ordonnés
+     */
+    private NoeudMemoire evaluer(Requete requete) {
+        List<String> segments = segments(requete.getChemin());
+        String cle = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        Object valeur = valeurA(segments);
+        if (requete.getOrdre() == null) {
+            return new NoeudMemoire(cle, copier(valeur));
+        }
+
+        // Les enfants sont parcourus dans l'ordre des clés : le tri stable sur le champ garde cet ordre à égalité
+        List<Map.Entry<String, Object>> enfants = new ArrayList<>();
+        if (valeur instanceof Map) {
+            boolean parCle = Requete.ORDRE_CLE.equals(requete.getOrdre());
+            List<String> champ = parCle ? null : segments(requete.getOrdre());
+            for (Map.Entry<String, Object> entry : candidats(requete, castNavigable(valeur)).entrySet()) {
+                if (parCle || dansBornes(requete, champ, entry.getKey(), entry.getValue())) {
+                    enfants.add(entry);
+                }
+            }
+            if (!parCle) {
+                enfants.sort((a, b) -> comparerValeurs(valeurChamp(a.getValue(), champ), valeurChamp(b.getValue(), champ)));
+            }
+        }
+
+        int debut = 0;
+        int fin = enfants.size();
+        if (requete.getPremiers() != null) {
+            fin = Math.min(fin, requete.getPremiers());
+        }
+        if (requete.getDerniers() != null) {
+            debut = Math.max(debut, fin - requete.getDerniers());
+        }
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> enfant : enfants.subList(debut, fin)) {
+            resultat.put(enfant.getKey(), copier(enfant.getValue()));
+        }
+        return new NoeudMemoire(cle, resultat.isEmpty() ? null : resultat);
+    }
+
+    /**
+     * Enfants à examiner : pour un tri par clé, la plage des bornes lue directement dans l'arbre, sinon tous
+     */
+    private static NavigableMap<String, Object> candidats(Requete requete, NavigableMap<String, Object> noeud) {
+        if (!Requete.ORDRE_CLE.equals(requete.getOrdre())) {
+            return noeud;
+        }
+        String depuis = requete.getDepuis() == null ? null : borneCle(requete.getDepuis());
+        String jusqua = requete.getJusqua() == null ? null : borneCle(requete.getJusqua());
+        boolean depuisInclus = !requete.isDepuisExclue();
+        if (depuis != null && jusqua != null) {
+            int comparaison = comparerCles(depuis, jusqua);
+            return comparaison > 0 || (comparaison == 0 && !depuisInclus)
+                ? Collections.emptyNavigableMap() : noeud.subMap(depuis, depuisInclus, jusqua, true);
+        }
+        if (depuis != null) {
+            return noeud.tailMap(depuis, depuisInclus);
+        }
+        return jusqua != null ? noeud.headMap(jusqua, true) : noeud;
+    }
+
+    private static String borneCle(Object borne) {
+        return String.valueOf(borne instanceof Double ? normaliserNombre((Double) borne) : borne);
+    }
+
+    /**
+     * Vrai si l'enfant est entre les bornes de la requête (champ : segments du champ de tri, null pour un tri par clé)
+     */
+    private static boolean dansBornes(Requete requete, List<String> champ, String cle, Object valeur) {
+        if (requete.getDepuis() != null) {
+            int comparaison = comparerABorne(champ, cle, valeur, requete.getDepuis(), requete.getDepuisCle(), true);
+            if (comparaison < 0 || (comparaison == 0 && requete.isDepuisExclue())) {
+                return false;
+            }
+        }
+        return requete.getJusqua() == null
+                || comparerABorne(champ, cle, valeur, requete.getJusqua(), requete.getJusquaCle(), false) <= 0;
+    }
+
+    /**
+     * Position d'un enfant par rapport à une borne ; sans clé de borne, la borne couvre toutes les clés
+     */
+    private static int comparerABorne(List<String> champ, String cle, Object valeur, Object borne, String borneCle, boolean debut) {
+        if (champ == null) {
+            return comparerCles(cle, borneCle(borne));
+        }
+        int comparaison = comparerValeurs(valeurChamp(valeur, champ), borne);
+        if (comparaison != 0) {
+            return comparaison;
+        }
+        if (borneCle == null) {
+            return debut ? 1 : -1;
+        }
+        return comparerCles(cle, borneCle);
+    }
+
+    private static Object valeurChamp(Object valeur, List<String> champ) {
+        for (String segment : champ) {
+            if (!(valeur instanceof Map)) {
+                return null;
+            }
+            valeur = ((Map<?, ?>) valeur).get(segment);
+        }
+        return valeur;
+    }
+
+    /**
+     * Ordre des valeurs de Firebase : absent, false, true, nombres, textes, noeuds (égaux entre eux)
+     */
+    private static int comparerValeurs(Object a, Object b) {
+        int rang = Integer.compare(rang(a), rang(b));
+        if (rang != 0) {
+            return rang;
+        }
+        if (a instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        return 0;
+    }
+
+    private static int rang(Object valeur) {
+        if (valeur == null) {
+            return 0;
+        }
+        if (valeur instanceof Boolean) {
+            return (Boolean) valeur ? 2 : 1;
+        }
+        if (valeur instanceof Number) {
+            return 3;
+        }
+        return valeur instanceof String ? 4 : 5;
+    }
+
+    /**
+     * Ordre des clés de Firebase : clés entières (32 bits) par valeur, puis les autres par ordre lexicographique
+     */
+    private static int comparerCles(String a, String b) {
+        Integer entierA = Requete.cleEntiere(a);
+        Integer entierB = Requete.cleEntiere(b);
+        if (entierA != null && entierB != null) {
+            return Integer.compare(entierA, entierB);
+        }
+        if (entierA != null || entierB != null) {
+            return entierA != null ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    // --- Écoutes ---
+
+    private static Map<String, Object> enfants(NoeudMemoire noeud) {
+        return noeud.valeur instanceof Map ? castMap(noeud.valeur) : new LinkedHashMap<>();
+    }
+
+    /**
+     * Prépare les évènements des écoutes touchées par des écritures (sous le verrou d'écriture)
+     */
+    private List<Runnable> notifier(Collection<List<String>> chemins) {
+        List<Runnable> aLivrer = new ArrayList<>();
+        for (EcouteMemoire ecoute : ecoutes) {
+            List<String> cheminEcoute = ecoute.chemin;
+            Set<String> enfantsEcrits = new LinkedHashSet<>();
+            boolean complet = false;
+            for (List<String> chemin : chemins) {
+                if (chemin.size() > cheminEcoute.size() && chemin.subList(0, cheminEcoute.size()).equals(cheminEcoute)) {
+                    enfantsEcrits.add(chemin.get(cheminEcoute.size()));
+                } else if (chemin.size() <= cheminEcoute.size() && cheminEcoute.subList(0, chemin.size()).equals(chemin)) {
+                    complet = true;
+                }
+            }
+            if (!complet && enfantsEcrits.isEmpty()) {
+                continue;
+            }
+
+            // Une requête limitée peut faire entrer ou sortir d'autres enfants que ceux écrits
+            List<Runnable> evenementsEcoute = complet || ecoute.requete.getPremiers() != null || ecoute.requete.getDerniers() != null
+                ? reevaluer(ecoute) : comparerEnfants(ecoute, enfantsEcrits);
+            if (!evenementsEcoute.isEmpty()) {
+                aLivrer.add(() -> {
+                    if (ecoute.active) {
+                        evenementsEcoute.forEach(Runnable::run);
+                    }
+                });
+            }
+        }
+        return aLivrer;
+    }
+
+    /**
+     * Évènements des seuls enfants écrits : copie de chacun, comparée à celle que voit l'écoute
+     */
+    private List<Runnable> comparerEnfants(EcouteMemoire ecoute, Set<String> enfantsEcrits) {
+        List<Runnable> evenementsEcoute = new ArrayList<>();
+        Object parent = valeurA(ecoute.chemin);
+        for (String cle : enfantsEcrits) {
+            Object valeur = parent instanceof Map ? castMap(parent).get(cle) : null;
+            boolean visible = valeur != null && dansBornes(ecoute.requete, ecoute.champ, cle, valeur);
+            Object ancien = ecoute.visibles.get(cle);
+            if (!visible) {
+                if (ancien != null) {
+                    ecoute.visibles.remove(cle);
+                    NoeudMemoire noeud = new NoeudMemoire(cle, ancien);
+                    evenementsEcoute.add(() -> ecoute.ecouteur.enfantSupprime(noeud));
+                }
+                continue;
+            }
+            Object copie = copier(valeur);
+            NoeudMemoire noeud = new NoeudMemoire(cle, copie);
+            if (ancien == null) {
+                evenementsEcoute.add(() -> ecoute.ecouteur.enfantAjoute(noeud));
+            } else if (!ancien.equals(copie)) {
+                evenementsEcoute.add(() -> ecoute.ecouteur.enfantModifie(noeud));
+            } else {
+                continue;
+            }
+            ecoute.visibles.put(cle, copie);
+        }
+        return evenementsEcoute;
+    }
+
+    /**
+     * Évènements après réévaluation complète de la requête écoutée
+     */
+    private List<Runnable> reevaluer(EcouteMemoire ecoute) {
+        Map<String, Object> nouveaux = enfants(evaluer(ecoute.requete));
+        List<Runnable> evenementsEcoute = new ArrayList<>();
+        for (Map.Entry<String, Object> ancien : ecoute.visibles.entrySet()) {
+            if (!nouveaux.containsKey(ancien.getKey())) {
+                NoeudMemoire noeud = new NoeudMemoire(ancien.getKey(), ancien.getValue());
+                evenementsEcoute.add(() -> ecoute.ecouteur.enfantSupprime(noeud));
+            }
+        }
+        for (Map.Entry<String, Object> nouveau : nouveaux.entrySet()) {
+            Object ancien = ecoute.visibles.get(nouveau.getKey());
+            NoeudMemoire noeud = new NoeudMemoire(nouveau.getKey(), nouveau.getValue());
+            if (ancien == null) {
+                evenementsEcoute.add(() -> ecoute.ecouteur.enfantAjoute(noeud));
+            } else if (!ancien.equals(nouveau.getValue())) {
+                evenementsEcoute.add(() -> ecoute.ecouteur.enfantModifie(noeud));
+            }
+        }
+        ecoute.visibles = new LinkedHashMap<>(nouveaux);
+        return evenementsEcoute;
+    }
+
+    private void livrer(EcouteMemoire ecoute, List<Runnable> evenementsEcoute) {
+        livrerEcoutes(Collections.singletonList(() -> {
+            if (ecoute.active) {
+                evenementsEcoute.forEach(Runnable::run);
+            }
+        }));
+    }
+
+    private void livrerEcoutes(List<Runnable> evenementsEcoutes) {
+        for (Runnable evenement : evenementsEcoutes) {
+            try {
+                evenements.execute(() -> {
+                    try {
+                        evenement.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Erreur dans un écouteur du stockage en mémoire: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Stockage arrêté : plus d'évènements
+            }
+        }
+    }
+
+    private void livrer(Runnable completion, CompletableFuture<?> future) {
+        try {
+            evenements.execute(completion);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IllegalStateException("Stockage en mémoire arrêté"));
+        }
+    }
+
+    /**
+     * Écoute enregistrée et enfants qu'elle voit actuellement (copies figées)
+     */
+    private static final class EcouteMemoire {
+        private final Requete requete;
+        private final List<String> chemin;
+        private final List<String> champ; // Segments du champ de tri, null sans tri ou pour un tri par clé
+        private final EcouteurEnfants ecouteur;
+        private Map<String, Object> visibles;
+        private volatile boolean active = true;
+
+        private EcouteMemoire(Requete requete, EcouteurEnfants ecouteur) {
+            this.requete = requete;
+            this.chemin = segments(requete.getChemin());
+            this.champ = requete.getOrdre() == null || Requete.ORDRE_CLE.equals(requete.getOrdre())
+                ? null : segments(requete.getOrdre());
+            this.ecouteur = ecouteur;
+        }
+    }
+
+    /**
+     * Noeud lu : copie figée, jamais modifiée après sa création
+     */
+    private static final class NoeudMemoire implements Noeud {
+        private final String cle;
+        private final Object valeur;
+
+        private NoeudMemoire(String cle, Object valeur) {
+            this.cle = cle;
+            this.valeur = valeur;
+        }
+
+        @Override
+        public String getKey() {
+            return cle;
+        }
+
+        @Override
+        public boolean exists() {
+            return valeur != null;
+        }
+
+        @Override
+        public Object getValue() {
+            return versValeurLue(valeur);
+        }
+
+        @Override
+        public Noeud child(String chemin) {
+            List<String> segments = segments(chemin);
+            Object courant = valeur;
+            for (String segment : segments) {
+                courant = courant instanceof Map ? ((Map<?, ?>) courant).get(segment) : null;
+            }
+            return new NoeudMemoire(segments.isEmpty() ? cle : segments.get(segments.size() - 1), courant);
+        }
+
+        @Override
+        public boolean hasChild(String chemin) {
+            return child(chemin).exists();
+        }
+
+        @Override
+        public long getChildrenCount() {
+            return valeur instanceof Map ? ((Map<?, ?>) valeur).size() : 0;
+        }
+
+        @Override
+        public Iterable<Noeud> getChildren() {
+            List<Noeud> enfants = new ArrayList<>();
+            if (valeur instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) valeur).entrySet()) {
+                    enfants.add(new NoeudMemoire(String.valueOf(entry.getKey()), entry.getValue()));
+                }
+            }
+            return enfants;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache mémoire des séries de mesures par ruche, en colonnes compactes (SerieCapteurs).
+ * Chaque ruche consultée est chargée une fois depuis ruche/{rucheId}/historique (fenêtre de rétention)
+ * puis tenue à jour par l'écoute partagée de la ruche (EcoutesHistorique). La taille et l'âge des mesures conservées
+ * sont bornés par ruche, et une ruche non consultée est détachée après une période d'inactivité.
+ */
+@Component
+public class MesuresCache {
+
+    @Autowired
+    private EcoutesHistorique ecoutesHistorique;
+
+    @Value("${app.mesures.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mesures.cache.max-mesures:20000}")
+    private int maxMesures;
+
+    @Value("${app.mesures.cache.retention-jours:31}")
+    private int retentionJours;
+
+    @Value("${app.mesures.cache.inactivite-minutes:30}")
+    private long inactiviteMinutes;
+
+    private final Map<String, SerieRuche> series = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Renvoie la série d'une ruche si elle est chargée et couvre la période commençant à debut (hit).
+     * Sinon compte un miss, lance le chargement de la ruche si besoin et renvoie null.
+     * debut peut être null pour une lecture de la dernière mesure.
+     */
+    public SerieRuche getSerie(String rucheId, LocalDateTime debut) {
+        if (!enabled) {
+            return null;
+        }
+
+        SerieRuche serie = series.computeIfAbsent(rucheId, id -> new SerieRuche(id, maxMesures));
+        serie.derniereConsultation = System.currentTimeMillis();
+        suivre(serie);
+
+        if (serie.isPrete() && (debut == null || !debut.isBefore(serie.getDebutCouverture()))) {
+            hits.incrementAndGet();
+            return serie;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Dernière mesure d'une ruche déjà chargée, sans compter de consultation ni lancer de chargement.
+     * null si la ruche n'est pas en cache ou n'a aucune mesure dans la fenêtre de rétention.
+     */
+    public DonneesCapteur getDerniereMesureChargee(String rucheId) {
+        SerieRuche serie = enabled ? series.get(rucheId) : null;
+        return serie != null && serie.isPrete() ? serie.getDerniereMesure() : null;
+    }
+
+    /**
+     * Compteurs du cache : hits, misses, ruches suivies et mesures en mémoire
+     */
+    public Map<String, Object> getStatistiques() {
+        long nombreMesures = 0;
+        for (SerieRuche serie : series.values()) {
+            nombreMesures += serie.taille();
+        }
+
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("enabled", enabled);
+        statistiques.put("hits", hits.get());
+        statistiques.put("misses", misses.get());
+        statistiques.put("ruches", series.size());
+        statistiques.put("mesures", nombreMesures);
+        return statistiques;
+    }
+
+    /**
+     * Applique la rétention et détache les ruches inactives
+     */
+    @Scheduled(fixedDelayString = "${app.mesures.cache.eviction-ms:60000}")
+    public void evincer() {
+        long limiteInactivite = System.currentTimeMillis() - inactiviteMinutes * 60_000L;
+        LocalDateTime horizon = LocalDateTime.now().minusDays(retentionJours);
+
+        for (Iterator<SerieRuche> it = series.values().iterator(); it.hasNext(); ) {
+            SerieRuche serie = it.next();
+            if (serie.derniereConsultation < limiteInactivite) {
+                it.remove();
+                serie.arreter();
+            } else {
+                serie.evincerAvant(horizon);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        series.values().forEach(SerieRuche::arreter);
+        series.clear();
+    }
+
+    /**
+     * Abonne la série à l'écoute de sa ruche si ce n'est pas déjà fait
+     */
+    private void suivre(SerieRuche serie) {
+        synchronized (serie) {
+            if (serie.ecoute != null) {
+                return;
+            }
+            LocalDateTime horizon = LocalDateTime.now().minusDays(retentionJours).toLocalDate().atStartOfDay();
+            serie.debutCouverture = horizon;
+
+            try {
+                serie.ecoute = ecoutesHistorique.ecouter(serie.rucheId, horizon.toLocalDate(), serie);
+            } catch (RuntimeException e) {
+                System.err.println("Impossible de suivre la ruche " + serie.rucheId + " en cache: " + e.getMessage());
+                series.remove(serie.rucheId, serie);
+                return;
+            }
+        }
+
+        serie.ecoute.getChargement().whenComplete((ok, erreur) -> {
+            if (erreur == null) {
+                serie.terminerChargement();
+            } else {
+                abandonner(serie);
+            }
+        });
+    }
+
+    private void abandonner(SerieRuche serie) {
+        series.remove(serie.rucheId, serie);
+        serie.arreter();
+    }
+
+    /**
+     * Série en mémoire d'une ruche, stockée en colonnes (SerieCapteurs) et ordonnée par horodatage
+     */
+    public final class SerieRuche implements FirebaseService.EcouteurDocuments {
+        private final String rucheId;
+        private final int maxMesures;
+        private final SerieCapteurs mesures = new SerieCapteurs();
+        private LocalDateTime debutCouverture;
+        private volatile EcoutesHistorique.Abonnement ecoute;
+        private volatile boolean prete;
+        private volatile long derniereConsultation = System.currentTimeMillis();
+
+        private SerieRuche(String rucheId, int maxMesures) {
+            this.rucheId = rucheId;
+            this.maxMesures = maxMesures;
+        }
+
+        boolean isPrete() {
+            return prete;
+        }
+
+        synchronized LocalDateTime getDebutCouverture() {
+            return debutCouverture;
+        }
+
+        synchronized int taille() {
+            return mesures.taille();
+        }
+
+        /**
+         * Dernière mesure en mémoire, ou null si aucune mesure dans la fenêtre de rétention
+         */
+        public synchronized DonneesCapteur getDerniereMesure() {
+            return mesures.getDerniere(rucheId);
+        }
+
+        /**
+         * Copie des mesures strictement comprises entre debut et fin
+         */
+        public synchronized SerieCapteurs extraire(LocalDateTime debut, LocalDateTime fin) {
+            return mesures.extraire(debut, fin);
+        }
+
+        @Override
+        public synchronized void documentAjoute(Map<String, Object> document) {
+            if (!prete) {
+                // Chargement initial : ajout en vrac, trié une seule fois à la fin
+                MesuresService.ajouterASerie(mesures, document);
+                return;
+            }
+            DonneesCapteur mesure = MesuresService.convertToDonneesCapteur(document, rucheId);
+            if (!mesure.getTimestamp().isBefore(debutCouverture)) {
+                mesures.ajouter(mesure);
+                limiterTaille();
+            }
+        }
+
+        @Override
+        public synchronized void documentModifie(Map<String, Object> document) {
+            mesures.supprimer((String) document.get("id"));
+            documentAjoute(document);
+        }
+
+        @Override
+        public synchronized void documentSupprime(String documentId) {
+            mesures.supprimer(documentId);
+        }
+
+        @Override
+        public void ecouteAnnulee(String message) {
+            System.err.println("Cache des mesures de la ruche " + rucheId + " abandonné: " + message);
+            abandonner(this);
+        }
+
+        private synchronized void terminerChargement() {
+            mesures.trier();
+            limiterTaille();
+            prete = true;
+        }
+
+        /**
+         * Au-delà de la taille maximale, les plus anciennes sortent et la couverture avance d'autant
+         */
+        private void limiterTaille() {
+            int excedent = mesures.taille() - maxMesures;
+            if (excedent > 0) {
+                debutCouverture = SerieCapteurs.depuisEpochMillis(mesures.getHorodatage(excedent - 1));
+                mesures.supprimerDebut(excedent);
+            }
+        }
+
+        private synchronized void evincerAvant(LocalDateTime horizon) {
+            mesures.supprimerDebut(mesures.premierAPartirDe(SerieCapteurs.versEpochMillis(horizon)));
+            if (debutCouverture.isBefore(horizon)) {
+                debutCouverture = horizon;
+            }
+        }
+
+        private void arreter() {
+            if (ecoute != null) {
+                ecoute.arreter();
+            }
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package com.rucheconnectee.service;
 
 import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import com.rucheconnectee.model.StatistiquesMesures;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /**
  * Service pour la gestion des mesures des capteurs IoT.
@@ -20,72 +36,288 @@ public class MesuresService {
     @Autowired
     private FirebaseService firebaseService;
     
+    @Autowired
+    private MesuresCache mesuresCache;
+    
+    @Autowired
+    private AgregatsMesuresService agregatsMesuresService;
+    
+    @Autowired
+    private SegmentsMesures segmentsMesures;
+    
+    @Autowired
+    private AlertesService alertesService;
+    
+    @Autowired
+    private AnomaliesService anomaliesService;
+    
+    @Autowired
+    private MigrationHorodatageService migrationHorodatageService;
+    
     /**
-     * Récupère la dernière mesure d'une ruche
+     * Horodatage des mesures dont la date ou l'heure est illisible : elles sont classées en tête
+     * de l'historique et n'entrent dans aucune période récente
      */
-    public DonneesCapteur getDerniereMesure(String rucheId) {
+    static final LocalDateTime HORODATAGE_INCONNU = SerieCapteurs.depuisEpochMillis(0);
+    
+    @Value("${app.mesures.delai-resume-ms:10000}")
+    private long delaiResumeMs;
+    
+    @Value("${app.mesures.batch.taille-lot:500}")
+    private int tailleLot;
+    
+    @Value("${app.mesures.apres-ecriture.file:10000}")
+    private int fileApresEcriture;
+    
+    // Traitements qui suivent l'écriture des mesures (réplique, alertes, anomalies, agrégats), dans l'ordre des écritures
+    private ExecutorService apresEcriture;
+    
+    @PostConstruct
+    public void enregistrerDecodeur() {
+        firebaseService.enregistrerDecodeur(DonneesCapteur.class, MesuresService::snapshotToDonneesCapteur);
+        apresEcriture = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(fileApresEcriture), tache -> {
+            Thread thread = new Thread(tache, "mesures-apres-ecriture");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    @PreDestroy
+    public void arreter() {
+        apresEcriture.shutdown();
         try {
-            String path = "ruche/" + rucheId + "/historique";
-            List<Map<String, Object>> mesures = firebaseService.getAllDocuments(path);
-            
-            if (mesures.isEmpty()) {
-                return null;
+            apresEcriture.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Récupère la dernière mesure d'une ruche.
+     * Sert la mesure depuis le cache quand la ruche y est chargée. Sinon lit le pointeur
+     * ruche/{rucheId}/derniere maintenu par ajouterMesure ; pour les historiques écrits sans pointeur,
+     * se limite aux mesures du jour le plus récent.
+     */
+    public CompletableFuture<DonneesCapteur> getDerniereMesureAsync(String rucheId) {
+        MesuresCache.SerieRuche serie = mesuresCache.getSerie(rucheId, null);
+        if (serie != null && serie.getDerniereMesure() != null) {
+            return CompletableFuture.completedFuture(serie.getDerniereMesure());
+        }
+        
+        String path = "ruche/" + rucheId + "/historique";
+        
+        return firebaseService.getDocumentAsync("ruche/" + rucheId, "derniere", DonneesCapteur.class).thenCompose(derniere -> {
+            if (derniere != null) {
+                derniere.setRucheId(rucheId);
+                return CompletableFuture.completedFuture(derniere);
             }
             
-            // Trier par timestamp et prendre la plus récente
-            Optional<Map<String, Object>> derniereMesure = mesures.stream()
-                .max(Comparator.comparing(mesure -> parseDateTime(mesure)));
-            
-            if (derniereMesure.isPresent()) {
-                return convertToDonneesCapteur(derniereMesure.get(), rucheId);
+            return migrationHorodatageService.estMigreeAsync(rucheId).thenCompose(migree -> {
+                if (migree) {
+                    return firebaseService.queryDocumentsAsync(path, "horodatage", null, null, 1, DonneesCapteur.class)
+                        .thenApply(mesures -> mesures.isEmpty() ? null : avecRuche(mesures.get(0), rucheId));
+                }
+                return getDerniereMesureParDateAsync(rucheId);
+            });
+        });
+    }
+    
+    /**
+     * Dernière mesure d'un historique sans horodatage : parmi les mesures du jour le plus récent
+     */
+    private CompletableFuture<DonneesCapteur> getDerniereMesureParDateAsync(String rucheId) {
+        String path = "ruche/" + rucheId + "/historique";
+        
+        return firebaseService.queryDocumentsAsync(path, "date", null, null, 1).thenCompose(dernierJour -> {
+                // Le champ date tel qu'il est stocké : le timestamp décodé peut être inconnu (1970)
+                Object champDate = dernierJour.isEmpty() ? null : dernierJour.get(0).get("date");
+                if (champDate == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                
+                String date = champDate.toString();
+                CompletableFuture<List<DonneesCapteur>> mesures = firebaseService.queryDocumentsAsync(path, "date", date, date, null, DonneesCapteur.class);
+                
+                // Trier par timestamp et prendre la plus récente
+                return mesures.thenApply(liste -> liste.stream()
+                    .max(Comparator.comparing(DonneesCapteur::getTimestamp))
+                    .map(mesure -> avecRuche(mesure, rucheId))
+                    .orElse(null));
+            });
+    }
+    
+    /**
+     * Récupère la dernière mesure d'une ruche
+     */
+    public DonneesCapteur getDerniereMesure(String rucheId) {
+        return attendre(getDerniereMesureAsync(rucheId), "Erreur lors de la récupération de la dernière mesure");
+    }
+    
+    /**
+     * Page de l'historique d'une ruche, de la plus récente à la plus ancienne mesure, strictement avant le
+     * curseur (null = depuis la dernière mesure). Chaque page coûte une requête Firebase bornée :
+     * sur "horodatage" pour les ruches migrées ; sinon sur "date", par jours entiers.
+     */
+    public CompletableFuture<PageMesures> getPageMesuresAsync(String rucheId, Curseur avant, int limite) {
+        return migrationHorodatageService.estMigreeAsync(rucheId).thenCompose(migree -> migree
+            ? lirePageParHorodatageAsync(rucheId, avant, limite)
+            : lirePageParDatesAsync(rucheId, avant, limite,
+                avant != null ? SerieCapteurs.depuisEpochMillis(avant.horodatage).toLocalDate().toString() : null,
+                new HashMap<>()));
+    }
+    
+    private CompletableFuture<PageMesures> lirePageParHorodatageAsync(String rucheId, Curseur avant, int limite) {
+        String path = "ruche/" + rucheId + "/historique";
+        CompletableFuture<List<DonneesCapteur>> lecture;
+        if (avant == null) {
+            lecture = firebaseService.queryDocumentsAsync(path, "horodatage", null, null, limite + 1, DonneesCapteur.class);
+        } else if (avant.cle == null) {
+            lecture = firebaseService.pageDocumentsAsync(path, "horodatage", avant.horodatage - 1, null, limite + 1, DonneesCapteur.class);
+        } else {
+            // Borne incluse : une place de plus pour la mesure du curseur elle-même
+            lecture = firebaseService.pageDocumentsAsync(path, "horodatage", avant.horodatage, avant.cle, limite + 2, DonneesCapteur.class);
+        }
+        return lecture.thenApply(mesures -> PageMesures.depuis(rucheId, mesures, avant, limite));
+    }
+    
+    /**
+     * Page d'un historique sans horodatage. Une requête sur "date" renvoie les limite + 1 dernières mesures
+     * jusqu'à jourFin ; le plus ancien jour de ce lot est relu en entier (l'ordre dans un jour est celui des clés).
+     * Si le curseur écarte trop de mesures, on recommence avant ce jour.
+     */
+    private CompletableFuture<PageMesures> lirePageParDatesAsync(String rucheId, Curseur avant, int limite,
+                                                                String jourFin, Map<String, DonneesCapteur> acquises) {
+        String path = "ruche/" + rucheId + "/historique";
+        
+        return firebaseService.queryDocumentsAsync(path, "date", null, jourFin, limite + 1, DonneesCapteur.class).thenCompose(lot -> {
+            boolean debutAtteint = lot.size() <= limite;
+            if (lot.isEmpty()) {
+                return CompletableFuture.completedFuture(PageMesures.depuis(rucheId, new ArrayList<>(acquises.values()), avant, limite));
             }
             
-            return null;
-        } catch (InterruptedException | TimeoutException e) {
-            throw new RuntimeException("Erreur lors de la récupération de la dernière mesure", e);
+            String premierJour = lot.stream().map(mesure -> mesure.getTimestamp().toLocalDate())
+                .min(Comparator.naturalOrder()).get().toString();
+            CompletableFuture<List<DonneesCapteur>> jourComplet = debutAtteint
+                ? CompletableFuture.completedFuture(List.of())
+                : firebaseService.queryDocumentsAsync(path, "date", premierJour, premierJour, null, DonneesCapteur.class);
+            
+            return jourComplet.thenCompose(jour -> {
+                for (DonneesCapteur mesure : lot) {
+                    acquises.put(mesure.getId(), mesure);
+                }
+                for (DonneesCapteur mesure : jour) {
+                    acquises.put(mesure.getId(), mesure);
+                }
+                acquises.values().removeIf(mesure -> avant != null && !avant.precede(mesure));
+                
+                if (debutAtteint || acquises.size() > limite) {
+                    return CompletableFuture.completedFuture(PageMesures.depuis(rucheId, new ArrayList<>(acquises.values()), avant, limite));
+                }
+                String jourPrecedent = LocalDate.parse(premierJour).minusDays(1).toString();
+                return lirePageParDatesAsync(rucheId, avant, limite, jourPrecedent, acquises);
+            });
+        });
+    }
+    
+    /**
+     * Récupère les mesures d'une ruche pour une période donnée, sous forme de série compacte triée (version asynchrone).
+     * Servies depuis le cache quand il couvre la période, sinon depuis les segments locaux s'ils la couvrent,
+     * sinon par une requête Firebase sur la période.
+     */
+    public CompletableFuture<SerieCapteurs> getSerieParPeriodeAsync(String rucheId, LocalDateTime debut, LocalDateTime fin) {
+        MesuresCache.SerieRuche serie = mesuresCache.getSerie(rucheId, debut);
+        if (serie != null) {
+            return CompletableFuture.completedFuture(serie.extraire(debut, fin));
         }
+        SerieCapteurs segments = segmentsMesures.extraire(rucheId, debut, fin);
+        if (segments != null) {
+            return CompletableFuture.completedFuture(segments);
+        }
+        return lireSerieParPeriodeAsync(rucheId, debut, fin);
     }
     
     /**
-     * Récupère toutes les mesures d'une ruche
+     * Lit les mesures d'une période dans l'historique Firebase : requête exacte sur "horodatage"
+     * pour les ruches migrées, sinon par jours entiers sur "date"
      */
-    public List<DonneesCapteur> getMesuresRuche(String rucheId) {
-        try {
-            String path = "ruche/" + rucheId + "/historique";
-            List<Map<String, Object>> mesures = firebaseService.getAllDocuments(path);
-            
-            return mesures.stream()
-                .map(mesure -> convertToDonneesCapteur(mesure, rucheId))
-                .sorted(Comparator.comparing(DonneesCapteur::getTimestamp).reversed())
-                .collect(Collectors.toList());
-        } catch (InterruptedException | TimeoutException e) {
-            throw new RuntimeException("Erreur lors de la récupération des mesures", e);
+    private CompletableFuture<SerieCapteurs> lireSerieParPeriodeAsync(String rucheId, LocalDateTime debut, LocalDateTime fin) {
+        return migrationHorodatageService.estMigreeAsync(rucheId).thenCompose(migree -> {
+            if (!migree) {
+                return lireSerieParDatesAsync(rucheId, debut, fin);
+            }
+            return firebaseService.queryDocumentsAsync("ruche/" + rucheId + "/historique", "horodatage",
+                    SerieCapteurs.versEpochMillis(debut), SerieCapteurs.versEpochMillis(fin), null, DonneesCapteur.class)
+                .thenApply(mesures -> versSerie(mesures).extraire(debut, fin));
+        });
+    }
+    
+    private CompletableFuture<SerieCapteurs> lireSerieParDatesAsync(String rucheId, LocalDateTime debut, LocalDateTime fin) {
+        // Le champ "date" (yyyy-MM-dd) est triable lexicographiquement : Firebase ne renvoie
+        // que les jours couverts par la période, l'heure est affinée ensuite en mémoire.
+        String path = "ruche/" + rucheId + "/historique";
+        
+        return firebaseService.queryDocumentsAsync(path, "date",
+                debut.toLocalDate().toString(), fin.toLocalDate().toString(), null, DonneesCapteur.class)
+            .thenApply(mesures -> versSerie(mesures).extraire(debut, fin));
+    }
+    
+    private static SerieCapteurs versSerie(List<DonneesCapteur> mesures) {
+        SerieCapteurs serie = new SerieCapteurs(mesures.size());
+        for (DonneesCapteur mesure : mesures) {
+            ajouterASerie(serie, mesure);
         }
+        serie.trier();
+        return serie;
+    }
+    
+    private static DonneesCapteur avecRuche(DonneesCapteur mesure, String rucheId) {
+        mesure.setRucheId(rucheId);
+        return mesure;
+    }
+    
+    /**
+     * Récupère les mesures d'une ruche pour une période donnée (version asynchrone), de la plus récente à la plus ancienne
+     */
+    public CompletableFuture<List<DonneesCapteur>> getMesuresParPeriodeAsync(String rucheId, LocalDateTime debut, LocalDateTime fin) {
+        return getSerieParPeriodeAsync(rucheId, debut, fin).thenApply(serie -> serie.versListeDecroissante(rucheId));
     }
     
     /**
      * Récupère les mesures d'une ruche pour une période donnée
      */
     public List<DonneesCapteur> getMesuresParPeriode(String rucheId, LocalDateTime debut, LocalDateTime fin) {
-        List<DonneesCapteur> toutesMesures = getMesuresRuche(rucheId);
-        
-        return toutesMesures.stream()
-            .filter(mesure -> mesure.getTimestamp().isAfter(debut) && mesure.getTimestamp().isBefore(fin))
-            .collect(Collectors.toList());
+        return attendre(getMesuresParPeriodeAsync(rucheId, debut, fin), "Erreur lors de la récupération des mesures sur la période");
     }
     
     /**
-     * Récupère les mesures des dernières heures
+     * Récupère les mesures des dernières heures sous forme de série compacte triée (version asynchrone)
      */
-    public List<DonneesCapteur> getMesuresRecentes(String rucheId, int nombreHeures) {
+    public CompletableFuture<SerieCapteurs> getSerieRecenteAsync(String rucheId, int nombreHeures) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        return getSerieParPeriodeAsync(rucheId, maintenant.minusHours(nombreHeures), maintenant);
+    }
+    
+    /**
+     * Récupère les mesures des dernières heures (version asynchrone)
+     */
+    public CompletableFuture<List<DonneesCapteur>> getMesuresRecentesAsync(String rucheId, int nombreHeures) {
         LocalDateTime maintenant = LocalDateTime.now();
         LocalDateTime debut = maintenant.minusHours(nombreHeures);
         
-        return getMesuresParPeriode(rucheId, debut, maintenant);
+        return getMesuresParPeriodeAsync(rucheId, debut, maintenant);
     }
     
     /**
-     * Ajoute une nouvelle mesure pour une ruche
+     * Récupère les mesures des dernières heures
+     */
+    public List<DonneesCapteur> getMesuresRecentes(String rucheId, int nombreHeures) {
+        return attendre(getMesuresRecentesAsync(rucheId, nombreHeures), "Erreur lors de la récupération des mesures récentes");
+    }
+    
+    /**
+     * Ajoute une nouvelle mesure pour une ruche.
+     * Met aussi à jour ruche/{rucheId}/derniere si la mesure est plus récente que celle pointée (voir avancerDerniere).
+     * La réplique locale, les alertes, les anomalies et les agrégats sont mis à jour ensuite, sans attendre.
      */
     public DonneesCapteur ajouterMesure(String rucheId, DonneesCapteur nouvelleMesure) {
         try {
@@ -93,26 +325,19 @@ public class MesuresService {
             String mesureId = UUID.randomUUID().toString();
             
             // Préparer les données au format Firebase
-            Map<String, Object> mesureData = new HashMap<>();
-            mesureData.put("date", nouvelleMesure.getTimestamp().toLocalDate().toString());
-            mesureData.put("heure", nouvelleMesure.getTimestamp().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
-            mesureData.put("temperature", nouvelleMesure.getTemperature());
-            mesureData.put("humidity", nouvelleMesure.getHumidity());
-            mesureData.put("couvercle", nouvelleMesure.getCouvercleOuvert() ? "OUVERT" : "FERME");
+            Map<String, Object> mesureData = convertToDocument(nouvelleMesure);
             
-            if (nouvelleMesure.getBatterie() != null) {
-                mesureData.put("batterie", nouvelleMesure.getBatterie());
-            }
-            if (nouvelleMesure.getSignalQualite() != null) {
-                mesureData.put("signalQualite", nouvelleMesure.getSignalQualite());
-            }
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("historique/" + mesureId, mesureData);
+            firebaseService.updateDocument("ruche", rucheId, updates);
+            nouvelleMesure.setId(mesureId);
             
-            // Sauvegarder dans Firebase
-            firebaseService.setDocument("ruche/" + rucheId + "/historique", mesureId, mesureData);
+            // Une mesure tardive ou rejouée ne fait pas reculer le pointeur
+            attendre(avancerDerniere(rucheId, nouvelleMesure), "Erreur lors de la mise à jour de la dernière mesure");
             
             // Retourner la mesure créée avec l'ID
-            nouvelleMesure.setId(mesureId);
             nouvelleMesure.setRucheId(rucheId);
+            apresEcriture(rucheId, Collections.singletonList(nouvelleMesure));
             
             return nouvelleMesure;
         } catch (InterruptedException | TimeoutException e) {
@@ -121,79 +346,368 @@ public class MesuresService {
     }
     
     /**
-     * Récupère des statistiques sur les mesures d'une ruche
+     * Fait pointer ruche/{rucheId}/derniere sur une mesure déjà écrite dans l'historique, dans une transaction,
+     * si elle est plus récente que la mesure pointée : des écritures concurrentes, tardives ou rejouées
+     * ne font jamais reculer le pointeur. À horodatage égal, le pointeur ne change pas.
      */
-    public Map<String, Object> getStatistiquesMesures(String rucheId, int nombreJours) {
+    CompletableFuture<Void> avancerDerniere(String rucheId, DonneesCapteur mesure) {
+        Map<String, Object> derniere = convertToDocument(mesure);
+        derniere.put("id", mesure.getId());
+        long horodatage = SerieCapteurs.versEpochMillis(mesure.getTimestamp());
+        return firebaseService.transactionDocumentAsync("ruche/" + rucheId, "derniere", actuel -> {
+            if (actuel != null && horodatage(actuel) >= horodatage) {
+                return actuel;
+            }
+            return new HashMap<>(derniere);
+        });
+    }
+    
+    /**
+     * Ajoute un lot de mesures pour une ou plusieurs ruches (version asynchrone).
+     * Les mesures sont écrites par lots de app.mesures.batch.taille-lot, chacun en une seule mise à jour
+     * multi-chemins sous "ruche" ; les lots partent en parallèle. Une mesure sans id en reçoit un :
+     * un lot rejoué avec les mêmes id réécrit les mêmes noeuds de l'historique au lieu de les dupliquer.
+     * Une fois l'historique écrit, le pointeur "derniere" de chaque ruche avance sur sa mesure la plus récente
+     * (avancerDerniere) et les traitements qui suivent l'écriture sont mis en file.
+     */
+    public CompletableFuture<Void> ajouterMesuresAsync(Map<String, List<DonneesCapteur>> mesuresParRuche) {
+        List<Map<String, Object>> lots = new ArrayList<>();
+        Map<String, Object> lot = new HashMap<>();
+        
+        for (Map.Entry<String, List<DonneesCapteur>> entry : mesuresParRuche.entrySet()) {
+            String rucheId = entry.getKey();
+            for (DonneesCapteur mesure : entry.getValue()) {
+                if (mesure.getId() == null) {
+                    mesure.setId(UUID.randomUUID().toString());
+                }
+                mesure.setRucheId(rucheId);
+                lot.put(rucheId + "/historique/" + mesure.getId(), convertToDocument(mesure));
+                
+                if (lot.size() >= tailleLot) {
+                    lots.add(lot);
+                    lot = new HashMap<>();
+                }
+            }
+        }
+        if (!lot.isEmpty()) {
+            lots.add(lot);
+        }
+        
+        List<CompletableFuture<Void>> ecritures = new ArrayList<>();
+        for (Map<String, Object> updates : lots) {
+            ecritures.add(firebaseService.updateCheminsAsync("ruche", updates));
+        }
+        
+        return CompletableFuture.allOf(ecritures.toArray(new CompletableFuture[0])).thenCompose(ignore -> {
+            List<CompletableFuture<Void>> pointeurs = new ArrayList<>();
+            mesuresParRuche.forEach((rucheId, mesures) -> {
+                mesures.stream()
+                    .max(Comparator.comparing(DonneesCapteur::getTimestamp))
+                    .ifPresent(plusRecente -> pointeurs.add(avancerDerniere(rucheId, plusRecente)));
+                apresEcriture(rucheId, mesures);
+            });
+            return CompletableFuture.allOf(pointeurs.toArray(new CompletableFuture[0]));
+        });
+    }
+    
+    /**
+     * Met en file les traitements qui suivent l'écriture de mesures d'une ruche : réplique locale, alertes,
+     * anomalies et agrégats. Ils tournent sur un seul thread dédié, dans l'ordre des écritures, hors du fil
+     * d'évènements du stockage ; file pleine, ils sont exécutés par l'appelant.
+     */
+    private void apresEcriture(String rucheId, List<DonneesCapteur> mesures) {
+        apresEcriture.execute(() -> {
+            try {
+                segmentsMesures.enregistrer(rucheId, mesures);
+                alertesService.evaluer(rucheId, mesures);
+                anomaliesService.analyser(rucheId, mesures);
+            } catch (RuntimeException e) {
+                System.err.println("Erreur lors du traitement des mesures écrites pour la ruche " + rucheId + ": " + e.getMessage());
+            }
+            agregatsMesuresService.enregistrer(rucheId, mesures).exceptionally(e -> {
+                System.err.println("Erreur lors de la mise à jour des agrégats de la ruche " + rucheId + ": " + e.getMessage());
+                return null;
+            });
+        });
+    }
+    
+    /**
+     * Ajoute un lot de mesures pour une ou plusieurs ruches
+     */
+    public void ajouterMesures(Map<String, List<DonneesCapteur>> mesuresParRuche) {
+        attendre(ajouterMesuresAsync(mesuresParRuche), "Erreur lors de l'ajout des mesures");
+    }
+    
+    /**
+     * Récupère des statistiques sur les mesures d'une ruche (version asynchrone).
+     * Calculées sur les mesures en cache si la ruche y est chargée, sinon sur les segments locaux s'ils
+     * couvrent la période, sinon à partir des agrégats horaires/journaliers (période alignée sur le début
+     * de l'heure), et en dernier recours sur l'historique.
+     */
+    public CompletableFuture<Map<String, Object>> getStatistiquesMesuresAsync(String rucheId, int nombreJours) {
         LocalDateTime maintenant = LocalDateTime.now();
         LocalDateTime debut = maintenant.minusDays(nombreJours);
         
-        List<DonneesCapteur> mesures = getMesuresParPeriode(rucheId, debut, maintenant);
+        MesuresCache.SerieRuche serie = mesuresCache.getSerie(rucheId, debut);
+        if (serie != null) {
+            return CompletableFuture.completedFuture(StatistiquesMesures.de(serie.extraire(debut, maintenant)).versMap());
+        }
+        SerieCapteurs segments = segmentsMesures.extraire(rucheId, debut, maintenant);
+        if (segments != null) {
+            return CompletableFuture.completedFuture(StatistiquesMesures.de(segments).versMap());
+        }
+        
+        return agregatsMesuresService.getStatistiquesAsync(rucheId, debut, maintenant).thenCompose(statistiques -> {
+            if (statistiques != null) {
+                return CompletableFuture.completedFuture(statistiques.versMap());
+            }
+            return lireSerieParPeriodeAsync(rucheId, debut, maintenant)
+                .thenApply(mesures -> StatistiquesMesures.de(mesures).versMap());
+        });
+    }
+    
+    /**
+     * Récupère des statistiques sur les mesures d'une ruche
+     */
+    public Map<String, Object> getStatistiquesMesures(String rucheId, int nombreJours) {
+        return attendre(getStatistiquesMesuresAsync(rucheId, nombreJours), "Erreur lors du calcul des statistiques");
+    }
+    
+    /**
+     * Récupère, pour plusieurs ruches, la dernière mesure et les statistiques sur nombreJours.
+     * Toutes les lectures sont lancées en même temps : la durée totale est celle de la ruche la plus lente,
+     * bornée par app.mesures.delai-resume-ms. Les ruches non terminées à l'échéance sont renvoyées
+     * avec une erreur, les autres avec leurs données (résultat partiel).
+     * Le décodage et les statistiques de chaque ruche sont calculés sur l'exécuteur de FirebaseService,
+     * en parallèle d'une ruche à l'autre.
+     */
+    public Map<String, ResumeRuche> getResumesRuches(List<String> rucheIds, int nombreJours) {
+        Map<String, CompletableFuture<DonneesCapteur>> dernieres = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Map<String, Object>>> statistiques = new LinkedHashMap<>();
+        
+        for (String rucheId : rucheIds) {
+            dernieres.put(rucheId, lancer(() -> getDerniereMesureAsync(rucheId)));
+            statistiques.put(rucheId, lancer(() -> getStatistiquesMesuresAsync(rucheId, nombreJours)));
+        }
         
-        Map<String, Object> statistiques = new HashMap<>();
-        statistiques.put("nombreMesures", mesures.size());
+        List<CompletableFuture<?>> lectures = new ArrayList<>(dernieres.values());
+        lectures.addAll(statistiques.values());
+        try {
+            CompletableFuture.allOf(lectures.toArray(new CompletableFuture[0])).get(delaiResumeMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Les erreurs et les lectures en retard sont reportées ruche par ruche
+        }
         
-        if (!mesures.isEmpty()) {
-            // Statistiques de température
-            OptionalDouble tempMoyenne = mesures.stream()
-                .filter(m -> m.getTemperature() != null)
-                .mapToDouble(DonneesCapteur::getTemperature)
-                .average();
-            
-            OptionalDouble tempMin = mesures.stream()
-                .filter(m -> m.getTemperature() != null)
-                .mapToDouble(DonneesCapteur::getTemperature)
-                .min();
-                
-            OptionalDouble tempMax = mesures.stream()
-                .filter(m -> m.getTemperature() != null)
-                .mapToDouble(DonneesCapteur::getTemperature)
-                .max();
+        Map<String, ResumeRuche> resumes = new LinkedHashMap<>();
+        for (String rucheId : rucheIds) {
+            ResumeRuche resume = new ResumeRuche(rucheId);
             
-            // Statistiques d'humidité
-            OptionalDouble humMoyenne = mesures.stream()
-                .filter(m -> m.getHumidity() != null)
-                .mapToDouble(DonneesCapteur::getHumidity)
-                .average();
-            
-            OptionalDouble humMin = mesures.stream()
-                .filter(m -> m.getHumidity() != null)
-                .mapToDouble(DonneesCapteur::getHumidity)
-                .min();
-                
-            OptionalDouble humMax = mesures.stream()
-                .filter(m -> m.getHumidity() != null)
-                .mapToDouble(DonneesCapteur::getHumidity)
-                .max();
-            
-            // Ajouter aux statistiques
-            if (tempMoyenne.isPresent()) {
-                statistiques.put("temperatureMoyenne", Math.round(tempMoyenne.getAsDouble() * 10.0) / 10.0);
-                statistiques.put("temperatureMin", Math.round(tempMin.getAsDouble() * 10.0) / 10.0);
-                statistiques.put("temperatureMax", Math.round(tempMax.getAsDouble() * 10.0) / 10.0);
+            CompletableFuture<DonneesCapteur> derniere = dernieres.get(rucheId);
+            if (estTermine(derniere)) {
+                resume.derniereMesure = derniere.join();
+            } else {
+                resume.erreurDerniereMesure = erreur(derniere);
             }
             
-            if (humMoyenne.isPresent()) {
-                statistiques.put("humiditeMoyenne", Math.round(humMoyenne.getAsDouble() * 10.0) / 10.0);
-                statistiques.put("humiditeMin", Math.round(humMin.getAsDouble() * 10.0) / 10.0);
-                statistiques.put("humiditeMax", Math.round(humMax.getAsDouble() * 10.0) / 10.0);
+            CompletableFuture<Map<String, Object>> stats = statistiques.get(rucheId);
+            if (estTermine(stats)) {
+                resume.statistiques = stats.join();
+            } else {
+                resume.erreurStatistiques = erreur(stats);
             }
             
-            // Statistiques sur le couvercle
-            long ouverturesCouvercle = mesures.stream()
-                .filter(m -> m.getCouvercleOuvert() != null && m.getCouvercleOuvert())
-                .count();
-            
-            statistiques.put("ouverturesCouvercle", ouverturesCouvercle);
-            statistiques.put("pourcentageOuvertures", Math.round((double) ouverturesCouvercle / mesures.size() * 100.0));
+            resumes.put(rucheId, resume);
+        }
+        return resumes;
+    }
+    
+    /**
+     * Position dans l'historique d'une ruche : horodatage (millisecondes epoch) et clé de la mesure.
+     * Forme texte "horodatage:cle", ou "horodatage" seul pour tout ce qui précède cet instant.
+     */
+    public static final class Curseur {
+        private final long horodatage;
+        private final String cle;
+        
+        Curseur(long horodatage, String cle) {
+            this.horodatage = horodatage;
+            this.cle = cle;
+        }
+        
+        /**
+         * Lit un curseur : "horodatage:cle", horodatage en millisecondes epoch ou date-heure ISO (yyyy-MM-ddTHH:mm:ss)
+         */
+        public static Curseur parse(String texte) {
+            int separateur = texte.indexOf(':');
+            if (separateur > 0 && texte.substring(0, separateur).chars().allMatch(Character::isDigit)) {
+                return new Curseur(Long.parseLong(texte.substring(0, separateur)), texte.substring(separateur + 1));
+            }
+            if (!texte.isEmpty() && texte.chars().allMatch(Character::isDigit)) {
+                return new Curseur(Long.parseLong(texte), null);
+            }
+            try {
+                return new Curseur(SerieCapteurs.versEpochMillis(LocalDateTime.parse(texte)), null);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Curseur invalide: " + texte);
+            }
+        }
+        
+        static Curseur de(DonneesCapteur mesure) {
+            return new Curseur(SerieCapteurs.versEpochMillis(mesure.getTimestamp()), mesure.getId());
+        }
+        
+        /**
+         * Indique si la mesure vient strictement avant le curseur dans l'ordre (horodatage, clé)
+         */
+        boolean precede(DonneesCapteur mesure) {
+            long horodatageMesure = SerieCapteurs.versEpochMillis(mesure.getTimestamp());
+            if (horodatageMesure != horodatage) {
+                return horodatageMesure < horodatage;
+            }
+            return cle != null && mesure.getId() != null && mesure.getId().compareTo(cle) < 0;
+        }
+        
+        @Override
+        public String toString() {
+            return cle != null ? horodatage + ":" + cle : String.valueOf(horodatage);
+        }
+    }
+    
+    /**
+     * Page de l'historique renvoyée par getPageMesuresAsync ; curseurSuivant est null sur la dernière page
+     */
+    public static class PageMesures {
+        private static final Comparator<DonneesCapteur> PLUS_RECENTE_D_ABORD = Comparator
+            .comparing(DonneesCapteur::getTimestamp)
+            .thenComparing(mesure -> mesure.getId() != null ? mesure.getId() : "")
+            .reversed();
+        
+        private final List<DonneesCapteur> mesures;
+        private final Curseur curseurSuivant;
+        
+        private PageMesures(List<DonneesCapteur> mesures, Curseur curseurSuivant) {
+            this.mesures = mesures;
+            this.curseurSuivant = curseurSuivant;
+        }
+        
+        /**
+         * Trie les mesures lues, écarte celles qui ne précèdent pas le curseur et coupe à limite
+         */
+        static PageMesures depuis(String rucheId, List<DonneesCapteur> lues, Curseur avant, int limite) {
+            List<DonneesCapteur> mesures = new ArrayList<>(lues.size());
+            for (DonneesCapteur mesure : lues) {
+                if (avant == null || avant.precede(mesure)) {
+                    mesure.setRucheId(rucheId);
+                    mesures.add(mesure);
+                }
+            }
+            mesures.sort(PLUS_RECENTE_D_ABORD);
+            if (mesures.size() <= limite) {
+                return new PageMesures(mesures, null);
+            }
+            List<DonneesCapteur> page = new ArrayList<>(mesures.subList(0, limite));
+            return new PageMesures(page, Curseur.de(page.get(limite - 1)));
+        }
+        
+        public List<DonneesCapteur> getMesures() {
+            return mesures;
+        }
+        
+        public Curseur getCurseurSuivant() {
+            return curseurSuivant;
+        }
+    }
+    
+    /**
+     * Résumé d'une ruche renvoyé par getResumesRuches
+     */
+    public static class ResumeRuche {
+        private final String rucheId;
+        private DonneesCapteur derniereMesure;
+        private Map<String, Object> statistiques;
+        private String erreurDerniereMesure;
+        private String erreurStatistiques;
+        
+        ResumeRuche(String rucheId) {
+            this.rucheId = rucheId;
+        }
+        
+        public String getRucheId() {
+            return rucheId;
+        }
+        
+        public DonneesCapteur getDerniereMesure() {
+            return derniereMesure;
         }
         
-        return statistiques;
+        public Map<String, Object> getStatistiques() {
+            return statistiques;
+        }
+        
+        public String getErreurDerniereMesure() {
+            return erreurDerniereMesure;
+        }
+        
+        public String getErreurStatistiques() {
+            return erreurStatistiques;
+        }
+        
+        public boolean hasErreur() {
+            return erreurDerniereMesure != null || erreurStatistiques != null;
+        }
+    }
+    
+    /**
+     * Lance une lecture asynchrone en convertissant une exception immédiate en futur en échec
+     */
+    private <T> CompletableFuture<T> lancer(Supplier<CompletableFuture<T>> lecture) {
+        try {
+            return lecture.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private boolean estTermine(CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+    
+    private String erreur(CompletableFuture<?> future) {
+        if (!future.isDone()) {
+            return "Délai dépassé";
+        }
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return String.valueOf(cause.getMessage());
+        }
+    }
+    
+    /**
+     * Attend le résultat d'une opération asynchrone pour les appelants bloquants
+     */
+    private <T> T attendre(CompletableFuture<T> future, String message) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(message, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(message, e.getCause());
+        }
     }
     
     /**
      * Convertit une mesure Firebase en objet DonneesCapteur
      */
-    private DonneesCapteur convertToDonneesCapteur(Map<String, Object> mesure, String rucheId) {
+    static DonneesCapteur convertToDonneesCapteur(Map<String, Object> mesure, String rucheId) {
         DonneesCapteur donnees = new DonneesCapteur();
         donnees.setId((String) mesure.get("id"));
         donnees.setRucheId(rucheId);
@@ -211,6 +725,10 @@ public class MesuresService {
             donnees.setHumidity(((Number) mesure.get("humidity")).doubleValue());
         }
         
+        if (mesure.get("poids") != null) {
+            donnees.setPoids(((Number) mesure.get("poids")).doubleValue());
+        }
+        
         if (mesure.get("couvercle") != null) {
             String couvercle = (String) mesure.get("couvercle");
             donnees.setCouvercleOuvert("OUVERT".equals(couvercle));
@@ -224,25 +742,136 @@ public class MesuresService {
             donnees.setSignalQualite(((Number) mesure.get("signalQualite")).intValue());
         }
         
+        donnees.setErreur((String) mesure.get("erreur"));
         return donnees;
     }
     
     /**
-     * Parse la date et l'heure depuis les champs Firebase
+     * Convertit une mesure au format Firebase de ruche/{rucheId}/historique
      */
-    private LocalDateTime parseDateTime(Map<String, Object> mesure) {
-        try {
-            String date = (String) mesure.get("date");
-            String heure = (String) mesure.get("heure");
-            
-            if (date != null && heure != null) {
-                return LocalDateTime.parse(date + "T" + heure);
+    static Map<String, Object> convertToDocument(DonneesCapteur mesure) {
+        Map<String, Object> mesureData = new HashMap<>();
+        mesureData.put("horodatage", SerieCapteurs.versEpochMillis(mesure.getTimestamp()));
+        mesureData.put("date", mesure.getTimestamp().toLocalDate().toString());
+        mesureData.put("heure", mesure.getTimestamp().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+        mesureData.put("temperature", mesure.getTemperature());
+        mesureData.put("humidity", mesure.getHumidity());
+        mesureData.put("couvercle", Boolean.TRUE.equals(mesure.getCouvercleOuvert()) ? "OUVERT" : "FERME");
+        
+        if (mesure.getPoids() != null) {
+            mesureData.put("poids", mesure.getPoids());
+        }
+        if (mesure.getBatterie() != null) {
+            mesureData.put("batterie", mesure.getBatterie());
+        }
+        if (mesure.getSignalQualite() != null) {
+            mesureData.put("signalQualite", mesure.getSignalQualite());
+        }
+        if (mesure.getErreur() != null) {
+            mesureData.put("erreur", mesure.getErreur());
+        }
+        return mesureData;
+    }
+    
+    /**
+     * Décodeur des lectures typées : snapshot d'une mesure de ruche/{rucheId}/historique (ou du pointeur
+     * "derniere", qui porte l'id de la mesure) décodé directement, le rucheId est fixé par l'appelant
+     */
+    static DonneesCapteur snapshotToDonneesCapteur(Stockage.Noeud snapshot) {
+        DonneesCapteur donnees = new DonneesCapteur();
+        String id = FirebaseService.texte(snapshot, "id");
+        donnees.setId(id != null ? id : snapshot.getKey());
+        Long horodatage = FirebaseService.entier(snapshot, "horodatage");
+        donnees.setTimestamp(horodatage != null ? SerieCapteurs.depuisEpochMillis(horodatage)
+            : parseDateTime(FirebaseService.texte(snapshot, "date"), FirebaseService.texte(snapshot, "heure")));
+        donnees.setTemperature(FirebaseService.decimal(snapshot, "temperature"));
+        donnees.setHumidity(FirebaseService.decimal(snapshot, "humidity"));
+        donnees.setPoids(FirebaseService.decimal(snapshot, "poids"));
+        
+        String couvercle = FirebaseService.texte(snapshot, "couvercle");
+        if (couvercle != null) {
+            donnees.setCouvercleOuvert("OUVERT".equals(couvercle));
+        }
+        
+        Long batterie = FirebaseService.entier(snapshot, "batterie");
+        if (batterie != null) {
+            donnees.setBatterie(batterie.intValue());
+        }
+        Long signalQualite = FirebaseService.entier(snapshot, "signalQualite");
+        if (signalQualite != null) {
+            donnees.setSignalQualite(signalQualite.intValue());
+        }
+        donnees.setErreur(FirebaseService.texte(snapshot, "erreur"));
+        
+        return donnees;
+    }
+    
+    /**
+     * Mesures dans l'ordre chronologique : la liste elle-même si elle l'est déjà, sinon une copie triée
+     */
+    static List<DonneesCapteur> ordreChronologique(List<DonneesCapteur> mesures) {
+        for (int i = 1; i < mesures.size(); i++) {
+            if (mesures.get(i).getTimestamp().isBefore(mesures.get(i - 1).getTimestamp())) {
+                List<DonneesCapteur> ordonnees = new ArrayList<>(mesures);
+                ordonnees.sort(Comparator.comparing(DonneesCapteur::getTimestamp));
+                return ordonnees;
             }
-            
-            // Fallback pour d'anciens formats
-            return LocalDateTime.now();
-        } catch (Exception e) {
-            return LocalDateTime.now();
         }
+        return mesures;
+    }
+    
+    /**
+     * Ajoute une mesure décodée en fin de série compacte
+     */
+    static void ajouterASerie(SerieCapteurs serie, DonneesCapteur mesure) {
+        serie.ajouterEnFin(mesure.getId(), SerieCapteurs.versEpochMillis(mesure.getTimestamp()),
+            mesure.getTemperature(), mesure.getHumidity(), mesure.getPoids(),
+            mesure.getCouvercleOuvert(), mesure.getBatterie(), mesure.getSignalQualite(), mesure.getErreur());
+    }
+    
+    /**
+     * Ajoute une mesure Firebase en fin de série compacte, sans passer par un DonneesCapteur
+     */
+    static void ajouterASerie(SerieCapteurs serie, Map<String, Object> mesure) {
+        serie.ajouterEnFin((String) mesure.get("id"),
+            horodatage(mesure),
+            mesure.get("temperature") != null ? ((Number) mesure.get("temperature")).doubleValue() : null,
+            mesure.get("humidity") != null ? ((Number) mesure.get("humidity")).doubleValue() : null,
+            mesure.get("poids") != null ? ((Number) mesure.get("poids")).doubleValue() : null,
+            mesure.get("couvercle") != null ? "OUVERT".equals(mesure.get("couvercle")) : null,
+            mesure.get("batterie") != null ? ((Number) mesure.get("batterie")).intValue() : null,
+            mesure.get("signalQualite") != null ? ((Number) mesure.get("signalQualite")).intValue() : null,
+            (String) mesure.get("erreur"));
+    }
+    
+    /**
+     * Horodatage d'une mesure Firebase : le champ "horodatage", sinon les champs date et heure
+     */
+    static LocalDateTime parseDateTime(Map<String, Object> mesure) {
+        return SerieCapteurs.depuisEpochMillis(horodatage(mesure));
+    }
+    
+    /**
+     * Horodatage en millisecondes epoch d'une mesure Firebase, sans passer par un LocalDateTime quand
+     * le champ "horodatage" est présent
+     */
+    static long horodatage(Map<String, Object> mesure) {
+        Object horodatage = mesure.get("horodatage");
+        if (horodatage instanceof Number) {
+            return ((Number) horodatage).longValue();
+        }
+        Object date = mesure.get("date");
+        Object heure = mesure.get("heure");
+        long millis = SerieCapteurs.versEpochMillis(date instanceof String ? (String) date : null,
+            heure instanceof String ? (String) heure : null);
+        return millis != SerieCapteurs.HORODATAGE_INVALIDE ? millis : SerieCapteurs.versEpochMillis(HORODATAGE_INCONNU);
+    }
+    
+    /**
+     * Parse la date et l'heure d'une mesure sans horodatage (format fixe yyyy-MM-dd / HH:mm:ss)
+     */
+    static LocalDateTime parseDateTime(String date, String heure) {
+        long millis = SerieCapteurs.versEpochMillis(date, heure);
+        return millis != SerieCapteurs.HORODATAGE_INVALIDE ? SerieCapteurs.depuisEpochMillis(millis) : HORODATAGE_INCONNU;
     }
 }
@@ -0,0 +1,233 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.SerieCapteurs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Migration en tâche de fond qui ajoute le champ "horodatage" (millisecondes epoch) aux mesures
+ * de ruche/{rucheId}/historique écrites avant son introduction, à partir de leurs champs date/heure.
+ *
+ * Les ruches sont traitées une à une par clé croissante ; la dernière ruche terminée est enregistrée dans
+ * migrations/horodatage, d'où la migration reprend après un arrêt. Une ruche terminée est marquée
+ * ruche/{rucheId}/migrations/horodatage = true : ses lectures par période passent alors par une requête
+ * sur "horodatage". Les mesures dont la date ou l'heure est illisible sont laissées sans horodatage : leur ruche
+ * n'est alors pas marquée (ses lectures restent sur l'historique complet) et figure dans ruchesIncompletes
+ * de l'avancement, avec le nombre de mesures à corriger.
+ */
+@Service
+public class MigrationHorodatageService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Value("${app.mesures.migration-horodatage.auto:false}")
+    private boolean demarrageAuto;
+
+    @Value("${app.mesures.migration-horodatage.taille-lot:500}")
+    private int tailleLot;
+
+    // Ruches migrées (définitif) ; les ruches non migrées sont revérifiées après DELAI_VERIFICATION_MS
+    private final Set<String> ruchesMigrees = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> ruchesNonMigrees = new ConcurrentHashMap<>();
+    private static final long DELAI_VERIFICATION_MS = 5 * 60_000L;
+
+    private volatile Thread tache;
+    private volatile boolean arretDemande;
+    private volatile String derniereRuche;
+    private volatile long ruchesTraitees;
+    private volatile long mesuresMigrees;
+    private volatile long mesuresInvalides;
+    private volatile boolean terminee;
+    private volatile String erreur;
+    private final Map<String, Integer> ruchesIncompletes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void enregistrerDecodeur() {
+        firebaseService.enregistrerDecodeur(RucheAMigrer.class, MigrationHorodatageService::snapshotToRuche);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrerAuto() {
+        if (demarrageAuto) {
+            demarrer();
+        }
+    }
+
+    /**
+     * Indique si les mesures d'une ruche portent toutes leur horodatage (version asynchrone)
+     */
+    public CompletableFuture<Boolean> estMigreeAsync(String rucheId) {
+        if (ruchesMigrees.contains(rucheId)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        Long verification = ruchesNonMigrees.get(rucheId);
+        if (verification != null && System.currentTimeMillis() - verification < DELAI_VERIFICATION_MS) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return firebaseService.getDocumentAsync("ruche/" + rucheId, "migrations").thenApply(migrations -> {
+            boolean migree = migrations != null && Boolean.TRUE.equals(migrations.get("horodatage"));
+            if (migree) {
+                ruchesMigrees.add(rucheId);
+                ruchesNonMigrees.remove(rucheId);
+            } else {
+                ruchesNonMigrees.put(rucheId, System.currentTimeMillis());
+            }
+            return migree;
+        });
+    }
+
+    /**
+     * Lance la migration en tâche de fond, reprise là où elle s'était arrêtée.
+     * Renvoie false si elle est déjà en cours.
+     */
+    public synchronized boolean demarrer() {
+        if (tache != null && tache.isAlive()) {
+            return false;
+        }
+        arretDemande = false;
+        terminee = false;
+        erreur = null;
+        tache = new Thread(this::executer, "migration-horodatage");
+        tache.setDaemon(true);
+        tache.start();
+        return true;
+    }
+
+    /**
+     * Avancement de la migration
+     */
+    public Map<String, Object> getEtat() {
+        Map<String, Object> etat = new HashMap<>();
+        etat.put("enCours", tache != null && tache.isAlive());
+        etat.put("terminee", terminee);
+        etat.put("derniereRuche", derniereRuche);
+        etat.put("ruchesTraitees", ruchesTraitees);
+        etat.put("mesuresMigrees", mesuresMigrees);
+        etat.put("mesuresInvalides", mesuresInvalides);
+        etat.put("ruchesIncompletes", new TreeMap<>(ruchesIncompletes));
+        etat.put("erreur", erreur);
+        return etat;
+    }
+
+    @PreDestroy
+    public void arreter() {
+        arretDemande = true;
+    }
+
+    private void executer() {
+        try {
+            // Reprise après la dernière ruche terminée ; une migration achevée repart du début
+            Map<String, Object> avancement = firebaseService.getDocument("migrations", "horodatage");
+            String curseur = avancement != null && avancement.get("derniereRuche") != null
+                && !Boolean.TRUE.equals(avancement.get("terminee")) ? avancement.get("derniereRuche").toString() : null;
+            derniereRuche = curseur;
+            ruchesIncompletes.clear();
+            if (curseur != null && avancement.get("ruchesIncompletes") instanceof Map) {
+                ((Map<?, ?>) avancement.get("ruchesIncompletes")).forEach((id, nombre) ->
+                    ruchesIncompletes.put(id.toString(), nombre instanceof Number ? ((Number) nombre).intValue() : 0));
+            }
+
+            while (!arretDemande) {
+                // Une ruche par lecture, après la précédente : son historique complet est de toute façon nécessaire
+                List<RucheAMigrer> page = firebaseService.parcourirDocumentsApresAsync("ruche", curseur, 1, RucheAMigrer.class).get();
+                RucheAMigrer ruche = page.isEmpty() ? null : page.get(0);
+                if (ruche == null) {
+                    terminee = true;
+                    enregistrerAvancement(true);
+                    System.out.println("Migration des horodatages terminée: " + mesuresMigrees + " mesures");
+                    return;
+                }
+
+                migrer(ruche);
+                curseur = ruche.id;
+                derniereRuche = ruche.id;
+                ruchesTraitees++;
+                enregistrerAvancement(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            erreur = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            System.err.println("Migration des horodatages interrompue: " + erreur);
+        }
+    }
+
+    private void migrer(RucheAMigrer ruche) throws Exception {
+        String path = "ruche/" + ruche.id + "/historique";
+        Map<String, Object> lot = new HashMap<>();
+        for (Map.Entry<String, Long> entry : ruche.horodatages.entrySet()) {
+            lot.put(entry.getKey() + "/horodatage", entry.getValue());
+            if (lot.size() >= tailleLot) {
+                firebaseService.updateCheminsAsync(path, lot).get();
+                mesuresMigrees += lot.size();
+                lot = new HashMap<>();
+            }
+        }
+        if (!lot.isEmpty()) {
+            firebaseService.updateCheminsAsync(path, lot).get();
+            mesuresMigrees += lot.size();
+        }
+        mesuresInvalides += ruche.invalides;
+
+        if (ruche.invalides > 0) {
+            ruchesIncompletes.put(ruche.id, ruche.invalides);
+            System.err.println("Ruche " + ruche.id + " non marquée migrée: " + ruche.invalides + " mesures sans date/heure lisible");
+            return;
+        }
+        ruchesIncompletes.remove(ruche.id);
+        firebaseService.updateCheminsAsync("ruche/" + ruche.id, Map.of("migrations/horodatage", true)).get();
+        ruchesMigrees.add(ruche.id);
+        ruchesNonMigrees.remove(ruche.id);
+    }
+
+    private void enregistrerAvancement(boolean fin) throws Exception {
+        Map<String, Object> avancement = new HashMap<>();
+        avancement.put("derniereRuche", derniereRuche);
+        avancement.put("terminee", fin);
+        avancement.put("ruchesIncompletes", new HashMap<>(ruchesIncompletes));
+        avancement.put("miseAJour", System.currentTimeMillis());
+        firebaseService.setDocumentAsync("migrations", "horodatage", avancement).get();
+    }
+
+    /**
+     * Décodeur d'une ruche à migrer : ne retient que les mesures sans horodatage
+     */
+    private static RucheAMigrer snapshotToRuche(Stockage.Noeud snapshot) {
+        RucheAMigrer ruche = new RucheAMigrer(snapshot.getKey());
+        for (Stockage.Noeud mesure : snapshot.child("historique").getChildren()) {
+            if (mesure.hasChild("horodatage")) {
+                continue;
+            }
+            long horodatage = SerieCapteurs.versEpochMillis(
+                FirebaseService.texte(mesure, "date"), FirebaseService.texte(mesure, "heure"));
+            if (horodatage == SerieCapteurs.HORODATAGE_INVALIDE) {
+                ruche.invalides++;
+            } else {
+                ruche.horodatages.put(mesure.getKey(), horodatage);
+            }
+        }
+        return ruche;
+    }
+
+    private static final class RucheAMigrer {
+        private final String id;
+        private final Map<String, Long> horodatages = new HashMap<>();
+        private int invalides;
+
+        private RucheAMigrer(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.rucheconnectee.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Roue temporelle hachée : chaque échéance est rangée dans la case de son pas (pasMs millisecondes),
+ * modulo le nombre de cases. Planifier est en O(1) ; avancer ne parcourt que les cases des pas écoulés,
+ * une échéance plus lointaine qu'un tour de roue reste dans sa case jusqu'au tour où elle arrive.
+ *
+ * Pas d'annulation : l'élément échu vérifie lui-même s'il est encore d'actualité.
+ * Les éléments échus sont remis à l'appelant hors du verrou de la roue.
+ */
+final class RoueTemporelle<T> {
+
+    private final long pasMs;
+    private final int masque;
+    private final List<Echeance<T>>[] cases;
+    private long curseur; // Prochain pas à traiter
+    private int taille;
+
+    @SuppressWarnings("unchecked")
+    RoueTemporelle(long pasMs, int nombreCases, long maintenantMs) {
+        int puissance = Integer.highestOneBit(Math.max(nombreCases - 1, 1)) << 1;
+        this.pasMs = pasMs;
+        this.masque = puissance - 1;
+        this.cases = new List[puissance];
+        for (int i = 0; i < puissance; i++) {
+            cases[i] = new ArrayList<>();
+        }
+        this.curseur = maintenantMs / pasMs;
+    }
+
+    /**
+     * Planifie un élément pour l'instant echeanceMs (epoch) ; une échéance passée échoit au prochain pas
+     */
+    synchronized void planifier(T element, long echeanceMs) {
+        long pas = Math.max((echeanceMs + pasMs - 1) / pasMs, curseur);
+        cases[(int) (pas & masque)].add(new Echeance<>(element, pas));
+        taille++;
+    }
+
+    /**
+     * Traite les pas écoulés jusqu'à maintenantMs et passe les éléments échus à echu
+     */
+    void avancer(long maintenantMs, Consumer<T> echu) {
+        List<T> echus = new ArrayList<>();
+        synchronized (this) {
+            long cible = maintenantMs / pasMs;
+            if (cible < curseur) {
+                return;
+            }
+            // Après une longue pause, un seul passage sur toutes les cases suffit
+            long dernier = Math.min(cible, curseur + masque);
+            for (long pas = curseur; pas <= dernier; pas++) {
+                vider(cases[(int) (pas & masque)], cible, echus);
+            }
+            curseur = cible + 1;
+        }
+        echus.forEach(echu);
+    }
+
+    synchronized int taille() {
+        return taille;
+    }
+
+    /**
+     * Retire d'une case les échéances arrivées au pas cible (retrait par échange avec la dernière)
+     */
+    private void vider(List<Echeance<T>> cas, long cible, List<T> echus) {
+        for (int i = cas.size() - 1; i >= 0; i--) {
+            Echeance<T> echeance = cas.get(i);
+            if (echeance.pas <= cible) {
+                echus.add(echeance.element);
+                int dernier = cas.size() - 1;
+                cas.set(i, cas.get(dernier));
+                cas.remove(dernier);
+                taille--;
+            }
+        }
+    }
+
+    private static final class Echeance<T> {
+        private final T element;
+        private final long pas;
+
+        private Echeance(T element, long pas) {
+            this.element = element;
+            this.pas = pas;
+        }
+    }
+}
@@ -2,17 +2,16 @@ package com.rucheconnectee.service;
 
 import com.rucheconnectee.model.RuchersNew;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import jakarta.annotation.PostConstruct;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
 
 @Service
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class RuchersNewService {
 
     private static final String COLLECTION = "RuchersNew";
@@ -20,14 +19,14 @@ public class RuchersNewService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @PostConstruct
+    public void enregistrerDecodeur() {
+        firebaseService.enregistrerDecodeur(RuchersNew.class, RuchersNewService::snapshotToModel);
+    }
+
     public List<RuchersNew> findAll() {
         try {
-            List<Map<String, Object>> docs = firebaseService.getAllDocuments(COLLECTION);
-            List<RuchersNew> result = new ArrayList<>();
-            for (Map<String, Object> doc : docs) {
-                result.add(documentToModel((String) doc.get("id"), doc));
-            }
-            return result;
+            return firebaseService.getAllDocuments(COLLECTION, RuchersNew.class);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la récupération des ruchers", e);
         }
@@ -35,9 +34,7 @@ public class RuchersNewService {
 
     public RuchersNew findById(String id) {
         try {
-            Map<String, Object> doc = firebaseService.getDocument(COLLECTION, id);
-            if (doc == null) return null;
-            return documentToModel(id, doc);
+            return firebaseService.getDocument(COLLECTION, id, RuchersNew.class);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la récupération du rucher", e);
         }
@@ -71,13 +68,11 @@ public class RuchersNewService {
         }
     }
 
-    private RuchersNew documentToModel(String id, Map<String, Object> doc) {
+    private static RuchersNew snapshotToModel(Stockage.Noeud snapshot) {
         RuchersNew m = new RuchersNew();
-        m.setId(id);
-        Object nom = doc.get("nom");
-        Object description = doc.get("description");
-        m.setNom(nom != null ? String.valueOf(nom) : null);
-        m.setDescription(description != null ? String.valueOf(description) : null);
+        m.setId(snapshot.getKey());
+        m.setNom(FirebaseService.texte(snapshot, "nom"));
+        m.setDescription(FirebaseService.texte(snapshot, "description"));
         return m;
     }
 
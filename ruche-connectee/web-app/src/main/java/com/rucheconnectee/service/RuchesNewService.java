@@ -2,10 +2,10 @@ package com.rucheconnectee.service;
 
 import com.rucheconnectee.model.RuchesNew;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import jakarta.annotation.PostConstruct;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,7 +15,6 @@ import java.util.concurrent.TimeoutException;
  * Service CRUD pour la collection "RuchesNew" dans Firebase Realtime Database.
  */
 @Service
-@ConditionalOnProperty(name = "app.use-mock-data", havingValue = "false", matchIfMissing = true)
 public class RuchesNewService {
 
     private static final String COLLECTION = "RuchesNew";
@@ -23,14 +22,14 @@ public class RuchesNewService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @PostConstruct
+    public void enregistrerDecodeur() {
+        firebaseService.enregistrerDecodeur(RuchesNew.class, RuchesNewService::snapshotToModel);
+    }
+
     public List<RuchesNew> findAll() {
         try {
-            List<Map<String, Object>> docs = firebaseService.getAllDocuments(COLLECTION);
-            List<RuchesNew> result = new ArrayList<>();
-            for (Map<String, Object> doc : docs) {
-                result.add(documentToModel((String) doc.get("id"), doc));
-            }
-            return result;
+            return firebaseService.getAllDocuments(COLLECTION, RuchesNew.class);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la récupération de la liste RuchesNew", e);
         }
@@ -38,14 +37,20 @@ public class RuchesNewService {
 
     public RuchesNew findById(String id) {
         try {
-            Map<String, Object> doc = firebaseService.getDocument(COLLECTION, id);
-            if (doc == null) return null;
-            return documentToModel(id, doc);
+            return firebaseService.getDocument(COLLECTION, id, RuchesNew.class);
         } catch (InterruptedException | TimeoutException e) {
             throw new RuntimeException("Erreur lors de la récupération RuchesNew", e);
         }
     }
 
+    public List<RuchesNew> findByRucherId(String rucherId) {
+        try {
+            return firebaseService.getDocuments(COLLECTION, "rucherId", rucherId, RuchesNew.class);
+        } catch (InterruptedException | TimeoutException e) {
+            throw new RuntimeException("Erreur lors de la récupération des RuchesNew du rucher", e);
+        }
+    }
+
     public RuchesNew create(RuchesNew ruche) {
         try {
             String id = firebaseService.addDocument(COLLECTION, modelToMap(ruche));
@@ -74,17 +79,13 @@ public class RuchesNewService {
         }
     }
 
-    private RuchesNew documentToModel(String id, Map<String, Object> doc) {
+    private static RuchesNew snapshotToModel(Stockage.Noeud snapshot) {
         RuchesNew m = new RuchesNew();
-        m.setId(id);
-        Object nom = doc.get("nom");
-        Object ruchesid = doc.get("ruchesid");
-        Object description = doc.get("description");
-        Object rucherId = doc.get("rucherId");
-        m.setNom(nom != null ? String.valueOf(nom) : null);
-        m.setRuchesid(ruchesid != null ? String.valueOf(ruchesid) : null);
-        m.setDescription(description != null ? String.valueOf(description) : null);
-        m.setRucherId(rucherId != null ? String.valueOf(rucherId) : null);
+        m.setId(snapshot.getKey());
+        m.setNom(FirebaseService.texte(snapshot, "nom"));
+        m.setRuchesid(FirebaseService.texte(snapshot, "ruchesid"));
+        m.setDescription(FirebaseService.texte(snapshot, "description"));
+        m.setRucherId(FirebaseService.texte(snapshot, "rucherId"));
         return m;
     }
 
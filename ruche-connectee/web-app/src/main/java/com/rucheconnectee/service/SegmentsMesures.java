@@ -0,0 +1,686 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réplique locale en lecture de l'historique des mesures, dans des fichiers de segments par ruche
+ * (app.mesures.segments.enabled, désactivée par défaut).
+ *
+ * Chaque ruche a un dossier {repertoire}/{rucheId} avec un segment par jour UTC ({yyyy-MM-dd}.seg) :
+ * un en-tête puis des enregistrements binaires de taille fixe, ajoutés en fin de fichier et jamais modifiés.
+ * Les segments sont projetés en mémoire (FileChannel.map) : les lectures décodent directement les pages du
+ * fichier, sans copie intermédiaire. Un index creux (horodatage min/max par bloc d'enregistrements, tenu
+ * en mémoire) évite de parcourir les blocs hors de la période demandée.
+ *
+ * Le message d'erreur d'une mesure, rare, ne tient pas dans l'enregistrement : un bit de présence le signale
+ * et le texte est ajouté à un fichier voisin ({yyyy-MM-dd}.err, identifiant et message).
+ *
+ * La réplique est alimentée par l'ingestion (MesuresService) et, comme MesuresCache, par l'écoute partagée
+ * de ruche/{rucheId}/historique (EcoutesHistorique) à laquelle elle s'abonne au premier accès à la ruche.
+ * Au premier suivi, l'abonnement part de app.mesures.segments.backfill-jours ; ensuite (redémarrage, ruche
+ * évincée puis consultée à nouveau), du jour de début de la couverture, pour rattraper les mesures ajoutées
+ * à Firebase pendant que la ruche n'était pas suivie. Ce jour est ramené au début de l'écoute partagée,
+ * la couverture avançant alors d'autant. La ruche est servie à partir du début de sa couverture
+ * (fichier {rucheId}/couverture) une fois l'écoute chargée. Les mesures déjà présentes (même identifiant
+ * dans le segment du jour) sont ignorées ; les modifications et suppressions dans Firebase ne sont pas
+ * répercutées. Une ruche non consultée depuis app.mesures.segments.inactivite-minutes est évincée :
+ * écoute arrêtée, projections et index libérés (les fichiers restent sur disque).
+ */
+@Component
+public class SegmentsMesures {
+
+    private static final int MAGIC = 0x52554348; // "RUCH"
+    private static final int VERSION = 1;
+    private static final int TAILLE_ENTETE = 64;
+    private static final int POSITION_NOMBRE = 16;
+    private static final int TAILLE_ENREGISTREMENT = 64;
+    private static final int TAILLE_BLOC = 128;
+    private static final int LONGUEUR_ID_MAX = 37;
+    private static final int LONGUEUR_ERREUR_MAX = 1024;
+    private static final long MS_PAR_JOUR = 86_400_000L;
+
+    // Enregistrement : horodatage, valeurs, bits de présence, identifiant ASCII
+    private static final int OFF_HORODATAGE = 0;
+    private static final int OFF_TEMPERATURE = 8;
+    private static final int OFF_HUMIDITE = 12;
+    private static final int OFF_POIDS = 16;
+    private static final int OFF_BATTERIE = 20;
+    private static final int OFF_SIGNAL = 22;
+    private static final int OFF_PRESENCE = 24;
+    private static final int OFF_LONGUEUR_ID = 26;
+    private static final int OFF_ID = 27;
+
+    private static final int TEMPERATURE = 1;
+    private static final int HUMIDITE = 1 << 1;
+    private static final int POIDS = 1 << 2;
+    private static final int BATTERIE = 1 << 3;
+    private static final int SIGNAL = 1 << 4;
+    private static final int COUVERCLE = 1 << 5;
+    private static final int COUVERCLE_OUVERT = 1 << 6;
+    private static final int ERREUR = 1 << 7;
+
+    @Autowired
+    private EcoutesHistorique ecoutesHistorique;
+
+    @Value("${app.mesures.segments.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.mesures.segments.repertoire:data/segments}")
+    private String repertoire;
+
+    @Value("${app.mesures.segments.backfill-jours:31}")
+    private int backfillJours;
+
+    @Value("${app.mesures.segments.capacite-initiale:2048}")
+    private int capaciteInitiale;
+
+    @Value("${app.mesures.segments.inactivite-minutes:30}")
+    private long inactiviteMinutes;
+
+    private final Map<String, ReplicaRuche> ruches = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Lecteur des mesures d'une ruche, appelé segment par segment
+     */
+    @FunctionalInterface
+    public interface LecteurSegment {
+        void lire(SerieCapteurs mesures) throws IOException;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mesures strictement comprises entre debut et fin, triées, si la réplique de la ruche est prête
+     * et couvre la période (hit). Sinon compte un miss, lance le suivi de la ruche si besoin et renvoie null.
+     */
+    public SerieCapteurs extraire(String rucheId, LocalDateTime debut, LocalDateTime fin) {
+        long min = SerieCapteurs.versEpochMillis(debut) + 1;
+        long max = SerieCapteurs.versEpochMillis(fin) - 1;
+        ReplicaRuche ruche = couvrant(rucheId, min);
+        if (ruche == null) {
+            return null;
+        }
+        SerieCapteurs mesures = new SerieCapteurs();
+        for (Segment segment : ruche.segments(min, max)) {
+            segment.lire(min, max, mesures);
+        }
+        mesures.trier();
+        return mesures;
+    }
+
+    /**
+     * Vrai si la réplique de la ruche est prête et couvre les mesures à partir de debut (millisecondes epoch)
+     */
+    public boolean couvre(String rucheId, long debut) {
+        return couvrant(rucheId, debut) != null;
+    }
+
+    /**
+     * Transmet les mesures entre debut et fin (millisecondes epoch, incluses) jour par jour, chaque jour trié :
+     * la mémoire utilisée ne dépend que du nombre de mesures d'un jour. À appeler après couvre.
+     */
+    public void parcourir(String rucheId, long debut, long fin, LecteurSegment lecteur) throws IOException {
+        ReplicaRuche ruche = ruches.get(rucheId);
+        if (ruche == null) {
+            return;
+        }
+        ruche.derniereConsultation = System.currentTimeMillis();
+        for (Segment segment : ruche.segments(debut, fin)) {
+            SerieCapteurs mesures = new SerieCapteurs();
+            segment.lire(debut, fin, mesures);
+            if (mesures.taille() > 0) {
+                mesures.trier();
+                lecteur.lire(mesures);
+            }
+        }
+    }
+
+    /**
+     * Ajoute des mesures écrites par l'ingestion et lance le suivi de la ruche si besoin
+     */
+    public void enregistrer(String rucheId, List<DonneesCapteur> mesures) {
+        if (!enabled) {
+            return;
+        }
+        ReplicaRuche ruche = ruche(rucheId);
+        if (ruche == null) {
+            return;
+        }
+        for (DonneesCapteur mesure : mesures) {
+            ruche.ajouter(mesure);
+        }
+    }
+
+    /**
+     * Compteurs de la réplique : hits, misses, ruches suivies et mesures répliquées
+     */
+    public Map<String, Object> getStatistiques() {
+        long nombreMesures = 0;
+        long nombreSegments = 0;
+        for (ReplicaRuche ruche : ruches.values()) {
+            for (Segment segment : ruche.segments(Long.MIN_VALUE, Long.MAX_VALUE)) {
+                nombreMesures += segment.nombre();
+                nombreSegments++;
+            }
+        }
+
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("enabled", enabled);
+        statistiques.put("hits", hits.get());
+        statistiques.put("misses", misses.get());
+        statistiques.put("ruches", ruches.size());
+        statistiques.put("segments", nombreSegments);
+        statistiques.put("mesures", nombreMesures);
+        return statistiques;
+    }
+
+    /**
+     * Écrit sur disque les pages modifiées des segments
+     */
+    @Scheduled(fixedDelayString = "${app.mesures.segments.force-ms:60000}")
+    public void forcer() {
+        for (ReplicaRuche ruche : ruches.values()) {
+            for (Segment segment : ruche.segments(Long.MIN_VALUE, Long.MAX_VALUE)) {
+                segment.forcer();
+            }
+        }
+    }
+
+    /**
+     * Évince les ruches non consultées depuis app.mesures.segments.inactivite-minutes
+     */
+    @Scheduled(fixedDelayString = "${app.mesures.segments.eviction-ms:60000}")
+    public void evincer() {
+        long limiteInactivite = System.currentTimeMillis() - inactiviteMinutes * 60_000L;
+        for (Iterator<ReplicaRuche> it = ruches.values().iterator(); it.hasNext(); ) {
+            ReplicaRuche ruche = it.next();
+            if (ruche.derniereConsultation < limiteInactivite) {
+                it.remove();
+                ruche.fermer();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        ruches.values().forEach(ReplicaRuche::arreter);
+        forcer();
+        ruches.clear();
+    }
+
+    private ReplicaRuche couvrant(String rucheId, long debut) {
+        if (!enabled) {
+            return null;
+        }
+        ReplicaRuche ruche = ruche(rucheId);
+        if (ruche != null && ruche.prete && debut >= ruche.couverture) {
+            hits.incrementAndGet();
+            return ruche;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Réplique de la ruche, ouverte et suivie au premier accès ; null si elle ne peut pas être ouverte
+     * ou si l'identifiant ne peut pas servir de nom de dossier
+     */
+    private ReplicaRuche ruche(String rucheId) {
+        if (rucheId.isEmpty() || rucheId.contains("/") || rucheId.contains("\\") || rucheId.startsWith(".")) {
+            return null;
+        }
+        ReplicaRuche ruche;
+        try {
+            ruche = ruches.computeIfAbsent(rucheId, id -> {
+                try {
+                    return new ReplicaRuche(id, Path.of(repertoire, id));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            System.err.println("Impossible d'ouvrir les segments de la ruche " + rucheId + ": " + e.getMessage());
+            return null;
+        }
+        ruche.derniereConsultation = System.currentTimeMillis();
+        suivre(ruche);
+        return ruche;
+    }
+
+    /**
+     * Abonne la ruche à son écoute partagée si ce n'est pas déjà fait
+     */
+    private void suivre(ReplicaRuche ruche) {
+        long debutCouverture;
+        EcoutesHistorique.Abonnement ecoute;
+        synchronized (ruche) {
+            if (ruche.ecoute != null || ruche.fermee) {
+                return;
+            }
+            // Reprise au début de la couverture (doublons ignorés) : les mesures ajoutées à Firebase pendant
+            // que la ruche n'était pas suivie sont rattrapées, quel que soit leur jour. Sinon remplissage initial.
+            LocalDate debutEcoute;
+            if (ruche.couverture != Long.MAX_VALUE) {
+                debutCouverture = ruche.couverture;
+                debutEcoute = SerieCapteurs.depuisEpochMillis(debutCouverture).toLocalDate();
+            } else {
+                debutEcoute = LocalDate.now().minusDays(backfillJours);
+                debutCouverture = SerieCapteurs.versEpochMillis(debutEcoute.atStartOfDay());
+            }
+
+            try {
+                ecoute = ecoutesHistorique.ecouter(ruche.rucheId, debutEcoute, ruche);
+                ruche.ecoute = ecoute;
+            } catch (RuntimeException e) {
+                System.err.println("Impossible de suivre la ruche " + ruche.rucheId + " en segments: " + e.getMessage());
+                return;
+            }
+            // Reprise plus ancienne que l'écoute partagée : les jours manquants ne sont plus couverts
+            if (ecoute.getDebut().isAfter(debutEcoute)) {
+                debutCouverture = Math.max(debutCouverture, SerieCapteurs.versEpochMillis(ecoute.getDebut().atStartOfDay()));
+            }
+        }
+
+        long couverture = debutCouverture;
+        ecoute.getChargement().whenComplete((ok, erreur) -> {
+            if (ruche.ecoute != ecoute) {
+                return;
+            }
+            if (erreur != null) {
+                System.err.println("Chargement des segments de la ruche " + ruche.rucheId + " échoué: " + erreur.getMessage());
+                ruche.arreter();
+                return;
+            }
+            try {
+                ruche.couvrirDepuis(couverture);
+            } catch (IOException e) {
+                System.err.println("Impossible d'enregistrer la couverture de la ruche " + ruche.rucheId + ": " + e.getMessage());
+                ruche.arreter();
+            }
+        });
+    }
+
+    /**
+     * Segments, couverture et écoute d'une ruche
+     */
+    private final class ReplicaRuche implements FirebaseService.EcouteurDocuments {
+        private final String rucheId;
+        private final Path dossier;
+        private final Path fichierCouverture;
+        private final TreeMap<Long, Segment> segments = new TreeMap<>();
+        // Début de la période complète dans la réplique ; MAX_VALUE tant que le remplissage initial n'est pas fait
+        private volatile long couverture = Long.MAX_VALUE;
+        private volatile boolean prete;
+        private volatile EcoutesHistorique.Abonnement ecoute;
+        private volatile long derniereConsultation = System.currentTimeMillis();
+        // Évincée : plus suivie ni alimentée, la prochaine consultation ouvre une nouvelle réplique
+        private boolean fermee;
+
+        private ReplicaRuche(String rucheId, Path dossier) throws IOException {
+            this.rucheId = rucheId;
+            this.dossier = dossier;
+            this.fichierCouverture = dossier.resolve("couverture");
+            Files.createDirectories(dossier);
+            if (Files.exists(fichierCouverture)) {
+                couverture = Long.parseLong(Files.readString(fichierCouverture).trim());
+            }
+            try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, "*.seg")) {
+                for (Path fichier : fichiers) {
+                    String nom = fichier.getFileName().toString();
+                    long jour = LocalDate.parse(nom.substring(0, nom.length() - 4)).toEpochDay();
+                    segments.put(jour, Segment.ouvrir(fichier, jour, capaciteInitiale));
+                }
+            }
+        }
+
+        /**
+         * Segments des jours UTC qui peuvent contenir des mesures entre min et max
+         */
+        private synchronized List<Segment> segments(long min, long max) {
+            long premier = min == Long.MIN_VALUE ? Long.MIN_VALUE : Math.floorDiv(min, MS_PAR_JOUR);
+            long dernier = max == Long.MAX_VALUE ? Long.MAX_VALUE : Math.floorDiv(max, MS_PAR_JOUR);
+            return new ArrayList<>(segments.subMap(premier, true, dernier, true).values());
+        }
+
+        private synchronized Segment segment(long jour) throws IOException {
+            Segment segment = segments.get(jour);
+            if (segment == null) {
+                segment = Segment.ouvrir(dossier.resolve(LocalDate.ofEpochDay(jour) + ".seg"), jour, capaciteInitiale);
+                segments.put(jour, segment);
+            }
+            return segment;
+        }
+
+        /**
+         * Ajoute une mesure à son segment ; synchronisé avec fermer, pour qu'aucun ajout ne suive l'éviction
+         * (la réplique suivante ouvre les mêmes fichiers)
+         */
+        private synchronized void ajouter(DonneesCapteur mesure) {
+            if (fermee || mesure.getId() == null || mesure.getTimestamp() == null
+                    || mesure.getTimestamp().equals(MesuresService.HORODATAGE_INCONNU)) {
+                return;
+            }
+            long horodatage = SerieCapteurs.versEpochMillis(mesure.getTimestamp());
+            try {
+                segment(Math.floorDiv(horodatage, MS_PAR_JOUR)).ajouter(mesure, horodatage);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Mesure " + mesure.getId() + " de la ruche " + rucheId + " non répliquée: " + e.getMessage());
+            }
+        }
+
+        private synchronized void couvrirDepuis(long debut) throws IOException {
+            if (couverture == Long.MAX_VALUE || debut > couverture) {
+                Files.writeString(fichierCouverture, Long.toString(debut));
+                couverture = debut;
+            }
+            prete = true;
+        }
+
+        @Override
+        public void documentAjoute(Map<String, Object> document) {
+            ajouter(MesuresService.convertToDonneesCapteur(document, rucheId));
+        }
+
+        @Override
+        public void documentModifie(Map<String, Object> document) {
+            // Append-only : une mesure déjà répliquée garde sa première version
+            ajouter(MesuresService.convertToDonneesCapteur(document, rucheId));
+        }
+
+        @Override
+        public void documentSupprime(String documentId) {
+            // Append-only : les suppressions ne sont pas répercutées
+        }
+
+        @Override
+        public void ecouteAnnulee(String message) {
+            System.err.println("Réplique de la ruche " + rucheId + " interrompue: " + message);
+            arreter();
+        }
+
+        /**
+         * Arrête l'écoute ; la ruche n'est plus servie jusqu'au prochain suivi, qui reprend au dernier jour répliqué
+         */
+        private synchronized void arreter() {
+            prete = false;
+            if (ecoute != null) {
+                ecoute.arreter();
+                ecoute = null;
+            }
+        }
+
+        /**
+         * Arrête la réplique évincée et écrit ses pages modifiées. Les segments restent lisibles par une lecture
+         * en cours ; projections et index sont libérés avec la réplique.
+         */
+        private synchronized void fermer() {
+            fermee = true;
+            arreter();
+            for (Segment segment : segments.values()) {
+                segment.forcer();
+            }
+        }
+    }
+
+    /**
+     * Segment d'un jour : fichier projeté en mémoire, agrandi par doublement
+     */
+    static final class Segment {
+        private final Path fichier;
+        private final Path fichierErreurs;
+        private MappedByteBuffer tampon;
+        private int capacite;
+        private int nombre;
+        private long[] minBlocs;
+        private long[] maxBlocs;
+        private Set<String> ids;
+        private Map<String, String> erreurs; // Messages d'erreur par identifiant, null si aucun
+        private boolean modifie;
+
+        private Segment(Path fichier) {
+            this.fichier = fichier;
+            String nom = fichier.getFileName().toString();
+            this.fichierErreurs = fichier.resolveSibling(nom.substring(0, nom.length() - 4) + ".err");
+        }
+
+        /**
+         * Ouvre un segment existant (index reconstruit depuis les horodatages) ou le crée
+         */
+        static Segment ouvrir(Path fichier, long jour, int capaciteInitiale) throws IOException {
+            Segment segment = new Segment(fichier);
+            if (Files.exists(fichier)) {
+                long taille = Files.size(fichier);
+                segment.projeter((int) ((taille - TAILLE_ENTETE) / TAILLE_ENREGISTREMENT));
+                if (segment.tampon.getInt(0) != MAGIC || segment.tampon.getInt(4) != VERSION
+                        || segment.tampon.getLong(8) != jour) {
+                    throw new IOException("Segment invalide: " + fichier);
+                }
+                segment.nombre = Math.min(segment.tampon.getInt(POSITION_NOMBRE), segment.capacite);
+                for (int i = 0; i < segment.nombre; i++) {
+                    segment.indexer(i, segment.tampon.getLong(position(i) + OFF_HORODATAGE));
+                }
+                segment.lireErreurs();
+            } else {
+                segment.projeter(capaciteInitiale);
+                segment.tampon.putInt(0, MAGIC);
+                segment.tampon.putInt(4, VERSION);
+                segment.tampon.putLong(8, jour);
+                segment.tampon.putInt(POSITION_NOMBRE, 0);
+                segment.modifie = true;
+            }
+            return segment;
+        }
+
+        /**
+         * Projette le fichier pour capacite enregistrements (le fichier est agrandi si besoin).
+         * Le canal est refermé aussitôt : la projection reste valide sans descripteur ouvert.
+         */
+        private void projeter(int nouvelleCapacite) throws IOException {
+            try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                tampon = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                        TAILLE_ENTETE + (long) nouvelleCapacite * TAILLE_ENREGISTREMENT);
+            }
+            capacite = nouvelleCapacite;
+            int blocs = (capacite + TAILLE_BLOC - 1) / TAILLE_BLOC;
+            minBlocs = minBlocs == null ? new long[blocs] : Arrays.copyOf(minBlocs, blocs);
+            maxBlocs = maxBlocs == null ? new long[blocs] : Arrays.copyOf(maxBlocs, blocs);
+        }
+
+        private static int position(int i) {
+            return TAILLE_ENTETE + i * TAILLE_ENREGISTREMENT;
+        }
+
+        private void indexer(int i, long horodatage) {
+            int bloc = i / TAILLE_BLOC;
+            if (i % TAILLE_BLOC == 0) {
+                minBlocs[bloc] = horodatage;
+                maxBlocs[bloc] = horodatage;
+            } else {
+                minBlocs[bloc] = Math.min(minBlocs[bloc], horodatage);
+                maxBlocs[bloc] = Math.max(maxBlocs[bloc], horodatage);
+            }
+        }
+
+        synchronized int nombre() {
+            return nombre;
+        }
+
+        /**
+         * Ajoute une mesure en fin de segment, sauf si son identifiant y est déjà.
+         * Le nombre d'enregistrements de l'en-tête n'est avancé qu'après l'écriture complète.
+         */
+        synchronized void ajouter(DonneesCapteur mesure, long horodatage) throws IOException {
+            byte[] id = mesure.getId().getBytes(StandardCharsets.US_ASCII);
+            if (id.length > LONGUEUR_ID_MAX || !new String(id, StandardCharsets.US_ASCII).equals(mesure.getId())) {
+                throw new IllegalArgumentException("identifiant non ASCII ou de plus de " + LONGUEUR_ID_MAX + " caractères");
+            }
+            if (ids == null) {
+                ids = new HashSet<>(Math.max(16, nombre * 2));
+                for (int i = 0; i < nombre; i++) {
+                    ids.add(lireId(i));
+                }
+            }
+            if (!ids.add(mesure.getId())) {
+                return;
+            }
+            if (nombre == capacite) {
+                projeter(capacite * 2);
+            }
+            // Message écrit avant l'enregistrement : un message sans enregistrement (arrêt entre les deux) est ignoré
+            if (mesure.getErreur() != null) {
+                ecrireErreur(mesure.getId(), mesure.getErreur());
+            }
+
+            int position = position(nombre);
+            int presence = 0;
+            tampon.putLong(position + OFF_HORODATAGE, horodatage);
+            if (mesure.getTemperature() != null) {
+                tampon.putFloat(position + OFF_TEMPERATURE, mesure.getTemperature().floatValue());
+                presence |= TEMPERATURE;
+            }
+            if (mesure.getHumidity() != null) {
+                tampon.putFloat(position + OFF_HUMIDITE, mesure.getHumidity().floatValue());
+                presence |= HUMIDITE;
+            }
+            if (mesure.getPoids() != null) {
+                tampon.putFloat(position + OFF_POIDS, mesure.getPoids().floatValue());
+                presence |= POIDS;
+            }
+            if (mesure.getBatterie() != null) {
+                tampon.putShort(position + OFF_BATTERIE, mesure.getBatterie().shortValue());
+                presence |= BATTERIE;
+            }
+            if (mesure.getSignalQualite() != null) {
+                tampon.putShort(position + OFF_SIGNAL, mesure.getSignalQualite().shortValue());
+                presence |= SIGNAL;
+            }
+            if (mesure.getCouvercleOuvert() != null) {
+                presence |= mesure.getCouvercleOuvert() ? COUVERCLE | COUVERCLE_OUVERT : COUVERCLE;
+            }
+            if (mesure.getErreur() != null) {
+                presence |= ERREUR;
+            }
+            tampon.put(position + OFF_PRESENCE, (byte) presence);
+            tampon.put(position + OFF_LONGUEUR_ID, (byte) id.length);
+            tampon.put(position + OFF_ID, id);
+
+            indexer(nombre, horodatage);
+            nombre++;
+            tampon.putInt(POSITION_NOMBRE, nombre);
+            modifie = true;
+        }
+
+        /**
+         * Ajoute à la série (sans tri) les mesures d'horodatage compris entre min et max inclus,
+         * en ne lisant que les blocs dont l'intervalle [min, max] recoupe la période
+         */
+        synchronized void lire(long min, long max, SerieCapteurs mesures) {
+            for (int bloc = 0; bloc * TAILLE_BLOC < nombre; bloc++) {
+                if (maxBlocs[bloc] < min || minBlocs[bloc] > max) {
+                    continue;
+                }
+                int fin = Math.min(nombre, (bloc + 1) * TAILLE_BLOC);
+                for (int i = bloc * TAILLE_BLOC; i < fin; i++) {
+                    int position = position(i);
+                    long horodatage = tampon.getLong(position + OFF_HORODATAGE);
+                    if (horodatage < min || horodatage > max) {
+                        continue;
+                    }
+                    int presence = tampon.get(position + OFF_PRESENCE);
+                    String id = lireId(i);
+                    mesures.ajouterEnFin(id, horodatage,
+                        (presence & TEMPERATURE) != 0 ? versDouble(tampon.getFloat(position + OFF_TEMPERATURE)) : null,
+                        (presence & HUMIDITE) != 0 ? versDouble(tampon.getFloat(position + OFF_HUMIDITE)) : null,
+                        (presence & POIDS) != 0 ? versDouble(tampon.getFloat(position + OFF_POIDS)) : null,
+                        (presence & COUVERCLE) != 0 ? (presence & COUVERCLE_OUVERT) != 0 : null,
+                        (presence & BATTERIE) != 0 ? (int) tampon.getShort(position + OFF_BATTERIE) : null,
+                        (presence & SIGNAL) != 0 ? (int) tampon.getShort(position + OFF_SIGNAL) : null,
+                        (presence & ERREUR) != 0 && erreurs != null ? erreurs.get(id) : null);
+                }
+            }
+        }
+
+        synchronized void forcer() {
+            if (modifie) {
+                tampon.force();
+                modifie = false;
+            }
+        }
+
+        /**
+         * Charge les messages d'erreur du fichier voisin ; une dernière entrée tronquée (arrêt pendant l'écriture) est ignorée
+         */
+        private void lireErreurs() throws IOException {
+            if (!Files.exists(fichierErreurs)) {
+                return;
+            }
+            erreurs = new HashMap<>();
+            try (DataInputStream entree = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichierErreurs)))) {
+                while (true) {
+                    String id = entree.readUTF();
+                    erreurs.put(id, entree.readUTF());
+                }
+            } catch (EOFException e) {
+                // Fin du fichier
+            }
+        }
+
+        private void ecrireErreur(String id, String erreur) throws IOException {
+            String message = erreur.length() > LONGUEUR_ERREUR_MAX ? erreur.substring(0, LONGUEUR_ERREUR_MAX) : erreur;
+            try (DataOutputStream sortie = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fichierErreurs,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                sortie.writeUTF(id);
+                sortie.writeUTF(message);
+            }
+            if (erreurs == null) {
+                erreurs = new HashMap<>();
+            }
+            erreurs.put(id, message);
+        }
+
+        private String lireId(int i) {
+            int position = position(i);
+            byte[] id = new byte[tampon.get(position + OFF_LONGUEUR_ID)];
+            tampon.get(position + OFF_ID, id);
+            return new String(id, StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Double le plus court représentant le float, comme SerieCapteurs
+         */
+        private static double versDouble(float valeur) {
+            return Double.parseDouble(Float.toString(valeur));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.rucheconnectee.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+/**
+ * Opérations de base de données arborescente utilisées par FirebaseService, au modèle de Realtime Database :
+ * des noeuds adressés par chemin ("ruche/R001/historique"), lus en entier ou par requête ordonnée,
+ * écoutés enfant par enfant, écrits par remplacement, mise à jour multi-chemins, suppression ou transaction.
+ *
+ * Deux implémentations, choisies par la propriété app.stockage :
+ * - firebase (défaut) : FirebaseStockage, Realtime Database via le SDK Admin ;
+ * - memoire : MemoireStockage, arbre en mémoire avec les mêmes règles de tri (développement, démonstration).
+ * app.use-mock-data=true sélectionne aussi le stockage en mémoire.
+ *
+ * Les futurs et les évènements d'écoute sont complétés sur le fil d'évènements du stockage, partagé par
+ * toutes les écoutes : FirebaseService reprend chaque futur sur son propre exécuteur avant de le rendre,
+ * et les écouteurs doivent rester légers (décodage d'un enfant, mise à jour d'un état en mémoire).
+ */
+public interface Stockage {
+
+    /**
+     * Lit une fois le noeud ou la requête
+     */
+    CompletableFuture<Noeud> lire(Requete requete);
+
+    /**
+     * Écoute les enfants du résultat de la requête : d'abord les enfants existants (ajouts),
+     * puis chaque ajout, modification ou suppression, jusqu'à l'arrêt de l'abonnement
+     */
+    Abonnement ecouter(Requete requete, EcouteurEnfants ecouteur);
+
+    /**
+     * Remplace la valeur d'un chemin (null supprime le noeud)
+     */
+    CompletableFuture<Void> ecrire(String chemin, Object valeur);
+
+    /**
+     * Écrit plusieurs chemins relatifs à un noeud en une seule opération atomique
+     */
+    CompletableFuture<Void> mettreAJour(String chemin, Map<String, Object> valeurs);
+
+    /**
+     * Supprime un noeud et ses enfants
+     */
+    CompletableFuture<Void> supprimer(String chemin);
+
+    /**
+     * Nouvelle clé d'enfant sous un chemin, chronologique et unique (clé push)
+     */
+    String nouvelleCle(String chemin);
+
+    /**
+     * Applique une fonction à la valeur actuelle d'un chemin (null si absent) et écrit le résultat,
+     * sans écriture concurrente entre la lecture et l'écriture. La fonction peut être rappelée
+     * plusieurs fois et doit donc être sans effet de bord.
+     */
+    CompletableFuture<Void> transaction(String chemin, UnaryOperator<Object> miseAJour);
+
+    /**
+     * Noeud lu : clé, valeur et enfants, dans l'ordre de la requête
+     */
+    interface Noeud {
+        String getKey();
+
+        boolean exists();
+
+        /**
+         * Valeur du noeud : Map pour un noeud avec enfants, String, Long, Double ou Boolean pour une feuille,
+         * null si absent. Copie modifiable par l'appelant.
+         */
+        Object getValue();
+
+        /**
+         * Enfant à un chemin relatif (éventuellement absent)
+         */
+        Noeud child(String chemin);
+
+        boolean hasChild(String chemin);
+
+        long getChildrenCount();
+
+        Iterable<Noeud> getChildren();
+    }
+
+    /**
+     * Reçoit les évènements d'une écoute sur les enfants d'une requête
+     */
+    interface EcouteurEnfants {
+        void enfantAjoute(Noeud enfant);
+
+        void enfantModifie(Noeud enfant);
+
+        void enfantSupprime(Noeud enfant);
+
+        void ecouteAnnulee(String message);
+    }
+
+    /**
+     * Écoute ouverte par ecouter, à arrêter quand elle n'est plus utilisée
+     */
+    interface Abonnement {
+        void arreter();
+    }
+
+    /**
+     * Lecture refusée par la base (droits, requête invalide), distinguée des autres erreurs
+     */
+    final class LectureAnnuleeException extends RuntimeException {
+        public LectureAnnuleeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Écriture refusée par la base (droits, chemin ou clé invalide) : la réessayer ne changerait rien
+     */
+    final class EcritureRefuseeException extends RuntimeException {
+        public EcritureRefuseeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Lecture d'un chemin, éventuellement triée et bornée comme une Query Realtime Database.
+     * Sans tri, le noeud est lu en entier. Les bornes sont inclusives, sauf celle posée par apres ;
+     * la clé d'une borne (optionnelle) départage les enfants de même valeur. Les valeurs numériques
+     * sont comparées en double.
+     */
+    final class Requete {
+
+        /**
+         * Tri sur la clé des enfants plutôt que sur un champ
+         */
+        public static final String ORDRE_CLE = "$key";
+
+        private final String chemin;
+        private String ordre;
+        private Object depuis;
+        private String depuisCle;
+        private boolean depuisExclue;
+        private Object jusqua;
+        private String jusquaCle;
+        private Integer premiers;
+        private Integer derniers;
+
+        private Requete(String chemin) {
+            this.chemin = chemin;
+        }
+
+        /**
+         * Lecture du noeud entier à un chemin
+         */
+        public static Requete sur(String chemin) {
+            return new Requete(chemin);
+        }
+
+        /**
+         * Trie les enfants sur un champ, ou sur leur clé avec ORDRE_CLE
+         */
+        public Requete trierPar(String champ) {
+            this.ordre = champ;
+            return this;
+        }
+
+        public Requete depuis(Object valeur, String cle) {
+            this.depuis = normaliser(valeur);
+            this.depuisCle = cle;
+            this.depuisExclue = false;
+            return this;
+        }
+
+        /**
+         * Avec ORDRE_CLE : commence strictement après la clé cle, exclue
+         */
+        public Requete apres(String cle) {
+            depuis(cle, null);
+            this.depuisExclue = true;
+            return this;
+        }
+
+        public Requete jusqua(Object valeur, String cle) {
+            this.jusqua = normaliser(valeur);
+            this.jusquaCle = cle;
+            return this;
+        }
+
+        public Requete egalA(Object valeur) {
+            return depuis(valeur, null).jusqua(valeur, null);
+        }
+
+        public Requete premiers(int limite) {
+            this.premiers = limite;
+            return this;
+        }
+
+        public Requete derniers(int limite) {
+            this.derniers = limite;
+            return this;
+        }
+
+        public String getChemin() {
+            return chemin;
+        }
+
+        public String getOrdre() {
+            return ordre;
+        }
+
+        public Object getDepuis() {
+            return depuis;
+        }
+
+        public String getDepuisCle() {
+            return depuisCle;
+        }
+
+        /**
+         * Vrai si la borne depuis est exclue (posée par apres)
+         */
+        public boolean isDepuisExclue() {
+            return depuisExclue;
+        }
+
+        public Object getJusqua() {
+            return jusqua;
+        }
+
+        public String getJusquaCle() {
+            return jusquaCle;
+        }
+
+        public Integer getPremiers() {
+            return premiers;
+        }
+
+        public Integer getDerniers() {
+            return derniers;
+        }
+
+        /**
+         * Plus petite clé qui suit cle dans l'ordre des clés : entiers 32 bits d'abord, puis texte, où l'espace
+         * est le plus petit caractère autorisé. Sert de borne inclusive à qui n'a pas de startAfter.
+         */
+        static String cleSuivante(String cle) {
+            Integer entier = cleEntiere(cle);
+            if (entier == null) {
+                return cle + " ";
+            }
+            return entier == Integer.MAX_VALUE ? " " : String.valueOf(entier + 1);
+        }
+
+        /**
+         * Valeur d'une clé que Firebase trie comme un entier 32 bits, null sinon
+         */
+        static Integer cleEntiere(String cle) {
+            // Appelée à chaque comparaison de clés : lecture caractère par caractère, sans expression régulière
+            int debut = cle.startsWith("-") ? 1 : 0;
+            if (cle.length() == debut || cle.length() > 11 || (cle.charAt(debut) == '0' && cle.length() > 1)) {
+                return null;
+            }
+            for (int i = debut; i < cle.length(); i++) {
+                if (cle.charAt(i) < '0' || cle.charAt(i) > '9') {
+                    return null;
+                }
+            }
+            long valeur = Long.parseLong(cle);
+            return valeur >= Integer.MIN_VALUE && valeur <= Integer.MAX_VALUE ? (int) valeur : null;
+        }
+
+        /**
+         * Borne au format des requêtes Firebase : double, booléen ou texte
+         */
+        private static Object normaliser(Object valeur) {
+            if (valeur == null || valeur instanceof Boolean) {
+                return valeur;
+            }
+            return valeur instanceof Number ? (Object) ((Number) valeur).doubleValue() : valeur.toString();
+        }
+    }
+}
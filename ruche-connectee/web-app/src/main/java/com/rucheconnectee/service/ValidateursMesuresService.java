@@ -0,0 +1,152 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Validateurs HTTP (ETag / Last-Modified) des réponses de mesures d'une ruche, dérivés de sa dernière mesure.
+ * La dernière mesure est prise en mémoire (MesuresCache, FluxMesuresService) quand la ruche y est suivie ;
+ * sinon seul le pointeur ruche/{rucheId}/derniere est lu.
+ *
+ * Les réponses sur une fenêtre glissante (mesures récentes, statistiques) changent aussi avec le temps :
+ * leur validateur inclut la tranche de app.mesures.validateurs.pas-fenetre-ms en cours, si bien qu'une
+ * réponse 304 peut avoir au plus ce pas de retard sur le glissement de la fenêtre.
+ */
+@Service
+public class ValidateursMesuresService {
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private MesuresCache mesuresCache;
+
+    @Autowired
+    private FluxMesuresService fluxMesuresService;
+
+    @Value("${app.mesures.validateurs.pas-fenetre-ms:300000}")
+    private long pasFenetreMs;
+
+    /**
+     * Validateur des réponses qui ne dépendent que de la dernière mesure ; null si la ruche n'a aucune mesure
+     */
+    private CompletableFuture<Validateur> getValidateurAsync(String rucheId, String variante) {
+        return getDerniereMesureAsync(rucheId).thenApply(derniere -> derniere == null ? null
+            : new Validateur(derniere, variante, 0));
+    }
+
+    /**
+     * Validateur des réponses calculées sur une fenêtre glissante se terminant maintenant
+     */
+    private CompletableFuture<Validateur> getValidateurFenetreAsync(String rucheId, String variante) {
+        long tranche = System.currentTimeMillis() / pasFenetreMs * pasFenetreMs;
+        return getDerniereMesureAsync(rucheId).thenApply(derniere -> derniere == null ? null
+            : new Validateur(derniere, variante, tranche));
+    }
+
+    /**
+     * Répond 304 si la copie du client est à jour, sans construire la réponse ; sinon construit la réponse
+     * et y ajoute les validateurs. fenetre indique une réponse sur fenêtre glissante. Sans validateur
+     * (aucune mesure, pointeur illisible), la réponse est construite normalement.
+     */
+    public CompletableFuture<ResponseEntity<?>> repondreAsync(String rucheId, String variante, boolean fenetre,
+                                                             HttpHeaders requete,
+                                                             Supplier<CompletableFuture<ResponseEntity<?>>> reponse) {
+        CompletableFuture<Validateur> validateur = fenetre
+            ? getValidateurFenetreAsync(rucheId, variante)
+            : getValidateurAsync(rucheId, variante);
+
+        return validateur.exceptionally(e -> null).thenCompose(v -> {
+            if (v == null) {
+                return reponse.get();
+            }
+            if (v.nonModifie(requete)) {
+                return CompletableFuture.completedFuture(v.nonModifie());
+            }
+            return reponse.get().thenApply(v::appliquer);
+        });
+    }
+
+    private CompletableFuture<DonneesCapteur> getDerniereMesureAsync(String rucheId) {
+        DonneesCapteur enCache = mesuresCache.getDerniereMesureChargee(rucheId);
+        DonneesCapteur enFlux = fluxMesuresService.getDerniereMesure(rucheId);
+        if (enCache != null || enFlux != null) {
+            if (enCache == null || (enFlux != null && enFlux.getTimestamp().isAfter(enCache.getTimestamp()))) {
+                return CompletableFuture.completedFuture(enFlux);
+            }
+            return CompletableFuture.completedFuture(enCache);
+        }
+        return firebaseService.getDocumentAsync("ruche/" + rucheId, "derniere", DonneesCapteur.class);
+    }
+
+    /**
+     * ETag fort et date de dernière modification d'une réponse
+     */
+    private static final class Validateur {
+        private final String etag;
+        private final long derniereModification;
+
+        private Validateur(DonneesCapteur derniere, String variante, long tranche) {
+            long horodatage = SerieCapteurs.versEpochMillis(derniere.getTimestamp());
+            // Identifiant complet (encodé pour rester un ETag valide) : un condensé pourrait confondre deux mesures
+            String id = derniere.getId() != null ? URLEncoder.encode(derniere.getId(), StandardCharsets.UTF_8) : "";
+            this.etag = "\"" + Long.toHexString(horodatage) + "-" + id
+                + (tranche > 0 ? "-" + Long.toHexString(tranche) : "") + "-" + variante + "\"";
+            this.derniereModification = Math.max(horodatage, tranche);
+        }
+
+        /**
+         * Indique si la copie du client est à jour : If-None-Match prioritaire, sinon If-Modified-Since
+         */
+        boolean nonModifie(HttpHeaders requete) {
+            if (!requete.getIfNoneMatch().isEmpty()) {
+                for (String candidat : requete.getIfNoneMatch()) {
+                    String valeur = candidat.startsWith("W/") ? candidat.substring(2) : candidat;
+                    if ("*".equals(valeur) || etag.equals(valeur)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            long depuis = requete.getIfModifiedSince();
+            return depuis >= 0 && derniereModification / 1000 <= depuis / 1000;
+        }
+
+        /**
+         * Réponse 304 sans corps
+         */
+        ResponseEntity<?> nonModifie() {
+            return ResponseEntity.status(304)
+                .eTag(etag)
+                .lastModified(derniereModification)
+                .cacheControl(CacheControl.noCache())
+                .build();
+        }
+
+        /**
+         * Ajoute les validateurs à une réponse 200 ; les autres réponses sont renvoyées telles quelles
+         */
+        ResponseEntity<?> appliquer(ResponseEntity<?> reponse) {
+            if (reponse.getStatusCode().value() != 200) {
+                return reponse;
+            }
+            return ResponseEntity.ok()
+                .headers(reponse.getHeaders())
+                .eTag(etag)
+                .lastModified(derniereModification)
+                .cacheControl(CacheControl.noCache())
+                .body(reponse.getBody());
+        }
+    }
+}
@@ -37,6 +37,7 @@ const BeeTrack = {
         sidebarCollapsed: false,
         charts: new Map(),
         notifications: [],
+        flux: new Map(),
         currentTheme: 'light'
     },
 
@@ -264,8 +265,10 @@ const BeeTrack = {
         });
     },
 
-    // Actualisation automatique
+    // Actualisation automatique (inutile sur les pages alimentées par un flux de mesures)
     initAutoRefresh() {
+        if (document.querySelector('[data-flux-ruche]')) return;
+
         setInterval(() => {
             this.refreshData();
         }, this.config.refreshInterval);
@@ -366,6 +369,61 @@ const BeeTrack = {
         }
     },
 
+    // Flux temps réel des mesures d'une ruche (Server-Sent Events)
+    suivreMesures(rucheId, onMesure, onIndisponible) {
+        if (typeof EventSource === 'undefined') {
+            if (onIndisponible) onIndisponible();
+            return null;
+        }
+
+        const source = new EventSource(`/api/mesures/ruche/${encodeURIComponent(rucheId)}/stream`);
+        source.addEventListener('mesure', (event) => {
+            try {
+                onMesure(JSON.parse(event.data));
+            } catch (error) {
+                this.handleError(error, 'Flux mesures');
+            }
+        });
+        source.addEventListener('error', () => {
+            // EventSource se reconnecte seul avec Last-Event-ID ; CLOSED signifie un refus (ex. 429)
+            if (source.readyState === EventSource.CLOSED) {
+                this.state.flux.delete(rucheId);
+                if (onIndisponible) onIndisponible();
+            }
+        });
+
+        this.state.flux.set(rucheId, source);
+        return source;
+    },
+
+    // Canal WebSocket du tableau de bord : une connexion pour toutes les ruches suivies, reconnexion progressive
+    connecterTableauBord(ruches, onDelta, attente = 1000) {
+        if (typeof WebSocket === 'undefined' || ruches.length === 0) return null;
+
+        const protocole = location.protocol === 'https:' ? 'wss:' : 'ws:';
+        const socket = new WebSocket(`${protocole}//${location.host}/ws/ruches`);
+
+        socket.addEventListener('open', () => {
+            attente = 1000;
+            socket.send(JSON.stringify({ action: 'abonner', ruches }));
+        });
+        socket.addEventListener('message', (event) => {
+            const message = JSON.parse(event.data);
+            if (message.type === 'delta') {
+                Object.entries(message.ruches).forEach(([rucheId, delta]) => onDelta(rucheId, delta));
+            } else if (message.type === 'interrompu') {
+                socket.send(JSON.stringify({ action: 'abonner', ruches: [message.rucheId] }));
+            } else if (message.type === 'erreur') {
+                console.warn('Tableau de bord temps réel:', message.message);
+            }
+        });
+        socket.addEventListener('close', () => {
+            setTimeout(() => this.connecterTableauBord(ruches, onDelta, Math.min(attente * 2, 30000)), attente);
+        });
+
+        return socket;
+    },
+
     // Actions spécifiques
     refreshActions() {
         this.showNotification({
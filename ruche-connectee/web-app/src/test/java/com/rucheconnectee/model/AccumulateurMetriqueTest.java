@@ -0,0 +1,121 @@
+package com.rucheconnectee.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statistiques en une passe (Welford) et fusion d'accumulateurs partiels (Chan)
+ */
+class AccumulateurMetriqueTest {
+
+    private static final double PRECISION = 1e-9;
+
+    @Test
+    void calculeMoyenneVarianceMinMaxEnUnePasse() {
+        AccumulateurMetrique accumulateur = new AccumulateurMetrique();
+        for (double valeur : new double[] {2, 4, 4, 4, 5, 5, 7, 9}) {
+            accumulateur.ajouter(valeur);
+        }
+        accumulateur.ajouterNul();
+
+        assertEquals(8, accumulateur.getNombre());
+        assertEquals(1, accumulateur.getNombreNuls());
+        assertEquals(40, accumulateur.getSomme(), PRECISION);
+        assertEquals(5, accumulateur.getMoyenne(), PRECISION);
+        assertEquals(2, accumulateur.getMin(), PRECISION);
+        assertEquals(9, accumulateur.getMax(), PRECISION);
+        assertEquals(32, accumulateur.getM2(), PRECISION);
+    }
+
+    @Test
+    void fusionEquivautAUnePasseUnique() {
+        Random aleatoire = new Random(42);
+        AccumulateurMetrique total = new AccumulateurMetrique();
+        AccumulateurMetrique[] parties = {new AccumulateurMetrique(), new AccumulateurMetrique(), new AccumulateurMetrique()};
+        for (int i = 0; i < 3000; i++) {
+            // Grande moyenne, faible dispersion : le cas où une variance naïve (somme des carrés) perd sa précision
+            double valeur = 1e6 + aleatoire.nextGaussian();
+            total.ajouter(valeur);
+            parties[i % 7 == 0 ? 0 : i % 2 + 1].ajouter(valeur);
+        }
+        parties[1].ajouterNul();
+
+        AccumulateurMetrique fusion = new AccumulateurMetrique();
+        for (AccumulateurMetrique partie : parties) {
+            fusion.fusionner(partie);
+        }
+
+        assertEquals(total.getNombre(), fusion.getNombre());
+        assertEquals(1, fusion.getNombreNuls());
+        assertEquals(total.getMoyenne(), fusion.getMoyenne(), 1e-6);
+        assertEquals(total.getVariance(), fusion.getVariance(), 1e-6);
+        assertEquals(total.getMin(), fusion.getMin(), PRECISION);
+        assertEquals(total.getMax(), fusion.getMax(), PRECISION);
+    }
+
+    @Test
+    void fusionAvecUnAccumulateurVide() {
+        AccumulateurMetrique accumulateur = new AccumulateurMetrique();
+        accumulateur.ajouter(3);
+        accumulateur.ajouter(5);
+        AccumulateurMetrique vide = new AccumulateurMetrique();
+        vide.ajouterNul();
+
+        accumulateur.fusionner(vide);
+        assertEquals(2, accumulateur.getNombre());
+        assertEquals(1, accumulateur.getNombreNuls());
+        assertEquals(4, accumulateur.getMoyenne(), PRECISION);
+
+        AccumulateurMetrique copie = new AccumulateurMetrique();
+        copie.fusionner(accumulateur);
+        assertEquals(accumulateur.getVariance(), copie.getVariance(), PRECISION);
+        assertEquals(3, copie.getMin(), PRECISION);
+        assertEquals(5, copie.getMax(), PRECISION);
+    }
+
+    @Test
+    void reconstruitDepuisLesValeursPersistees() {
+        AccumulateurMetrique accumulateur = new AccumulateurMetrique();
+        accumulateur.ajouter(10);
+        accumulateur.ajouter(14);
+        AccumulateurMetrique relu = AccumulateurMetrique.depuis(accumulateur.getNombre(), accumulateur.getNombreNuls(),
+            accumulateur.getSomme(), accumulateur.getMin(), accumulateur.getMax(), accumulateur.getM2());
+        relu.ajouter(12);
+        accumulateur.ajouter(12);
+
+        assertEquals(accumulateur.getMoyenne(), relu.getMoyenne(), PRECISION);
+        assertEquals(accumulateur.getVariance(), relu.getVariance(), PRECISION);
+
+        AccumulateurMetrique vide = AccumulateurMetrique.depuis(0, 2, 0, 0, 0, 0);
+        vide.ajouter(-3);
+        assertEquals(-3, vide.getMin(), PRECISION);
+        assertEquals(-3, vide.getMax(), PRECISION);
+    }
+
+    @Test
+    void statistiquesParJourFusionneesEgalentCellesDeLaSerie() {
+        SerieCapteurs serie = new SerieCapteurs();
+        LocalDateTime debut = LocalDateTime.of(2026, 5, 1, 0, 0);
+        for (int i = 0; i < 72; i++) {
+            serie.ajouterEnFin("m" + i, SerieCapteurs.versEpochMillis(debut.plusHours(i)), 30.0 + i % 5,
+                i % 3 == 0 ? null : 50.0 + i % 7, 40.0 - i * 0.01, i % 10 == 0, 80, null, null);
+        }
+
+        StatistiquesMesures total = StatistiquesMesures.de(serie);
+        StatistiquesMesures parJours = new StatistiquesMesures();
+        for (int jour = 0; jour < 3; jour++) {
+            parJours.fusionner(StatistiquesMesures.de(serie.extraire(jour * 24, jour * 24 + 24)));
+        }
+
+        assertEquals(72, parJours.getNombreMesures());
+        assertEquals(total.getOuverturesCouvercle(), parJours.getOuverturesCouvercle());
+        assertEquals(total.getHumidite().getNombreNuls(), parJours.getHumidite().getNombreNuls());
+        assertEquals(total.getTemperature().getMoyenne(), parJours.getTemperature().getMoyenne(), PRECISION);
+        assertEquals(total.getHumidite().getVariance(), parJours.getHumidite().getVariance(), 1e-6);
+        assertEquals(total.getPoids().getMin(), parJours.getPoids().getMin(), PRECISION);
+    }
+}
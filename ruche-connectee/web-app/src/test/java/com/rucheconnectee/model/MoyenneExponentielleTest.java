@@ -0,0 +1,56 @@
+package com.rucheconnectee.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoyenneExponentielleTest {
+
+    @Test
+    void premiereValeurInitialiseLaMoyenne() {
+        MoyenneExponentielle moyenne = new MoyenneExponentielle();
+        moyenne.ajouter(34.5, 0.1);
+
+        assertEquals(1, moyenne.getNombre());
+        assertEquals(34.5, moyenne.getMoyenne(), 1e-12);
+        assertEquals(0, moyenne.getVariance(), 1e-12);
+    }
+
+    @Test
+    void suitLaFormeIncrementaleDeWest() {
+        MoyenneExponentielle moyenne = new MoyenneExponentielle();
+        moyenne.ajouter(10, 0.5);
+        moyenne.ajouter(20, 0.5);
+
+        // d = 10 : moyenne = 10 + 0.5 d, variance = (1 - 0.5) (0 + 0.5 d²)
+        assertEquals(15, moyenne.getMoyenne(), 1e-12);
+        assertEquals(25, moyenne.getVariance(), 1e-12);
+        assertEquals(5, moyenne.getEcartType(), 1e-12);
+    }
+
+    @Test
+    void convergeVersUnNouveauNiveau() {
+        MoyenneExponentielle moyenne = new MoyenneExponentielle();
+        for (int i = 0; i < 50; i++) {
+            moyenne.ajouter(20, 0.2);
+        }
+        for (int i = 0; i < 100; i++) {
+            moyenne.ajouter(30, 0.2);
+        }
+
+        assertEquals(30, moyenne.getMoyenne(), 1e-6);
+        assertTrue(moyenne.getVariance() < 1e-6);
+    }
+
+    @Test
+    void scoreBorneParLePlancher() {
+        MoyenneExponentielle moyenne = new MoyenneExponentielle();
+        for (int i = 0; i < 10; i++) {
+            moyenne.ajouter(35, 0.1);
+        }
+
+        // Série parfaitement stable : seul le plancher évite une division par zéro
+        assertEquals(-10, moyenne.score(34, 0.1), 1e-9);
+        assertEquals(0, moyenne.score(35, 0.1), 1e-12);
+    }
+}
@@ -0,0 +1,141 @@
+package com.rucheconnectee.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerieCapteursTest {
+
+    private static final long ORIGINE = 1_780_000_000_000L;
+
+    private static void ajouter(SerieCapteurs serie, String id, long seconde, Double temperature) {
+        serie.ajouter(id, ORIGINE + seconde * 1000, temperature, null, null, null, null, null, null);
+    }
+
+    private static List<String> ids(SerieCapteurs serie) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < serie.taille(); i++) {
+            ids.add(serie.getId(i));
+        }
+        return ids;
+    }
+
+    @Test
+    void insereAPlaceChronologiqueEtRemplaceLeMemeId() {
+        SerieCapteurs serie = new SerieCapteurs(2);
+        ajouter(serie, "c", 30, 3.0);
+        ajouter(serie, "a", 10, 1.0);
+        ajouter(serie, "b", 20, null);
+        ajouter(serie, "b2", 20, 2.5);
+        ajouter(serie, "b", 20, 2.0);
+
+        assertEquals(List.of("a", "b", "b2", "c"), ids(serie));
+        assertTrue(serie.hasTemperature(1));
+        assertEquals(2.0f, serie.getTemperature(1));
+        assertEquals(3.0f, serie.getTemperature(3));
+        assertEquals(3, serie.premierApres(ORIGINE + 20_000));
+        assertEquals(1, serie.premierAPartirDe(ORIGINE + 20_000));
+    }
+
+    @Test
+    void conserveToutesLesColonnes() {
+        SerieCapteurs serie = new SerieCapteurs();
+        String uuid = UUID.randomUUID().toString();
+        LocalDateTime horodatage = LocalDateTime.of(2026, 6, 21, 14, 30, 5);
+        serie.ajouter(uuid, SerieCapteurs.versEpochMillis(horodatage), 25.3, 61.0, 42.75, true, 87, 64, "capteur DHT absent");
+        serie.ajouter("texte", SerieCapteurs.versEpochMillis(horodatage) + 1, null, null, null, null, null, null, null);
+
+        DonneesCapteur mesure = serie.get(0, "r1");
+        assertEquals(uuid, mesure.getId());
+        assertEquals("r1", mesure.getRucheId());
+        assertEquals(horodatage, mesure.getTimestamp());
+        assertEquals(25.3, mesure.getTemperature());
+        assertEquals(61.0, mesure.getHumidity());
+        assertEquals(42.75, mesure.getPoids());
+        assertEquals(Boolean.TRUE, mesure.getCouvercleOuvert());
+        assertEquals(87, mesure.getBatterie());
+        assertEquals(64, mesure.getSignalQualite());
+        assertEquals("capteur DHT absent", mesure.getErreur());
+
+        DonneesCapteur vide = serie.get(1, "r1");
+        assertEquals("texte", vide.getId());
+        assertNull(vide.getTemperature());
+        assertNull(vide.getCouvercleOuvert());
+        assertNull(vide.getErreur());
+    }
+
+    @Test
+    void supprimeParIdentifiant() {
+        SerieCapteurs serie = new SerieCapteurs();
+        String uuid = UUID.randomUUID().toString();
+        ajouter(serie, "a", 1, 1.0);
+        ajouter(serie, uuid, 2, null);
+        ajouter(serie, "c", 3, 3.0);
+
+        assertTrue(serie.supprimer(uuid));
+        assertFalse(serie.supprimer(uuid));
+        assertFalse(serie.supprimer(uuid.toUpperCase()));
+        assertEquals(List.of("a", "c"), ids(serie));
+        // Les bits de présence suivent le décalage des colonnes
+        assertTrue(serie.hasTemperature(1));
+        assertEquals(3.0f, serie.getTemperature(1));
+
+        ajouter(serie, "b", 2, null);
+        assertFalse(serie.hasTemperature(1));
+        assertTrue(serie.hasTemperature(2));
+    }
+
+    @Test
+    void trieDeFaconStable() {
+        SerieCapteurs serie = new SerieCapteurs();
+        Random aleatoire = new Random(7);
+        List<long[]> attendu = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long seconde = aleatoire.nextInt(60);
+            serie.ajouterEnFin("m" + i, ORIGINE + seconde * 1000, i % 3 == 0 ? null : (double) i, null, null,
+                null, null, null, i % 4 == 0 ? "e" + i : null);
+            attendu.add(new long[] {seconde, i});
+        }
+        attendu.sort(Comparator.comparingLong(a -> a[0]));
+
+        serie.trier();
+
+        for (int k = 0; k < attendu.size(); k++) {
+            int i = (int) attendu.get(k)[1];
+            assertEquals("m" + i, serie.getId(k));
+            assertEquals(i % 3 != 0, serie.hasTemperature(k));
+            assertEquals(i % 4 == 0 ? "e" + i : null, serie.getErreur(k));
+        }
+    }
+
+    @Test
+    void extraitEtSupprimeLeDebut() {
+        SerieCapteurs serie = new SerieCapteurs();
+        for (int i = 0; i < 100; i++) {
+            ajouter(serie, "m" + i, i, i % 2 == 0 ? (double) i : null);
+        }
+
+        SerieCapteurs extrait = serie.extraire(SerieCapteurs.depuisEpochMillis(ORIGINE + 10_000),
+            SerieCapteurs.depuisEpochMillis(ORIGINE + 20_000));
+        assertEquals(9, extrait.taille());
+        assertEquals("m11", extrait.getId(0));
+        assertFalse(extrait.hasTemperature(0));
+        assertTrue(extrait.hasTemperature(1));
+
+        serie.supprimerDebut(95);
+        assertEquals(List.of("m95", "m96", "m97", "m98", "m99"), ids(serie));
+        assertFalse(serie.hasTemperature(0));
+        assertTrue(serie.hasTemperature(1));
+    }
+
+    @Test
+    void horodatageDepuisDateEtHeure() {
+        LocalDateTime horodatage = LocalDateTime.of(2026, 3, 29, 1, 59, 59);
+        assertEquals(SerieCapteurs.versEpochMillis(horodatage), SerieCapteurs.versEpochMillis("2026-03-29", "01:59:59"));
+        assertEquals(horodatage, SerieCapteurs.depuisEpochMillis(SerieCapteurs.versEpochMillis(horodatage)));
+        assertEquals(SerieCapteurs.HORODATAGE_INVALIDE, SerieCapteurs.versEpochMillis("2026-02-30", "10:00:00"));
+    }
+}
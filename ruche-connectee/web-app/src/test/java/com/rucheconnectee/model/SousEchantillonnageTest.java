@@ -0,0 +1,79 @@
+package com.rucheconnectee.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SousEchantillonnageTest {
+
+    private static final long ORIGINE = 1_780_000_000_000L;
+
+    private static SerieCapteurs serie(int taille, int pic) {
+        SerieCapteurs serie = new SerieCapteurs();
+        for (int i = 0; i < taille; i++) {
+            double temperature = i == pic ? 60.0 : 30.0 + Math.sin(i / 20.0);
+            serie.ajouterEnFin("m" + i, ORIGINE + i * 60_000L, temperature, i % 2 == 0 ? 55.0 : null, null,
+                null, null, null, null);
+        }
+        return serie;
+    }
+
+    @Test
+    void lttbGardeExtremitesEtPic() {
+        SerieCapteurs reduite = new SousEchantillonnage(SousEchantillonnage.Mode.LTTB,
+            SousEchantillonnage.Grandeur.TEMPERATURE, 50).appliquer(serie(1000, 437));
+
+        assertEquals(50, reduite.taille());
+        assertEquals("m0", reduite.getId(0));
+        assertEquals("m999", reduite.getId(reduite.taille() - 1));
+        boolean picConserve = false;
+        for (int i = 0; i < reduite.taille(); i++) {
+            picConserve |= reduite.getTemperature(i) == 60f;
+            if (i > 0) {
+                assertTrue(reduite.getHorodatage(i - 1) < reduite.getHorodatage(i));
+            }
+        }
+        assertTrue(picConserve);
+    }
+
+    @Test
+    void enveloppeGardeMinimumEtMaximumDeChaqueTranche() {
+        SerieCapteurs reduite = new SousEchantillonnage(SousEchantillonnage.Mode.ENVELOPPE,
+            SousEchantillonnage.Grandeur.TEMPERATURE, 20).appliquer(serie(1000, 437));
+
+        assertTrue(reduite.taille() <= 20);
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < reduite.taille(); i++) {
+            min = Math.min(min, reduite.getTemperature(i));
+            max = Math.max(max, reduite.getTemperature(i));
+        }
+        assertEquals(60f, max);
+        assertTrue(min < 29.1f);
+    }
+
+    @Test
+    void ecarteLesMesuresSansLaGrandeur() {
+        SerieCapteurs reduite = new SousEchantillonnage(SousEchantillonnage.Mode.LTTB,
+            SousEchantillonnage.Grandeur.HUMIDITE, 600).appliquer(serie(1000, -1));
+
+        // 500 mesures portent l'humidité : moins que maxPoints, elles sont toutes renvoyées
+        assertEquals(500, reduite.taille());
+        for (int i = 0; i < reduite.taille(); i++) {
+            assertTrue(reduite.hasHumidite(i));
+        }
+    }
+
+    @Test
+    void serieCourteRenvoyeeTelleQuelle() {
+        SerieCapteurs courte = serie(10, -1);
+        assertSame(courte, new SousEchantillonnage(SousEchantillonnage.Mode.LTTB,
+            SousEchantillonnage.Grandeur.TEMPERATURE, 10).appliquer(courte));
+    }
+
+    @Test
+    void refuseMoinsDeTroisPoints() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new SousEchantillonnage(SousEchantillonnage.Mode.LTTB, SousEchantillonnage.Grandeur.POIDS, 2));
+    }
+}
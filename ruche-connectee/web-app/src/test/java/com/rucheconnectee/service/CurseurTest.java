@@ -0,0 +1,66 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import com.rucheconnectee.model.SerieCapteurs;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Curseurs de pagination de l'historique (paramètre before de GET /api/mesures/ruche/{rucheId})
+ */
+class CurseurTest {
+
+    private static DonneesCapteur mesure(long horodatage, String id) {
+        DonneesCapteur mesure = new DonneesCapteur();
+        mesure.setId(id);
+        mesure.setTimestamp(SerieCapteurs.depuisEpochMillis(horodatage));
+        return mesure;
+    }
+
+    @Test
+    void litHorodatageEtCle() {
+        MesuresService.Curseur curseur = MesuresService.Curseur.parse("1780000000000:-NxAbc:d");
+
+        assertEquals("1780000000000:-NxAbc:d", curseur.toString());
+        assertTrue(curseur.precede(mesure(1_779_999_999_000L, "zzz")));
+        assertTrue(curseur.precede(mesure(1_780_000_000_000L, "-NxAba")));
+        assertFalse(curseur.precede(mesure(1_780_000_000_000L, "-NxAbc:d")));
+        assertFalse(curseur.precede(mesure(1_780_000_001_000L, "a")));
+    }
+
+    @Test
+    void litUnHorodatageSeul() {
+        MesuresService.Curseur curseur = MesuresService.Curseur.parse("1780000000000");
+
+        assertEquals("1780000000000", curseur.toString());
+        assertFalse(curseur.precede(mesure(1_780_000_000_000L, "a")));
+        assertTrue(curseur.precede(mesure(1_779_999_999_000L, "a")));
+    }
+
+    @Test
+    void litUneDateHeureIso() {
+        LocalDateTime horodatage = LocalDateTime.of(2026, 7, 14, 8, 0);
+        MesuresService.Curseur curseur = MesuresService.Curseur.parse("2026-07-14T08:00:00");
+
+        assertEquals(String.valueOf(SerieCapteurs.versEpochMillis(horodatage)), curseur.toString());
+    }
+
+    @Test
+    void reprendApresLaDerniereMesureDUnePage() {
+        DonneesCapteur derniere = mesure(1_780_000_000_000L, "m42");
+        MesuresService.Curseur curseur = MesuresService.Curseur.parse(MesuresService.Curseur.de(derniere).toString());
+
+        assertFalse(curseur.precede(derniere));
+        assertTrue(curseur.precede(mesure(1_780_000_000_000L, "m41")));
+    }
+
+    @Test
+    void refuseUnCurseurInvalide() {
+        assertThrows(IllegalArgumentException.class, () -> MesuresService.Curseur.parse("hier"));
+        assertThrows(IllegalArgumentException.class, () -> MesuresService.Curseur.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> MesuresService.Curseur.parse("12a:cle"));
+    }
+}
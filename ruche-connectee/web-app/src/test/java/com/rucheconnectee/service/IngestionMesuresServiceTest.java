@@ -0,0 +1,195 @@
+package com.rucheconnectee.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rucheconnectee.model.DonneesCapteur;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * File d'ingestion sans écrivain : les lots sont écrits par traiterFile() sur le fil du test,
+ * MesuresService est remplacé par un bouchon
+ */
+class IngestionMesuresServiceTest {
+
+    private static final LocalDateTime DEBUT = LocalDateTime.of(2026, 9, 1, 10, 0);
+
+    @TempDir
+    Path repertoire;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MesuresService mesuresService;
+    private IngestionMesuresService ingestion;
+    private final List<Map<String, List<DonneesCapteur>>> ecritures = new ArrayList<>();
+
+    @BeforeEach
+    void creer() {
+        mesuresService = mock(MesuresService.class);
+        when(mesuresService.ajouterMesuresAsync(any())).thenAnswer(appel -> {
+            ecritures.add(new LinkedHashMap<>(appel.getArgument(0)));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        ingestion = new IngestionMesuresService();
+        ReflectionTestUtils.setField(ingestion, "mesuresService", mesuresService);
+        ReflectionTestUtils.setField(ingestion, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(ingestion, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ingestion, "enabled", true);
+        ReflectionTestUtils.setField(ingestion, "capacite", 100);
+        ReflectionTestUtils.setField(ingestion, "tailleLot", 500);
+        ReflectionTestUtils.setField(ingestion, "timeoutEcritureSecondes", 5L);
+        ReflectionTestUtils.setField(ingestion, "tentativesMax", 3);
+        ReflectionTestUtils.setField(ingestion, "attenteEchecMs", 0L);
+        ReflectionTestUtils.setField(ingestion, "journal", repertoire.resolve("ingestion.jsonl").toString());
+        ReflectionTestUtils.setField(ingestion, "rejets", repertoire.resolve("rejets.jsonl").toString());
+    }
+
+    private static DonneesCapteur mesure(String id, int minute) {
+        DonneesCapteur mesure = new DonneesCapteur();
+        mesure.setId(id);
+        mesure.setTimestamp(DEBUT.plusMinutes(minute));
+        mesure.setTemperature(34.0 + minute);
+        return mesure;
+    }
+
+    private List<String> lignes(String fichier) throws Exception {
+        Path chemin = repertoire.resolve(fichier);
+        return Files.exists(chemin) ? Files.readAllLines(chemin, StandardCharsets.UTF_8) : List.of();
+    }
+
+    private List<String> idsEcrits() {
+        List<String> ids = new ArrayList<>();
+        for (Map<String, List<DonneesCapteur>> ecriture : ecritures) {
+            ecriture.values().forEach(mesures -> mesures.forEach(mesure -> ids.add(mesure.getId())));
+        }
+        return ids;
+    }
+
+    @Test
+    void ecritLaFileEnUnLotPuisVideLeJournal() throws Exception {
+        ingestion.ouvrir();
+        assertTrue(ingestion.soumettre("R1", mesure("a", 0)));
+        assertTrue(ingestion.soumettre("R2", mesure("b", 1)));
+        assertTrue(ingestion.soumettre("R1", mesure("c", 2)));
+        assertEquals(3, lignes("ingestion.jsonl").size());
+
+        ingestion.traiterFile();
+
+        assertEquals(1, ecritures.size());
+        assertEquals(List.of("R1", "R2"), new ArrayList<>(ecritures.get(0).keySet()));
+        assertEquals(List.of("a", "c", "b"), idsEcrits());
+        assertEquals(List.of(), lignes("ingestion.jsonl"));
+        assertEquals(3L, ingestion.getStatistiques().get("ecrites"));
+    }
+
+    @Test
+    void refuseAuDelaDeLaCapacite() {
+        ReflectionTestUtils.setField(ingestion, "capacite", 2);
+        ingestion.ouvrir();
+
+        assertTrue(ingestion.soumettre("R1", mesure("a", 0)));
+        assertTrue(ingestion.soumettre("R1", mesure("b", 1)));
+        assertFalse(ingestion.soumettre("R1", mesure("c", 2)));
+        assertEquals(1L, ingestion.getStatistiques().get("refusees"));
+    }
+
+    @Test
+    void rejoueLeJournalLaisseParUnArret() throws Exception {
+        List<String> journal = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> document = MesuresService.convertToDocument(mesure("journal-" + i, i));
+            document.put("id", "journal-" + i);
+            document.put("rucheId", "R1");
+            journal.add(objectMapper.writeValueAsString(document));
+            if (i == 0) {
+                journal.add("{ligne tronquée par l'arrêt");
+            }
+        }
+        Files.write(repertoire.resolve("ingestion.jsonl"), journal, StandardCharsets.UTF_8);
+        // Une place de moins que de mesures : la dernière attend que la file se vide
+        ReflectionTestUtils.setField(ingestion, "capacite", 2);
+
+        ingestion.ouvrir();
+        ingestion.traiterFile();
+
+        assertEquals(List.of("journal-0", "journal-1", "journal-2"), idsEcrits());
+        assertEquals(2, ecritures.size());
+        assertEquals(36.0, ecritures.get(1).get("R1").get(0).getTemperature());
+        assertEquals(List.of(), lignes("ingestion.jsonl"));
+    }
+
+    @Test
+    void lotRefuseRejeteSeulementLaRucheEnCause() throws Exception {
+        doAnswer(appel -> {
+            Map<String, List<DonneesCapteur>> mesuresParRuche = appel.getArgument(0);
+            if (mesuresParRuche.containsKey("interdite")) {
+                return CompletableFuture.failedFuture(new Stockage.EcritureRefuseeException("Permission denied"));
+            }
+            ecritures.add(new LinkedHashMap<>(mesuresParRuche));
+            return CompletableFuture.completedFuture(null);
+        }).when(mesuresService).ajouterMesuresAsync(any());
+        ingestion.ouvrir();
+        ingestion.soumettre("R1", mesure("a", 0));
+        ingestion.soumettre("interdite", mesure("b", 1));
+        ingestion.soumettre("R1", mesure("c", 2));
+
+        ingestion.traiterFile();
+
+        assertEquals(List.of("a", "c"), idsEcrits());
+        List<String> rejets = lignes("rejets.jsonl");
+        assertEquals(1, rejets.size());
+        Map<?, ?> rejet = objectMapper.readValue(rejets.get(0), Map.class);
+        assertEquals("b", rejet.get("id"));
+        assertEquals("interdite", rejet.get("rucheId"));
+        assertTrue(((String) rejet.get("motif")).contains("Permission denied"));
+        assertEquals(1L, ingestion.getStatistiques().get("rejetees"));
+        assertEquals(List.of(), lignes("ingestion.jsonl"));
+    }
+
+    @Test
+    void echecTransitoireReessayeAuPlusTentativesMaxFois() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Réseau indisponible")))
+            .when(mesuresService).ajouterMesuresAsync(any());
+        ingestion.ouvrir();
+        ingestion.soumettre("R1", mesure("a", 0));
+
+        ingestion.traiterFile();
+
+        verify(mesuresService, times(3)).ajouterMesuresAsync(any());
+        assertEquals(1, lignes("rejets.jsonl").size());
+        assertEquals(3L, ingestion.getStatistiques().get("echecs"));
+
+        // L'écrivain passe au lot suivant
+        doReturn(CompletableFuture.completedFuture(null)).when(mesuresService).ajouterMesuresAsync(any());
+        ingestion.soumettre("R1", mesure("b", 1));
+        ingestion.traiterFile();
+        assertEquals(1L, ingestion.getStatistiques().get("ecrites"));
+    }
+
+    @Test
+    void echecTransitoirePuisSucces() {
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Réseau indisponible")),
+            CompletableFuture.completedFuture(null)).when(mesuresService).ajouterMesuresAsync(any());
+        ingestion.ouvrir();
+        ingestion.soumettre("R1", mesure("a", 0));
+
+        ingestion.traiterFile();
+
+        verify(mesuresService, times(2)).ajouterMesuresAsync(any());
+        assertEquals(1L, ingestion.getStatistiques().get("ecrites"));
+        assertEquals(0L, ingestion.getStatistiques().get("rejetees"));
+    }
+}
@@ -0,0 +1,29 @@
+package com.rucheconnectee.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalCirculaireTest {
+
+    @Test
+    void renvoieLesPlusRecentsDAbord() {
+        JournalCirculaire<Integer> journal = new JournalCirculaire<>(5);
+        journal.ajouter(List.of(1, 2, 3));
+
+        assertEquals(List.of(3, 2, 1), journal.derniers(10));
+        assertEquals(List.of(3, 2), journal.derniers(2));
+        assertEquals(List.of(), journal.derniers(0));
+    }
+
+    @Test
+    void ecraseLesPlusAnciensAuDelaDeLaCapacite() {
+        JournalCirculaire<Integer> journal = new JournalCirculaire<>(3);
+        journal.ajouter(List.of(1, 2));
+        journal.ajouter(List.of(3, 4, 5, 6));
+
+        assertEquals(List.of(6, 5, 4), journal.derniers(10));
+    }
+}
@@ -0,0 +1,63 @@
+package com.rucheconnectee.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Requêtes triées par clé du stockage en mémoire : ordre des clés Firebase et curseur apres strict
+ */
+class MemoireStockageTest {
+
+    private MemoireStockage stockage;
+
+    @BeforeEach
+    void demarrer() throws Exception {
+        stockage = new MemoireStockage();
+        stockage.demarrer();
+        Map<String, Object> enfants = new HashMap<>();
+        for (String cle : List.of("1", "2", "10", "a", "a ", "a!", "b")) {
+            enfants.put(cle, Map.of("nom", cle));
+        }
+        stockage.mettreAJour("ruche", enfants).join();
+    }
+
+    @AfterEach
+    void arreter() {
+        stockage.arreter();
+    }
+
+    private List<String> cles(Stockage.Requete requete) {
+        List<String> cles = new ArrayList<>();
+        stockage.lire(requete).join().getChildren().forEach(enfant -> cles.add(enfant.getKey()));
+        return cles;
+    }
+
+    @Test
+    void trieLesClesEntieresAvantLesTextes() {
+        assertEquals(List.of("1", "2", "10", "a", "a ", "a!", "b"),
+            cles(Stockage.Requete.sur("ruche").trierPar(Stockage.Requete.ORDRE_CLE)));
+    }
+
+    @Test
+    void apresExclutSeulementLaCleDonnee() {
+        assertEquals(List.of("a ", "a!", "b"),
+            cles(Stockage.Requete.sur("ruche").trierPar(Stockage.Requete.ORDRE_CLE).apres("a")));
+        assertEquals(List.of("10", "a", "a "),
+            cles(Stockage.Requete.sur("ruche").trierPar(Stockage.Requete.ORDRE_CLE).apres("2").premiers(3)));
+        assertEquals(List.of(),
+            cles(Stockage.Requete.sur("ruche").trierPar(Stockage.Requete.ORDRE_CLE).apres("b")));
+    }
+
+    @Test
+    void apresAvecBorneDeFin() {
+        assertEquals(List.of("a!"),
+            cles(Stockage.Requete.sur("ruche").trierPar(Stockage.Requete.ORDRE_CLE).apres("a ").jusqua("a!", null)));
+        assertEquals(List.of(),
+            cles(Stockage.Requete.sur("ruche").trierPar(Stockage.Requete.ORDRE_CLE).apres("a!").jusqua("a!", null)));
+    }
+}
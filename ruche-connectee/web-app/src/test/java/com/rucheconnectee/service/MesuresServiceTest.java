@@ -0,0 +1,81 @@
+package com.rucheconnectee.service;
+
+import com.rucheconnectee.model.DonneesCapteur;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Lecture d'une période : requête Firebase par jours entiers sur "date", heure affinée en mémoire
+ */
+class MesuresServiceTest {
+
+    private FirebaseService firebaseService;
+    private MesuresService mesuresService;
+
+    @BeforeEach
+    void creer() {
+        firebaseService = mock(FirebaseService.class);
+        MigrationHorodatageService migrationHorodatageService = mock(MigrationHorodatageService.class);
+        when(migrationHorodatageService.estMigreeAsync(anyString())).thenReturn(CompletableFuture.completedFuture(false));
+
+        mesuresService = new MesuresService();
+        ReflectionTestUtils.setField(mesuresService, "firebaseService", firebaseService);
+        ReflectionTestUtils.setField(mesuresService, "mesuresCache", mock(MesuresCache.class));
+        ReflectionTestUtils.setField(mesuresService, "segmentsMesures", mock(SegmentsMesures.class));
+        ReflectionTestUtils.setField(mesuresService, "migrationHorodatageService", migrationHorodatageService);
+    }
+
+    private static DonneesCapteur mesure(String id, LocalDateTime horodatage) {
+        DonneesCapteur mesure = new DonneesCapteur();
+        mesure.setId(id);
+        mesure.setTimestamp(horodatage);
+        mesure.setTemperature(34.0);
+        return mesure;
+    }
+
+    @Test
+    void interrogeLesJoursDeLaPeriodeBornesComprises() {
+        LocalDateTime debut = LocalDateTime.of(2026, 9, 1, 10, 0);
+        LocalDateTime fin = LocalDateTime.of(2026, 9, 3, 8, 0);
+        // Ce que Firebase renvoie pour date dans [2026-09-01, 2026-09-03] : des jours entiers
+        List<DonneesCapteur> jours = new ArrayList<>(List.of(
+            mesure("avant-debut", LocalDateTime.of(2026, 9, 1, 9, 0)),
+            mesure("premier-jour", LocalDateTime.of(2026, 9, 1, 11, 0)),
+            mesure("milieu", LocalDateTime.of(2026, 9, 2, 12, 0)),
+            mesure("dernier-jour", LocalDateTime.of(2026, 9, 3, 7, 59)),
+            mesure("apres-fin", LocalDateTime.of(2026, 9, 3, 9, 0))));
+        doReturn(CompletableFuture.completedFuture(jours)).when(firebaseService)
+            .queryDocumentsAsync(anyString(), anyString(), any(), any(), any(), eq(DonneesCapteur.class));
+
+        List<DonneesCapteur> mesures = mesuresService.getMesuresParPeriodeAsync("R1", debut, fin).join();
+
+        verify(firebaseService).queryDocumentsAsync("ruche/R1/historique", "date", "2026-09-01", "2026-09-03", null,
+            DonneesCapteur.class);
+        assertEquals(List.of("dernier-jour", "milieu", "premier-jour"), mesures.stream().map(DonneesCapteur::getId).toList());
+        assertTrue(mesures.stream().allMatch(mesure -> "R1".equals(mesure.getRucheId())));
+    }
+
+    @Test
+    void periodeDansUneSeuleJourneeNInterrogeQueCeJour() {
+        LocalDateTime debut = LocalDateTime.of(2026, 9, 2, 6, 0);
+        LocalDateTime fin = LocalDateTime.of(2026, 9, 2, 18, 0);
+        doReturn(CompletableFuture.completedFuture(List.of(mesure("midi", LocalDateTime.of(2026, 9, 2, 12, 0)))))
+            .when(firebaseService).queryDocumentsAsync(anyString(), anyString(), any(), any(), any(), eq(DonneesCapteur.class));
+
+        List<DonneesCapteur> mesures = mesuresService.getMesuresParPeriodeAsync("R1", debut, fin).join();
+
+        verify(firebaseService).queryDocumentsAsync("ruche/R1/historique", "date", "2026-09-02", "2026-09-02", null,
+            DonneesCapteur.class);
+        assertEquals(1, mesures.size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.rucheconnectee.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoueTemporelleTest {
+
+    private static List<String> avancer(RoueTemporelle<String> roue, long maintenantMs) {
+        List<String> echus = new ArrayList<>();
+        roue.avancer(maintenantMs, echus::add);
+        return echus;
+    }
+
+    @Test
+    void echoitAuPasDeLEcheance() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(100, 8, 0);
+        roue.planifier("a", 250);
+        roue.planifier("b", 300);
+
+        assertEquals(List.of(), avancer(roue, 299));
+        assertEquals(List.of("a", "b"), avancer(roue, 300).stream().sorted().toList());
+        assertEquals(0, roue.taille());
+    }
+
+    @Test
+    void echeancePasseeEchoitAuProchainPas() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(100, 8, 1000);
+        avancer(roue, 1500);
+        roue.planifier("en retard", 200);
+
+        assertEquals(List.of("en retard"), avancer(roue, 1600));
+    }
+
+    @Test
+    void echeanceAuDelaDUnTourAttendSonTour() {
+        // 8 cases de 100 ms : un tour fait 800 ms
+        RoueTemporelle<String> roue = new RoueTemporelle<>(100, 8, 0);
+        roue.planifier("lointaine", 1_000);
+
+        assertEquals(List.of(), avancer(roue, 200));
+        assertEquals(List.of(), avancer(roue, 900));
+        assertEquals(1, roue.taille());
+        assertEquals(List.of("lointaine"), avancer(roue, 1_000));
+    }
+
+    @Test
+    void longuePauseVideToutesLesCasesEchues() {
+        RoueTemporelle<String> roue = new RoueTemporelle<>(100, 8, 0);
+        for (int i = 1; i <= 20; i++) {
+            roue.planifier("e" + i, i * 100L);
+        }
+        roue.planifier("apres", 10_000);
+
+        assertEquals(20, avancer(roue, 5_000).size());
+        assertEquals(1, roue.taille());
+        assertEquals(List.of(), avancer(roue, 4_000));
+        assertEquals(List.of("apres"), avancer(roue, 10_000));
+    }
+}